@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.cloudwatch.metrics;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.metrics.AggregatingRequestMetricCollector;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.metrics.RequestMetricsSnapshot;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.LatencyHistogram;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically publishes the request metrics aggregated by an
+ * {@link AggregatingRequestMetricCollector} to Amazon CloudWatch.
+ * <p>
+ * Each period, the metrics recorded since the previous period are sent for
+ * every operation that completed a request, with the dimensions
+ * {@code ServiceName} and {@code Operation}. Latencies are sent as statistic
+ * sets in milliseconds and counters as counts, batched into as few
+ * PutMetricData calls as possible. A batch that fails to be sent is logged
+ * and dropped. The sample count and sum of a statistic set are exact, while
+ * its minimum and maximum are the bounds of the {@link LatencyHistogram}
+ * buckets they fell in, within about 6% of the recorded values.
+ * <p>
+ * The PutMetricData calls of the publisher are not collected by any
+ * {@link RequestMetricCollector}, so that publishing does not feed back into
+ * the published metrics when the collector is installed globally.
+ */
+public class CloudWatchRequestMetricPublisher {
+    private static final Log log = LogFactory.getLog(CloudWatchRequestMetricPublisher.class);
+
+    /** The default namespace of the published metrics. */
+    public static final String DEFAULT_NAMESPACE = "AWSSDK/Android";
+
+    /** The default period between two publications, one minute. */
+    public static final long DEFAULT_PUBLISH_PERIOD_MILLIS = 60 * 1000;
+
+    /** The maximum number of metric data accepted by PutMetricData. */
+    static final int MAX_METRIC_DATA_PER_REQUEST = 20;
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final AmazonCloudWatch cloudWatch;
+    private final AggregatingRequestMetricCollector collector;
+    private final String namespace;
+    private final long publishPeriodMillis;
+    private final Map<String, RequestMetricsSnapshot> lastSnapshots =
+            new HashMap<String, RequestMetricsSnapshot>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a publisher using the default namespace and period.
+     *
+     * @param cloudWatch The client used to publish the metrics.
+     * @param collector The collector whose metrics are published.
+     */
+    public CloudWatchRequestMetricPublisher(AmazonCloudWatch cloudWatch,
+            AggregatingRequestMetricCollector collector) {
+        this(cloudWatch, collector, DEFAULT_NAMESPACE, DEFAULT_PUBLISH_PERIOD_MILLIS);
+    }
+
+    /**
+     * Constructs a publisher.
+     *
+     * @param cloudWatch The client used to publish the metrics.
+     * @param collector The collector whose metrics are published.
+     * @param namespace The CloudWatch namespace of the metrics.
+     * @param publishPeriodMillis The time between two publications.
+     */
+    public CloudWatchRequestMetricPublisher(AmazonCloudWatch cloudWatch,
+            AggregatingRequestMetricCollector collector, String namespace,
+            long publishPeriodMillis) {
+        if (cloudWatch == null || collector == null || namespace == null) {
+            throw new IllegalArgumentException(
+                    "cloudWatch, collector and namespace must not be null");
+        }
+        if (publishPeriodMillis <= 0) {
+            throw new IllegalArgumentException("publishPeriodMillis must be positive");
+        }
+        this.cloudWatch = cloudWatch;
+        this.collector = collector;
+        this.namespace = namespace;
+        this.publishPeriodMillis = publishPeriodMillis;
+    }
+
+    /**
+     * Starts publishing the metrics periodically on a background daemon
+     * thread. Has no effect if the publisher is already started.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "android-sdk-cloudwatch-metric-publisher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    publish();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to publish request metrics", e);
+                }
+            }
+        }, publishPeriodMillis, publishPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops publishing the metrics periodically. The metrics recorded since
+     * the last publication are not published; call {@link #publish()} to do
+     * so.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Publishes the metrics recorded since the previous publication now.
+     *
+     * @return The number of metric data sent.
+     */
+    public synchronized int publish() {
+        List<MetricDatum> data = new ArrayList<MetricDatum>();
+        for (RequestMetricsSnapshot snapshot : collector.getSnapshots()) {
+            String key = snapshot.toString();
+            RequestMetricsSnapshot interval = snapshot.since(lastSnapshots.get(key));
+            lastSnapshots.put(key, snapshot);
+            addMetricData(interval, data);
+        }
+
+        int sent = 0;
+        for (int from = 0; from < data.size(); from += MAX_METRIC_DATA_PER_REQUEST) {
+            List<MetricDatum> batch = data.subList(from,
+                    Math.min(data.size(), from + MAX_METRIC_DATA_PER_REQUEST));
+            try {
+                PutMetricDataRequest request = new PutMetricDataRequest()
+                        .withNamespace(namespace)
+                        .withMetricData(new ArrayList<MetricDatum>(batch));
+                request.setRequestMetricCollector(RequestMetricCollector.NONE);
+                cloudWatch.putMetricData(request);
+                sent += batch.size();
+            } catch (AmazonClientException e) {
+                log.warn("Failed to publish " + batch.size() + " request metrics", e);
+            }
+        }
+        return sent;
+    }
+
+    static void addMetricData(RequestMetricsSnapshot snapshot, List<MetricDatum> data) {
+        if (snapshot.getRequestCount() == 0) {
+            return;
+        }
+        Date timestamp = new Date(snapshot.getEndTimeMillis());
+        List<Dimension> dimensions = new ArrayList<Dimension>(2);
+        dimensions.add(new Dimension().withName("ServiceName")
+                .withValue(snapshot.getServiceName()));
+        dimensions.add(new Dimension().withName("Operation")
+                .withValue(snapshot.getOperationName()));
+
+        for (Field field : AggregatingRequestMetricCollector.LATENCY_FIELDS) {
+            LatencyHistogram histogram = snapshot.getLatencyHistogram(field);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            data.add(new MetricDatum()
+                    .withMetricName(field.name())
+                    .withDimensions(dimensions)
+                    .withTimestamp(timestamp)
+                    .withUnit(StandardUnit.Milliseconds)
+                    .withStatisticValues(new StatisticSet()
+                            .withSampleCount((double) histogram.getTotalCount())
+                            .withSum(histogram.getSum() / MICROS_PER_MILLI)
+                            .withMinimum(histogram.getMinValue() / MICROS_PER_MILLI)
+                            .withMaximum(histogram.getMaxValue() / MICROS_PER_MILLI)));
+        }
+        addCount("RequestCount", snapshot.getRequestCount(), dimensions, timestamp, data);
+        addCount("RetryCount", snapshot.getRetryCount(), dimensions, timestamp, data);
+        addCount("FailedRequestCount", snapshot.getFailedRequestCount(), dimensions,
+                timestamp, data);
+        addCount("ExceptionCount", snapshot.getExceptionCount(), dimensions, timestamp, data);
+        addCount(Field.ThrottledRetryCount.name(), snapshot.getThrottledRetryCount(),
+                dimensions, timestamp, data);
+    }
+
+    private static void addCount(String metricName, long count, List<Dimension> dimensions,
+            Date timestamp, List<MetricDatum> data) {
+        if (count == 0) {
+            return;
+        }
+        data.add(new MetricDatum()
+                .withMetricName(metricName)
+                .withDimensions(dimensions)
+                .withTimestamp(timestamp)
+                .withUnit(StandardUnit.Count)
+                .withValue((double) count));
+    }
+}
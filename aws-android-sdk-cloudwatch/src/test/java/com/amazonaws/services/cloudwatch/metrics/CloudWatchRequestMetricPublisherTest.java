@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.cloudwatch.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.AggregatingRequestMetricCollector;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsArraySupport;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CloudWatchRequestMetricPublisherTest {
+
+    private final FakeCloudWatch fake = new FakeCloudWatch();
+    private final AmazonCloudWatch cloudWatch = (AmazonCloudWatch) Proxy.newProxyInstance(
+            AmazonCloudWatch.class.getClassLoader(), new Class<?>[] {
+                AmazonCloudWatch.class
+            }, fake);
+    private final AggregatingRequestMetricCollector collector =
+            new AggregatingRequestMetricCollector(1);
+    private final CloudWatchRequestMetricPublisher publisher =
+            new CloudWatchRequestMetricPublisher(cloudWatch, collector);
+
+    @Test
+    public void testBatchesMetricData() {
+        // ClientExecuteTime, HttpRequestTime and RequestCount for each service
+        for (int i = 0; i < 8; i++) {
+            record("Service" + i);
+        }
+        assertEquals(24, publisher.publish());
+
+        assertEquals(2, fake.requests.size());
+        assertEquals(CloudWatchRequestMetricPublisher.MAX_METRIC_DATA_PER_REQUEST,
+                fake.requests.get(0).getMetricData().size());
+        assertEquals(4, fake.requests.get(1).getMetricData().size());
+        for (PutMetricDataRequest request : fake.requests) {
+            assertEquals(CloudWatchRequestMetricPublisher.DEFAULT_NAMESPACE,
+                    request.getNamespace());
+            assertSame(RequestMetricCollector.NONE, request.getRequestMetricCollector());
+        }
+    }
+
+    @Test
+    public void testPublishesDeltas() {
+        record("AmazonDynamoDB");
+        record("AmazonDynamoDB");
+        assertEquals(3, publisher.publish());
+        assertEquals(2.0, find(fake.requests.get(0), "RequestCount").getValue(), 0);
+
+        // Nothing was recorded since
+        fake.requests.clear();
+        assertEquals(0, publisher.publish());
+        assertEquals(0, fake.requests.size());
+
+        record("AmazonDynamoDB");
+        assertEquals(3, publisher.publish());
+        PutMetricDataRequest request = fake.requests.get(0);
+        assertEquals(1.0, find(request, "RequestCount").getValue(), 0);
+        assertEquals(1.0, find(request, Field.HttpRequestTime.name()).getStatisticValues()
+                .getSampleCount(), 0);
+    }
+
+    @Test
+    public void testDropsFailedBatch() {
+        for (int i = 0; i < 8; i++) {
+            record("Service" + i);
+        }
+        fake.failures = 1;
+        assertEquals(4, publisher.publish());
+        assertEquals(1, fake.requests.size());
+
+        // The failed batch is not sent again
+        fake.requests.clear();
+        assertEquals(0, publisher.publish());
+    }
+
+    private void record(String serviceName) {
+        DefaultRequest<AmazonWebServiceRequest> request =
+                new DefaultRequest<AmazonWebServiceRequest>(new GetItemRequest(), serviceName);
+        AWSRequestMetrics metrics = new AWSRequestMetricsArraySupport();
+        metrics.startEvent(Field.ClientExecuteTime);
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.ClientExecuteTime);
+        request.setAWSRequestMetrics(metrics);
+        collector.collectMetrics(request, new Response<String>("ok", null));
+    }
+
+    private static MetricDatum find(PutMetricDataRequest request, String metricName) {
+        for (MetricDatum datum : request.getMetricData()) {
+            if (datum.getMetricName().equals(metricName)) {
+                return datum;
+            }
+        }
+        throw new AssertionError(metricName + " not found");
+    }
+
+    private static class GetItemRequest extends AmazonWebServiceRequest {
+    }
+
+    /**
+     * Records the PutMetricData requests, failing the given number first.
+     */
+    private static class FakeCloudWatch implements InvocationHandler {
+        final List<PutMetricDataRequest> requests = new ArrayList<PutMetricDataRequest>();
+        int failures;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("putMetricData")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            if (failures > 0) {
+                failures--;
+                throw new AmazonClientException("Unable to execute HTTP request");
+            }
+            requests.add((PutMetricDataRequest) args[0]);
+            return null;
+        }
+    }
+}
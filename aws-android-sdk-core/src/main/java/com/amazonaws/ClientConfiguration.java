@@ -15,6 +15,7 @@
 
 package com.amazonaws;
 
+import com.amazonaws.http.HedgingPolicy;
 import com.amazonaws.http.IdleConnectionReaper;
 import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.retry.RetryPolicy;
@@ -79,6 +80,9 @@ public class ClientConfiguration {
     /** The retry policy upon failed requests. **/
     private RetryPolicy retryPolicy = DEFAULT_RETRY_POLICY;
 
+    /** The hedging policy for slow requests, or null to never hedge. **/
+    private HedgingPolicy hedgingPolicy;
+
     /** Optionally specifies the local address to bind to */
     private InetAddress localAddress;
 
@@ -182,6 +186,7 @@ public class ClientConfiguration {
         this.maxConnections = other.maxConnections;
         this.maxErrorRetry = other.maxErrorRetry;
         this.retryPolicy = other.retryPolicy;
+        this.hedgingPolicy = other.hedgingPolicy;
         this.localAddress = other.localAddress;
         this.protocol = other.protocol;
         this.proxyDomain = other.proxyDomain;
@@ -588,6 +593,40 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the hedging policy for slow requests, or null if requests are
+     * never hedged.
+     *
+     * @return The hedging policy for slow requests, or null.
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets the hedging policy for slow requests. Requests are never hedged by
+     * default. The policy decides which requests are idempotent and may be
+     * hedged.
+     *
+     * @param hedgingPolicy The hedging policy for slow requests, or null to
+     *            never hedge.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Sets the hedging policy for slow requests, and returns the updated
+     * ClientConfiguration object.
+     *
+     * @param hedgingPolicy The hedging policy for slow requests, or null to
+     *            never hedge.
+     */
+    public ClientConfiguration withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
+
     /**
      * Returns the maximum number of retry attempts for failed retryable
      * requests (ex: 5xx error responses from a service). This method returns -1
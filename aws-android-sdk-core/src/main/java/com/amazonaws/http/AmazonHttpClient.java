@@ -34,11 +34,14 @@ import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.CircuitBreaker;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryQuota;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
 import com.amazonaws.util.DateUtils;
+import com.amazonaws.util.HttpUtils;
 import com.amazonaws.util.TimingInfo;
 
 import org.apache.commons.logging.Log;
@@ -49,11 +52,11 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AmazonHttpClient {
 
@@ -74,6 +77,22 @@ public class AmazonHttpClient {
      */
     static final Log log = LogFactory.getLog(AmazonHttpClient.class);
 
+    /**
+     * Seeds of the invocation ids, random per process. The ids only need to be
+     * unique, not unpredictable, so they are derived from a counter rather
+     * than drawn from SecureRandom for every request.
+     */
+    private static final long INVOCATION_ID_SEED_HIGH;
+    private static final long INVOCATION_ID_SEED_LOW;
+    static {
+        Random random = new Random();
+        INVOCATION_ID_SEED_HIGH = random.nextLong();
+        INVOCATION_ID_SEED_LOW = random.nextLong();
+    }
+
+    /** Number of invocation ids issued so far. */
+    private static final AtomicLong invocationCount = new AtomicLong();
+
     /** Internal client for sending HTTP requests */
     final HttpClient httpClient;
 
@@ -276,17 +295,16 @@ public class AmazonHttpClient {
         // Apply whatever request options we know how to handle, such as
         // user-agent.
         setUserAgent(request);
-        request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
+        request.addHeader(HEADER_SDK_TRANSACTION_ID, newInvocationId());
         int requestCount = 0;
         long lastBackoffDelay = 0;
         URI redirectedURI = null;
         AmazonClientException retriedException = null;
 
-        // Make a copy of the original request params and headers so that we can
-        // permute it in this loop and start over with the original every time.
-        Map<String, String> originalParameters = new LinkedHashMap<String, String>(
-                request.getParameters());
-        Map<String, String> originalHeaders = new HashMap<String, String>(request.getHeaders());
+        // Snapshot the original request params and headers so that we can
+        // permute them in this loop and start over with the original every
+        // time.
+        RequestSnapshot original = new RequestSnapshot(request);
         // mark input stream if supported
         InputStream originalContent = request.getContent();
         if (originalContent != null && originalContent.markSupported()) {
@@ -298,12 +316,18 @@ public class AmazonHttpClient {
         HttpResponse httpResponse = null;
         HttpRequest httpRequest = null;
 
+        final RetryPolicy retryPolicy = config.getRetryPolicy();
+        final CircuitBreaker circuitBreaker = retryPolicy.getCircuitBreaker();
+        final HedgingPolicy hedgingPolicy = config.getHedgingPolicy();
+        // Tokens withdrawn from the retry quota for this request, returned to
+        // it if the request eventually succeeds
+        int retryCapacityAcquired = 0;
+
         while (true) {
             ++requestCount;
             awsRequestMetrics.setCounter(Field.RequestCount, requestCount);
             if (requestCount > 1) { // retry
-                request.setParameters(originalParameters);
-                request.setHeaders(originalHeaders);
+                original.restore(request);
                 request.setContent(originalContent);
             }
             if (redirectedURI != null) {
@@ -311,6 +335,17 @@ public class AmazonHttpClient {
                         redirectedURI.getScheme() + "://" + redirectedURI.getAuthority()));
                 request.setResourcePath(redirectedURI.getPath());
             }
+            if (circuitBreaker != null && !circuitBreaker.allowRequest(request.getEndpoint())) {
+                awsRequestMetrics.incrementCounter(Field.CircuitBreakerRejectedCount);
+                awsRequestMetrics.addProperty(Field.CircuitBreakerState,
+                        CircuitBreaker.State.OPEN);
+                // Surface the failure that kept the circuit open, if any
+                if (retriedException != null) {
+                    throw retriedException;
+                }
+                throw new AmazonClientException("Unable to execute HTTP request: "
+                        + "the circuit breaker is open for " + request.getEndpoint());
+            }
 
             try {
                 if (requestCount > 1) { // retry
@@ -319,7 +354,7 @@ public class AmazonHttpClient {
                         lastBackoffDelay = pauseBeforeNextRetry(request.getOriginalRequest(),
                                 retriedException,
                                 requestCount,
-                                config.getRetryPolicy());
+                                retryPolicy);
                     } finally {
                         awsRequestMetrics.endEvent(Field.RetryPauseTime);
                     }
@@ -353,13 +388,18 @@ public class AmazonHttpClient {
                 retriedException = null;
                 awsRequestMetrics.startEvent(Field.HttpRequestTime);
                 try {
-                    httpResponse = httpClient.execute(httpRequest);
+                    httpResponse = hedgingPolicy == null
+                            ? httpClient.execute(httpRequest)
+                            : hedgingPolicy.execute(httpClient, request, httpRequest,
+                                    awsRequestMetrics);
                 } finally {
                     awsRequestMetrics.endEvent(Field.HttpRequestTime);
                 }
 
                 if (isRequestSuccessful(httpResponse)) {
                     awsRequestMetrics.addProperty(Field.StatusCode, httpResponse.getStatusCode());
+                    onRequestSucceeded(request, retryPolicy, retryCapacityAcquired,
+                            awsRequestMetrics);
                     /*
                      * If we get back any 2xx status code, then we know we
                      * should treat the service call as successful.
@@ -383,6 +423,9 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.StatusCode, httpResponse.getStatusCode());
                     awsRequestMetrics.addProperty(Field.RedirectLocation, redirectedLocation);
                     awsRequestMetrics.addProperty(Field.AWSRequestID, null);
+                    if (circuitBreaker != null) {
+                        circuitBreaker.onSuccess(request.getEndpoint());
+                    }
                 } else {
                     leaveHttpConnectionOpen = errorResponseHandler.needsConnectionLeftOpen();
                     AmazonServiceException ase = handleErrorResponse(request, errorResponseHandler,
@@ -390,14 +433,20 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID, ase.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode, ase.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode, ase.getStatusCode());
+                    onRequestFailed(request, retryPolicy, ase, awsRequestMetrics);
 
                     if (!shouldRetry(request.getOriginalRequest(),
                             httpRequest.getContent(),
                             ase,
                             requestCount,
-                            config.getRetryPolicy())) {
+                            retryPolicy)) {
+                        throw ase;
+                    }
+                    int acquired = acquireRetryCapacity(retryPolicy, awsRequestMetrics);
+                    if (acquired < 0) {
                         throw ase;
                     }
+                    retryCapacityAcquired += acquired;
 
                     // Cache the retryable exception
                     retriedException = ase;
@@ -422,13 +471,19 @@ public class AmazonHttpClient {
 
                 AmazonClientException ace = new AmazonClientException(
                         "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+                onRequestFailed(request, retryPolicy, ace, awsRequestMetrics);
                 if (!shouldRetry(request.getOriginalRequest(),
                         httpRequest.getContent(),
                         ace,
                         requestCount,
-                        config.getRetryPolicy())) {
+                        retryPolicy)) {
+                    throw ace;
+                }
+                int acquired = acquireRetryCapacity(retryPolicy, awsRequestMetrics);
+                if (acquired < 0) {
                     throw ace;
                 }
+                retryCapacityAcquired += acquired;
 
                 // Cache the retryable exception
                 retriedException = ace;
@@ -438,6 +493,8 @@ public class AmazonHttpClient {
             } catch (Error e) {
                 throw handleUnexpectedFailure(e, awsRequestMetrics);
             } finally {
+                // Don't keep this attempt's parameter encodings on a pooled thread
+                HttpUtils.clearEncodedParameters();
                 /*
                  * Some response handlers need to manually manage the HTTP
                  * connection and will take care of releasing the connection on
@@ -497,6 +554,28 @@ public class AmazonHttpClient {
         }
     }
 
+    /**
+     * Returns a new id for the invocation header, formatted like a random
+     * (version 4) UUID. Consecutive counts are scrambled by a bijective mix,
+     * so the ids are unique within the process and look random.
+     */
+    static String newInvocationId() {
+        long count = invocationCount.incrementAndGet();
+        long high = mix(INVOCATION_ID_SEED_HIGH + count);
+        long low = mix(INVOCATION_ID_SEED_LOW ^ count);
+        // set the version and variant bits as UUID.randomUUID() does
+        high = (high & ~0xF000L) | 0x4000L;
+        low = (low & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(high, low).toString();
+    }
+
+    /** The finalizer of the SplitMix64 generator. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Sets a User-Agent for the specified request, taking into account any
      * custom data.
@@ -589,6 +668,65 @@ public class AmazonHttpClient {
                 retries);
     }
 
+    /**
+     * Withdraws the cost of a retry from the retry quota of the given policy.
+     *
+     * @return The number of tokens withdrawn, 0 if the policy has no retry
+     *         quota, or -1 if the quota is exhausted and the request must not
+     *         be retried.
+     */
+    private static int acquireRetryCapacity(RetryPolicy retryPolicy,
+            AWSRequestMetrics awsRequestMetrics) {
+        RetryQuota retryQuota = retryPolicy.getRetryQuota();
+        if (retryQuota == null) {
+            return 0;
+        }
+        int acquired = retryQuota.acquire();
+        if (acquired < 0) {
+            awsRequestMetrics.incrementCounter(Field.ThrottledRetryCount);
+            if (log.isDebugEnabled()) {
+                log.debug("Retry quota exhausted, not retrying the request");
+            }
+        }
+        awsRequestMetrics.setCounter(Field.RetryQuotaAvailableCapacity,
+                retryQuota.getAvailableCapacity());
+        return acquired;
+    }
+
+    /**
+     * Returns the retry quota tokens held by a successful request and records
+     * the success with the circuit breaker, if the policy has either.
+     */
+    private static void onRequestSucceeded(Request<?> request, RetryPolicy retryPolicy,
+            int retryCapacityAcquired, AWSRequestMetrics awsRequestMetrics) {
+        RetryQuota retryQuota = retryPolicy.getRetryQuota();
+        if (retryQuota != null) {
+            retryQuota.release(retryCapacityAcquired);
+            awsRequestMetrics.setCounter(Field.RetryQuotaAvailableCapacity,
+                    retryQuota.getAvailableCapacity());
+        }
+        CircuitBreaker circuitBreaker = retryPolicy.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess(request.getEndpoint());
+            awsRequestMetrics.addProperty(Field.CircuitBreakerState,
+                    circuitBreaker.getState(request.getEndpoint()));
+        }
+    }
+
+    /**
+     * Records a failed attempt with the circuit breaker, if the policy has
+     * one.
+     */
+    private static void onRequestFailed(Request<?> request, RetryPolicy retryPolicy,
+            AmazonClientException exception, AWSRequestMetrics awsRequestMetrics) {
+        CircuitBreaker circuitBreaker = retryPolicy.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure(request.getEndpoint(), exception);
+            awsRequestMetrics.addProperty(Field.CircuitBreakerState,
+                    circuitBreaker.getState(request.getEndpoint()));
+        }
+    }
+
     private static boolean isTemporaryRedirect(HttpResponse response) {
         int statusCode = response.getStatusCode();
         String location = response.getHeaders().get("Location");
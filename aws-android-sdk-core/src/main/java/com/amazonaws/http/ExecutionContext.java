@@ -20,7 +20,7 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.util.AWSRequestMetrics;
-import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.amazonaws.util.AWSRequestMetricsArraySupport;
 
 import java.net.URI;
 import java.util.List;
@@ -52,7 +52,7 @@ public class ExecutionContext {
             boolean isMetricEnabled, AmazonWebServiceClient awsClient) {
         this.requestHandler2s = requestHandler2s;
         awsRequestMetrics = isMetricEnabled
-                ? new AWSRequestMetricsFullSupport()
+                ? new AWSRequestMetricsArraySupport()
                 : new AWSRequestMetrics();
         this.awsClient = awsClient;
     }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.retry.RetryQuota;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.IOUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one request on a background thread and, if it has not been answered
+ * after the hedge delay and the hedge budget allows, a duplicate of it. The
+ * first response wins; the other attempt is abandoned and its response
+ * closed as soon as it arrives.
+ */
+final class HedgedExecution {
+
+    private static final Log log = LogFactory.getLog(HedgedExecution.class);
+
+    private final HttpClient httpClient;
+    private final HttpRequest httpRequest;
+    private final HedgingPolicy.LatencyTracker tracker;
+    private final RetryQuota hedgeBudget;
+    private final AWSRequestMetrics awsRequestMetrics;
+    private final BlockingQueue<Attempt> completed = new LinkedBlockingQueue<Attempt>();
+
+    HedgedExecution(HttpClient httpClient, HttpRequest httpRequest,
+            HedgingPolicy.LatencyTracker tracker, RetryQuota hedgeBudget,
+            AWSRequestMetrics awsRequestMetrics) {
+        this.httpClient = httpClient;
+        this.httpRequest = httpRequest;
+        this.tracker = tracker;
+        this.hedgeBudget = hedgeBudget;
+        this.awsRequestMetrics = awsRequestMetrics;
+    }
+
+    HttpResponse execute(long hedgeDelayNanos) throws IOException {
+        // Each attempt needs its own copy of the content
+        byte[] content = readContent(httpRequest.getContent());
+        Attempt primary = new Attempt(copyOf(httpRequest, content));
+        Attempt hedge = null;
+        Executor.INSTANCE.execute(primary);
+        try {
+            Attempt first = completed.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            if (first == null && hedgeBudget.acquire() > 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("No response after " + hedgeDelayNanos / 1000 + "us, hedging "
+                            + httpRequest.getMethod() + " " + httpRequest.getUri());
+                }
+                awsRequestMetrics.incrementCounter(Field.HedgedRequestCount);
+                hedge = new Attempt(copyOf(httpRequest, content));
+                Executor.INSTANCE.execute(hedge);
+            }
+            if (first == null) {
+                first = completed.take();
+            }
+            Attempt winner = first;
+            if (first.response == null && hedge != null) {
+                Attempt second = completed.take();
+                if (second.response != null) {
+                    winner = second;
+                }
+            }
+            if (hedge != null) {
+                (winner == primary ? hedge : primary).abandon();
+                if (winner == hedge) {
+                    awsRequestMetrics.incrementCounter(Field.HedgeWonCount);
+                }
+            }
+            if (winner.response != null) {
+                return winner.response;
+            }
+            return primary.rethrow();
+        } catch (InterruptedException e) {
+            primary.abandon();
+            if (hedge != null) {
+                hedge.abandon();
+            }
+            Thread.currentThread().interrupt();
+            InterruptedIOException ie = new InterruptedIOException(
+                    "Interrupted while waiting for a response");
+            ie.initCause(e);
+            throw ie;
+        }
+    }
+
+    private static byte[] readContent(InputStream content) throws IOException {
+        if (content == null) {
+            return null;
+        }
+        // Leave the stream where it was so that a retry can reset it as usual
+        content.mark(HedgingPolicy.MAX_HEDGED_CONTENT_LENGTH + 1);
+        byte[] bytes = IOUtils.toByteArray(content);
+        content.reset();
+        return bytes;
+    }
+
+    private static HttpRequest copyOf(HttpRequest httpRequest, byte[] content) {
+        return new HttpRequest(httpRequest.getMethod(), httpRequest.getUri(),
+                httpRequest.getHeaders(),
+                content == null ? null : new ByteArrayInputStream(content));
+    }
+
+    /**
+     * One copy of the request, sent on a background thread.
+     */
+    private final class Attempt implements Runnable {
+        private final HttpRequest request;
+        private HttpResponse response;
+        private Throwable failure;
+        private boolean done;
+        private boolean abandoned;
+
+        Attempt(HttpRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            try {
+                response = httpClient.execute(request);
+                tracker.record(System.nanoTime() - startNanos);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            synchronized (this) {
+                done = true;
+                if (abandoned) {
+                    release();
+                }
+            }
+            completed.add(this);
+        }
+
+        /**
+         * Releases the response of this attempt once it arrives, if it has
+         * not already.
+         */
+        synchronized void abandon() {
+            abandoned = true;
+            if (done) {
+                release();
+            }
+        }
+
+        private void release() {
+            if (response == null) {
+                return;
+            }
+            try {
+                InputStream content = response.getRawContent();
+                if (content != null) {
+                    content.close();
+                }
+            } catch (IOException e) {
+                log.debug("Unable to close an abandoned response", e);
+            }
+        }
+
+        HttpResponse rethrow() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else {
+                throw (Error) failure;
+            }
+        }
+    }
+
+    /**
+     * The daemon threads attempts are sent on. Idle threads exit after a
+     * minute.
+     */
+    private static final class Executor {
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("android-sdk-hedged-request-thread-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+}
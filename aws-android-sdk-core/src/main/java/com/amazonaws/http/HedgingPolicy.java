@@ -0,0 +1,299 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.retry.RetryQuota;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedging policy that can be configured on a specific service client using
+ * {@link ClientConfiguration}. When a request selected by the
+ * {@link HedgeCondition} has not been answered after the configured
+ * percentile of the latencies recently observed for its request type, a
+ * duplicate is sent and whichever answers first is used; the other response
+ * is discarded and its connection released once it arrives. This cuts the
+ * latency tail of idempotent reads at the cost of a bounded amount of extra
+ * load.
+ * <p>
+ * Only idempotent requests may be hedged, since both copies may reach the
+ * service. Requests whose content is larger than
+ * {@link #MAX_HEDGED_CONTENT_LENGTH} or cannot be reset are never hedged.
+ * <p>
+ * The latency histograms and the hedge budget are thread safe and shared by
+ * every client configured with this policy.
+ *
+ * @see ClientConfiguration#setHedgingPolicy(HedgingPolicy)
+ */
+public final class HedgingPolicy {
+
+    /** Default latency percentile after which a request is hedged **/
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95.0;
+
+    /** Default minimum delay (milliseconds) before a request is hedged **/
+    public static final long DEFAULT_MIN_HEDGE_DELAY_MILLIS = 10;
+
+    /** Default fraction of requests that may be hedged **/
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+
+    /** Default number of hedges that may be sent in a burst **/
+    public static final int DEFAULT_MAX_HEDGE_BURST = 10;
+
+    /** Requests with larger content are never hedged **/
+    public static final int MAX_HEDGED_CONTENT_LENGTH = 64 * 1024;
+
+    /** Latencies recorded for a request type before it may be hedged **/
+    static final int MIN_SAMPLES = 100;
+
+    /** Latencies kept per window; the percentile covers two windows **/
+    static final int WINDOW_SAMPLES = 1000;
+
+    /** How often, in samples, the hedge delay is recomputed **/
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    /**
+     * Hedges only requests sent with the HTTP methods GET or HEAD.
+     */
+    public static final HedgeCondition SAFE_HTTP_METHODS = new HedgeCondition() {
+        @Override
+        public boolean shouldHedge(AmazonWebServiceRequest originalRequest,
+                Request<?> request) {
+            HttpMethodName method = request.getHttpMethod();
+            return method == HttpMethodName.GET || method == HttpMethodName.HEAD;
+        }
+    };
+
+    private final HedgeCondition hedgeCondition;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final RetryQuota hedgeBudget;
+    private final ConcurrentMap<Object, LatencyTracker> trackers =
+            new ConcurrentHashMap<Object, LatencyTracker>();
+
+    /**
+     * Constructs a new hedging policy with the default percentile, minimum
+     * delay and budget.
+     *
+     * @param hedgeCondition Condition on whether a specific request may be
+     *            hedged. If null value is specified, only GET and HEAD
+     *            requests are hedged.
+     */
+    public HedgingPolicy(HedgeCondition hedgeCondition) {
+        this(hedgeCondition, DEFAULT_HEDGE_PERCENTILE, DEFAULT_MIN_HEDGE_DELAY_MILLIS,
+                DEFAULT_MAX_HEDGE_RATIO, DEFAULT_MAX_HEDGE_BURST);
+    }
+
+    /**
+     * Constructs a new hedging policy.
+     *
+     * @param hedgeCondition Condition on whether a specific request may be
+     *            hedged. If null value is specified, only GET and HEAD
+     *            requests are hedged.
+     * @param hedgePercentile The percentile, from 0 to 100, of recently
+     *            observed latencies after which an unanswered request is
+     *            hedged.
+     * @param minHedgeDelayMillis The minimum delay before a request is hedged.
+     * @param maxHedgeRatio The fraction of hedgeable requests, greater than 0
+     *            and at most 1, that may be hedged in the long run.
+     * @param maxHedgeBurst The number of hedges that may be sent in a burst
+     *            before the ratio applies.
+     */
+    public HedgingPolicy(HedgeCondition hedgeCondition,
+            double hedgePercentile,
+            long minHedgeDelayMillis,
+            double maxHedgeRatio,
+            int maxHedgeBurst) {
+        if (hedgeCondition == null) {
+            hedgeCondition = SAFE_HTTP_METHODS;
+        }
+        if (hedgePercentile <= 0 || hedgePercentile >= 100) {
+            throw new IllegalArgumentException(
+                    "Please provide a value between 0 and 100 for hedgePercentile.");
+        }
+        if (minHedgeDelayMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative value for minHedgeDelayMillis.");
+        }
+        if (maxHedgeRatio <= 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a value greater than 0 and at most 1 for maxHedgeRatio.");
+        }
+        if (maxHedgeBurst < 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive value for maxHedgeBurst.");
+        }
+        this.hedgeCondition = hedgeCondition;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMillis);
+        // Each hedgeable request earns one token and each hedge costs
+        // 1 / maxHedgeRatio tokens.
+        int hedgeCost = (int) Math.round(1 / maxHedgeRatio);
+        this.hedgeBudget = new RetryQuota(hedgeCost * maxHedgeBurst, hedgeCost, 1);
+    }
+
+    /**
+     * Returns the condition on whether a specific request may be hedged.
+     *
+     * @return The condition on whether a specific request may be hedged.
+     */
+    public HedgeCondition getHedgeCondition() {
+        return hedgeCondition;
+    }
+
+    /**
+     * Returns the percentile of recently observed latencies after which an
+     * unanswered request is hedged.
+     *
+     * @return The percentile after which an unanswered request is hedged.
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * Returns the number of hedges that may currently be sent before the
+     * budget is exhausted.
+     *
+     * @return The number of hedges that may currently be sent.
+     */
+    public int getAvailableHedges() {
+        return hedgeBudget.getAvailableCapacity() / hedgeBudget.getRetryCost();
+    }
+
+    /**
+     * Returns the delay, in milliseconds, after which an unanswered request of
+     * the given type is currently hedged.
+     *
+     * @param requestType The class of the original request.
+     * @return The hedge delay in milliseconds, or -1 if too few latencies have
+     *         been observed for the request type to hedge it.
+     */
+    public long getHedgeDelayMillis(Class<? extends AmazonWebServiceRequest> requestType) {
+        LatencyTracker tracker = trackers.get(requestType);
+        long delayNanos = tracker == null ? -1 : tracker.hedgeDelayNanos;
+        return delayNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delayNanos);
+    }
+
+    /**
+     * Sends the given request, hedging it if this policy allows. Latencies of
+     * hedgeable requests are recorded to derive the hedge delay.
+     */
+    HttpResponse execute(HttpClient httpClient, Request<?> request, HttpRequest httpRequest,
+            AWSRequestMetrics awsRequestMetrics) throws IOException {
+        AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+        if (!hedgeCondition.shouldHedge(originalRequest, request)
+                || !isContentRepeatable(httpRequest)) {
+            return httpClient.execute(httpRequest);
+        }
+        LatencyTracker tracker = getTracker(originalRequest, request);
+        // Every hedgeable request earns a fraction of a hedge
+        hedgeBudget.release(0);
+
+        long delayNanos = tracker.hedgeDelayNanos;
+        if (delayNanos < 0) {
+            long startNanos = System.nanoTime();
+            HttpResponse httpResponse = httpClient.execute(httpRequest);
+            tracker.record(System.nanoTime() - startNanos);
+            return httpResponse;
+        }
+        return new HedgedExecution(httpClient, httpRequest, tracker, hedgeBudget,
+                awsRequestMetrics).execute(delayNanos);
+    }
+
+    private LatencyTracker getTracker(AmazonWebServiceRequest originalRequest,
+            Request<?> request) {
+        Object key = originalRequest != null ? originalRequest.getClass()
+                : request.getServiceName();
+        LatencyTracker tracker = trackers.get(key);
+        if (tracker == null) {
+            LatencyTracker created = new LatencyTracker();
+            tracker = trackers.putIfAbsent(key, created);
+            if (tracker == null) {
+                tracker = created;
+            }
+        }
+        return tracker;
+    }
+
+    private static boolean isContentRepeatable(HttpRequest httpRequest) {
+        return httpRequest.getContent() == null
+                || (httpRequest.getContent().markSupported()
+                && httpRequest.getContentLength() <= MAX_HEDGED_CONTENT_LENGTH);
+    }
+
+    /**
+     * Latencies recently observed for one request type, kept in two rotating
+     * histograms so that the hedge delay follows changes in latency.
+     */
+    final class LatencyTracker {
+        private volatile LatencyHistogram current = new LatencyHistogram();
+        private volatile LatencyHistogram previous;
+        private int samplesSinceRecompute;
+        /** The hedge delay, or -1 until enough latencies are recorded */
+        volatile long hedgeDelayNanos = -1;
+
+        void record(long latencyNanos) {
+            LatencyHistogram histogram = current;
+            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            synchronized (this) {
+                if (histogram.getTotalCount() >= WINDOW_SAMPLES && histogram == current) {
+                    previous = histogram;
+                    current = new LatencyHistogram();
+                }
+                if (++samplesSinceRecompute < RECOMPUTE_INTERVAL) {
+                    return;
+                }
+                samplesSinceRecompute = 0;
+            }
+            LatencyHistogram recent = current;
+            LatencyHistogram older = previous;
+            long samples = recent.getTotalCount() + (older == null ? 0 : older.getTotalCount());
+            if (samples >= MIN_SAMPLES) {
+                long micros = recent.getValueAtPercentile(hedgePercentile, older);
+                hedgeDelayNanos = Math.max(minHedgeDelayNanos,
+                        TimeUnit.MICROSECONDS.toNanos(micros));
+            }
+        }
+    }
+
+    /**
+     * The hook for deciding which requests may be hedged.
+     */
+    public static interface HedgeCondition {
+
+        /**
+         * Returns whether the given request may be hedged, which means it is
+         * safe for the service to receive it twice.
+         *
+         * @param originalRequest The original request object being executed,
+         *            or null. For performance reason, this object is not a
+         *            defensive copy, and caller should not attempt to modify
+         *            its data.
+         * @param request The marshalled request about to be sent.
+         * @return True if the request may be hedged.
+         */
+        public boolean shouldHedge(AmazonWebServiceRequest originalRequest,
+                Request<?> request);
+    }
+}
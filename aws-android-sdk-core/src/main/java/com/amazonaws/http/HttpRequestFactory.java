@@ -72,7 +72,10 @@ public class HttpRequestFactory {
 
         // Configure headers from request. Additional headers will be added
         // later if necessary.
-        Map<String, String> headers = new HashMap<String, String>();
+        // room for the request's headers and the few added here, without
+        // rehashing
+        Map<String, String> headers = new HashMap<String, String>(
+                (request.getHeaders().size() + 8) * 4 / 3);
         configureHeaders(headers, request, context, clientConfiguration);
 
         InputStream is = request.getContent();
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.Request;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The parameters and headers of a request as they were before its first
+ * attempt, so that every retry can start over with the original ones. Signers
+ * and the client add to the request on each attempt.
+ * <p>
+ * The snapshot keeps the names and values in flat arrays rather than in
+ * copies of the maps, and a retry only rebuilds a map that no longer holds the
+ * original entries; query parameters, for instance, are usually untouched by
+ * the signers that add headers.
+ */
+final class RequestSnapshot {
+
+    private static final String[] EMPTY = new String[0];
+
+    /** Names and values of the original parameters, in turn. */
+    private final String[] parameters;
+
+    /** Names and values of the original headers, in turn. */
+    private final String[] headers;
+
+    RequestSnapshot(Request<?> request) {
+        parameters = flatten(request.getParameters());
+        headers = flatten(request.getHeaders());
+    }
+
+    /**
+     * Restores the original parameters and headers of the request.
+     */
+    void restore(Request<?> request) {
+        if (!holds(request.getParameters(), parameters)) {
+            Map<String, String> map = new LinkedHashMap<String, String>(parameters.length);
+            putAll(map, parameters);
+            request.setParameters(map);
+        }
+        if (!holds(request.getHeaders(), headers)) {
+            Map<String, String> map = new HashMap<String, String>(headers.length);
+            putAll(map, headers);
+            request.setHeaders(map);
+        }
+    }
+
+    private static String[] flatten(Map<String, String> map) {
+        if (map.isEmpty()) {
+            return EMPTY;
+        }
+        String[] pairs = new String[map.size() * 2];
+        int i = 0;
+        for (Entry<String, String> entry : map.entrySet()) {
+            pairs[i++] = entry.getKey();
+            pairs[i++] = entry.getValue();
+        }
+        return pairs;
+    }
+
+    /**
+     * @return whether the map holds exactly the given entries, in the same
+     *         order and as the same strings
+     */
+    private static boolean holds(Map<String, String> map, String[] pairs) {
+        if (map.size() * 2 != pairs.length) {
+            return false;
+        }
+        int i = 0;
+        for (Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() != pairs[i++] || entry.getValue() != pairs[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putAll(Map<String, String> map, String[] pairs) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+    }
+}
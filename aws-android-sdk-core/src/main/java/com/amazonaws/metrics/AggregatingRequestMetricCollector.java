@@ -0,0 +1,307 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.LatencyHistogram;
+import com.amazonaws.util.TimingInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A request metric collector that aggregates the metrics of every request in
+ * process, per service and operation, instead of sending them anywhere.
+ * <p>
+ * For each operation it keeps the number of requests, retries, failures,
+ * exceptions and throttled retries, and the distribution of each of the
+ * {@link #LATENCY_FIELDS}, in microseconds. The aggregates can be read at any
+ * time with {@link #getSnapshots()}, for example to be published periodically.
+ * <p>
+ * Recording a request does not lock and, once the operation has been seen,
+ * allocates only what reading the request's timing information does. To keep
+ * concurrent requests from contending on the same counters, the aggregates of
+ * an operation are striped by thread and only combined when read.
+ * <p>
+ * The collector can be passed to a client's constructor, or installed for all
+ * clients with
+ * {@code AwsSdkMetrics.setMetricCollector(collector.asMetricCollector())}.
+ * Note that the metrics are only recorded when request metrics are enabled.
+ */
+public class AggregatingRequestMetricCollector extends RequestMetricCollector {
+
+    /**
+     * The latency metrics aggregated for each operation. The signing, http
+     * request and response processing times are recorded once per attempt.
+     */
+    public static final List<Field> LATENCY_FIELDS = Collections.unmodifiableList(
+            Arrays.asList(Field.ClientExecuteTime, Field.HttpRequestTime,
+                    Field.RequestSigningTime, Field.ResponseProcessingTime));
+
+    static final int REQUESTS = 0;
+    static final int RETRIES = 1;
+    static final int FAILURES = 2;
+    static final int EXCEPTIONS = 3;
+    static final int THROTTLED_RETRIES = 4;
+    static final int COUNTER_COUNT = 5;
+
+    private static final int MAX_STRIPES = 16;
+    private static final String UNKNOWN_OPERATION = "Unknown";
+
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, OperationMetrics>> services =
+            new ConcurrentHashMap<String, ConcurrentMap<Class<?>, OperationMetrics>>();
+    private final int stripeCount;
+    private final long startTimeMillis = System.currentTimeMillis();
+
+    private final MetricCollector metricCollector = new MetricCollector() {
+        @Override
+        public boolean start() {
+            return true;
+        }
+
+        @Override
+        public boolean stop() {
+            return true;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public RequestMetricCollector getRequestMetricCollector() {
+            return AggregatingRequestMetricCollector.this;
+        }
+
+        @Override
+        public ServiceMetricCollector getServiceMetricCollector() {
+            return ServiceMetricCollector.NONE;
+        }
+    };
+
+    /**
+     * Constructs a collector striped by the number of available processors.
+     */
+    public AggregatingRequestMetricCollector() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a collector.
+     *
+     * @param concurrency The expected number of threads completing requests at
+     *            the same time. It is rounded up to a power of two, at most 16.
+     */
+    public AggregatingRequestMetricCollector(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        int stripes = 1;
+        while (stripes < concurrency && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        this.stripeCount = stripes;
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || !metrics.isEnabled()) {
+            return;
+        }
+        TimingInfo timingInfo = metrics.getTimingInfo();
+        Stripe stripe = operationMetrics(request).stripe();
+
+        stripe.counters.incrementAndGet(REQUESTS);
+        long attempts = counterOf(timingInfo, Field.RequestCount);
+        if (attempts > 1) {
+            stripe.counters.addAndGet(RETRIES, attempts - 1);
+        }
+        if (response == null) {
+            stripe.counters.incrementAndGet(FAILURES);
+        }
+        long exceptions = counterOf(timingInfo, Field.Exception);
+        if (exceptions > 0) {
+            stripe.counters.addAndGet(EXCEPTIONS, exceptions);
+        }
+        long throttled = counterOf(timingInfo, Field.ThrottledRetryCount);
+        if (throttled > 0) {
+            stripe.counters.addAndGet(THROTTLED_RETRIES, throttled);
+        }
+
+        for (int i = 0; i < LATENCY_FIELDS.size(); i++) {
+            List<TimingInfo> measurements =
+                    timingInfo.getAllSubMeasurements(LATENCY_FIELDS.get(i).name());
+            if (measurements == null) {
+                continue;
+            }
+            for (int j = 0; j < measurements.size(); j++) {
+                TimingInfo measurement = measurements.get(j);
+                if (measurement.isEndTimeKnown()) {
+                    stripe.latencies[i].recordValue(
+                            (measurement.getEndTimeNano() - measurement.getStartTimeNano())
+                                    / 1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the metrics aggregated so far for every operation
+     * seen, covering the time since this collector was constructed.
+     *
+     * @return The snapshots, one per operation.
+     */
+    public List<RequestMetricsSnapshot> getSnapshots() {
+        long now = System.currentTimeMillis();
+        List<RequestMetricsSnapshot> snapshots = new ArrayList<RequestMetricsSnapshot>();
+        for (ConcurrentMap<Class<?>, OperationMetrics> operations : services.values()) {
+            for (OperationMetrics operation : operations.values()) {
+                snapshots.add(operation.snapshot(startTimeMillis, now));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns a metric collector that collects request metrics with this
+     * collector, suitable for {@link AwsSdkMetrics#setMetricCollector}.
+     *
+     * @return A metric collector backed by this collector.
+     */
+    public MetricCollector asMetricCollector() {
+        return metricCollector;
+    }
+
+    private OperationMetrics operationMetrics(Request<?> request) {
+        String serviceName = request.getServiceName();
+        ConcurrentMap<Class<?>, OperationMetrics> operations = services.get(serviceName);
+        if (operations == null) {
+            operations = new ConcurrentHashMap<Class<?>, OperationMetrics>();
+            ConcurrentMap<Class<?>, OperationMetrics> existing =
+                    services.putIfAbsent(serviceName, operations);
+            if (existing != null) {
+                operations = existing;
+            }
+        }
+        AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+        Class<?> requestClass = originalRequest == null
+                ? AmazonWebServiceRequest.class : originalRequest.getClass();
+        OperationMetrics operation = operations.get(requestClass);
+        if (operation == null) {
+            operation = new OperationMetrics(serviceName, operationNameOf(originalRequest),
+                    stripeCount);
+            OperationMetrics existing = operations.putIfAbsent(requestClass, operation);
+            if (existing != null) {
+                operation = existing;
+            }
+        }
+        return operation;
+    }
+
+    static String operationNameOf(AmazonWebServiceRequest originalRequest) {
+        if (originalRequest == null) {
+            return UNKNOWN_OPERATION;
+        }
+        String name = originalRequest.getClass().getSimpleName();
+        if (name.endsWith("Request") && name.length() > "Request".length()) {
+            name = name.substring(0, name.length() - "Request".length());
+        }
+        return name;
+    }
+
+    private static long counterOf(TimingInfo timingInfo, Field field) {
+        Number counter = timingInfo.getCounter(field.name());
+        return counter == null ? 0 : counter.longValue();
+    }
+
+    /**
+     * The aggregates of one operation. Stripes are created the first time a
+     * thread mapped to them records a request.
+     */
+    private static final class OperationMetrics {
+        private final String serviceName;
+        private final String operationName;
+        private final AtomicReferenceArray<Stripe> stripes;
+
+        OperationMetrics(String serviceName, String operationName, int stripeCount) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            this.stripes = new AtomicReferenceArray<Stripe>(stripeCount);
+        }
+
+        Stripe stripe() {
+            int index = (int) Thread.currentThread().getId() & (stripes.length() - 1);
+            Stripe stripe = stripes.get(index);
+            if (stripe == null) {
+                stripes.compareAndSet(index, null, new Stripe());
+                stripe = stripes.get(index);
+            }
+            return stripe;
+        }
+
+        RequestMetricsSnapshot snapshot(long startTimeMillis, long endTimeMillis) {
+            long[] counters = new long[COUNTER_COUNT];
+            LatencyHistogram[] latencies = new LatencyHistogram[LATENCY_FIELDS.size()];
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+            for (int s = 0; s < stripes.length(); s++) {
+                Stripe stripe = stripes.get(s);
+                if (stripe == null) {
+                    continue;
+                }
+                for (int i = 0; i < COUNTER_COUNT; i++) {
+                    counters[i] += stripe.counters.get(i);
+                }
+                for (int i = 0; i < latencies.length; i++) {
+                    latencies[i].add(stripe.latencies[i]);
+                }
+            }
+            Map<Field, LatencyHistogram> byField =
+                    new EnumMap<Field, LatencyHistogram>(Field.class);
+            for (int i = 0; i < latencies.length; i++) {
+                byField.put(LATENCY_FIELDS.get(i), latencies[i]);
+            }
+            return new RequestMetricsSnapshot(serviceName, operationName, startTimeMillis,
+                    endTimeMillis, counters, byField);
+        }
+    }
+
+    private static final class Stripe {
+        final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+        final LatencyHistogram[] latencies = new LatencyHistogram[LATENCY_FIELDS.size()];
+
+        Stripe() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+    }
+}
@@ -740,6 +740,9 @@ public enum AwsSdkMetrics {
             // metricTypes.add(Field.RequestSigningTime);
             // metricTypes.add(Field.ResponseProcessingTime);
             metricTypes.add(Field.RetryCount);
+            metricTypes.add(Field.ThrottledRetryCount);
+            metricTypes.add(Field.CircuitBreakerRejectedCount);
+            metricTypes.add(Field.HedgedRequestCount);
             metricTypes.add(Field.HttpClientSendRequestTime);
             metricTypes.add(Field.HttpClientReceiveResponseTime);
             metricTypes.add(Field.HttpClientPoolAvailableCount);
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The request metrics aggregated by an
+ * {@link AggregatingRequestMetricCollector} for one operation of one service
+ * over a window of time.
+ * <p>
+ * Latencies are recorded in microseconds. A snapshot does not change once
+ * taken; the metrics recorded between two snapshots can be computed with
+ * {@link #since(RequestMetricsSnapshot)}.
+ */
+public final class RequestMetricsSnapshot {
+    private final String serviceName;
+    private final String operationName;
+    private final long startTimeMillis;
+    private final long endTimeMillis;
+    private final long requestCount;
+    private final long retryCount;
+    private final long failedRequestCount;
+    private final long exceptionCount;
+    private final long throttledRetryCount;
+    private final Map<Field, LatencyHistogram> latencies;
+
+    RequestMetricsSnapshot(String serviceName, String operationName,
+            long startTimeMillis, long endTimeMillis, long[] counters,
+            Map<Field, LatencyHistogram> latencies) {
+        this.serviceName = serviceName;
+        this.operationName = operationName;
+        this.startTimeMillis = startTimeMillis;
+        this.endTimeMillis = endTimeMillis;
+        this.requestCount = counters[AggregatingRequestMetricCollector.REQUESTS];
+        this.retryCount = counters[AggregatingRequestMetricCollector.RETRIES];
+        this.failedRequestCount = counters[AggregatingRequestMetricCollector.FAILURES];
+        this.exceptionCount = counters[AggregatingRequestMetricCollector.EXCEPTIONS];
+        this.throttledRetryCount =
+                counters[AggregatingRequestMetricCollector.THROTTLED_RETRIES];
+        this.latencies = latencies;
+    }
+
+    /**
+     * Returns the name of the service, such as "AmazonDynamoDB".
+     *
+     * @return The name of the service.
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Returns the name of the operation, derived from the request type, such
+     * as "GetItem" for a GetItemRequest.
+     *
+     * @return The name of the operation.
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Returns the start of the window covered by this snapshot.
+     *
+     * @return The start of the window in milliseconds since the epoch.
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * Returns the end of the window covered by this snapshot, i.e. the time
+     * the snapshot was taken.
+     *
+     * @return The end of the window in milliseconds since the epoch.
+     */
+    public long getEndTimeMillis() {
+        return endTimeMillis;
+    }
+
+    /**
+     * Returns the number of requests completed in the window, whether they
+     * succeeded or not.
+     *
+     * @return The number of requests.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Returns the number of times the requests completed in the window were
+     * retried.
+     *
+     * @return The number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Returns the number of requests completed in the window that failed.
+     *
+     * @return The number of failed requests.
+     */
+    public long getFailedRequestCount() {
+        return failedRequestCount;
+    }
+
+    /**
+     * Returns the number of exceptions, including the ones that were retried,
+     * encountered by the requests completed in the window.
+     *
+     * @return The number of exceptions.
+     */
+    public long getExceptionCount() {
+        return exceptionCount;
+    }
+
+    /**
+     * Returns the number of retries skipped because the retry quota was
+     * exhausted.
+     *
+     * @return The number of throttled retries.
+     */
+    public long getThrottledRetryCount() {
+        return throttledRetryCount;
+    }
+
+    /**
+     * Returns the number of requests completed per second over the window.
+     *
+     * @return The throughput in requests per second.
+     */
+    public double getThroughput() {
+        long elapsed = endTimeMillis - startTimeMillis;
+        return elapsed <= 0 ? 0 : requestCount * 1000.0 / elapsed;
+    }
+
+    /**
+     * Returns the distribution, in microseconds, of the given latency metric.
+     * The returned histogram is a copy and may be modified by the caller.
+     *
+     * @param field One of {@link AggregatingRequestMetricCollector#LATENCY_FIELDS}.
+     * @return The distribution of the latency, or null if the field is not
+     *         aggregated.
+     */
+    public LatencyHistogram getLatencyHistogram(Field field) {
+        LatencyHistogram histogram = latencies.get(field);
+        return histogram == null ? null : histogram.copy();
+    }
+
+    /**
+     * Returns the value, in microseconds, below which the given percentage of
+     * the given latency metric fall.
+     *
+     * @param field One of {@link AggregatingRequestMetricCollector#LATENCY_FIELDS}.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency at the percentile, or 0 if no value was recorded.
+     */
+    public long getLatencyAtPercentile(Field field, double percentile) {
+        LatencyHistogram histogram = latencies.get(field);
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Returns the metrics recorded between the given, earlier snapshot of the
+     * same operation and this one.
+     *
+     * @param earlier An earlier snapshot of the same operation, or null.
+     * @return The metrics recorded since the earlier snapshot; this snapshot
+     *         if it is null.
+     */
+    public RequestMetricsSnapshot since(RequestMetricsSnapshot earlier) {
+        if (earlier == null) {
+            return this;
+        }
+        if (!serviceName.equals(earlier.serviceName)
+                || !operationName.equals(earlier.operationName)) {
+            throw new IllegalArgumentException("Snapshots of " + earlier
+                    + " and " + this + " cannot be compared");
+        }
+        long[] counters = new long[AggregatingRequestMetricCollector.COUNTER_COUNT];
+        counters[AggregatingRequestMetricCollector.REQUESTS] =
+                requestCount - earlier.requestCount;
+        counters[AggregatingRequestMetricCollector.RETRIES] = retryCount - earlier.retryCount;
+        counters[AggregatingRequestMetricCollector.FAILURES] =
+                failedRequestCount - earlier.failedRequestCount;
+        counters[AggregatingRequestMetricCollector.EXCEPTIONS] =
+                exceptionCount - earlier.exceptionCount;
+        counters[AggregatingRequestMetricCollector.THROTTLED_RETRIES] =
+                throttledRetryCount - earlier.throttledRetryCount;
+        Map<Field, LatencyHistogram> delta = new EnumMap<Field, LatencyHistogram>(Field.class);
+        for (Map.Entry<Field, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue().copy();
+            histogram.subtract(earlier.latencies.get(entry.getKey()));
+            delta.put(entry.getKey(), histogram);
+        }
+        return new RequestMetricsSnapshot(serviceName, operationName,
+                earlier.endTimeMillis, endTimeMillis, counters, delta);
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + "." + operationName;
+    }
+}
@@ -65,6 +65,15 @@
  * client type level. </li>
  * <li>RetryCount - Number of retries per logical request. Captured on a per service
  * client type level. </li>
+ * <li>ThrottledRetryCount - Number of retries skipped per logical request because
+ * the shared retry quota of the retry policy was exhausted. Captured on a per service
+ * client type level. </li>
+ * <li>CircuitBreakerRejectedCount - Number of logical requests failed without being
+ * sent because the circuit breaker of the retry policy was open for the endpoint.
+ * Captured on a per service client type level. </li>
+ * <li>HedgedRequestCount - Number of duplicate requests sent per logical request
+ * because the first attempt was not answered within the hedge delay of the hedging
+ * policy. Captured on a per service client type level. </li>
  * <li>DynamoDBConsumedCapacity - Number of Amazon DynamoDB capacity units consumed.
  * Captured on a per request type level, and is only available if the request
  * has been specified with the necessary "ReturnConsumedCapacity" parameter.
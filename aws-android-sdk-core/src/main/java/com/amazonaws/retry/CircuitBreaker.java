@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A circuit breaker that tracks the health of each endpoint host separately.
+ * After {@link #getFailureThreshold()} consecutive failures against a host,
+ * its circuit opens and requests to that host fail immediately, without being
+ * sent, for {@link #getOpenMillis()} milliseconds. The circuit then lets a
+ * single probe request through; the circuit closes again if the probe
+ * succeeds and stays open for another period if it fails.
+ * <p>
+ * Only failures that suggest the endpoint itself is unhealthy count against
+ * the circuit: I/O errors, 5xx responses and throttling errors. Any other
+ * response, including a 4xx error, shows the endpoint is reachable and resets
+ * the failure count.
+ * <p>
+ * This class is thread safe and meant to be shared, typically by configuring
+ * it on a {@link RetryPolicy}.
+ *
+ * @see RetryPolicy#getCircuitBreaker()
+ */
+public class CircuitBreaker {
+
+    /**
+     * The state of the circuit for one endpoint host.
+     */
+    public static enum State {
+        /** Requests are sent normally. */
+        CLOSED,
+        /** Requests fail immediately without being sent. */
+        OPEN,
+        /** A single probe request is allowed through. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long openNanos;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+    private final AtomicLong openedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Constructs a new circuit breaker with every circuit closed.
+     *
+     * @param failureThreshold The number of consecutive failures against a
+     *            host that opens its circuit.
+     * @param openMillis How long, in milliseconds, a circuit stays open before
+     *            a probe request is allowed through.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive value for failureThreshold.");
+        }
+        if (openMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive value for openMillis.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Returns whether a request may be sent to the given endpoint. Requests
+     * that are allowed must report their outcome through
+     * {@link #onSuccess(URI)} or {@link #onFailure(URI, AmazonClientException)}.
+     *
+     * @param endpoint The endpoint the request is about to be sent to.
+     * @return True if the request may be sent, false if the circuit for the
+     *         endpoint is open.
+     */
+    public boolean allowRequest(URI endpoint) {
+        Circuit circuit = circuits.get(keyOf(endpoint));
+        if (circuit == null || circuit.allow(System.nanoTime(), openNanos)) {
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a successful response from the given endpoint, closing its
+     * circuit.
+     *
+     * @param endpoint The endpoint the request was sent to.
+     */
+    public void onSuccess(URI endpoint) {
+        Circuit circuit = circuits.get(keyOf(endpoint));
+        if (circuit != null) {
+            circuit.success();
+        }
+    }
+
+    /**
+     * Records a failed request to the given endpoint. Exceptions for which
+     * {@link #isFailure(AmazonClientException)} returns false are recorded as
+     * successes.
+     *
+     * @param endpoint The endpoint the request was sent to.
+     * @param exception The exception the request failed with.
+     */
+    public void onFailure(URI endpoint, AmazonClientException exception) {
+        if (!isFailure(exception)) {
+            onSuccess(endpoint);
+            return;
+        }
+        String key = keyOf(endpoint);
+        Circuit circuit = circuits.get(key);
+        if (circuit == null) {
+            Circuit created = new Circuit(failureThreshold);
+            circuit = circuits.putIfAbsent(key, created);
+            if (circuit == null) {
+                circuit = created;
+            }
+        }
+        if (circuit.failure(System.nanoTime())) {
+            openedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns whether the given exception indicates the endpoint is
+     * unhealthy. Subclasses may override this method to change which failures
+     * count against a circuit.
+     *
+     * @param exception The exception a request failed with.
+     * @return True if the exception should count against the circuit.
+     */
+    protected boolean isFailure(AmazonClientException exception) {
+        if (exception instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) exception;
+            return ase.getStatusCode() >= 500 || RetryUtils.isThrottlingException(ase);
+        }
+        Throwable cause = exception.getCause();
+        return cause instanceof IOException && !(cause instanceof InterruptedIOException);
+    }
+
+    /**
+     * Returns the current state of the circuit for the given endpoint.
+     *
+     * @param endpoint The endpoint.
+     * @return The current state of the circuit for the endpoint.
+     */
+    public State getState(URI endpoint) {
+        Circuit circuit = circuits.get(keyOf(endpoint));
+        return circuit == null ? State.CLOSED : circuit.getState();
+    }
+
+    /**
+     * Returns how many times a circuit has opened.
+     *
+     * @return How many times a circuit has opened.
+     */
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    /**
+     * Returns how many requests failed immediately because their circuit was
+     * open.
+     *
+     * @return How many requests failed immediately because their circuit was
+     *         open.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of consecutive failures that opens a circuit.
+     *
+     * @return The number of consecutive failures that opens a circuit.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Returns how long, in milliseconds, a circuit stays open before a probe
+     * request is allowed through.
+     *
+     * @return How long, in milliseconds, a circuit stays open.
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    private static String keyOf(URI endpoint) {
+        String host = endpoint.getHost();
+        return host == null ? endpoint.toString() : host;
+    }
+
+    /**
+     * The circuit of one endpoint host.
+     */
+    private static final class Circuit {
+        private final int failureThreshold;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        /** When the circuit opened, or when the current probe was let through. */
+        private long since;
+
+        Circuit(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        synchronized boolean allow(long now, long openNanos) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            // While half open, a probe that never reported back is replaced
+            // by a new one after another open period.
+            if (now - since < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            since = now;
+            return true;
+        }
+
+        synchronized void success() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        /**
+         * Returns true if this failure opened the circuit.
+         */
+        synchronized boolean failure(long now) {
+            if (state == State.OPEN) {
+                return false;
+            }
+            if (state == State.CLOSED && ++consecutiveFailures < failureThreshold) {
+                return false;
+            }
+            state = State.OPEN;
+            consecutiveFailures = 0;
+            since = now;
+            return true;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+    }
+}
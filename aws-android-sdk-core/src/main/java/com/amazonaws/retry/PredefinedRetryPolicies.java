@@ -42,6 +42,24 @@ public class PredefinedRetryPolicies {
     /** SDK default max retry count **/
     public static final int DEFAULT_MAX_ERROR_RETRY = 3;
 
+    /** Default capacity of a retry quota, allowing 100 concurrent retries **/
+    public static final int DEFAULT_RETRY_QUOTA_CAPACITY = 500;
+
+    /** Default number of retry quota tokens withdrawn for each retry **/
+    public static final int DEFAULT_RETRY_QUOTA_COST = 5;
+
+    /**
+     * Default number of retry quota tokens returned for a request that
+     * succeeds on its first attempt
+     **/
+    public static final int DEFAULT_RETRY_QUOTA_SUCCESS_INCREMENT = 1;
+
+    /** Default number of consecutive failures that opens a circuit **/
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 20;
+
+    /** Default time (milliseconds) a circuit stays open before probing **/
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 5 * 1000;
+
     /** SDK default retry policy **/
     public static final RetryPolicy DEFAULT;
 
@@ -128,6 +146,80 @@ public class PredefinedRetryPolicies {
                 false);
     }
 
+    /**
+     * Returns a new SDK default retry policy whose retries draw from a new
+     * retry quota with the default capacity. Share the returned policy between
+     * clients so that they share the quota. This policy will honor the
+     * maxErrorRetry set in ClientConfiguration.
+     *
+     * @see RetryQuota
+     * @see ClientConfiguration#setMaxErrorRetry(int)
+     */
+    public static RetryPolicy getDefaultRetryPolicyWithRetryQuota() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DEFAULT_MAX_ERROR_RETRY,
+                true,
+                newDefaultRetryQuota(),
+                null);
+    }
+
+    /**
+     * Returns a new default retry policy for DynamoDB client whose retries
+     * draw from a new retry quota with the default capacity. Share the
+     * returned policy between clients so that they share the quota. This
+     * policy will honor the maxErrorRetry set in ClientConfiguration.
+     *
+     * @see RetryQuota
+     * @see ClientConfiguration#setMaxErrorRetry(int)
+     */
+    public static RetryPolicy getDynamoDBDefaultRetryPolicyWithRetryQuota() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DYNAMODB_DEFAULT_MAX_ERROR_RETRY,
+                true,
+                newDefaultRetryQuota(),
+                null);
+    }
+
+    /**
+     * Returns a copy of the given retry policy that also draws its retries
+     * from the given retry quota and guards its requests with the given
+     * circuit breaker.
+     *
+     * @param retryPolicy The retry policy to copy.
+     * @param retryQuota The retry quota, or null for none.
+     * @param circuitBreaker The circuit breaker, or null for none.
+     */
+    public static RetryPolicy getRetryPolicyWithRetryQuota(RetryPolicy retryPolicy,
+            RetryQuota retryQuota,
+            CircuitBreaker circuitBreaker) {
+        return new RetryPolicy(retryPolicy.getRetryCondition(),
+                retryPolicy.getBackoffStrategy(),
+                retryPolicy.getMaxErrorRetry(),
+                retryPolicy.isMaxErrorRetryInClientConfigHonored(),
+                retryQuota,
+                circuitBreaker);
+    }
+
+    /**
+     * Returns a new, full retry quota with the default capacity and costs.
+     */
+    public static RetryQuota newDefaultRetryQuota() {
+        return new RetryQuota(DEFAULT_RETRY_QUOTA_CAPACITY,
+                DEFAULT_RETRY_QUOTA_COST,
+                DEFAULT_RETRY_QUOTA_SUCCESS_INCREMENT);
+    }
+
+    /**
+     * Returns a new circuit breaker with the default failure threshold and
+     * open period, and every circuit closed.
+     */
+    public static CircuitBreaker newDefaultCircuitBreaker() {
+        return new CircuitBreaker(DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS);
+    }
+
     /**
      * The default implementation of RetryCondition used by the SDK. User could
      * extend this class to provide additional custom conditions. The default
@@ -22,7 +22,9 @@ import com.amazonaws.ClientConfiguration;
 /**
  * Retry policy that can be configured on a specific service client using
  * {@link ClientConfiguration}. This class is immutable, therefore safe to be
- * shared by multiple clients.
+ * shared by multiple clients. Its optional {@link RetryQuota} and
+ * {@link CircuitBreaker} are thread safe and deliberately shared by those
+ * clients.
  *
  * @see ClientConfiguration
  * @see PredefinedRetryPolicies
@@ -54,6 +56,18 @@ public final class RetryPolicy {
      */
     private final boolean honorMaxErrorRetryInClientConfig;
 
+    /**
+     * Token bucket shared by every request using this policy that bounds the
+     * number of retries, or null if retries are only bounded per request.
+     */
+    private final RetryQuota retryQuota;
+
+    /**
+     * Per-endpoint circuit breaker shared by every request using this policy,
+     * or null if requests are never failed fast.
+     */
+    private final CircuitBreaker circuitBreaker;
+
     /**
      * Constructs a new retry policy. See {@link PredefinedRetryPolicies} for
      * some pre-defined policy components, and also the default policies used by
@@ -77,6 +91,39 @@ public final class RetryPolicy {
             BackoffStrategy backoffStrategy,
             int maxErrorRetry,
             boolean honorMaxErrorRetryInClientConfig) {
+        this(retryCondition, backoffStrategy, maxErrorRetry,
+                honorMaxErrorRetryInClientConfig, null, null);
+    }
+
+    /**
+     * Constructs a new retry policy whose retries are also bounded by a shared
+     * retry quota and whose requests are guarded by a circuit breaker. The
+     * quota and the circuit breaker are stateful; every client configured with
+     * this policy shares them.
+     *
+     * @param retryCondition Retry condition on whether a specific request and
+     *            exception should be retried. If null value is specified, the
+     *            SDK' default retry condition is used.
+     * @param backoffStrategy Back-off strategy for controlling how long the
+     *            next retry should wait. If null value is specified, the SDK'
+     *            default exponential back-off strategy is used.
+     * @param maxErrorRetry Maximum number of retry attempts for failed
+     *            requests.
+     * @param honorMaxErrorRetryInClientConfig Whether this retry policy should
+     *            honor the max error retry set by
+     *            {@link ClientConfiguration#setMaxErrorRetry(int)}
+     * @param retryQuota The token bucket each retry must draw from, or null to
+     *            bound retries only by the max retry count.
+     * @param circuitBreaker The circuit breaker that fails requests fast to
+     *            unhealthy endpoints, or null to always send requests.
+     * @see PredefinedRetryPolicies
+     */
+    public RetryPolicy(RetryCondition retryCondition,
+            BackoffStrategy backoffStrategy,
+            int maxErrorRetry,
+            boolean honorMaxErrorRetryInClientConfig,
+            RetryQuota retryQuota,
+            CircuitBreaker circuitBreaker) {
         if (retryCondition == null) {
             retryCondition = PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION;
         }
@@ -92,6 +139,8 @@ public final class RetryPolicy {
         this.backoffStrategy = backoffStrategy;
         this.maxErrorRetry = maxErrorRetry;
         this.honorMaxErrorRetryInClientConfig = honorMaxErrorRetryInClientConfig;
+        this.retryQuota = retryQuota;
+        this.circuitBreaker = circuitBreaker;
     };
 
     /**
@@ -133,6 +182,26 @@ public final class RetryPolicy {
         return honorMaxErrorRetryInClientConfig;
     }
 
+    /**
+     * Returns the retry quota each retry must draw from, or null if retries
+     * are only bounded by the max retry count.
+     *
+     * @return The retry quota included in this retry policy, or null.
+     */
+    public RetryQuota getRetryQuota() {
+        return retryQuota;
+    }
+
+    /**
+     * Returns the circuit breaker guarding requests, or null if requests are
+     * never failed fast.
+     *
+     * @return The circuit breaker included in this retry policy, or null.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     /**
      * The hook for providing custom condition on whether a failed request
      * should be retried.
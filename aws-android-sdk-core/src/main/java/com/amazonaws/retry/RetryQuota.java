@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A token bucket that bounds how many retries may be in flight across every
+ * request that shares it. Each retry withdraws {@link #getRetryCost()} tokens
+ * and a request that succeeds returns what it withdrew, or
+ * {@link #getSuccessIncrement()} tokens if it succeeded on the first attempt.
+ * When the bucket is empty, failed requests are no longer retried, so a
+ * struggling service sees roughly one attempt per request instead of
+ * <code>maxErrorRetry + 1</code> until enough requests succeed again.
+ * <p>
+ * This class is thread safe. A quota is meant to be shared, typically by
+ * configuring it on a {@link RetryPolicy} used by every client talking to the
+ * same service.
+ *
+ * @see RetryPolicy#getRetryQuota()
+ * @see PredefinedRetryPolicies#getDefaultRetryPolicyWithRetryQuota()
+ */
+public class RetryQuota {
+
+    private final int capacity;
+    private final int retryCost;
+    private final int successIncrement;
+    private final AtomicInteger available;
+
+    /**
+     * Constructs a new, full retry quota.
+     *
+     * @param capacity The maximum number of tokens in the bucket.
+     * @param retryCost The number of tokens withdrawn for each retry.
+     * @param successIncrement The number of tokens returned when a request
+     *            succeeds without being retried.
+     */
+    public RetryQuota(int capacity, int retryCost, int successIncrement) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative value for capacity.");
+        }
+        if (retryCost <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive value for retryCost.");
+        }
+        if (successIncrement < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative value for successIncrement.");
+        }
+        this.capacity = capacity;
+        this.retryCost = retryCost;
+        this.successIncrement = successIncrement;
+        this.available = new AtomicInteger(capacity);
+    }
+
+    /**
+     * Attempts to withdraw the cost of one retry.
+     *
+     * @return The number of tokens withdrawn, which the caller must hand back
+     *         to {@link #release(int)} if the request eventually succeeds, or
+     *         -1 if the quota is exhausted and the request should not be
+     *         retried.
+     */
+    public int acquire() {
+        for (;;) {
+            int current = available.get();
+            if (current < retryCost) {
+                return -1;
+            }
+            if (available.compareAndSet(current, current - retryCost)) {
+                return retryCost;
+            }
+        }
+    }
+
+    /**
+     * Records a successful request, returning the tokens it withdrew for its
+     * retries, or {@link #getSuccessIncrement()} tokens if it was not retried.
+     * The bucket never grows beyond its capacity.
+     *
+     * @param acquired The total number of tokens returned by
+     *            {@link #acquire()} for the request.
+     */
+    public void release(int acquired) {
+        int amount = acquired > 0 ? acquired : successIncrement;
+        if (amount == 0) {
+            return;
+        }
+        for (;;) {
+            int current = available.get();
+            if (current >= capacity) {
+                return;
+            }
+            if (available.compareAndSet(current, Math.min(capacity, current + amount))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tokens currently available.
+     *
+     * @return The number of tokens currently available.
+     */
+    public int getAvailableCapacity() {
+        return available.get();
+    }
+
+    /**
+     * Returns the maximum number of tokens in the bucket.
+     *
+     * @return The maximum number of tokens in the bucket.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of tokens withdrawn for each retry.
+     *
+     * @return The number of tokens withdrawn for each retry.
+     */
+    public int getRetryCost() {
+        return retryCost;
+    }
+
+    /**
+     * Returns the number of tokens returned when a request succeeds on its
+     * first attempt.
+     *
+     * @return The number of tokens returned when a request succeeds on its
+     *         first attempt.
+     */
+    public int getSuccessIncrement() {
+        return successIncrement;
+    }
+}
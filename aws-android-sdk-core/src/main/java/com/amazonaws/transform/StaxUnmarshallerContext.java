@@ -19,12 +19,16 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Contains the unmarshalling state for the parsing of an XML response. The
@@ -33,14 +37,41 @@ import java.util.Map;
  * response. It also tracks the current position and element depth of the
  * document being parsed and provides utilties for accessing the next XML event
  * from the parser, reading element text, handling attribute XML events, etc.
+ * <p>
+ * Unmarshallers test a chain of expressions against every start tag, so the
+ * current position is kept as an array of element names rather than as a path
+ * string, and each expression is split into its names once and cached. Testing
+ * an expression compares its depth first, and then its names against the
+ * innermost elements, without building any strings.
  */
 public class StaxUnmarshallerContext {
 
     private int currentEventType;
     private final XmlPullParser xpp;
 
-    public final Deque<String> stack = new LinkedList<String>();
-    private String stackString = "";
+    /** Names of the elements enclosing the current position, outermost first. */
+    private String[] elementNames = new String[16];
+
+    /** Number of elements enclosing the current position. */
+    private int depth = 0;
+
+    /**
+     * The paths of the elements enclosing the current position, innermost
+     * first, such as "/a/b" above "/a". The paths are only built when read.
+     *
+     * @deprecated Read-only view kept for compatibility; use
+     *             {@link #testExpression(String, int)} and
+     *             {@link #getCurrentDepth()} instead.
+     */
+    @Deprecated
+    public final Deque<String> stack = new PathStack();
+
+    /**
+     * Expressions compiled so far, shared by all contexts. Unmarshallers test
+     * constant expressions, so this holds a bounded set.
+     */
+    private static final ConcurrentMap<String, CompiledExpression> compiledExpressions =
+            new ConcurrentHashMap<String, CompiledExpression>();
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -114,7 +145,7 @@ public class StaxUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        return stack.size();
+        return depth;
     }
 
     /**
@@ -145,16 +176,7 @@ public class StaxUnmarshallerContext {
         if (expression.equals("."))
             return true;
 
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
-            // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
-                startingStackDepth++;
-            }
-        }
-
-        return (getCurrentDepth() == startingStackDepth
-        && stackString.endsWith("/" + expression));
+        return compile(expression).matches(elementNames, depth, startingStackDepth);
     }
 
     /**
@@ -248,13 +270,235 @@ public class StaxUnmarshallerContext {
         }
     }
 
+    /**
+     * An expression split into the names it matches, innermost last.
+     */
+    private static class CompiledExpression {
+        private final String[] names;
+        private final int depthOffset;
+
+        CompiledExpression(String expression) {
+            names = expression.split("/", -1);
+            int offset = 0;
+            for (int i = 1; i < names.length; i++) {
+                // Don't consider attributes a new depth level
+                if (!names[i].startsWith("@")) {
+                    offset++;
+                }
+            }
+            depthOffset = offset;
+        }
+
+        boolean matches(String[] elementNames, int depth, int startingStackDepth) {
+            if (depth != startingStackDepth + depthOffset || depth < names.length) {
+                return false;
+            }
+            // the innermost name is the most selective, so compare it first
+            for (int i = names.length - 1, j = depth - 1; i >= 0; i--, j--) {
+                if (!names[i].equals(elementNames[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the path of the enclosing element at the given depth.
+     */
+    private String pathAt(int pathDepth) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < pathDepth; i++) {
+            path.append('/').append(elementNames[i]);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Read-only view of the enclosing elements as a stack of paths.
+     */
+    private final class PathStack extends AbstractCollection<String> implements Deque<String> {
+
+        @Override
+        public int size() {
+            return depth;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new PathIterator(false);
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return new PathIterator(true);
+        }
+
+        @Override
+        public String peekFirst() {
+            return depth == 0 ? null : pathAt(depth);
+        }
+
+        @Override
+        public String peekLast() {
+            return depth == 0 ? null : pathAt(1);
+        }
+
+        @Override
+        public String peek() {
+            return peekFirst();
+        }
+
+        @Override
+        public String getFirst() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            return pathAt(depth);
+        }
+
+        @Override
+        public String getLast() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            return pathAt(1);
+        }
+
+        @Override
+        public String element() {
+            return getFirst();
+        }
+
+        @Override
+        public void addFirst(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addLast(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerFirst(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerLast(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offer(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void push(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String removeFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String removeLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String poll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pop() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Iterates over the paths of the enclosing elements, innermost first
+     * unless descending.
+     */
+    private final class PathIterator implements Iterator<String> {
+        private final boolean descending;
+        private int next;
+
+        PathIterator(boolean descending) {
+            this.descending = descending;
+            this.next = descending ? 1 : depth;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? next <= depth : next >= 1;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String path = pathAt(next);
+            next += descending ? 1 : -1;
+            return path;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static CompiledExpression compile(String expression) {
+        CompiledExpression compiled = compiledExpressions.get(expression);
+        if (compiled == null) {
+            compiled = new CompiledExpression(expression);
+            compiledExpressions.putIfAbsent(expression, compiled);
+        }
+        return compiled;
+    }
+
     private void updateContext() {
         if (currentEventType == XmlPullParser.START_TAG) {
-            stackString += "/" + xpp.getName();
-            stack.push(stackString);
+            if (depth == elementNames.length) {
+                String[] grown = new String[depth * 2];
+                System.arraycopy(elementNames, 0, grown, 0, depth);
+                elementNames = grown;
+            }
+            elementNames[depth++] = xpp.getName();
         } else if (currentEventType == XmlPullParser.END_TAG) {
-            stack.pop();
-            stackString = stack.isEmpty() ? "" : stack.peek();
+            elementNames[--depth] = null;
         }
     }
 }
@@ -124,6 +124,34 @@ public class AWSRequestMetrics {
          */
         HttpClientPoolPendingCount,
         RetryPauseTime,
+        /**
+         * Number of retries skipped because the shared retry quota was
+         * exhausted.
+         */
+        ThrottledRetryCount,
+        /**
+         * The number of tokens left in the shared retry quota when the request
+         * completed.
+         */
+        RetryQuotaAvailableCapacity,
+        /**
+         * Number of requests failed without being sent because the circuit for
+         * the endpoint was open.
+         */
+        CircuitBreakerRejectedCount,
+        /**
+         * The state of the circuit for the endpoint when the request completed.
+         */
+        CircuitBreakerState,
+        /**
+         * Number of duplicate requests sent because the first attempt was not
+         * answered within the hedge delay.
+         */
+        HedgedRequestCount,
+        /**
+         * Number of hedged requests whose duplicate answered first.
+         */
+        HedgeWonCount,
         // S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint
         // library
         // S3UploadThroughput, // migrated to S3RequestMetric in the S3 clint
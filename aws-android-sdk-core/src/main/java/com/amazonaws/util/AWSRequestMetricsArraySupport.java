@@ -0,0 +1,290 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import com.amazonaws.metrics.MetricType;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A full support of AWS SDK request metrics, equivalent to
+ * {@link AWSRequestMetricsFullSupport}, that keeps the events, counters and
+ * properties of the standard {@link AWSRequestMetrics.Field}s in arrays
+ * indexed by their ordinal instead of maps keyed by name. Recording a
+ * standard metric does not allocate once the arrays are sized, so the same
+ * instance serves every attempt of a request at no extra cost. Metrics with
+ * any other name are kept in maps created on first use.
+ * <p>
+ * This class is instantiated instead of {@link AWSRequestMetrics} when request
+ * metric collection is required during a particular service request/response
+ * cycle. Like the other implementations, it is not thread safe.
+ */
+public class AWSRequestMetricsArraySupport extends AWSRequestMetrics {
+
+    /* Latency Logger */
+    private static final Log latencyLogger = LogFactory.getLog("com.amazonaws.latency");
+    private static final Object KEY_VALUE_SEPARATOR = "=";
+    private static final Object COMMA_SEPARATOR = ", ";
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TimingInfoArraySupport timings;
+
+    /* Start time of the events of standard fields being profiled. */
+    private final long[] eventStarts = new long[TimingInfoArraySupport.FIELDS.length];
+    private final boolean[] eventStarted = new boolean[TimingInfoArraySupport.FIELDS.length];
+
+    /* Properties of standard fields in the order they were added. */
+    private int[] propertyFields = new int[INITIAL_CAPACITY];
+    private Object[] propertyValues = new Object[INITIAL_CAPACITY];
+    private int propertyCount;
+
+    /* Events being profiled and properties with non-standard names. */
+    private Map<String, Long> customEventStarts;
+    private Map<String, List<Object>> customProperties;
+
+    /**
+     * This constructor should be used in the case when AWS SDK metrics
+     * collector is enabled.
+     */
+    public AWSRequestMetricsArraySupport() {
+        this(new TimingInfoArraySupport(Long.valueOf(System.currentTimeMillis()),
+                System.nanoTime(), null));
+    }
+
+    private AWSRequestMetricsArraySupport(TimingInfoArraySupport timings) {
+        super(timings);
+        this.timings = timings;
+    }
+
+    /**
+     * Start an event which will be timed. Starting an event that has not
+     * ended overwrites it; starting and ending an event several times records
+     * every occurrence in order.
+     *
+     * @param eventName - The name of the event to start
+     */
+    @Override
+    public void startEvent(String eventName) {
+        MetricType field = TimingInfoArraySupport.fieldOf(eventName);
+        if (field != null) {
+            startEvent(field);
+            return;
+        }
+        if (customEventStarts == null) {
+            customEventStarts = new HashMap<String, Long>();
+        }
+        customEventStarts.put(eventName, Long.valueOf(System.nanoTime()));
+    }
+
+    @Override
+    public void startEvent(MetricType f) {
+        if (!(f instanceof Field)) {
+            startEvent(f.name());
+            return;
+        }
+        int i = ((Field) f).ordinal();
+        eventStarts[i] = System.nanoTime();
+        eventStarted[i] = true;
+    }
+
+    /**
+     * End an event which was previously started. It is illegal to end an
+     * event that was not started.
+     *
+     * @param eventName - The name of the event to end
+     */
+    @Override
+    public void endEvent(String eventName) {
+        MetricType field = TimingInfoArraySupport.fieldOf(eventName);
+        if (field != null) {
+            endEvent(field);
+            return;
+        }
+        Long start = customEventStarts == null ? null : customEventStarts.get(eventName);
+        if (start == null) {
+            warnNeverStarted(eventName);
+            return;
+        }
+        timingInfo.addSubMeasurement(eventName,
+                TimingInfo.unmodifiableTimingInfo(start.longValue(),
+                        Long.valueOf(System.nanoTime())));
+    }
+
+    @Override
+    public void endEvent(MetricType f) {
+        if (!(f instanceof Field)) {
+            endEvent(f.name());
+            return;
+        }
+        int i = ((Field) f).ordinal();
+        if (!eventStarted[i]) {
+            warnNeverStarted(f.name());
+            return;
+        }
+        timings.addSubMeasurement(i, eventStarts[i], System.nanoTime());
+    }
+
+    private void warnNeverStarted(String eventName) {
+        LogFactory.getLog(getClass()).warn
+                ("Trying to end an event which was never started: " + eventName);
+    }
+
+    @Override
+    public void incrementCounter(String event) {
+        timingInfo.incrementCounter(event);
+    }
+
+    @Override
+    public void incrementCounter(MetricType f) {
+        if (f instanceof Field) {
+            timings.incrementCounter(((Field) f).ordinal());
+        } else {
+            incrementCounter(f.name());
+        }
+    }
+
+    @Override
+    public void setCounter(String counterName, long count) {
+        timingInfo.setCounter(counterName, count);
+    }
+
+    @Override
+    public void setCounter(MetricType f, long count) {
+        if (f instanceof Field) {
+            timings.setCounter(((Field) f).ordinal(), count);
+        } else {
+            setCounter(f.name(), count);
+        }
+    }
+
+    /**
+     * Add a property. If you add the same property more than once, all values
+     * are kept in the order they were added.
+     *
+     * @param propertyName The name of the property
+     * @param value The property value
+     */
+    @Override
+    public void addProperty(String propertyName, Object value) {
+        MetricType field = TimingInfoArraySupport.fieldOf(propertyName);
+        if (field != null) {
+            addProperty(field, value);
+            return;
+        }
+        if (customProperties == null) {
+            customProperties = new HashMap<String, List<Object>>();
+        }
+        List<Object> propertyList = customProperties.get(propertyName);
+        if (propertyList == null) {
+            propertyList = new ArrayList<Object>();
+            customProperties.put(propertyName, propertyList);
+        }
+        propertyList.add(value);
+    }
+
+    @Override
+    public void addProperty(MetricType f, Object value) {
+        if (!(f instanceof Field)) {
+            addProperty(f.name(), value);
+            return;
+        }
+        if (propertyCount == propertyFields.length) {
+            propertyFields = Arrays.copyOf(propertyFields, propertyCount * 2);
+            propertyValues = Arrays.copyOf(propertyValues, propertyCount * 2);
+        }
+        propertyFields[propertyCount] = ((Field) f).ordinal();
+        propertyValues[propertyCount] = value;
+        propertyCount++;
+    }
+
+    @Override
+    public List<Object> getProperty(String propertyName) {
+        MetricType field = TimingInfoArraySupport.fieldOf(propertyName);
+        if (field != null) {
+            return getProperty(field);
+        }
+        return customProperties == null ? null : customProperties.get(propertyName);
+    }
+
+    /**
+     * Returns a new list of the values of the given property, or null if the
+     * property was never added.
+     */
+    @Override
+    public List<Object> getProperty(MetricType f) {
+        if (!(f instanceof Field)) {
+            return getProperty(f.name());
+        }
+        int field = ((Field) f).ordinal();
+        List<Object> values = null;
+        for (int i = 0; i < propertyCount; i++) {
+            if (propertyFields[i] == field) {
+                if (values == null) {
+                    values = new ArrayList<Object>();
+                }
+                values.add(propertyValues[i]);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void log() {
+        if (latencyLogger.isInfoEnabled()) {
+            StringBuilder builder = new StringBuilder();
+
+            for (Field field : TimingInfoArraySupport.FIELDS) {
+                List<Object> values = getProperty(field);
+                if (values != null) {
+                    keyValueFormat(field.name(), values, builder);
+                }
+            }
+            if (customProperties != null) {
+                for (Entry<String, List<Object>> entry : customProperties.entrySet()) {
+                    keyValueFormat(entry.getKey(), entry.getValue(), builder);
+                }
+            }
+            for (Entry<String, Number> entry : timingInfo.getAllCounters()
+                    .entrySet()) {
+                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            }
+            for (Entry<String, List<TimingInfo>> entry : timingInfo
+                    .getSubMeasurementsByName().entrySet()) {
+                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            }
+            latencyLogger.info(builder.toString());
+        }
+    }
+
+    private void keyValueFormat(Object key, Object value, StringBuilder builder) {
+        builder.append(key).append(KEY_VALUE_SEPARATOR).append(value).append(COMMA_SEPARATOR);
+    }
+
+    /** Always returns true. */
+    @Override
+    public final boolean isEnabled() {
+        return true;
+    }
+}
@@ -21,45 +21,55 @@ import com.amazonaws.http.HttpMethodName;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class HttpUtils {
 
-    private static final String DEFAULT_ENCODING = "UTF-8";
-
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
+     * Characters left as they are by {@link #urlEncode(String, boolean)}: the
+     * unreserved characters of RFC 3986. All others are percent-encoded.
      */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
+    private static final boolean[] UNRESERVED = new boolean[128];
     static {
-        StringBuilder pattern = new StringBuilder();
-
-        pattern
-                .append(Pattern.quote("+"))
-                .append("|")
-                .append(Pattern.quote("*"))
-                .append("|")
-                .append(Pattern.quote("%7E"))
-                .append("|")
-                .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
     }
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The parameters most recently encoded on this thread. A request is signed
+     * and then sent on the same thread, with the same String instances as
+     * parameters, so each attempt encodes a parameter only once, even when the
+     * signer adds parameters of its own in between. Cleared by
+     * {@link #clearEncodedParameters()} when the attempt ends, so that pooled
+     * threads don't keep the parameters of their last request alive.
+     */
+    private static final ThreadLocal<EncodedParameters> lastEncodedParameters =
+            new ThreadLocal<EncodedParameters>();
+
     /**
-     * Encode a string for use in the path of a URL; uses URLEncoder.encode,
-     * (which encodes a string for use in the query portion of a URL), then
-     * applies some postfilters to fix things up per the RFC. Can optionally
-     * handle strings which are meant to encode a path (ie include '/'es which
-     * should NOT be escaped).
+     * Encode a string for use in the path of a URL, per RFC 3986: all
+     * characters but the unreserved ones are percent-encoded as UTF-8. Can
+     * optionally handle strings which are meant to encode a path (ie include
+     * '/'es which should NOT be escaped).
      *
      * @param value the value to encode
      * @param path true if the value is intended to represent a path
@@ -70,36 +80,62 @@ public class HttpUtils {
             return "";
         }
 
-        try {
-            String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            StringBuffer buffer = new StringBuffer(encoded.length());
+        int length = value.length();
+        int i = 0;
+        while (i < length && isLeftAsIs(value.charAt(i), path)) {
+            i++;
+        }
+        if (i == length) {
+            return value;
+        }
 
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
+        StringBuilder buffer = new StringBuilder(length + 16);
+        buffer.append(value, 0, i);
+        appendEncoded(buffer, value, i, path);
+        return buffer.toString();
+    }
 
-                if ("+".equals(replacement)) {
-                    replacement = "%20";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                }
+    private static boolean isLeftAsIs(char c, boolean path) {
+        return c < 128 && (UNRESERVED[c] || (path && c == '/'));
+    }
 
-                matcher.appendReplacement(buffer, replacement);
+    /**
+     * Appends the value, from the given index on, to the buffer, encoded as
+     * by {@link #urlEncode(String, boolean)}. Unpaired surrogates are encoded
+     * as '?', as the UTF-8 encoder of the platform does.
+     */
+    private static void appendEncoded(StringBuilder buffer, String value, int from, boolean path) {
+        int length = value.length();
+        for (int i = from; i < length; i++) {
+            char c = value.charAt(i);
+            if (isLeftAsIs(c, path)) {
+                buffer.append(c);
+            } else if (c < 0x80) {
+                appendEscaped(buffer, c);
+            } else if (c < 0x800) {
+                appendEscaped(buffer, 0xC0 | (c >> 6));
+                appendEscaped(buffer, 0x80 | (c & 0x3F));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                appendEscaped(buffer, 0xE0 | (c >> 12));
+                appendEscaped(buffer, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(buffer, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(buffer, 0xF0 | (codePoint >> 18));
+                appendEscaped(buffer, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(buffer, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(buffer, 0x80 | (codePoint & 0x3F));
+            } else {
+                appendEscaped(buffer, '?');
             }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
         }
     }
 
+    private static void appendEscaped(StringBuilder buffer, int b) {
+        buffer.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+
     /**
      * Returns true if the specified URI is using a non-standard port (i.e. any
      * port other than 80 for HTTP URIs or any port other than 443 for HTTPS
@@ -142,25 +178,141 @@ public class HttpUtils {
         if (request.getParameters().isEmpty()) {
             return null;
         }
-        StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        try {
-            for (Entry<String, String> entry : request.getParameters().entrySet()) {
-                String encodedName = URLEncoder.encode(entry.getKey(), DEFAULT_ENCODING);
-                String value = entry.getValue();
-                String encodedValue = value == null ? "" : URLEncoder.encode(value,
-                        DEFAULT_ENCODING);
-                if (!first) {
-                    sb.append("&");
+        return encode(request.getParameters()).getQueryString();
+    }
+
+    /**
+     * Creates the canonical query string of the given parameters, as signed by
+     * the signers: the names and values encoded as by
+     * {@link #urlEncode(String, boolean)}, and the pairs sorted by encoded
+     * name.
+     *
+     * @param parameters The parameters to encode.
+     * @return The sorted, encoded query string; empty if there are no
+     *         parameters.
+     */
+    public static String encodeSortedParameters(Map<String, String> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
+        return encode(parameters).getSortedQueryString();
+    }
+
+    /**
+     * Discards the parameter encodings cached on the calling thread. Called by
+     * the HTTP client when each attempt ends; code that signs requests outside
+     * the client can call it once the request is built.
+     */
+    public static void clearEncodedParameters() {
+        lastEncodedParameters.remove();
+    }
+
+    private static EncodedParameters encode(Map<String, String> parameters) {
+        EncodedParameters last = lastEncodedParameters.get();
+        if (last != null && last.isEncodingOf(parameters)) {
+            return last;
+        }
+        EncodedParameters encoded = new EncodedParameters(parameters, last);
+        lastEncodedParameters.set(encoded);
+        return encoded;
+    }
+
+    /**
+     * The names and values of a set of parameters, with their encodings. The
+     * names and values are kept by reference, so that the encodings can be
+     * reused for any parameter with the very same name and value strings.
+     */
+    private static final class EncodedParameters {
+        private final String[] names;
+        private final String[] values;
+        private final String[] encodedNames;
+        private final String[] encodedValues;
+        private String queryString;
+        private String sortedQueryString;
+
+        /**
+         * Encodes the parameters, reusing the encodings of the previous
+         * parameters at the same positions if they are the same strings.
+         */
+        EncodedParameters(Map<String, String> parameters, EncodedParameters previous) {
+            int size = parameters.size();
+            names = new String[size];
+            values = new String[size];
+            encodedNames = new String[size];
+            encodedValues = new String[size];
+            int i = 0;
+            for (Entry<String, String> entry : parameters.entrySet()) {
+                names[i] = entry.getKey();
+                values[i] = entry.getValue();
+                if (previous != null && i < previous.names.length
+                        && previous.names[i] == names[i] && previous.values[i] == values[i]) {
+                    encodedNames[i] = previous.encodedNames[i];
+                    encodedValues[i] = previous.encodedValues[i];
                 } else {
-                    first = false;
+                    encodedNames[i] = urlEncode(names[i], false);
+                    encodedValues[i] = urlEncode(values[i], false);
+                }
+                i++;
+            }
+        }
+
+        boolean isEncodingOf(Map<String, String> parameters) {
+            if (parameters.size() != names.length) {
+                return false;
+            }
+            int i = 0;
+            for (Entry<String, String> entry : parameters.entrySet()) {
+                if (entry.getKey() != names[i] || entry.getValue() != values[i]) {
+                    return false;
+                }
+                i++;
+            }
+            return true;
+        }
+
+        String getQueryString() {
+            if (queryString == null) {
+                queryString = join(null);
+            }
+            return queryString;
+        }
+
+        String getSortedQueryString() {
+            if (sortedQueryString == null) {
+                Integer[] order = new Integer[names.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer a, Integer b) {
+                        return encodedNames[a].compareTo(encodedNames[b]);
+                    }
+                });
+                sortedQueryString = join(order);
+            }
+            return sortedQueryString;
+        }
+
+        /**
+         * Joins the encoded pairs in the given order, or in the order of the
+         * parameters if null.
+         */
+        private String join(Integer[] order) {
+            int length = names.length;
+            for (int i = 0; i < names.length; i++) {
+                length += encodedNames[i].length() + encodedValues[i].length();
+            }
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < names.length; i++) {
+                int index = order == null ? i : order[i];
+                if (i > 0) {
+                    builder.append('&');
                 }
-                sb.append(encodedName).append("=").append(encodedValue);
+                builder.append(encodedNames[index]).append('=').append(encodedValues[index]);
             }
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalArgumentException(e);
+            return builder.toString();
         }
-        return sb.toString();
     }
 
     /**
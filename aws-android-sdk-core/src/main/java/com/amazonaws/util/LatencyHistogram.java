@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, thread safe histogram of non-negative values, typically
+ * latencies in microseconds. Values below 32 are counted exactly; larger
+ * values fall into one of 16 linear buckets per power of two, so every
+ * reported value is within about 6% of the values recorded in its bucket.
+ * Values from 0 up to 2<sup>40</sup> are supported; larger values are counted
+ * in the highest bucket. Recording a value never allocates.
+ * <p>
+ * Histograms can be copied, added and subtracted, so that a caller can take
+ * a consistent snapshot of one being recorded to, combine several recorded by
+ * different threads, or compute what was recorded between two snapshots.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = indexOf((1L << (MAX_EXPONENT + 1)) - 1) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The value to record.
+     */
+    public void recordValue(long value) {
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(Math.max(0, value));
+    }
+
+    /**
+     * Returns a copy of this histogram. Values recorded while copying may or
+     * may not be included.
+     *
+     * @return A copy of this histogram.
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Adds the values recorded in the given histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        long added = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+                added += count;
+            }
+        }
+        totalCount.addAndGet(added);
+        sum.addAndGet(other.sum.get());
+    }
+
+    /**
+     * Removes the values recorded in the given histogram, typically an
+     * earlier copy of this one, from this histogram.
+     *
+     * @param other The histogram to subtract.
+     * @throws IllegalArgumentException If the other histogram has more values
+     *             in a bucket than this one.
+     */
+    public void subtract(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (other.counts.get(i) > counts.get(i)) {
+                throw new IllegalArgumentException(
+                        "The histogram to subtract has more values than this one");
+            }
+        }
+        long removed = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, -count);
+                removed += count;
+            }
+        }
+        totalCount.addAndGet(-removed);
+        sum.addAndGet(-other.sum.get());
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return The number of values recorded.
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns the exact sum of the recorded values.
+     *
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return The mean of the recorded values, or 0 if no value was recorded.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Returns the smallest recorded value, rounded down to the lowest value of
+     * its bucket.
+     *
+     * @return The smallest recorded value, or 0 if no value was recorded.
+     */
+    public long getMinValue() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                return lowestEquivalentValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the largest recorded value, rounded up to the highest value of
+     * its bucket.
+     *
+     * @return The largest recorded value, or 0 if no value was recorded.
+     */
+    public long getMaxValue() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values
+     * fall, rounded up to the highest value of its bucket.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value at the percentile, or 0 if no value was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        return getValueAtPercentile(percentile, null);
+    }
+
+    /**
+     * Returns the value at the given percentile of the values recorded in
+     * this histogram and the given one combined, without merging them. This
+     * lets a caller keep a sliding window of two histograms.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @param other Another histogram, or null.
+     * @return The value at the percentile, or 0 if no value was recorded.
+     */
+    public long getValueAtPercentile(double percentile, LatencyHistogram other) {
+        long total = totalCount.get() + (other == null ? 0 : other.totalCount.get());
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (other != null) {
+                seen += other.counts.get(i);
+            }
+            if (seen >= rank) {
+                return highestEquivalentValue(i);
+            }
+        }
+        // Counts were recorded concurrently with the scan
+        return highestEquivalentValue(BUCKET_COUNT - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A full support of timing info that keeps the counters and sub-measurements
+ * of the standard {@link Field}s in arrays indexed by their ordinal, so that
+ * recording them does not allocate. Counters and sub-measurements with any
+ * other name are kept in a {@link TimingInfoFullSupport} created on first
+ * use. {@link TimingInfo} and collection views are only created when read.
+ * <p>
+ * This class is instantiated by {@link AWSRequestMetricsArraySupport}.
+ */
+class TimingInfoArraySupport extends TimingInfo {
+
+    static final Field[] FIELDS = Field.values();
+    private static final Map<String, Field> FIELDS_BY_NAME = new HashMap<String, Field>();
+    static {
+        for (Field field : FIELDS) {
+            FIELDS_BY_NAME.put(field.name(), field);
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long[] counters = new long[FIELDS.length];
+    private final boolean[] hasCounter = new boolean[FIELDS.length];
+
+    /* Sub-measurements of standard fields in the order they were added. */
+    private int[] subMeasurementFields = new int[INITIAL_CAPACITY];
+    private long[] subMeasurementStarts = new long[INITIAL_CAPACITY];
+    private long[] subMeasurementEnds = new long[INITIAL_CAPACITY];
+    private int subMeasurementCount;
+
+    /* Counters and sub-measurements with non-standard names. */
+    private TimingInfoFullSupport custom;
+
+    /**
+     * @param startEpochTimeMilli start time since epoch in millisecond
+     * @param startTimeNano start time in nanosecond
+     * @param endTimeNano end time in nanosecond; or null if not known
+     */
+    TimingInfoArraySupport(Long startEpochTimeMilli, long startTimeNano, Long endTimeNano) {
+        super(startEpochTimeMilli, startTimeNano, endTimeNano);
+    }
+
+    /**
+     * Returns the standard field with the given name, or null.
+     */
+    static Field fieldOf(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
+
+    void addSubMeasurement(int field, long startTimeNano, long endTimeNano) {
+        if (subMeasurementCount == subMeasurementFields.length) {
+            int capacity = subMeasurementCount * 2;
+            subMeasurementFields = Arrays.copyOf(subMeasurementFields, capacity);
+            subMeasurementStarts = Arrays.copyOf(subMeasurementStarts, capacity);
+            subMeasurementEnds = Arrays.copyOf(subMeasurementEnds, capacity);
+        }
+        subMeasurementFields[subMeasurementCount] = field;
+        subMeasurementStarts[subMeasurementCount] = startTimeNano;
+        subMeasurementEnds[subMeasurementCount] = endTimeNano;
+        subMeasurementCount++;
+    }
+
+    void setCounter(int field, long count) {
+        counters[field] = count;
+        hasCounter[field] = true;
+    }
+
+    void incrementCounter(int field) {
+        counters[field] = hasCounter[field] ? counters[field] + 1 : 1;
+        hasCounter[field] = true;
+    }
+
+    @Override
+    public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
+        Field field = fieldOf(subMeasurementName);
+        if (field == null) {
+            custom().addSubMeasurement(subMeasurementName, ti);
+        } else if (ti.isEndTimeKnown()) {
+            addSubMeasurement(field.ordinal(), ti.getStartTimeNano(), ti.getEndTimeNano());
+        } else {
+            LogFactory.getLog(getClass()).debug(
+                    "Skip submeasurement timing info with no end time for "
+                            + subMeasurementName);
+        }
+    }
+
+    @Override
+    public TimingInfo getSubMeasurement(String subMeasurementName) {
+        return getSubMeasurement(subMeasurementName, 0);
+    }
+
+    @Override
+    public TimingInfo getSubMeasurement(String subMesurementName, int index) {
+        Field field = fieldOf(subMesurementName);
+        if (field == null) {
+            return custom == null ? null : custom.getSubMeasurement(subMesurementName, index);
+        }
+        if (index < 0) {
+            return null;
+        }
+        int seen = 0;
+        for (int i = 0; i < subMeasurementCount; i++) {
+            if (subMeasurementFields[i] == field.ordinal() && seen++ == index) {
+                return subMeasurementAt(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public TimingInfo getLastSubMeasurement(String subMeasurementName) {
+        Field field = fieldOf(subMeasurementName);
+        if (field == null) {
+            return custom == null ? null : custom.getLastSubMeasurement(subMeasurementName);
+        }
+        for (int i = subMeasurementCount - 1; i >= 0; i--) {
+            if (subMeasurementFields[i] == field.ordinal()) {
+                return subMeasurementAt(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
+        Field field = fieldOf(subMeasurementName);
+        if (field == null) {
+            return custom == null ? null : custom.getAllSubMeasurements(subMeasurementName);
+        }
+        List<TimingInfo> timings = null;
+        for (int i = 0; i < subMeasurementCount; i++) {
+            if (subMeasurementFields[i] == field.ordinal()) {
+                if (timings == null) {
+                    timings = new ArrayList<TimingInfo>();
+                }
+                timings.add(subMeasurementAt(i));
+            }
+        }
+        return timings;
+    }
+
+    @Override
+    public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
+        Map<String, List<TimingInfo>> byName = new HashMap<String, List<TimingInfo>>();
+        for (int i = 0; i < subMeasurementCount; i++) {
+            String name = FIELDS[subMeasurementFields[i]].name();
+            List<TimingInfo> timings = byName.get(name);
+            if (timings == null) {
+                timings = new ArrayList<TimingInfo>();
+                byName.put(name, timings);
+            }
+            timings.add(subMeasurementAt(i));
+        }
+        if (custom != null) {
+            byName.putAll(custom.getSubMeasurementsByName());
+        }
+        return byName;
+    }
+
+    @Override
+    public Number getCounter(String key) {
+        Field field = fieldOf(key);
+        if (field == null) {
+            return custom == null ? null : custom.getCounter(key);
+        }
+        return hasCounter[field.ordinal()] ? Long.valueOf(counters[field.ordinal()]) : null;
+    }
+
+    @Override
+    public Map<String, Number> getAllCounters() {
+        Map<String, Number> all = new HashMap<String, Number>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (hasCounter[i]) {
+                all.put(FIELDS[i].name(), Long.valueOf(counters[i]));
+            }
+        }
+        if (custom != null) {
+            all.putAll(custom.getAllCounters());
+        }
+        return all;
+    }
+
+    @Override
+    public void setCounter(String key, long count) {
+        Field field = fieldOf(key);
+        if (field == null) {
+            custom().setCounter(key, count);
+        } else {
+            setCounter(field.ordinal(), count);
+        }
+    }
+
+    @Override
+    public void incrementCounter(String key) {
+        Field field = fieldOf(key);
+        if (field == null) {
+            custom().incrementCounter(key);
+        } else {
+            incrementCounter(field.ordinal());
+        }
+    }
+
+    private TimingInfo subMeasurementAt(int i) {
+        return TimingInfo.unmodifiableTimingInfo(subMeasurementStarts[i],
+                Long.valueOf(subMeasurementEnds[i]));
+    }
+
+    private TimingInfoFullSupport custom() {
+        if (custom == null) {
+            custom = new TimingInfoFullSupport(null, getStartTimeNano(), null);
+        }
+        return custom;
+    }
+}
@@ -50,7 +50,10 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public class AmazonHttpClientTest {
     private HttpClient httpClient;
@@ -727,4 +730,17 @@ public class AmazonHttpClientTest {
         String userAgent = request.getHeaders().get("User-Agent");
         assertEquals("same user agent", targetUserAgent, userAgent);
     }
+
+    @Test
+    public void testNewInvocationId() {
+        Set<String> ids = new HashSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            String id = AmazonHttpClient.newInvocationId();
+            UUID uuid = UUID.fromString(id);
+            assertEquals(id, uuid.toString());
+            assertEquals(4, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertTrue("duplicate invocation id " + id, ids.add(id));
+        }
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgingPolicyTest {
+
+    private static final String BODY = "{\"TableName\":\"table\"}";
+
+    @Test
+    public void testNotHedgedBeforeEnoughSamples() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null);
+        DelayingHttpClient httpClient = new DelayingHttpClient();
+        Request<?> request = newRequest(HttpMethodName.GET);
+
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES - 1; i++) {
+            policy.execute(httpClient, request, newHttpRequest(null), newMetrics());
+        }
+        assertEquals(-1, policy.getHedgeDelayMillis(GetRequest.class));
+        assertEquals(HedgingPolicy.MIN_SAMPLES - 1, httpClient.requests.get());
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null);
+        DelayingHttpClient httpClient = new DelayingHttpClient();
+        warmUp(policy, httpClient);
+        assertEquals(HedgingPolicy.DEFAULT_MIN_HEDGE_DELAY_MILLIS,
+                policy.getHedgeDelayMillis(GetRequest.class));
+
+        // The first attempt stalls, the hedge answers right away
+        httpClient.requests.set(0);
+        httpClient.delayFirstMillis = 2000;
+        AWSRequestMetrics metrics = newMetrics();
+        long start = System.currentTimeMillis();
+        HttpResponse response = policy.execute(httpClient, newRequest(HttpMethodName.GET),
+                newHttpRequest(BODY), metrics);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue("took " + elapsed + "ms", elapsed < 1000);
+        assertEquals(2, httpClient.requests.get());
+        assertEquals(BODY, httpClient.lastBody);
+        assertEquals(1, getCounter(metrics, Field.HedgedRequestCount));
+        assertEquals(1, getCounter(metrics, Field.HedgeWonCount));
+    }
+
+    @Test
+    public void testFastRequestIsNotHedged() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null);
+        DelayingHttpClient httpClient = new DelayingHttpClient();
+        warmUp(policy, httpClient);
+
+        httpClient.requests.set(0);
+        AWSRequestMetrics metrics = newMetrics();
+        policy.execute(httpClient, newRequest(HttpMethodName.GET), newHttpRequest(null),
+                metrics);
+        assertEquals(1, httpClient.requests.get());
+        assertEquals(0, getCounter(metrics, Field.HedgedRequestCount));
+    }
+
+    @Test
+    public void testHedgeBudget() throws IOException {
+        // A single hedge is allowed, then one per 100 requests. The minimum
+        // delay keeps a warm-up request stalled by the JIT from using it up.
+        HedgingPolicy policy = new HedgingPolicy(null, 95.0, 50, 0.01, 1);
+        DelayingHttpClient httpClient = new DelayingHttpClient();
+        warmUp(policy, httpClient);
+        assertEquals(1, policy.getAvailableHedges());
+
+        httpClient.delayAllMillis = 200;
+        AWSRequestMetrics metrics = newMetrics();
+        policy.execute(httpClient, newRequest(HttpMethodName.GET), newHttpRequest(null),
+                metrics);
+        assertEquals(1, getCounter(metrics, Field.HedgedRequestCount));
+        assertEquals(0, policy.getAvailableHedges());
+
+        metrics = newMetrics();
+        policy.execute(httpClient, newRequest(HttpMethodName.GET), newHttpRequest(null),
+                metrics);
+        assertEquals(0, getCounter(metrics, Field.HedgedRequestCount));
+    }
+
+    @Test
+    public void testHedgeCondition() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null);
+        DelayingHttpClient httpClient = new DelayingHttpClient();
+        warmUp(policy, httpClient);
+
+        // POST is not hedged by the default condition
+        httpClient.requests.set(0);
+        httpClient.delayFirstMillis = 100;
+        AWSRequestMetrics metrics = newMetrics();
+        policy.execute(httpClient, newRequest(HttpMethodName.POST), newHttpRequest(BODY),
+                metrics);
+        assertEquals(1, httpClient.requests.get());
+        assertEquals(0, getCounter(metrics, Field.HedgedRequestCount));
+    }
+
+    private static void warmUp(HedgingPolicy policy, HttpClient httpClient)
+            throws IOException {
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES * 2; i++) {
+            policy.execute(httpClient, newRequest(HttpMethodName.GET), newHttpRequest(null),
+                    newMetrics());
+        }
+    }
+
+    private static Request<?> newRequest(HttpMethodName method) {
+        DefaultRequest<?> request = new DefaultRequest<String>(new GetRequest(), "TestService");
+        request.setHttpMethod(method);
+        return request;
+    }
+
+    private static HttpRequest newHttpRequest(String body) {
+        Map<String, String> headers = new HashMap<String, String>();
+        InputStream content = null;
+        if (body != null) {
+            byte[] bytes = body.getBytes(StringUtils.UTF8);
+            headers.put(HttpHeader.CONTENT_LENGTH, String.valueOf(bytes.length));
+            content = new ByteArrayInputStream(bytes);
+        }
+        return new HttpRequest("GET", URI.create("https://test.amazonaws.com"), headers,
+                content);
+    }
+
+    private static AWSRequestMetrics newMetrics() {
+        return new AWSRequestMetricsFullSupport();
+    }
+
+    private static int getCounter(AWSRequestMetrics metrics, Field field) {
+        Number counter = metrics.getTimingInfo().getCounter(field.toString());
+        return counter == null ? 0 : counter.intValue();
+    }
+
+    private static class GetRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class DelayingHttpClient implements HttpClient {
+        final AtomicInteger requests = new AtomicInteger();
+        volatile long delayFirstMillis;
+        volatile long delayAllMillis;
+        volatile String lastBody;
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            long delay = requests.incrementAndGet() == 1 ? delayFirstMillis : 0;
+            try {
+                Thread.sleep(Math.max(delay, delayAllMillis));
+            } catch (InterruptedException e) {
+                throw new IOException(e.getMessage());
+            }
+            if (request.getContent() != null) {
+                byte[] bytes = new byte[(int) request.getContentLength()];
+                int read = request.getContent().read(bytes);
+                lastBody = new String(bytes, 0, read, StringUtils.UTF8);
+            }
+            return HttpResponse.builder().statusCode(200).statusText("OK").build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
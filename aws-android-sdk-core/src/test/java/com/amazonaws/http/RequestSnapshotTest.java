@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RequestSnapshotTest {
+
+    @Test
+    public void testRestore() {
+        Request<?> request = new DefaultRequest<String>("TestService");
+        request.addParameter("Action", "Test");
+        request.addParameter("Param.1", "1");
+        request.addHeader("Content-Type", "application/x-amz-json-1.0");
+
+        RequestSnapshot snapshot = new RequestSnapshot(request);
+        Map<String, String> expectedHeaders = new HashMap<String, String>(request.getHeaders());
+
+        request.addParameter("Signature", "signature");
+        request.addParameter("Param.1", "changed");
+        request.addHeader("Authorization", "authorization");
+        request.addHeader("Content-Type", "text/plain");
+        snapshot.restore(request);
+
+        assertEquals(Arrays.asList("Action", "Param.1"),
+                Arrays.asList(request.getParameters().keySet().toArray()));
+        assertEquals("1", request.getParameters().get("Param.1"));
+        assertEquals(expectedHeaders, request.getHeaders());
+    }
+
+    @Test
+    public void testRestoreKeepsUnchangedParameters() {
+        Request<?> request = new DefaultRequest<String>("TestService");
+        String value = "value";
+        request.addParameter("Name", value);
+
+        RequestSnapshot snapshot = new RequestSnapshot(request);
+        request.addHeader("Authorization", "authorization");
+        snapshot.restore(request);
+
+        assertSame(value, request.getParameters().get("Name"));
+        assertEquals(1, request.getParameters().size());
+        assertEquals(0, request.getHeaders().size());
+    }
+
+    @Test
+    public void testRestoreEmpty() {
+        Request<?> request = new DefaultRequest<String>("TestService");
+        RequestSnapshot snapshot = new RequestSnapshot(request);
+        request.addParameter("Name", "value");
+        request.addHeader("Authorization", "authorization");
+        snapshot.restore(request);
+
+        assertEquals(0, request.getParameters().size());
+        assertEquals(0, request.getHeaders().size());
+    }
+}
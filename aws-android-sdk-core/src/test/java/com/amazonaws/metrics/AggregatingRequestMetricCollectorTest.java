@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsArraySupport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AggregatingRequestMetricCollectorTest {
+
+    @Test
+    public void testAggregatesPerOperation() {
+        AggregatingRequestMetricCollector collector = new AggregatingRequestMetricCollector(4);
+        collector.collectMetrics(request("AmazonDynamoDB", new GetItemRequest(), 1, 0),
+                new Response<String>("ok", null));
+        collector.collectMetrics(request("AmazonDynamoDB", new GetItemRequest(), 3, 2), null);
+        collector.collectMetrics(request("AmazonDynamoDB", new PutItemRequest(), 1, 0),
+                new Response<String>("ok", null));
+
+        List<RequestMetricsSnapshot> snapshots = collector.getSnapshots();
+        assertEquals(2, snapshots.size());
+        RequestMetricsSnapshot getItem = find(snapshots, "GetItem");
+        assertEquals("AmazonDynamoDB", getItem.getServiceName());
+        assertEquals(2, getItem.getRequestCount());
+        assertEquals(2, getItem.getRetryCount());
+        assertEquals(1, getItem.getFailedRequestCount());
+        assertEquals(2, getItem.getExceptionCount());
+        assertEquals(0, getItem.getThrottledRetryCount());
+        assertEquals(2, getItem.getLatencyHistogram(Field.ClientExecuteTime).getTotalCount());
+        assertEquals(4, getItem.getLatencyHistogram(Field.HttpRequestTime).getTotalCount());
+        assertEquals(0, getItem.getLatencyHistogram(Field.RequestSigningTime).getTotalCount());
+        assertNull(getItem.getLatencyHistogram(Field.CredentialsRequestTime));
+        assertTrue(getItem.getEndTimeMillis() >= getItem.getStartTimeMillis());
+
+        RequestMetricsSnapshot putItem = find(snapshots, "PutItem");
+        assertEquals(1, putItem.getRequestCount());
+        assertEquals(0, putItem.getRetryCount());
+        assertEquals(0, putItem.getFailedRequestCount());
+    }
+
+    @Test
+    public void testSnapshotSince() {
+        AggregatingRequestMetricCollector collector = new AggregatingRequestMetricCollector(1);
+        collector.collectMetrics(request("AmazonSQS", new GetItemRequest(), 2, 1),
+                new Response<String>("ok", null));
+        RequestMetricsSnapshot first = collector.getSnapshots().get(0);
+        collector.collectMetrics(request("AmazonSQS", new GetItemRequest(), 1, 0),
+                new Response<String>("ok", null));
+        RequestMetricsSnapshot second = collector.getSnapshots().get(0);
+
+        assertSame(second, second.since(null));
+        RequestMetricsSnapshot interval = second.since(first);
+        assertEquals(1, interval.getRequestCount());
+        assertEquals(0, interval.getRetryCount());
+        assertEquals(0, interval.getExceptionCount());
+        assertEquals(first.getEndTimeMillis(), interval.getStartTimeMillis());
+        assertEquals(1, interval.getLatencyHistogram(Field.ClientExecuteTime).getTotalCount());
+        assertEquals(1, interval.getLatencyHistogram(Field.HttpRequestTime).getTotalCount());
+        assertEquals(2, second.getRequestCount());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final AggregatingRequestMetricCollector collector = new AggregatingRequestMetricCollector();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        collector.collectMetrics(
+                                request("AmazonDynamoDB", new GetItemRequest(), 1, 0),
+                                new Response<String>("ok", null));
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RequestMetricsSnapshot snapshot = collector.getSnapshots().get(0);
+        assertEquals(8000, snapshot.getRequestCount());
+        assertEquals(8000, snapshot.getLatencyHistogram(Field.HttpRequestTime).getTotalCount());
+    }
+
+    @Test
+    public void testIgnoresDisabledMetrics() {
+        AggregatingRequestMetricCollector collector = new AggregatingRequestMetricCollector();
+        DefaultRequest<GetItemRequest> request =
+                new DefaultRequest<GetItemRequest>(new GetItemRequest(), "AmazonDynamoDB");
+        request.setAWSRequestMetrics(new AWSRequestMetrics());
+        collector.collectMetrics(request, null);
+        assertTrue(collector.getSnapshots().isEmpty());
+        assertSame(collector, collector.asMetricCollector().getRequestMetricCollector());
+    }
+
+    @Test
+    public void testOperationName() {
+        assertEquals("GetItem",
+                AggregatingRequestMetricCollector.operationNameOf(new GetItemRequest()));
+        assertEquals("Unknown", AggregatingRequestMetricCollector.operationNameOf(null));
+    }
+
+    private static DefaultRequest<AmazonWebServiceRequest> request(String serviceName,
+            AmazonWebServiceRequest originalRequest, int attempts, int exceptions) {
+        DefaultRequest<AmazonWebServiceRequest> request =
+                new DefaultRequest<AmazonWebServiceRequest>(originalRequest, serviceName);
+        AWSRequestMetrics metrics = new AWSRequestMetricsArraySupport();
+        metrics.startEvent(Field.ClientExecuteTime);
+        for (int i = 0; i < attempts; i++) {
+            metrics.incrementCounter(Field.RequestCount);
+            metrics.startEvent(Field.HttpRequestTime);
+            metrics.endEvent(Field.HttpRequestTime);
+        }
+        for (int i = 0; i < exceptions; i++) {
+            metrics.incrementCounter(Field.Exception);
+        }
+        metrics.endEvent(Field.ClientExecuteTime);
+        request.setAWSRequestMetrics(metrics);
+        return request;
+    }
+
+    private static RequestMetricsSnapshot find(List<RequestMetricsSnapshot> snapshots,
+            String operationName) {
+        for (RequestMetricsSnapshot snapshot : snapshots) {
+            if (snapshot.getOperationName().equals(operationName)) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError(operationName + " not found");
+    }
+
+    private static class GetItemRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class PutItemRequest extends AmazonWebServiceRequest {
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.util.AWSRequestMetrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests that {@link com.amazonaws.http.AmazonHttpClient} honors the retry
+ * quota and circuit breaker of the configured RetryPolicy.
+ */
+public class AmazonHttpClientRetryQuotaTest extends RetryPolicyTestBase {
+
+    private static final int MAX_ERROR_RETRY = 5;
+
+    private CountingHttpClient httpClient;
+
+    @Before
+    public void setUp() {
+        retryCondition = new ContextDataCollectionRetryCondition();
+        backoffStrategy = new ContextDataCollectionBackoffStrategy();
+        httpClient = new CountingHttpClient(
+                new ReturnServiceErrorHttpClient(503, "Service Unavailable"));
+        injectMockHttpClient(testedClient, httpClient);
+    }
+
+    /**
+     * Retries stop once the quota is exhausted, well before the max retry
+     * count is reached.
+     */
+    @Test
+    public void testRetriesStopWhenQuotaExhausted() {
+        RetryQuota quota = new RetryQuota(10, 5, 1);
+        clientConfiguration.setRetryPolicy(new RetryPolicy(retryCondition, backoffStrategy,
+                MAX_ERROR_RETRY, false, quota, null));
+
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, context);
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(503, ase.getStatusCode());
+        }
+
+        Assert.assertEquals(3, httpClient.count);
+        Assert.assertEquals(0, quota.getAvailableCapacity());
+        Assert.assertEquals(1, getCounter(context, AWSRequestMetrics.Field.ThrottledRetryCount));
+
+        // With the quota empty, the next request is not retried at all
+        httpClient.count = 0;
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, new ExecutionContext(true));
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(503, ase.getStatusCode());
+        }
+        Assert.assertEquals(1, httpClient.count);
+    }
+
+    /**
+     * Once the circuit opens, the remaining retries and later requests fail
+     * without being sent.
+     */
+    @Test
+    public void testCircuitBreakerFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60 * 1000);
+        clientConfiguration.setRetryPolicy(new RetryPolicy(retryCondition, backoffStrategy,
+                MAX_ERROR_RETRY, false, null, breaker));
+
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, new ExecutionContext(true));
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(503, ase.getStatusCode());
+        }
+        Assert.assertEquals(3, httpClient.count);
+        Assert.assertEquals(CircuitBreaker.State.OPEN,
+                breaker.getState(getSampleRequestWithRepeatableContent(originalRequest)
+                        .getEndpoint()));
+
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, context);
+            Assert.fail("AmazonClientException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.fail("The request should not have been sent.");
+        } catch (AmazonClientException ace) {
+            Assert.assertTrue(ace.getMessage().contains("circuit breaker is open"));
+        }
+        Assert.assertEquals(3, httpClient.count);
+        Assert.assertEquals(1,
+                getCounter(context, AWSRequestMetrics.Field.CircuitBreakerRejectedCount));
+    }
+
+    private static int getCounter(ExecutionContext context, AWSRequestMetrics.Field field) {
+        Number counter = context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(field.toString());
+        return counter == null ? 0 : counter.intValue();
+    }
+
+    private static class CountingHttpClient implements HttpClient {
+
+        private final HttpClient delegate;
+        private int count;
+
+        CountingHttpClient(HttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            count++;
+            return delegate.execute(request);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+}
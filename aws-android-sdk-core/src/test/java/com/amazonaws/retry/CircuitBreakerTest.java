@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+
+public class CircuitBreakerTest {
+
+    private static final URI ENDPOINT = URI.create("https://service.us-east-1.amazonaws.com");
+    private static final URI OTHER_ENDPOINT = URI.create("https://service.us-west-2.amazonaws.com");
+
+    private static final AmazonClientException IO_FAILURE = new AmazonClientException(
+            "Unable to execute HTTP request", new IOException("Connection reset"));
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60 * 1000);
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        breaker.onFailure(ENDPOINT, serviceException(503));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(ENDPOINT));
+        assertTrue(breaker.allowRequest(ENDPOINT));
+
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(ENDPOINT));
+        assertFalse(breaker.allowRequest(ENDPOINT));
+        assertEquals(1, breaker.getOpenedCount());
+        assertEquals(1, breaker.getRejectedCount());
+
+        // Other endpoints are unaffected
+        assertTrue(breaker.allowRequest(OTHER_ENDPOINT));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(OTHER_ENDPOINT));
+    }
+
+    @Test
+    public void testClientErrorsResetFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60 * 1000);
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        breaker.onFailure(ENDPOINT, serviceException(400));
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(ENDPOINT));
+
+        breaker.onSuccess(ENDPOINT);
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(ENDPOINT));
+    }
+
+    @Test
+    public void testThrottlingCountsAsFailure() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60 * 1000);
+        AmazonServiceException throttled = serviceException(400);
+        throttled.setErrorCode("ThrottlingException");
+        breaker.onFailure(ENDPOINT, throttled);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(ENDPOINT));
+    }
+
+    @Test
+    public void testHalfOpenProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        assertFalse(breaker.allowRequest(ENDPOINT));
+
+        Thread.sleep(100);
+        assertTrue(breaker.allowRequest(ENDPOINT));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(ENDPOINT));
+        // Only one probe at a time
+        assertFalse(breaker.allowRequest(ENDPOINT));
+
+        // A failed probe opens the circuit again
+        breaker.onFailure(ENDPOINT, IO_FAILURE);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(ENDPOINT));
+        assertEquals(2, breaker.getOpenedCount());
+
+        Thread.sleep(100);
+        assertTrue(breaker.allowRequest(ENDPOINT));
+        breaker.onSuccess(ENDPOINT);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(ENDPOINT));
+        assertTrue(breaker.allowRequest(ENDPOINT));
+    }
+
+    private static AmazonServiceException serviceException(int statusCode) {
+        AmazonServiceException ase = new AmazonServiceException("Fake service exception.");
+        ase.setStatusCode(statusCode);
+        return ase;
+    }
+}
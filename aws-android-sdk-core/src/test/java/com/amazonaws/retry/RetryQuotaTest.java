@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RetryQuotaTest {
+
+    @Test
+    public void testAcquireUntilExhausted() {
+        RetryQuota quota = new RetryQuota(12, 5, 1);
+        assertEquals(5, quota.acquire());
+        assertEquals(5, quota.acquire());
+        assertEquals(-1, quota.acquire());
+        assertEquals(2, quota.getAvailableCapacity());
+    }
+
+    @Test
+    public void testReleaseRetriedRequest() {
+        RetryQuota quota = new RetryQuota(10, 5, 1);
+        int acquired = quota.acquire() + quota.acquire();
+        assertEquals(0, quota.getAvailableCapacity());
+        quota.release(acquired);
+        assertEquals(10, quota.getAvailableCapacity());
+    }
+
+    @Test
+    public void testReleaseNeverExceedsCapacity() {
+        RetryQuota quota = new RetryQuota(10, 5, 1);
+        quota.release(0);
+        assertEquals(10, quota.getAvailableCapacity());
+
+        quota.acquire();
+        quota.release(0);
+        assertEquals(6, quota.getAvailableCapacity());
+        quota.release(20);
+        assertEquals(10, quota.getAvailableCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveRetryCost() {
+        new RetryQuota(10, 0, 1);
+    }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 import org.xmlpull.v1.XmlPullParser;
@@ -28,6 +29,8 @@ import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -105,6 +108,95 @@ public class StaxUnmarshallerContextTest {
         assertFalse("expression not match", context.testExpression("imageSet/item_id", 2));
     }
 
+    @Test
+    public void testExpressionAfterEndTags() throws Exception {
+        context = getContext(XML_STRING, null);
+        // DescribeImagesResponse, requestId
+        context.nextEvent();
+        context.nextEvent();
+        context.readText();
+        // architecture
+        context.nextEvent();
+        context.readText();
+        // imageSet, item, id
+        context.nextEvent();
+        context.nextEvent();
+        context.nextEvent();
+        context.readText();
+        assertTrue("end of first item", context.nextEvent() == XmlPullParser.END_TAG);
+        assertTrue(context.getCurrentDepth() == 2);
+        assertTrue("second item", context.nextEvent() == XmlPullParser.START_TAG);
+        assertTrue(context.testExpression("imageSet/item", 2));
+        assertTrue(context.testExpression("DescribeImagesResponse/imageSet/item", 1));
+        assertFalse("architecture was closed", context.testExpression("architecture/item", 2));
+        assertFalse("longer than the stack",
+                context.testExpression("Root/DescribeImagesResponse/imageSet/item", 0));
+    }
+
+    @Test
+    public void testAttributeExpression() throws Exception {
+        context = getContext(XML_STRING, null);
+        context.nextEvent();
+        context.nextEvent();
+        // attributes don't add a depth level, and never match an element
+        assertFalse(context.testExpression("requestId/@encoding", 2));
+        assertFalse(context.testExpression("requestId/@encoding", 1));
+        assertTrue(context.testExpression("requestId", 2));
+    }
+
+    @Test
+    public void testDeepDocument() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            xml.append("<e").append(i).append(">");
+        }
+        for (int i = 39; i >= 0; i--) {
+            xml.append("</e").append(i).append(">");
+        }
+        context = getContext(xml.toString(), null);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(context.nextEvent() == XmlPullParser.START_TAG);
+        }
+        assertTrue(context.getCurrentDepth() == 40);
+        assertTrue(context.testExpression("e37/e38/e39", 38));
+        assertFalse(context.testExpression("e36/e38/e39", 38));
+        for (int i = 0; i < 40; i++) {
+            assertTrue(context.nextEvent() == XmlPullParser.END_TAG);
+        }
+        assertTrue(context.getCurrentDepth() == 0);
+        assertTrue(context.nextEvent() == XmlPullParser.END_DOCUMENT);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testStackListsEnclosingPaths() throws Exception {
+        context = getContext(XML_STRING, null);
+        assertTrue(context.stack.isEmpty());
+        assertNull(context.stack.peek());
+        // DescribeImagesResponse, requestId
+        context.nextEvent();
+        context.nextEvent();
+        context.readText();
+        // architecture
+        context.nextEvent();
+        context.readText();
+        // imageSet, item
+        context.nextEvent();
+        context.nextEvent();
+
+        assertEquals(3, context.stack.size());
+        assertEquals("/DescribeImagesResponse/imageSet/item", context.stack.peek());
+        assertEquals("/DescribeImagesResponse", context.stack.peekLast());
+        assertEquals(Arrays.asList("/DescribeImagesResponse/imageSet/item",
+                "/DescribeImagesResponse/imageSet", "/DescribeImagesResponse"),
+                new ArrayList<String>(context.stack));
+        try {
+            context.stack.pop();
+            fail("the stack is read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
     @Test
     public void testMetadata() throws Exception {
         String key = "AWS_REQUEST_ID";
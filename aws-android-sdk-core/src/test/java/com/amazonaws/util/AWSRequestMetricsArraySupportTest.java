@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.metrics.MetricType;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AWSRequestMetricsArraySupportTest {
+
+    private static final MetricType CUSTOM = new MetricType() {
+        @Override
+        public String name() {
+            return "CustomMetric";
+        }
+    };
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testEquivalentToFullSupport() {
+        AWSRequestMetrics expected = new AWSRequestMetricsFullSupport();
+        AWSRequestMetrics actual = new AWSRequestMetricsArraySupport();
+        record(expected);
+        record(actual);
+
+        for (Field field : Field.values()) {
+            assertEquals(field.name(), expected.getProperty(field), actual.getProperty(field));
+            assertEquals(field.name(), counterOf(expected, field.name()),
+                    counterOf(actual, field.name()));
+            assertEquals(field.name(), sizeOf(expected.getTimingInfo()
+                    .getAllSubMeasurements(field.name())), sizeOf(actual.getTimingInfo()
+                    .getAllSubMeasurements(field.name())));
+        }
+        for (String name : Arrays.asList("CustomMetric", "custom-string")) {
+            assertEquals(expected.getProperty(name), actual.getProperty(name));
+            assertEquals(counterOf(expected, name), counterOf(actual, name));
+            assertEquals(sizeOf(expected.getTimingInfo().getAllSubMeasurements(name)),
+                    sizeOf(actual.getTimingInfo().getAllSubMeasurements(name)));
+        }
+        assertEquals(expected.getTimingInfo().getAllCounters().keySet(),
+                actual.getTimingInfo().getAllCounters().keySet());
+        assertEquals(expected.getTimingInfo().getSubMeasurementsByName().keySet(),
+                actual.getTimingInfo().getSubMeasurementsByName().keySet());
+        assertTrue(actual.isEnabled());
+    }
+
+    @Test
+    public void testSubMeasurementsInOrder() throws InterruptedException {
+        AWSRequestMetrics metrics = new AWSRequestMetricsArraySupport();
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        Thread.sleep(2);
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+
+        TimingInfo timingInfo = metrics.getTimingInfo();
+        TimingInfo first = timingInfo.getSubMeasurement(Field.HttpRequestTime.name());
+        TimingInfo second = timingInfo.getSubMeasurement(Field.HttpRequestTime.name(), 1);
+        assertTrue(first.isEndTimeKnown());
+        assertTrue(second.getStartTimeNano() > first.getEndTimeNano());
+        assertEquals(second.getStartTimeNano(),
+                timingInfo.getLastSubMeasurement(Field.HttpRequestTime.name())
+                        .getStartTimeNano());
+        assertNull(timingInfo.getSubMeasurement(Field.HttpRequestTime.name(), 2));
+        assertNull(timingInfo.getSubMeasurement(Field.RequestSigningTime.name()));
+    }
+
+    @Test
+    public void testEndWithoutStart() {
+        AWSRequestMetrics metrics = new AWSRequestMetricsArraySupport();
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.endEvent("custom-string");
+        assertTrue(metrics.getTimingInfo().getSubMeasurementsByName().isEmpty());
+    }
+
+    @Test
+    public void testManyEventsAndProperties() {
+        AWSRequestMetrics metrics = new AWSRequestMetricsArraySupport();
+        for (int i = 0; i < 100; i++) {
+            metrics.startEvent(Field.HttpRequestTime);
+            metrics.endEvent(Field.HttpRequestTime);
+            metrics.addProperty(Field.StatusCode, i);
+        }
+        assertEquals(100, metrics.getTimingInfo()
+                .getAllSubMeasurements(Field.HttpRequestTime.name()).size());
+        List<Object> statusCodes = metrics.getProperty(Field.StatusCode);
+        assertEquals(100, statusCodes.size());
+        assertEquals(99, statusCodes.get(99));
+    }
+
+    private static void record(AWSRequestMetrics metrics) {
+        metrics.addProperty(Field.ServiceName, "AmazonDynamoDB");
+        metrics.addProperty(Field.ServiceEndpoint.name(), "https://dynamodb.amazonaws.com");
+        metrics.startEvent(Field.ClientExecuteTime);
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            metrics.setCounter(Field.RequestCount, attempt);
+            metrics.startEvent(Field.RequestSigningTime);
+            metrics.endEvent(Field.RequestSigningTime);
+            metrics.startEvent(Field.HttpRequestTime.name());
+            metrics.endEvent(Field.HttpRequestTime.name());
+            metrics.addProperty(Field.StatusCode, 500 - 300 * (attempt - 1));
+            metrics.addProperty(Field.AWSRequestID, "request-" + attempt);
+        }
+        metrics.incrementCounter(Field.Exception);
+        metrics.incrementCounter(Field.Exception.name());
+        metrics.incrementCounter(CUSTOM);
+        metrics.setCounter("custom-string", 7);
+        metrics.addProperty(CUSTOM, "value");
+        metrics.addProperty("custom-string", null);
+        metrics.startEvent(CUSTOM);
+        metrics.endEvent(CUSTOM);
+        metrics.endEvent(Field.ClientExecuteTime);
+    }
+
+    private static Long counterOf(AWSRequestMetrics metrics, String name) {
+        Number counter = metrics.getTimingInfo().getCounter(name);
+        return counter == null ? null : Long.valueOf(counter.longValue());
+    }
+
+    private static int sizeOf(List<TimingInfo> timings) {
+        return timings == null ? 0 : timings.size();
+    }
+}
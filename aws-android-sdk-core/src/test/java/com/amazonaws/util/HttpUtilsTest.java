@@ -116,6 +116,54 @@ public class HttpUtilsTest {
 
     }
 
+    @Test
+    public void testEncodeNonAscii() {
+        // two, three and four byte UTF-8 sequences, and an unpaired surrogate
+        String test = "\u00e9\u4e2d\ud83d\ude00\ud83d";
+
+        Assert.assertEquals("%C3%A9%E4%B8%AD%F0%9F%98%80%3F",
+                HttpUtils.urlEncode(test, false));
+    }
+
+    @Test
+    public void testEncodeParametersPerRfc3986() {
+        Request<?> request = new DefaultRequest<String>("TestRequest");
+        request.addParameter("Message Body", "a+b *~/");
+        String encoded = HttpUtils.encodeParameters(request);
+        assertEquals("Message%20Body=a%2Bb%20%2A~%2F", encoded);
+    }
+
+    @Test
+    public void testEncodeSortedParameters() {
+        Request<?> request = new DefaultRequest<String>("TestRequest");
+        request.addParameter("b", "2");
+        request.addParameter("a b", "1");
+        request.addParameter("A", null);
+        assertEquals("A=&a%20b=1&b=2", HttpUtils.encodeSortedParameters(request.getParameters()));
+        assertEquals("b=2&a%20b=1&A=", HttpUtils.encodeParameters(request));
+    }
+
+    @Test
+    public void testEncodeParametersAfterChange() {
+        Request<?> request = new DefaultRequest<String>("TestRequest");
+        request.addParameter("Key", "First Value");
+        assertEquals("Key=First%20Value", HttpUtils.encodeParameters(request));
+        request.addParameter("Key", "Second Value");
+        assertEquals("Key=Second%20Value", HttpUtils.encodeParameters(request));
+        request.addParameter("Signature", "a/b=");
+        assertEquals("Key=Second%20Value&Signature=a%2Fb%3D",
+                HttpUtils.encodeParameters(request));
+    }
+
+    @Test
+    public void testEncodeParametersAfterClear() {
+        Request<?> request = new DefaultRequest<String>("TestRequest");
+        request.addParameter("Key", "A Value");
+        assertEquals("Key=A%20Value", HttpUtils.encodeSortedParameters(request.getParameters()));
+        HttpUtils.clearEncodedParameters();
+        assertEquals("Key=A%20Value", HttpUtils.encodeParameters(request));
+    }
+
     @Test
     public void testEncodeParametersReturnsNullOnEmptyParameters() {
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.recordValue(i);
+        }
+        assertEquals(20, histogram.getTotalCount());
+        assertEquals(10, histogram.getValueAtPercentile(50));
+        assertEquals(19, histogram.getValueAtPercentile(95));
+        assertEquals(20, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testLargeValuesWithinPrecision() {
+        long[] values = {
+                33, 100, 1000, 12345, 999999, 1L << 30, (1L << 40) + 12345
+        };
+        for (long value : values) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.recordValue(value);
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(value + " reported as " + reported,
+                    reported >= value && reported <= value + value / 16);
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        long previous = -1;
+        for (int i = 0; LatencyHistogram.highestEquivalentValue(i) < (1L << 40); i++) {
+            long highest = LatencyHistogram.highestEquivalentValue(i);
+            assertEquals(i, LatencyHistogram.indexOf(previous + 1));
+            assertEquals(i, LatencyHistogram.indexOf(highest));
+            assertEquals(previous + 1, LatencyHistogram.lowestEquivalentValue(i));
+            previous = highest;
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValue(-5);
+        assertEquals(0, histogram.getValueAtPercentile(100));
+        histogram.recordValue(Long.MAX_VALUE);
+        assertTrue(histogram.getValueAtPercentile(100) >= (1L << 40));
+    }
+
+    @Test
+    public void testPercentileOfTwoHistograms() {
+        LatencyHistogram older = new LatencyHistogram();
+        LatencyHistogram recent = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            older.recordValue(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            recent.recordValue(20);
+        }
+        assertEquals(10, recent.getValueAtPercentile(90, older));
+        assertEquals(20, recent.getValueAtPercentile(91, older));
+        assertEquals(20, recent.getValueAtPercentile(50));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testSumMinMaxAndMean() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getMinValue());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.recordValue(5);
+        histogram.recordValue(1000);
+        histogram.recordValue(3);
+        assertEquals(1008, histogram.getSum());
+        assertEquals(336, histogram.getMean(), 0);
+        assertEquals(3, histogram.getMinValue());
+        long max = histogram.getMaxValue();
+        assertTrue("max " + max, max >= 1000 && max <= 1000 + 1000 / 16);
+    }
+
+    @Test
+    public void testCopyAddAndSubtract() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValue(10);
+        histogram.recordValue(20);
+        LatencyHistogram earlier = histogram.copy();
+        histogram.recordValue(30);
+        histogram.recordValue(40);
+        assertEquals(2, earlier.getTotalCount());
+        assertEquals(30, earlier.getSum());
+
+        LatencyHistogram delta = histogram.copy();
+        delta.subtract(earlier);
+        assertEquals(2, delta.getTotalCount());
+        assertEquals(70, delta.getSum());
+        assertEquals(30, delta.getMinValue());
+
+        delta.add(earlier);
+        assertEquals(histogram.getTotalCount(), delta.getTotalCount());
+        assertEquals(histogram.getSum(), delta.getSum());
+        assertEquals(histogram.getValueAtPercentile(50), delta.getValueAtPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubtractLargerHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram larger = new LatencyHistogram();
+        larger.recordValue(10);
+        histogram.subtract(larger);
+    }
+}
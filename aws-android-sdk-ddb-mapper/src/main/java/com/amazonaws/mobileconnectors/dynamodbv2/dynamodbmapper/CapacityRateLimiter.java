@@ -0,0 +1,379 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the requests a mapper sends to each table within a target rate of
+ * read and write capacity units per second. Set it on a mapper with
+ * {@link DynamoDBMapperConfig.Builder#setCapacityRateLimiter(CapacityRateLimiter)}.
+ * <p>
+ * Each table has a bucket of read units and a bucket of write units, refilled
+ * at the target rate and holding at most one second's worth of units. A
+ * request waits until the bucket it draws from is no longer empty and is then
+ * charged the capacity DynamoDB reports it consumed, which the mapper asks
+ * for with {@code ReturnConsumedCapacity}. Since the cost of a request is only
+ * known once it has been made, a bucket can run into debt; the requests that
+ * follow wait until it is paid off. Setting the targets to the provisioned
+ * throughput of the tables keeps batch jobs close to it instead of running
+ * into throttling and the retries that come with it.
+ * <p>
+ * Global secondary indexes have throughput of their own, so they get buckets
+ * of their own, with the default rates unless set with
+ * {@link #setCapacity(String, String, double, double)}. Queries and scans ask
+ * for the capacity consumed per index; what a global secondary index consumed
+ * is charged to its bucket and the rest to the table's. A query or scan of an
+ * index waits for the index's bucket once the index is known to be global,
+ * from its capacity having been set or from a previous response, and for the
+ * table's bucket otherwise, as local secondary indexes share the table's
+ * throughput. Writes report the capacity they consumed in total, so the
+ * write units they consume in global secondary indexes are charged to the
+ * table.
+ * <p>
+ * A limiter may be shared by several mappers and threads, which then share
+ * the rate of each table.
+ */
+public class CapacityRateLimiter {
+
+    /** The units charged for a request when DynamoDB reported no capacity. */
+    private static final double UNKNOWN_CAPACITY_UNITS = 1.0;
+
+    private final double defaultReadUnitsPerSecond;
+    private final double defaultWriteUnitsPerSecond;
+    private final ConcurrentMap<String, TableBuckets> bucketsByTable =
+            new ConcurrentHashMap<String, TableBuckets>();
+    /** The keys of the buckets of the global secondary indexes seen so far. */
+    private final Set<String> globalIndexes =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates a limiter that keeps every table within the given rates unless
+     * the table has rates of its own.
+     *
+     * @param readUnitsPerSecond The read capacity units per second to use up
+     *            at most.
+     * @param writeUnitsPerSecond The write capacity units per second to use up
+     *            at most.
+     */
+    public CapacityRateLimiter(double readUnitsPerSecond, double writeUnitsPerSecond) {
+        checkRate(readUnitsPerSecond, "readUnitsPerSecond");
+        checkRate(writeUnitsPerSecond, "writeUnitsPerSecond");
+        this.defaultReadUnitsPerSecond = readUnitsPerSecond;
+        this.defaultWriteUnitsPerSecond = writeUnitsPerSecond;
+    }
+
+    /**
+     * Sets the rates the given table is kept within, typically its
+     * provisioned throughput. The buckets of the table start out full again.
+     *
+     * @param tableName The name of the table, after any override.
+     * @param readUnitsPerSecond The read capacity units per second to use up
+     *            at most.
+     * @param writeUnitsPerSecond The write capacity units per second to use up
+     *            at most.
+     */
+    public void setCapacity(String tableName, double readUnitsPerSecond,
+            double writeUnitsPerSecond) {
+        checkRate(readUnitsPerSecond, "readUnitsPerSecond");
+        checkRate(writeUnitsPerSecond, "writeUnitsPerSecond");
+        bucketsByTable.put(tableName,
+                new TableBuckets(readUnitsPerSecond, writeUnitsPerSecond));
+    }
+
+    /**
+     * Sets the rates the given global secondary index is kept within,
+     * typically its provisioned throughput. The buckets of the index start
+     * out full again.
+     *
+     * @param tableName The name of the table, after any override.
+     * @param indexName The name of the global secondary index.
+     * @param readUnitsPerSecond The read capacity units per second to use up
+     *            at most.
+     * @param writeUnitsPerSecond The write capacity units per second to use up
+     *            at most.
+     */
+    public void setCapacity(String tableName, String indexName, double readUnitsPerSecond,
+            double writeUnitsPerSecond) {
+        String key = indexKey(tableName, indexName);
+        setCapacity(key, readUnitsPerSecond, writeUnitsPerSecond);
+        globalIndexes.add(key);
+    }
+
+    /**
+     * Returns the read capacity units the given table has left to use now,
+     * which is negative while the table is in debt.
+     */
+    public double getAvailableReadUnits(String tableName) {
+        return bucketsOf(tableName).read.available();
+    }
+
+    /**
+     * Returns the write capacity units the given table has left to use now,
+     * which is negative while the table is in debt.
+     */
+    public double getAvailableWriteUnits(String tableName) {
+        return bucketsOf(tableName).write.available();
+    }
+
+    /**
+     * Waits until the given table has read capacity left.
+     *
+     * @throws AmazonClientException if the thread is interrupted while waiting
+     */
+    public void acquireRead(String tableName) {
+        bucketsOf(tableName).read.acquire();
+    }
+
+    /**
+     * Waits until the given index, or the table if the index isn't known to
+     * be a global secondary index, has read capacity left.
+     *
+     * @param indexName The name of the index read, or null for the table.
+     * @throws AmazonClientException if the thread is interrupted while waiting
+     */
+    public void acquireRead(String tableName, String indexName) {
+        bucketsOf(tableName, indexName).read.acquire();
+    }
+
+    /**
+     * Returns how long a read of the given index, or table, has to wait for
+     * capacity, so that callers that mustn't block can try again later.
+     *
+     * @param indexName The name of the index read, or null for the table.
+     * @return The wait in nanoseconds, or 0 if the read may go now.
+     */
+    long getReadWaitNanos(String tableName, String indexName) {
+        return bucketsOf(tableName, indexName).read.waitNanos();
+    }
+
+    /**
+     * Waits until the given table has write capacity left.
+     *
+     * @throws AmazonClientException if the thread is interrupted while waiting
+     */
+    public void acquireWrite(String tableName) {
+        bucketsOf(tableName).write.acquire();
+    }
+
+    /**
+     * Charges the read capacity a request to the given table consumed.
+     *
+     * @param consumedCapacity The capacity reported by DynamoDB, or null if
+     *            none was reported.
+     */
+    public void consumedRead(String tableName, ConsumedCapacity consumedCapacity) {
+        consumedRead(tableName, null, consumedCapacity);
+    }
+
+    /**
+     * Charges the read capacity a query or scan of the given index consumed.
+     * The units consumed by global secondary indexes, if reported, are
+     * charged to their buckets and the rest to the table's.
+     *
+     * @param indexName The name of the index read, or null for the table.
+     * @param consumedCapacity The capacity reported by DynamoDB, or null if
+     *            none was reported.
+     */
+    public void consumedRead(String tableName, String indexName,
+            ConsumedCapacity consumedCapacity) {
+        Map<String, Capacity> indexes = consumedCapacity == null ? null
+                : consumedCapacity.getGlobalSecondaryIndexes();
+        if (indexes == null || indexes.isEmpty()) {
+            bucketsOf(tableName, indexName).read.take(unitsOf(consumedCapacity));
+            return;
+        }
+        double tableUnits = unitsOf(consumedCapacity);
+        for (Map.Entry<String, Capacity> index : indexes.entrySet()) {
+            String key = indexKey(tableName, index.getKey());
+            globalIndexes.add(key);
+            double units = index.getValue().getCapacityUnits() == null ? 0
+                    : index.getValue().getCapacityUnits();
+            bucketsOf(key).read.take(units);
+            tableUnits -= units;
+        }
+        if (tableUnits > 0) {
+            bucketsOf(tableName).read.take(tableUnits);
+        }
+    }
+
+    /**
+     * Charges the write capacity a request to the given table consumed.
+     *
+     * @param consumedCapacity The capacity reported by DynamoDB, or null if
+     *            none was reported.
+     */
+    public void consumedWrite(String tableName, ConsumedCapacity consumedCapacity) {
+        bucketsOf(tableName).write.take(unitsOf(consumedCapacity));
+    }
+
+    /**
+     * Charges the read capacity a batch request consumed to the tables named
+     * in the consumed capacities.
+     */
+    public void consumedRead(Collection<ConsumedCapacity> consumedCapacities) {
+        if (consumedCapacities != null) {
+            for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+                consumedRead(consumedCapacity.getTableName(), consumedCapacity);
+            }
+        }
+    }
+
+    /**
+     * Charges the write capacity a batch request consumed to the tables named
+     * in the consumed capacities.
+     */
+    public void consumedWrite(Collection<ConsumedCapacity> consumedCapacities) {
+        if (consumedCapacities != null) {
+            for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+                consumedWrite(consumedCapacity.getTableName(), consumedCapacity);
+            }
+        }
+    }
+
+    /**
+     * Returns the buckets of the index if it is known to be a global secondary
+     * index, and of the table otherwise.
+     */
+    private TableBuckets bucketsOf(String tableName, String indexName) {
+        if (indexName != null) {
+            String key = indexKey(tableName, indexName);
+            if (globalIndexes.contains(key)) {
+                return bucketsOf(key);
+            }
+        }
+        return bucketsOf(tableName);
+    }
+
+    /**
+     * Returns the key of the buckets of an index, which no table name can
+     * clash with as table names can't contain '/'.
+     */
+    private static String indexKey(String tableName, String indexName) {
+        return tableName + "/" + indexName;
+    }
+
+    private TableBuckets bucketsOf(String tableName) {
+        TableBuckets buckets = bucketsByTable.get(tableName);
+        if (buckets == null) {
+            buckets = new TableBuckets(defaultReadUnitsPerSecond, defaultWriteUnitsPerSecond);
+            TableBuckets existing = bucketsByTable.putIfAbsent(tableName, buckets);
+            if (existing != null) {
+                buckets = existing;
+            }
+        }
+        return buckets;
+    }
+
+    private static double unitsOf(ConsumedCapacity consumedCapacity) {
+        if (consumedCapacity == null || consumedCapacity.getCapacityUnits() == null) {
+            return UNKNOWN_CAPACITY_UNITS;
+        }
+        return consumedCapacity.getCapacityUnits();
+    }
+
+    private static void checkRate(double unitsPerSecond, String name) {
+        if (!(unitsPerSecond > 0)) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+    }
+
+    private static final class TableBuckets {
+        private final TokenBucket read;
+        private final TokenBucket write;
+
+        TableBuckets(double readUnitsPerSecond, double writeUnitsPerSecond) {
+            this.read = new TokenBucket(readUnitsPerSecond);
+            this.write = new TokenBucket(writeUnitsPerSecond);
+        }
+    }
+
+    /**
+     * A bucket refilled at a fixed rate up to one second's worth of units,
+     * which may be taken below zero.
+     */
+    private static final class TokenBucket {
+        private final double unitsPerSecond;
+
+        /** Guarded by this. */
+        private double units;
+
+        /** Guarded by this. */
+        private long refilledAtNanos;
+
+        TokenBucket(double unitsPerSecond) {
+            this.unitsPerSecond = unitsPerSecond;
+            this.units = unitsPerSecond;
+            this.refilledAtNanos = System.nanoTime();
+        }
+
+        synchronized double available() {
+            refill();
+            return units;
+        }
+
+        synchronized void take(double taken) {
+            refill();
+            units -= taken;
+        }
+
+        /**
+         * Returns the nanoseconds until the bucket is no longer empty, or 0
+         * if it isn't.
+         */
+        synchronized long waitNanos() {
+            refill();
+            if (units > 0) {
+                return 0;
+            }
+            return (long) Math.ceil((-units / unitsPerSecond) * TimeUnit.SECONDS.toNanos(1)) + 1;
+        }
+
+        void acquire() {
+            while (true) {
+                long waitNanos = waitNanos();
+                if (waitNanos == 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmazonClientException(
+                            "Interrupted while waiting for capacity", e);
+                }
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double refilled = (now - refilledAtNanos) * unitsPerSecond
+                    / TimeUnit.SECONDS.toNanos(1);
+            units = Math.min(unitsPerSecond, units + refilled);
+            refilledAtNanos = now;
+        }
+    }
+}
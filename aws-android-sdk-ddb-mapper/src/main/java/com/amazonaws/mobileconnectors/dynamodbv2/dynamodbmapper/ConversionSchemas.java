@@ -81,6 +81,9 @@ import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.unmarshallers.Sh
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.unmarshallers.StringSetUnmarshaller;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.unmarshallers.StringUnmarshaller;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.json.AwsJsonReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -94,11 +97,14 @@ import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Pre-defined strategies for mapping between Java types and DynamoDB types.
@@ -202,6 +208,8 @@ public final class ConversionSchemas {
         private final UnmarshallerSet unmarshallerSet;
         private final DynamoDBReflector reflector;
         private final S3ClientCache s3cc;
+        private final ConcurrentMap<Class<?>, ItemCodec> codecs =
+                new ConcurrentHashMap<Class<?>, ItemCodec>();
 
         public StandardItemConverter(
                 MarshallerSet marshallerSet,
@@ -219,6 +227,9 @@ public final class ConversionSchemas {
         public DynamoDBMapperFieldModel getFieldModel(Method getter) {
             String attributeName = reflector.getAttributeName(getter);
             ArgumentMarshaller marshaller = getMarshaller(getter);
+            if (marshaller instanceof LazyAttributeMarshaller) {
+                marshaller = ((LazyAttributeMarshaller) marshaller).wrapped;
+            }
 
             DynamoDBAttributeType attributeType = null;
             if (marshaller instanceof StringAttributeMarshaller) {
@@ -264,19 +275,18 @@ public final class ConversionSchemas {
                 return null;
             }
 
-            Class<?> clazz = object.getClass();
+            ItemCodec codec = getCodec(object.getClass());
             Map<String, AttributeValue> result =
-                    new HashMap<String, AttributeValue>();
+                    new HashMap<String, AttributeValue>(codec.capacity);
 
-            for (Method getter : reflector.getRelevantGetters(clazz)) {
+            for (Slot slot : codec.slots) {
                 Object getterResult =
-                        ReflectionUtils.safeInvoke(getter, object);
+                        ReflectionUtils.safeInvoke(slot.getter, object);
 
                 if (getterResult != null) {
-                    AttributeValue value = convert(getter, getterResult);
+                    AttributeValue value = slot.getMarshaller().marshall(getterResult);
                     if (value != null) {
-                        String name = reflector.getAttributeName(getter);
-                        result.put(name, value);
+                        result.put(slot.attributeName, value);
                     }
                 }
             }
@@ -284,7 +294,37 @@ public final class ConversionSchemas {
             return result;
         }
 
+        /**
+         * Returns the codec of the given class, compiling it the first time
+         * the class is converted.
+         */
+        private ItemCodec getCodec(Class<?> clazz) {
+            ItemCodec codec = codecs.get(clazz);
+            if (codec == null) {
+                codec = compile(clazz);
+                ItemCodec existing = codecs.putIfAbsent(clazz, codec);
+                if (existing != null) {
+                    codec = existing;
+                }
+            }
+            return codec;
+        }
+
+        private ItemCodec compile(Class<?> clazz) {
+            Collection<Method> getters = reflector.getRelevantGetters(clazz);
+            Slot[] slots = new Slot[getters.size()];
+            int i = 0;
+            for (Method getter : getters) {
+                slots[i++] = new Slot(reflector.getAttributeName(getter), getter);
+            }
+            return new ItemCodec(slots);
+        }
+
         private ArgumentMarshaller getMarshaller(Method getter) {
+            if (getter.getReturnType() == LazyAttribute.class) {
+                return new LazyAttributeMarshaller(getLazyMarshaller(getter));
+            }
+
             ArgumentMarshaller marshaller =
                     marshallerSet.getMarshaller(getter);
 
@@ -293,6 +333,22 @@ public final class ConversionSchemas {
             return marshaller;
         }
 
+        /**
+         * Returns the marshaller for the value wrapped by a
+         * {@link LazyAttribute} property.
+         */
+        private ArgumentMarshaller getLazyMarshaller(Method getter) {
+            DynamoDBMarshalling annotation =
+                    ReflectionUtils.getAnnotationFromGetterOrField(
+                            getter, DynamoDBMarshalling.class);
+
+            if (annotation != null) {
+                return new CustomMarshaller(annotation.marshallerClass());
+            }
+
+            return getMemberMarshaller(getLazyValueType(getter.getGenericReturnType()));
+        }
+
         private ArgumentMarshaller getMemberMarshaller(Type type) {
             ArgumentMarshaller marshaller =
                     marshallerSet.getMemberMarshaller(type);
@@ -413,34 +469,80 @@ public final class ConversionSchemas {
                 return result;
             }
 
-            for (Method m : reflector.getRelevantGetters(clazz)) {
-                String attributeName = reflector.getAttributeName(m);
-                AttributeValue av = value.get(attributeName);
+            for (Slot slot : getCodec(clazz).slots) {
+                AttributeValue av = value.get(slot.attributeName);
                 if (av != null) {
-                    setValue(result, m, av);
+                    Method setter = slot.getSetter();
+                    Object unmarshalled = unmarshall(slot.getUnmarshaller(), setter, av);
+                    ReflectionUtils.safeInvoke(setter, result, unmarshalled);
                 }
             }
 
             return result;
         }
 
-        private void setValue(
-                Object target,
-                Method getter,
-                AttributeValue value) {
-
-            Method setter = reflector.getSetter(getter);
-            ArgumentUnmarshaller unmarshaller =
-                    getUnmarshaller(getter, setter);
+        /**
+         * Returns an unmarshaller that reads an item of the given class from
+         * a JSON response straight into a new object, with no attribute
+         * value map in between. The attribute values of scalar attributes
+         * are read into one reused instance, so the unmarshaller must only be
+         * used by one thread at a time.
+         */
+        <T> Unmarshaller<T, JsonUnmarshallerContext> getJsonUnmarshaller(final Class<T> clazz) {
+            final ItemCodec codec = getCodec(clazz);
+            return new Unmarshaller<T, JsonUnmarshallerContext>() {
+                private final AttributeValue scratch = new AttributeValue();
+
+                @Override
+                public T unmarshall(JsonUnmarshallerContext context) throws Exception {
+                    AwsJsonReader reader = context.getReader();
+                    T result = createObject(clazz);
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        Slot slot = codec.slotsByName.get(reader.nextName());
+                        if (slot == null || !reader.isContainer()) {
+                            reader.skipValue();
+                            continue;
+                        }
+
+                        // A LazyAttribute holds on to its attribute value.
+                        AttributeValue value = slot.isLazy() ? new AttributeValue() : clear(scratch);
+                        ItemPageJsonUnmarshaller.readAttributeValue(context, value);
+
+                        Method setter = slot.getSetter();
+                        Object unmarshalled = StandardItemConverter.unmarshall(
+                                slot.getUnmarshaller(), setter, value);
+                        ReflectionUtils.safeInvoke(setter, result, unmarshalled);
+                    }
+                    reader.endObject();
+                    return result;
+                }
+            };
+        }
 
-            Object unmarshalled = unmarshall(unmarshaller, setter, value);
-            ReflectionUtils.safeInvoke(setter, target, unmarshalled);
+        private static AttributeValue clear(AttributeValue value) {
+            value.setS(null);
+            value.setN(null);
+            value.setB(null);
+            value.setSS(null);
+            value.setNS(null);
+            value.setBS(null);
+            value.setM(null);
+            value.setL(null);
+            value.setNULL(null);
+            value.setBOOL(null);
+            return value;
         }
 
         private ArgumentUnmarshaller getUnmarshaller(
                 Method getter,
                 Method setter) {
 
+            if (setter.getParameterTypes()[0] == LazyAttribute.class) {
+                return new NullableUnmarshaller(new LazyAttributeUnmarshaller(
+                        getLazyUnmarshaller(getter, setter)));
+            }
+
             ArgumentUnmarshaller unmarshaller =
                     unmarshallerSet.getUnmarshaller(getter, setter);
 
@@ -450,6 +552,29 @@ public final class ConversionSchemas {
             return new NullableUnmarshaller(unmarshaller);
         }
 
+        /**
+         * Returns the unmarshaller for the value wrapped by a
+         * {@link LazyAttribute} property.
+         */
+        private ArgumentUnmarshaller getLazyUnmarshaller(
+                Method getter,
+                Method setter) {
+
+            Type valueType = getLazyValueType(setter.getGenericParameterTypes()[0]);
+
+            DynamoDBMarshalling annotation =
+                    ReflectionUtils.getAnnotationFromGetterOrField(
+                            getter, DynamoDBMarshalling.class);
+
+            if (annotation != null) {
+                return new CustomUnmarshaller(
+                        ReflectionUtils.resolveClass(valueType),
+                        annotation.marshallerClass());
+            }
+
+            return getMemberUnmarshaller(valueType);
+        }
+
         private ArgumentUnmarshaller getMemberUnmarshaller(Type type) {
             ArgumentUnmarshaller unmarshaller =
                     unmarshallerSet.getMemberUnmarshaller(type);
@@ -599,6 +724,133 @@ public final class ConversionSchemas {
             }
         }
 
+        /**
+         * The attributes of a model class, in the order the reflector returns
+         * their getters.
+         */
+        private static final class ItemCodec {
+            final Slot[] slots;
+            final Map<String, Slot> slotsByName;
+            final int capacity;
+
+            ItemCodec(Slot[] slots) {
+                this.slots = slots;
+                this.capacity = slots.length * 4 / 3 + 1;
+                this.slotsByName = new HashMap<String, Slot>(capacity);
+                for (Slot slot : slots) {
+                    slotsByName.put(slot.attributeName, slot);
+                }
+            }
+        }
+
+        /**
+         * One attribute of a model class. The setter, marshaller and
+         * unmarshaller are resolved the first time they are needed, so that
+         * an attribute that can't be converted only fails when it has a
+         * value, as it would without the codec; resolving one twice from
+         * two threads is harmless.
+         */
+        private final class Slot {
+            final String attributeName;
+            final Method getter;
+            private volatile Method setter;
+            private volatile ArgumentMarshaller marshaller;
+            private volatile ArgumentUnmarshaller unmarshaller;
+
+            Slot(String attributeName, Method getter) {
+                this.attributeName = attributeName;
+                this.getter = getter;
+            }
+
+            Method getSetter() {
+                Method result = setter;
+                if (result == null) {
+                    result = reflector.getSetter(getter);
+                    setter = result;
+                }
+                return result;
+            }
+
+            ArgumentMarshaller getMarshaller() {
+                ArgumentMarshaller result = marshaller;
+                if (result == null) {
+                    result = StandardItemConverter.this.getMarshaller(getter);
+                    marshaller = result;
+                }
+                return result;
+            }
+
+            boolean isLazy() {
+                return getter.getReturnType() == LazyAttribute.class;
+            }
+
+            ArgumentUnmarshaller getUnmarshaller() {
+                ArgumentUnmarshaller result = unmarshaller;
+                if (result == null) {
+                    result = StandardItemConverter.this.getUnmarshaller(getter, getSetter());
+                    unmarshaller = result;
+                }
+                return result;
+            }
+        }
+    }
+
+    private static Type getLazyValueType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            throw new DynamoDBMappingException(
+                    "Cannot tell what type of value belongs in the "
+                            + "LazyAttribute type " + type + ", which is not "
+                            + "parameterized.");
+        }
+        return ((ParameterizedType) type).getActualTypeArguments()[0];
+    }
+
+    /**
+     * Marshals a {@link LazyAttribute}, writing back the attribute value it
+     * was loaded from if it has not been converted since.
+     */
+    static final class LazyAttributeMarshaller implements ArgumentMarshaller {
+
+        private final ArgumentMarshaller wrapped;
+
+        LazyAttributeMarshaller(ArgumentMarshaller wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public AttributeValue marshall(Object obj) {
+            LazyAttribute<?> attribute = (LazyAttribute<?>) obj;
+            AttributeValue unconverted = attribute.getUnconvertedValue();
+            if (unconverted != null) {
+                return unconverted;
+            }
+
+            Object value = attribute.get();
+            return value == null ? null : wrapped.marshall(value);
+        }
+    }
+
+    /**
+     * Wraps an attribute value in a {@link LazyAttribute} that converts it
+     * with the given unmarshaller on first access.
+     */
+    static final class LazyAttributeUnmarshaller implements ArgumentUnmarshaller {
+
+        private final ArgumentUnmarshaller wrapped;
+
+        LazyAttributeUnmarshaller(ArgumentUnmarshaller wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public void typeCheck(AttributeValue value, Method setter) {
+            wrapped.typeCheck(value, setter);
+        }
+
+        @Override
+        public Object unmarshall(AttributeValue value) {
+            return new LazyAttribute<Object>(wrapped, value);
+        }
     }
 
     static interface MarshallerSet {
@@ -19,7 +19,9 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteRetryStrategy;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.ConsistentReads;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.DefaultBatchWriteRetryStrategy;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.PaginationLoadingStrategy;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBTableSchemaParser.TableIndexesInfo;
@@ -38,6 +40,7 @@ import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
 import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
@@ -48,6 +51,7 @@ import com.amazonaws.services.dynamodbv2.model.PutItemResult;
 import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
@@ -56,6 +60,8 @@ import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
 import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.services.s3.model.Region;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
 import com.amazonaws.util.VersionInfoUtils;
 
 import org.apache.commons.logging.Log;
@@ -68,7 +74,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -76,6 +82,8 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Object mapper for domain-object interaction with DynamoDB.
@@ -178,13 +186,26 @@ public class DynamoDBMapper {
     private final DynamoDBTableSchemaParser schemaParser = new DynamoDBTableSchemaParser();
     private final VersionIncrementor incrementor = new VersionIncrementor();
 
+    /**
+     * The converters of the conversion schemas used so far. Converters keep
+     * what they learn about model classes, so they are reused across calls.
+     */
+    private final ConcurrentMap<ConversionSchema, ItemConverter> converters =
+            new ConcurrentHashMap<ConversionSchema, ItemConverter>();
+
     private final AttributeTransformer transformer;
 
+    /** The objects made from projected items, which can't be saved in full. */
+    private final ProjectedObjects projectedObjects = new ProjectedObjects();
+
     /** The max back off time for batch write */
     static final long MAX_BACKOFF_IN_MILLISECONDS = 1000 * 3;
 
     /** The max number of items allowed in a BatchWrite request */
     static final int MAX_ITEMS_PER_BATCH = 25;
+
+    /** The max number of keys allowed in a BatchGet request */
+    static final int MAX_KEYS_PER_BATCH_GET = 100;
     /**
      * This retry count is applicable only when every batch get item request
      * results in no data retrieved from server and the un processed keys is
@@ -202,6 +223,8 @@ public class DynamoDBMapper {
 
     private static final String NO_RANGE_KEY = new String();
 
+    private static final String PROJECTION_PLACEHOLDER_PREFIX = "#projection";
+
     private static final Log log = LogFactory.getLog(DynamoDBMapper.class);
 
     /**
@@ -373,6 +396,49 @@ public class DynamoDBMapper {
      *            at construction.
      */
     public <T extends Object> T load(T keyObject, DynamoDBMapperConfig config) {
+        return load(keyObject, null, config);
+    }
+
+    /**
+     * Returns an object whose keys match those of the prototype key object
+     * given, with only the model properties given and its primary key set, or
+     * null if no such item exists.
+     *
+     * @param keyObject An object of the class to load with the keys values to
+     *            match.
+     * @param projectedProperties The names of the model properties to
+     *            retrieve, or null to retrieve all of them.
+     * @see DynamoDBMapper#load(Object, List, DynamoDBMapperConfig)
+     */
+    public <T extends Object> T load(T keyObject, List<String> projectedProperties) {
+        return load(keyObject, projectedProperties, this.config);
+    }
+
+    /**
+     * Returns an object whose keys match those of the prototype key object
+     * given, with only the model properties given and its primary key set, or
+     * null if no such item exists. Only the projected attributes are read from
+     * DynamoDB; the other properties are left as the model's constructor set
+     * them. Projected loads bypass the {@link ItemCache}.
+     * <p>
+     * <b>The returned object is incomplete.</b> This mapper refuses to save it
+     * with {@link SaveBehavior#UPDATE} or {@link SaveBehavior#CLOBBER}, or to
+     * batch write it, since that would delete or overwrite the attributes
+     * that weren't loaded. {@link SaveBehavior#UPDATE_SKIP_NULL_ATTRIBUTES}
+     * saves it, but writes every non-null property, including primitives and
+     * defaults set by the constructor.
+     *
+     * @param keyObject An object of the class to load with the keys values to
+     *            match.
+     * @param projectedProperties The names of the model properties to
+     *            retrieve, e.g. {@code "title"} for {@code getTitle()}, or
+     *            null to retrieve all of them.
+     * @param config Configuration for the service call to retrieve the object
+     *            from DynamoDB. This configuration overrides the default given
+     *            at construction.
+     */
+    public <T extends Object> T load(T keyObject, List<String> projectedProperties,
+            DynamoDBMapperConfig config) {
         @SuppressWarnings("unchecked")
         Class<T> clazz = (Class<T>) keyObject.getClass();
 
@@ -390,19 +456,96 @@ public class DynamoDBMapper {
         rq.setTableName(tableName);
         rq.setConsistentRead(config.getConsistentReads() == ConsistentReads.CONSISTENT);
 
-        GetItemResult item = db.getItem(applyUserAgent(rq));
-        Map<String, AttributeValue> itemAttributes = item.getItem();
+        ItemCache cache = config.getItemCache();
+        if (projectedProperties != null) {
+            Map<String, String> expressionAttributeNames = new HashMap<String, String>();
+            rq.setProjectionExpression(toProjectionExpression(
+                    clazz, projectedProperties, expressionAttributeNames));
+            rq.setExpressionAttributeNames(expressionAttributeNames);
+            cache = null;
+        }
+        Map<String, AttributeValue> itemAttributes = null;
+        long cacheStamp = 0;
+        if (cache != null) {
+            if (!rq.getConsistentRead()) {
+                itemAttributes = cache.get(tableName, key);
+            }
+            cacheStamp = cache.stamp();
+        }
+
         if (itemAttributes == null) {
-            return null;
+            CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+            if (limiter != null) {
+                limiter.acquireRead(tableName);
+                rq.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            }
+            GetItemResult item = db.getItem(applyUserAgent(rq));
+            if (limiter != null) {
+                limiter.consumedRead(tableName, item.getConsumedCapacity());
+            }
+            itemAttributes = item.getItem();
+            if (itemAttributes == null) {
+                return null;
+            }
+            if (cache != null) {
+                cache.put(tableName, key, itemAttributes, cacheStamp);
+            }
         }
 
         T object = privateMarshallIntoObject(
                 converter,
                 toParameters(itemAttributes, clazz, tableName, config));
+        if (projectedProperties != null) {
+            projectedObjects.add(object);
+        }
 
         return object;
     }
 
+    /**
+     * Returns a projection expression that retrieves the primary key and the
+     * given model properties of the class, adding the attribute name
+     * placeholders it uses to the map given.
+     */
+    private String toProjectionExpression(Class<?> clazz, List<String> projectedProperties,
+            Map<String, String> expressionAttributeNames) {
+        Map<String, Method> gettersByProperty = new HashMap<String, Method>();
+        for (Method getter : reflector.getRelevantGetters(clazz)) {
+            gettersByProperty.put(ReflectionUtils.getFieldNameByGetter(getter, true), getter);
+        }
+
+        Set<String> attributeNames = new LinkedHashSet<String>();
+        attributeNames.add(reflector.getAttributeName(reflector.getPrimaryHashKeyGetter(clazz)));
+        Method rangeKeyGetter = reflector.getPrimaryRangeKeyGetter(clazz);
+        if (rangeKeyGetter != null) {
+            attributeNames.add(reflector.getAttributeName(rangeKeyGetter));
+        }
+        for (String property : projectedProperties) {
+            Method getter = gettersByProperty.get(property);
+            if (getter == null) {
+                throw new DynamoDBMappingException("No property named " + property
+                        + " in class " + clazz);
+            }
+            attributeNames.add(reflector.getAttributeName(getter));
+        }
+
+        StringBuilder expression = new StringBuilder();
+        int placeholderIndex = 0;
+        for (String attributeName : attributeNames) {
+            String placeholder;
+            do {
+                placeholder = PROJECTION_PLACEHOLDER_PREFIX + placeholderIndex++;
+            } while (expressionAttributeNames.containsKey(placeholder));
+            expressionAttributeNames.put(placeholder, attributeName);
+
+            if (expression.length() > 0) {
+                expression.append(", ");
+            }
+            expression.append(placeholder);
+        }
+        return expression.toString();
+    }
+
     /**
      * Returns a key map for the key object given.
      *
@@ -410,7 +553,7 @@ public class DynamoDBMapper {
      *            table.
      */
     @SuppressWarnings("unchecked")
-    private <T> Map<String, AttributeValue> getKey(
+    <T> Map<String, AttributeValue> getKey(
             ItemConverter converter,
             T keyObject) {
 
@@ -678,6 +821,178 @@ public class DynamoDBMapper {
         return result;
     }
 
+    /**
+     * Unmarshalls the items a query or scan returned into objects, and
+     * remembers the objects as projected if the request had a projection
+     * expression, so that they can't be saved in full.
+     */
+    final <T> List<T> marshallIntoObjects(List<Map<String, AttributeValue>> items,
+            Class<T> clazz, String tableName, String projectionExpression,
+            DynamoDBMapperConfig config) {
+        List<T> results = marshallIntoObjects(toParameters(items, clazz, tableName, config));
+        if (projectionExpression != null) {
+            addProjectedObjects(results);
+        }
+        return results;
+    }
+
+    /**
+     * Runs the query and adds the objects made from the items it returns to
+     * the list given.
+     *
+     * @see #getStreamingClient(AmazonDynamoDB, DynamoDBMapperConfig)
+     */
+    final <T> QueryResult queryItems(AmazonDynamoDB dynamo, QueryRequest queryRequest,
+            Class<T> clazz, DynamoDBMapperConfig config, List<T> results) {
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            limiter.acquireRead(queryRequest.getTableName(), queryRequest.getIndexName());
+            queryRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+
+        int first = results.size();
+        QueryResult queryResult = null;
+        ItemStreamingClient streamingClient = getStreamingClient(dynamo, config);
+        if (streamingClient != null) {
+            try {
+                queryResult = streamingClient.query(applyUserAgent(queryRequest),
+                        getItemJsonUnmarshaller(clazz, config), results);
+            } catch (AmazonClientException e) {
+                throw unwrapMappingException(e);
+            }
+        }
+        if (queryResult == null) {
+            queryResult = dynamo.query(applyUserAgent(queryRequest));
+            results.addAll(marshallIntoObjects(toParameters(
+                    queryResult.getItems(), clazz, queryRequest.getTableName(), config)));
+        }
+
+        if (queryRequest.getProjectionExpression() != null) {
+            addProjectedObjects(results.subList(first, results.size()));
+        }
+
+        if (limiter != null) {
+            limiter.consumedRead(queryRequest.getTableName(), queryRequest.getIndexName(),
+                    queryResult.getConsumedCapacity());
+        }
+        return queryResult;
+    }
+
+    /**
+     * Runs the scan and adds the objects made from the items it returns to
+     * the list given.
+     *
+     * @see #getStreamingClient(AmazonDynamoDB, DynamoDBMapperConfig)
+     */
+    final <T> ScanResult scanItems(AmazonDynamoDB dynamo, ScanRequest scanRequest,
+            Class<T> clazz, DynamoDBMapperConfig config, List<T> results) {
+        return scanItems(dynamo, scanRequest, clazz, config, results, true);
+    }
+
+    /**
+     * Runs the scan and adds the objects made from the items it returns to
+     * the list given, waiting for the capacity rate limiter only if asked to.
+     * Callers that mustn't block check the limiter themselves beforehand.
+     */
+    final <T> ScanResult scanItems(AmazonDynamoDB dynamo, ScanRequest scanRequest,
+            Class<T> clazz, DynamoDBMapperConfig config, List<T> results,
+            boolean waitForCapacity) {
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            if (waitForCapacity) {
+                limiter.acquireRead(scanRequest.getTableName(), scanRequest.getIndexName());
+            }
+            scanRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+
+        int first = results.size();
+        ScanResult scanResult = null;
+        ItemStreamingClient streamingClient = getStreamingClient(dynamo, config);
+        if (streamingClient != null) {
+            try {
+                scanResult = streamingClient.scan(applyUserAgent(scanRequest),
+                        getItemJsonUnmarshaller(clazz, config), results);
+            } catch (AmazonClientException e) {
+                throw unwrapMappingException(e);
+            }
+        }
+        if (scanResult == null) {
+            scanResult = dynamo.scan(applyUserAgent(scanRequest));
+            results.addAll(marshallIntoObjects(toParameters(
+                    scanResult.getItems(), clazz, scanRequest.getTableName(), config)));
+        }
+
+        if (scanRequest.getProjectionExpression() != null) {
+            addProjectedObjects(results.subList(first, results.size()));
+        }
+
+        if (limiter != null) {
+            limiter.consumedRead(scanRequest.getTableName(), scanRequest.getIndexName(),
+                    scanResult.getConsumedCapacity());
+        }
+        return scanResult;
+    }
+
+    private void addProjectedObjects(List<?> objects) {
+        for (Object object : objects) {
+            projectedObjects.add(object);
+        }
+    }
+
+    /**
+     * Throws if the object given was made from a projected item, which can't
+     * be written in full without losing the attributes that weren't projected.
+     */
+    private void checkNotProjected(Object object, SaveBehavior saveBehavior) {
+        if (projectedObjects.contains(object)) {
+            throw new DynamoDBMappingException("Cannot save an object of " + object.getClass()
+                    + " loaded with projected properties using " + saveBehavior
+                    + ": the attributes that weren't loaded would be lost. Load the whole"
+                    + " item, or save with SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES.");
+        }
+    }
+
+    /**
+     * Returns a client that reads the items of queries and scans straight
+     * into objects, or null if the items have to go through attribute value
+     * maps. That is the case unless the client is the standard one, the
+     * standard conversion schemas are in use and there is no attribute
+     * transformer, which works on attribute value maps.
+     *
+     * @see ItemStreamingClient
+     */
+    private ItemStreamingClient getStreamingClient(AmazonDynamoDB dynamo,
+            DynamoDBMapperConfig config) {
+        if (transformer != null
+                || !(getConverter(config) instanceof ConversionSchemas.StandardItemConverter)) {
+            return null;
+        }
+        return ItemStreamingClient.forClient(dynamo);
+    }
+
+    /**
+     * Returns an unmarshaller that reads items of the given class from the
+     * JSON response straight into objects. Only called once
+     * {@link #getStreamingClient(AmazonDynamoDB, DynamoDBMapperConfig)} has
+     * found the standard conversion schemas in use.
+     */
+    private <T> Unmarshaller<T, JsonUnmarshallerContext> getItemJsonUnmarshaller(
+            Class<T> clazz, DynamoDBMapperConfig config) {
+        return ((ConversionSchemas.StandardItemConverter) getConverter(config))
+                .getJsonUnmarshaller(clazz);
+    }
+
+    /**
+     * The client wraps the exceptions thrown while reading a response, so
+     * mapping errors raised by the item unmarshaller come back wrapped.
+     */
+    private static RuntimeException unwrapMappingException(AmazonClientException e) {
+        if (e.getCause() instanceof DynamoDBMappingException) {
+            return (DynamoDBMappingException) e.getCause();
+        }
+        return e;
+    }
+
     /**
      * Saves the object given into DynamoDB, using the default configuration.
      *
@@ -755,6 +1070,10 @@ public class DynamoDBMapper {
      * </ul>
      * Any options specified in the saveExpression parameter will be overlaid on
      * any constraints due to versioned attributes.
+     * <p>
+     * Objects loaded with projected properties can only be saved with
+     * UPDATE_SKIP_NULL_ATTRIBUTES or APPEND_SET; saving them with UPDATE or
+     * CLOBBER throws a {@link DynamoDBMappingException}.
      *
      * @param object The object to save into DynamoDB
      * @param saveExpression The options to apply to this save request
@@ -778,6 +1097,9 @@ public class DynamoDBMapper {
          */
         boolean forcePut = (finalConfig.getSaveBehavior() == SaveBehavior.CLOBBER)
                 || needAutoGenerateAssignableKey(clazz, object);
+        if (forcePut || finalConfig.getSaveBehavior() == SaveBehavior.UPDATE) {
+            checkNotProjected(object, finalConfig.getSaveBehavior());
+        }
 
         SaveObjectHandler saveObjectHandler;
 
@@ -901,7 +1223,17 @@ public class DynamoDBMapper {
             };
         }
 
-        saveObjectHandler.execute();
+        ItemCache cache = finalConfig.getItemCache();
+        Map<String, AttributeValue> cachedKey = (cache == null
+                || needAutoGenerateAssignableKey(clazz, object))
+                ? null : getKey(converter, object);
+        try {
+            saveObjectHandler.execute();
+        } finally {
+            if (cachedKey != null) {
+                cache.invalidate(tableName, cachedKey);
+            }
+        }
     }
 
     /**
@@ -1170,7 +1502,16 @@ public class DynamoDBMapper {
                     .withReturnValues(ReturnValue.ALL_NEW)
                     .withRequestMetricCollector(saveConfig.getRequestMetricCollector());
 
-            return db.updateItem(applyUserAgent(req));
+            CapacityRateLimiter limiter = saveConfig.getCapacityRateLimiter();
+            if (limiter != null) {
+                limiter.acquireWrite(getTableName());
+                req.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            }
+            UpdateItemResult result = db.updateItem(applyUserAgent(req));
+            if (limiter != null) {
+                limiter.consumedWrite(getTableName(), result.getConsumedCapacity());
+            }
+            return result;
         }
 
         /**
@@ -1199,7 +1540,16 @@ public class DynamoDBMapper {
                     .withConditionalOperator(userProvidedConditionOperator)
                     .withRequestMetricCollector(saveConfig.getRequestMetricCollector());
 
-            return db.putItem(applyUserAgent(req));
+            CapacityRateLimiter limiter = saveConfig.getCapacityRateLimiter();
+            if (limiter != null) {
+                limiter.acquireWrite(getTableName());
+                req.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            }
+            PutItemResult result = db.putItem(applyUserAgent(req));
+            if (limiter != null) {
+                limiter.consumedWrite(getTableName(), result.getConsumedCapacity());
+            }
+            return result;
         }
 
         private void onAutoGenerateAssignableKey(Method method, String attributeName) {
@@ -1347,7 +1697,22 @@ public class DynamoDBMapper {
                             deleteExpression.getConditionalOperator());
 
         }
-        db.deleteItem(applyUserAgent(req));
+
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            limiter.acquireWrite(tableName);
+            req.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        }
+        try {
+            DeleteItemResult result = db.deleteItem(applyUserAgent(req));
+            if (limiter != null) {
+                limiter.consumedWrite(tableName, result.getConsumedCapacity());
+            }
+        } finally {
+            if (config.getItemCache() != null) {
+                config.getItemCache().invalidate(tableName, key);
+            }
+        }
     }
 
     /**
@@ -1452,17 +1817,25 @@ public class DynamoDBMapper {
      * @param objectsToWrite A list of objects to save to DynamoDB. <b>No
      *            version checks are performed</b>, as required by the
      *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
-     *            API.
+     *            API. Objects loaded with projected properties are refused
+     *            with a {@link DynamoDBMappingException}.
      * @param objectsToDelete A list of objects to delete from DynamoDB. <b>No
      *            version checks are performed</b>, as required by the
      *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
      *            API.
-     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()} is
-     *            considered; if specified, all objects in the two parameter
-     *            lists will be considered to belong to the given table
-     *            override. In particular, this method <b>always acts as if
-     *            SaveBehavior.CLOBBER was specified</b> regardless of the value
-     *            of the config parameter.
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
+     *            and the batch write settings are considered; if specified,
+     *            all objects in the two parameter lists will be considered to
+     *            belong to the given table override. In particular, this
+     *            method <b>always acts as if SaveBehavior.CLOBBER was
+     *            specified</b> regardless of the value of the config
+     *            parameter. Up to
+     *            {@link DynamoDBMapperConfig#getMaxConcurrentBatchWrites()}
+     *            batches are written at the same time, unprocessed items are
+     *            retried as told by
+     *            {@link DynamoDBMapperConfig#getBatchWriteRetryStrategy()}, and
+     *            {@link DynamoDBMapperConfig#getBatchWriteProgressListener()}
+     *            is notified as batches complete.
      * @return A list of failed batches which includes the unprocessed items and
      *         the exceptions causing the failure.
      */
@@ -1470,14 +1843,16 @@ public class DynamoDBMapper {
             List<? extends Object> objectsToDelete, DynamoDBMapperConfig config) {
         config = mergeConfig(config);
 
-        List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
-
         HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
 
         ItemConverter converter = getConverter(config);
+        ItemCache cache = config.getItemCache();
+        List<Map<String, AttributeValue>> writtenKeys = new ArrayList<Map<String, AttributeValue>>();
+        List<String> writtenTableNames = new ArrayList<String>();
 
         List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
         for (Object toWrite : objectsToWrite) {
+            checkNotProjected(toWrite, SaveBehavior.CLOBBER);
             Class<?> clazz = toWrite.getClass();
             String tableName = getTableName(clazz, toWrite, config);
 
@@ -1507,6 +1882,16 @@ public class DynamoDBMapper {
                 requestItems.put(tableName, new LinkedList<WriteRequest>());
             }
 
+            if (cache != null) {
+                Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+                for (Method keyGetter : reflector.getPrimaryKeyGetters(clazz)) {
+                    String attributeName = reflector.getAttributeName(keyGetter);
+                    key.put(attributeName, attributeValues.get(attributeName));
+                }
+                writtenTableNames.add(tableName);
+                writtenKeys.add(key);
+            }
+
             AttributeTransformer.Parameters<?> parameters =
                     toParameters(attributeValues, clazz, tableName, config);
 
@@ -1527,53 +1912,28 @@ public class DynamoDBMapper {
                 requestItems.put(tableName, new LinkedList<WriteRequest>());
             }
 
+            if (cache != null) {
+                writtenTableNames.add(tableName);
+                writtenKeys.add(key);
+            }
+
             requestItems.get(tableName).add(
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
         // Break into chunks of 25 items and make service requests to DynamoDB
-        while (!requestItems.isEmpty()) {
-
-            HashMap<String, List<WriteRequest>> batch =
-                    new HashMap<String, List<WriteRequest>>();
-
-            int i = 0;
-
-            Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet()
-                    .iterator();
-            while (tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH) {
-
-                Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
-
-                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
-                Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
-
-                while (writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH) {
-                    WriteRequest writeRequest = writeRequestIter.next();
-                    batch.get(tableRequest.getKey()).add(writeRequest);
-                    writeRequestIter.remove();
-                }
-
-                // If we've processed all the write requests for this table,
-                // remove it from the parent iterator.
-                if (!writeRequestIter.hasNext()) {
-                    tableIter.remove();
-                }
-            }
-
-            List<FailedBatch> failedBatches = writeOneBatch(batch);
-            if (failedBatches != null) {
-                totalFailedBatches.addAll(failedBatches);
-
-                // If contains throttling exception, we do a backoff
-                if (containsThrottlingException(failedBatches)) {
-                    try {
-                        Thread.sleep(1000 * 2);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new AmazonClientException(e.getMessage(), e);
-                    }
-                }
+        List<FailedBatch> totalFailedBatches;
+        try {
+            totalFailedBatches = new ParallelBatchWriteTask(this,
+                    requestItems,
+                    config.getMaxConcurrentBatchWrites() == null
+                            ? 1 : config.getMaxConcurrentBatchWrites(),
+                    retryStrategyOf(config),
+                    config.getBatchWriteProgressListener(),
+                    config.getCapacityRateLimiter()).execute();
+        } finally {
+            for (int i = 0; i < writtenKeys.size(); i++) {
+                cache.invalidate(writtenTableNames.get(i), writtenKeys.get(i));
             }
         }
 
@@ -1591,11 +1951,23 @@ public class DynamoDBMapper {
      * beyond 1M).
      */
     List<FailedBatch> writeOneBatch(Map<String, List<WriteRequest>> batch) {
+        return writeOneBatch(batch, retryStrategyOf(config), config.getCapacityRateLimiter());
+    }
+
+    /**
+     * Process one batch of requests(max 25), retrying unprocessed items as told
+     * by the given strategy. It will divide the batch if receives request too
+     * large exception(the total size of the request is beyond 1M).
+     *
+     * @param limiter the limiter each attempt waits for, or null
+     */
+    List<FailedBatch> writeOneBatch(Map<String, List<WriteRequest>> batch,
+            BatchWriteRetryStrategy retryStrategy, CapacityRateLimiter limiter) {
 
         List<FailedBatch> failedBatches = new LinkedList<FailedBatch>();
         Map<String, List<WriteRequest>> firstHalfBatch = new HashMap<String, List<WriteRequest>>();
         Map<String, List<WriteRequest>> secondHalfBatch = new HashMap<String, List<WriteRequest>>();
-        FailedBatch failedBatch = callUntilCompletion(batch);
+        FailedBatch failedBatch = callUntilCompletion(batch, retryStrategy, limiter);
 
         if (failedBatch != null) {
             // If the exception is request entity too large, we divide the batch
@@ -1613,8 +1985,8 @@ public class DynamoDBMapper {
                     failedBatches.add(failedBatch);
                 } else {
                     divideBatch(batch, firstHalfBatch, secondHalfBatch);
-                    failedBatches.addAll(writeOneBatch(firstHalfBatch));
-                    failedBatches.addAll(writeOneBatch(secondHalfBatch));
+                    failedBatches.addAll(writeOneBatch(firstHalfBatch, retryStrategy, limiter));
+                    failedBatches.addAll(writeOneBatch(secondHalfBatch, retryStrategy, limiter));
                 }
 
             } else {
@@ -1682,24 +2054,46 @@ public class DynamoDBMapper {
      * occurs.
      */
 
-    private FailedBatch callUntilCompletion(Map<String, List<WriteRequest>> batch) {
+    private FailedBatch callUntilCompletion(Map<String, List<WriteRequest>> batch,
+            BatchWriteRetryStrategy retryStrategy, CapacityRateLimiter limiter) {
         BatchWriteItemResult result = null;
+        int maxRetries = retryStrategy.getMaxRetryOnUnprocessedItems(
+                Collections.unmodifiableMap(batch));
         int retries = 0;
         FailedBatch failedBatch = null;
         while (true) {
             try {
-                result = db.batchWriteItem(applyBatchOperationUserAgent(
-                        new BatchWriteItemRequest().withRequestItems(batch)));
+                BatchWriteItemRequest request = new BatchWriteItemRequest()
+                        .withRequestItems(batch);
+                if (limiter != null) {
+                    for (String tableName : batch.keySet()) {
+                        limiter.acquireWrite(tableName);
+                    }
+                    request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                }
+                result = db.batchWriteItem(applyBatchOperationUserAgent(request));
+                if (limiter != null) {
+                    limiter.consumedWrite(result.getConsumedCapacity());
+                }
             } catch (Exception e) {
                 failedBatch = new FailedBatch();
                 failedBatch.setUnprocessedItems(batch);
                 failedBatch.setException(e);
                 return failedBatch;
             }
-            retries++;
             batch = result.getUnprocessedItems();
             if (batch.size() > 0) {
-                pauseExponentially(retries);
+                if (maxRetries >= 0 && retries >= maxRetries) {
+                    failedBatch = new FailedBatch();
+                    failedBatch.setUnprocessedItems(batch);
+                    failedBatch.setException(new AmazonClientException(
+                            "Items were still unprocessed after " + retries
+                                    + " retries"));
+                    return failedBatch;
+                }
+                pause(retryStrategy.getDelayBeforeRetryUnprocessedItems(
+                        Collections.unmodifiableMap(batch), retries));
+                retries++;
             } else {
                 break;
             }
@@ -1707,6 +2101,25 @@ public class DynamoDBMapper {
         return failedBatch;
     }
 
+    private BatchWriteRetryStrategy retryStrategyOf(DynamoDBMapperConfig config) {
+        BatchWriteRetryStrategy retryStrategy = config.getBatchWriteRetryStrategy();
+        return retryStrategy == null
+                ? DefaultBatchWriteRetryStrategy.INSTANCE : retryStrategy;
+    }
+
+    private void pause(long delay) {
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Retrieves multiple items from multiple tables using their primary keys.
      *
@@ -1736,52 +2149,65 @@ public class DynamoDBMapper {
      *         mapping that table.
      */
     public Map<String, List<Object>> batchLoad(List<Object> itemsToGet, DynamoDBMapperConfig config) {
-        config = mergeConfig(config);
-        boolean consistentReads = (config.getConsistentReads() == ConsistentReads.CONSISTENT);
-
+        final Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
         if (itemsToGet == null || itemsToGet.isEmpty()) {
-            return new HashMap<String, List<Object>>();
+            return resultSet;
         }
 
-        Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
-        Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
-        Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
-        int count = 0;
-
-        ItemConverter converter = getConverter(config);
-
-        for (Object keyObject : itemsToGet) {
-            Class<?> clazz = keyObject.getClass();
-
-            String tableName = getTableName(clazz, keyObject, config);
-            classesByTableName.put(tableName, clazz);
-
-            if (!requestItems.containsKey(tableName)) {
-
-                requestItems.put(
-                        tableName,
-                        new KeysAndAttributes().withConsistentRead(consistentReads).withKeys(
-                                new LinkedList<Map<String, AttributeValue>>()));
+        batchLoad(itemsToGet, config, new BatchLoadHandler() {
+            @Override
+            public void itemLoaded(String tableName, Object item) {
+                List<Object> objects = resultSet.get(tableName);
+                if (objects == null) {
+                    objects = new LinkedList<Object>();
+                    resultSet.put(tableName, objects);
+                }
+                objects.add(item);
             }
+        });
 
-            requestItems.get(tableName).getKeys().add(
-                    getKey(converter, keyObject));
+        return resultSet;
+    }
 
-            // Reach the maximum number which can be handled in a single
-            // batchGet
-            if (++count == 100) {
-                processBatchGetRequest(classesByTableName, requestItems, resultSet, config,
-                        converter);
-                requestItems.clear();
-                count = 0;
-            }
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * handing each item to the given handler as soon as it has been loaded
+     * instead of collecting them all in memory.
+     * <p>
+     * The keys are read in chunks of 100, each of which is loaded with one
+     * BatchGetItem call. Up to
+     * {@link DynamoDBMapperConfig#getMaxConcurrentBatchLoads()} calls are in
+     * flight at the same time, and the keys DynamoDB leaves unprocessed go
+     * into the next call of the same worker. Items are handed to the handler
+     * in no particular order, one at a time, possibly from worker threads.
+     * If the handler throws, the load stops and the exception is rethrown.
+     *
+     * @param itemsToGet Key objects, corresponding to the class to fetch, with
+     *            their primary key values set. They are read as they are
+     *            needed, so they may be produced lazily.
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getMaxConcurrentBatchLoads()} are
+     *            considered.
+     * @param handler receives the loaded objects
+     */
+    public void batchLoad(Iterable<?> itemsToGet, DynamoDBMapperConfig config,
+            BatchLoadHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
         }
-
-        if (count > 0) {
-            processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
+        if (itemsToGet == null) {
+            return;
         }
 
-        return resultSet;
+        config = mergeConfig(config);
+        new ParallelBatchLoadTask(this,
+                itemsToGet,
+                config,
+                getConverter(config),
+                config.getMaxConcurrentBatchLoads() == null
+                        ? 1 : config.getMaxConcurrentBatchLoads(),
+                handler).execute();
     }
 
     /**
@@ -1836,64 +2262,41 @@ public class DynamoDBMapper {
     }
 
     /**
+     * Sends one BatchGetItem request for the given keys.
+     *
      * @param config never null
      */
-    private void processBatchGetRequest(
-            final Map<String, Class<?>> classesByTableName,
-            final Map<String, KeysAndAttributes> requestItems,
-            final Map<String, List<Object>> resultSet,
-            final DynamoDBMapperConfig config,
-            final ItemConverter converter) {
-
-        BatchGetItemResult batchGetItemResult = null;
+    BatchGetItemResult loadOneBatch(Map<String, KeysAndAttributes> requestItems,
+            DynamoDBMapperConfig config) {
         BatchGetItemRequest batchGetItemRequest = new BatchGetItemRequest()
                 .withRequestMetricCollector(config.getRequestMetricCollector());
         batchGetItemRequest.setRequestItems(requestItems);
 
-        int retries = 0;
-
-        do {
-            if (batchGetItemResult != null) {
-                retries++;
-
-                pauseExponentially(retries);
-                if (retries > BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
-                    throw new AmazonClientException(
-                            "Batch Get Item request to server hasn't received any data. "
-                                    + "Please try again later.");
-                }
-
-                batchGetItemRequest.setRequestItems(
-                        batchGetItemResult.getUnprocessedKeys());
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            for (String tableName : requestItems.keySet()) {
+                limiter.acquireRead(tableName);
             }
+            batchGetItemRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        }
+        BatchGetItemResult result =
+                db.batchGetItem(applyBatchOperationUserAgent(batchGetItemRequest));
+        if (limiter != null) {
+            limiter.consumedRead(result.getConsumedCapacity());
+        }
+        return result;
+    }
 
-            batchGetItemResult = db.batchGetItem(
-                    applyBatchOperationUserAgent(batchGetItemRequest));
-
-            Map<String, List<Map<String, AttributeValue>>> responses = batchGetItemResult
-                    .getResponses();
-            for (String tableName : responses.keySet()) {
-                List<Object> objects = null;
-                if (resultSet.get(tableName) != null) {
-                    objects = resultSet.get(tableName);
-                } else {
-                    objects = new LinkedList<Object>();
-                }
-
-                Class<?> clazz = classesByTableName.get(tableName);
-
-                for (Map<String, AttributeValue> item : responses.get(tableName)) {
-                    AttributeTransformer.Parameters<?> parameters =
-                            toParameters(item, clazz, tableName, config);
-                    objects.add(privateMarshallIntoObject(converter, parameters));
-                }
-
-                resultSet.put(tableName, objects);
-            }
-            // To see whether there are unprocessed keys.
-        } while (batchGetItemResult.getUnprocessedKeys() != null
-                && batchGetItemResult.getUnprocessedKeys().size() > 0);
-
+    /**
+     * Converts an item returned by BatchGetItem into an object of the given
+     * class.
+     *
+     * @param config never null
+     */
+    <T> T unmarshallBatchItem(ItemConverter converter, Map<String, AttributeValue> item,
+            Class<T> clazz, String tableName, DynamoDBMapperConfig config) {
+        return privateMarshallIntoObject(converter,
+                toParameters(item, clazz, tableName, config));
     }
 
     private final class ValueUpdate {
@@ -2004,8 +2407,9 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
 
-        ScanResult scanResult = db.scan(applyUserAgent(scanRequest));
-        return new PaginatedScanList<T>(this, clazz, db, scanRequest, scanResult,
+        List<T> results = new ArrayList<T>();
+        ScanResult scanResult = scanItems(db, scanRequest, clazz, config, results);
+        return new PaginatedScanList<T>(this, clazz, db, scanRequest, scanResult, results,
                 config.getPaginationLoadingStrategy(), config);
     }
 
@@ -2027,6 +2431,8 @@ public class DynamoDBMapper {
      * in parallel. This method will create a thread pool of the specified size,
      * and each thread will issue scan requests for its assigned segment,
      * following the returned continuation token, until the end of its segment.
+     * If {@link DynamoDBMapperConfig#getParallelScanExecutor()} is set, the
+     * segments are scanned on that executor instead.
      * Callers should be responsible for setting the appropriate number of total
      * segments. More scan segments would result in better performance but more
      * consumed capacity of the table. The results are returned in one
@@ -2065,12 +2471,69 @@ public class DynamoDBMapper {
         // segment number.
         List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz,
                 scanExpression, totalSegments, config);
-        ParallelScanTask parallelScanTask = new ParallelScanTask(this, db, parallelScanRequests);
+        ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests,
+                config.getParallelScanExecutor(), config.getCapacityRateLimiter());
 
         return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask,
                 config.getPaginationLoadingStrategy(), config);
     }
 
+    /**
+     * Scans through an Amazon DynamoDB table on logically partitioned segments
+     * in parallel and iterates over the matching results as they arrive,
+     * using the default configuration.
+     *
+     * @see DynamoDBMapper#parallelScanIterator(Class, DynamoDBScanExpression,
+     *      int, int, DynamoDBMapperConfig)
+     */
+    public <T> ParallelScanIterator<T> parallelScanIterator(Class<T> clazz,
+            DynamoDBScanExpression scanExpression, int totalSegments) {
+        return parallelScanIterator(clazz, scanExpression, totalSegments,
+                ParallelScanIterator.DEFAULT_MAX_BUFFERED_PAGES, config);
+    }
+
+    /**
+     * Scans through an Amazon DynamoDB table on logically partitioned segments
+     * in parallel and iterates over the matching results as they arrive.
+     * Unlike {@link #parallelScan(Class, DynamoDBScanExpression, int,
+     * DynamoDBMapperConfig)}, at most {@code maxBufferedPages} pages of results
+     * are held in memory at any time: the segments stop scanning while that
+     * many pages are waiting to be iterated over, and go on as the caller
+     * catches up. The order of the results across segments is unspecified.
+     * <p>
+     * The segments are scanned on
+     * {@link DynamoDBMapperConfig#getParallelScanExecutor()} if one is
+     * configured, or else on at most {@code maxBufferedPages} threads of the
+     * iterator. Callers that stop iterating before the end should close the
+     * iterator.
+     *
+     * @param <T> The type of the objects being returned.
+     * @param clazz The class annotated with DynamoDB annotations describing how
+     *            to store the object data in Amazon DynamoDB.
+     * @param scanExpression Details on how to run the scan, including any
+     *            filters to apply to limit results.
+     * @param totalSegments Number of total parallel scan segments. <b>Range:
+     *            </b>1 - 4096
+     * @param maxBufferedPages The maximum number of pages scanned ahead of the
+     *            caller.
+     * @param config The configuration to use for this scan, which overrides the
+     *            default provided at object construction.
+     * @return An iterator over the objects constructed from the results of the
+     *         scan operation.
+     * @see ParallelScanIterator
+     */
+    public <T> ParallelScanIterator<T> parallelScanIterator(Class<T> clazz,
+            DynamoDBScanExpression scanExpression, int totalSegments, int maxBufferedPages,
+            DynamoDBMapperConfig config) {
+        config = mergeConfig(config);
+
+        List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz,
+                scanExpression, totalSegments, config);
+
+        return new ParallelScanIterator<T>(this, clazz, db, parallelScanRequests,
+                maxBufferedPages, config);
+    }
+
     /**
      * Scans through an Amazon DynamoDB table and returns a single page of
      * matching results. The table to scan is determined by looking at the
@@ -2092,12 +2555,10 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
 
-        ScanResult scanResult = db.scan(applyUserAgent(scanRequest));
+        List<T> results = new ArrayList<T>();
+        ScanResult scanResult = scanItems(db, scanRequest, clazz, config, results);
         ScanResultPage<T> result = new ScanResultPage<T>();
-        List<AttributeTransformer.Parameters<T>> parameters =
-                toParameters(scanResult.getItems(), clazz, scanRequest.getTableName(), config);
-
-        result.setResults(marshallIntoObjects(parameters));
+        result.setResults(results);
         result.setLastEvaluatedKey(scanResult.getLastEvaluatedKey());
 
         return result;
@@ -2165,8 +2626,9 @@ public class DynamoDBMapper {
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
 
-        QueryResult queryResult = db.query(applyUserAgent(queryRequest));
-        return new PaginatedQueryList<T>(this, clazz, db, queryRequest, queryResult,
+        List<T> results = new ArrayList<T>();
+        QueryResult queryResult = queryItems(db, queryRequest, clazz, config, results);
+        return new PaginatedQueryList<T>(this, clazz, db, queryRequest, queryResult, results,
                 config.getPaginationLoadingStrategy(), config);
     }
 
@@ -2206,12 +2668,10 @@ public class DynamoDBMapper {
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
 
-        QueryResult scanResult = db.query(applyUserAgent(queryRequest));
+        List<T> results = new ArrayList<T>();
+        QueryResult scanResult = queryItems(db, queryRequest, clazz, config, results);
         QueryResultPage<T> result = new QueryResultPage<T>();
-        List<AttributeTransformer.Parameters<T>> parameters =
-                toParameters(scanResult.getItems(), clazz, queryRequest.getTableName(), config);
-
-        result.setResults(marshallIntoObjects(parameters));
+        result.setResults(results);
         result.setLastEvaluatedKey(scanResult.getLastEvaluatedKey());
 
         return result;
@@ -2249,12 +2709,27 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
         scanRequest.setSelect(Select.COUNT);
+        // Counting returns no attributes, so the projection doesn't apply
+        scanRequest.setProjectionExpression(null);
+        scanRequest.setExpressionAttributeNames(scanExpression.getExpressionAttributeNames());
+
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            scanRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
 
         // Count scans can also be truncated for large datasets
         int count = 0;
         ScanResult scanResult = null;
         do {
+            if (limiter != null) {
+                limiter.acquireRead(scanRequest.getTableName(), scanRequest.getIndexName());
+            }
             scanResult = db.scan(applyUserAgent(scanRequest));
+            if (limiter != null) {
+                limiter.consumedRead(scanRequest.getTableName(), scanRequest.getIndexName(),
+                        scanResult.getConsumedCapacity());
+            }
             count += scanResult.getCount();
             scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
         } while (scanResult.getLastEvaluatedKey() != null);
@@ -2291,12 +2766,27 @@ public class DynamoDBMapper {
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
         queryRequest.setSelect(Select.COUNT);
+        // Counting returns no attributes, so the projection doesn't apply
+        queryRequest.setProjectionExpression(null);
+        queryRequest.setExpressionAttributeNames(queryExpression.getExpressionAttributeNames());
+
+        CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+        if (limiter != null) {
+            queryRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
 
         // Count queries can also be truncated for large datasets
         int count = 0;
         QueryResult queryResult = null;
         do {
+            if (limiter != null) {
+                limiter.acquireRead(queryRequest.getTableName(), queryRequest.getIndexName());
+            }
             queryResult = db.query(applyUserAgent(queryRequest));
+            if (limiter != null) {
+                limiter.consumedRead(queryRequest.getTableName(), queryRequest.getIndexName(),
+                        queryResult.getConsumedCapacity());
+            }
             count += queryResult.getCount();
             queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
         } while (queryResult.getLastEvaluatedKey() != null);
@@ -2334,6 +2824,16 @@ public class DynamoDBMapper {
                 .getExpressionAttributeValues());
         scanRequest.setRequestMetricCollector(config.getRequestMetricCollector());
 
+        if (scanExpression.getProjectedProperties() != null) {
+            Map<String, String> expressionAttributeNames = new HashMap<String, String>();
+            if (scanExpression.getExpressionAttributeNames() != null) {
+                expressionAttributeNames.putAll(scanExpression.getExpressionAttributeNames());
+            }
+            scanRequest.setProjectionExpression(toProjectionExpression(
+                    clazz, scanExpression.getProjectedProperties(), expressionAttributeNames));
+            scanRequest.setExpressionAttributeNames(expressionAttributeNames);
+        }
+
         return applyUserAgent(scanRequest);
     }
 
@@ -2393,6 +2893,16 @@ public class DynamoDBMapper {
         queryRequest.setExpressionAttributeValues(queryExpression
                 .getExpressionAttributeValues());
 
+        if (queryExpression.getProjectedProperties() != null) {
+            Map<String, String> expressionAttributeNames = new HashMap<String, String>();
+            if (queryExpression.getExpressionAttributeNames() != null) {
+                expressionAttributeNames.putAll(queryExpression.getExpressionAttributeNames());
+            }
+            queryRequest.setProjectionExpression(toProjectionExpression(
+                    clazz, queryExpression.getProjectedProperties(), expressionAttributeNames));
+            queryRequest.setExpressionAttributeNames(expressionAttributeNames);
+        }
+
         return applyUserAgent(queryRequest);
     }
 
@@ -2897,14 +3407,22 @@ public class DynamoDBMapper {
     ItemConverter getConverter(DynamoDBMapperConfig config) {
         ConversionSchema schema = config.getConversionSchema();
 
-        ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
-                .with(DynamoDBReflector.class, reflector)
-                .with(S3ClientCache.class, s3cc);
+        ItemConverter converter = converters.get(schema);
+        if (converter == null) {
+            ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
+                    .with(DynamoDBReflector.class, reflector)
+                    .with(S3ClientCache.class, s3cc);
 
-        return schema.getConverter(params);
+            converter = schema.getConverter(params);
+            ItemConverter existing = converters.putIfAbsent(schema, converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return converter;
     }
 
-    private void pauseExponentially(int retries) {
+    void pauseExponentially(int retries) {
         if (retries == 0) {
             return;
         }
@@ -2986,6 +3504,21 @@ public class DynamoDBMapper {
         return request;
     }
 
+    /**
+     * Receives the objects loaded by
+     * {@link DynamoDBMapper#batchLoad(Iterable, DynamoDBMapperConfig, BatchLoadHandler)}.
+     */
+    public static interface BatchLoadHandler {
+
+        /**
+         * Called once for each loaded object.
+         *
+         * @param tableName the name of the table the object was loaded from
+         * @param item the loaded object
+         */
+        void itemLoaded(String tableName, Object item);
+    }
+
     /**
      * The return type of batchWrite, batchDelete and batchSave. It contains the
      * information about the unprocessed items and the exception causing the
@@ -16,6 +16,12 @@
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Immutable configuration object for service call behavior. An instance of this
@@ -52,6 +58,14 @@ public class DynamoDBMapperConfig {
         private PaginationLoadingStrategy paginationLoadingStrategy;
         private RequestMetricCollector requestMetricCollector;
         private ConversionSchema conversionSchema;
+        private BatchWriteRetryStrategy batchWriteRetryStrategy;
+        private Integer maxConcurrentBatchWrites;
+        private BatchWriteProgressListener batchWriteProgressListener;
+        private Integer maxConcurrentBatchLoads;
+        private ExecutorService parallelScanExecutor;
+        private Integer paginationPrefetchDepth;
+        private ItemCache itemCache;
+        private CapacityRateLimiter capacityRateLimiter;
 
         /**
          * Creates a new builder initialized with the {@link #DEFAULT} values.
@@ -65,6 +79,14 @@ public class DynamoDBMapperConfig {
             paginationLoadingStrategy = DEFAULT.getPaginationLoadingStrategy();
             requestMetricCollector = DEFAULT.getRequestMetricCollector();
             conversionSchema = DEFAULT.getConversionSchema();
+            batchWriteRetryStrategy = DEFAULT.getBatchWriteRetryStrategy();
+            maxConcurrentBatchWrites = DEFAULT.getMaxConcurrentBatchWrites();
+            batchWriteProgressListener = DEFAULT.getBatchWriteProgressListener();
+            maxConcurrentBatchLoads = DEFAULT.getMaxConcurrentBatchLoads();
+            parallelScanExecutor = DEFAULT.getParallelScanExecutor();
+            paginationPrefetchDepth = DEFAULT.getPaginationPrefetchDepth();
+            itemCache = DEFAULT.getItemCache();
+            capacityRateLimiter = DEFAULT.getCapacityRateLimiter();
         }
 
         /**
@@ -255,6 +277,217 @@ public class DynamoDBMapperConfig {
             return this;
         }
 
+        /**
+         * @return the current batch write retry strategy
+         */
+        public BatchWriteRetryStrategy getBatchWriteRetryStrategy() {
+            return batchWriteRetryStrategy;
+        }
+
+        /**
+         * @param value the new batch write retry strategy
+         */
+        public void setBatchWriteRetryStrategy(BatchWriteRetryStrategy value) {
+            batchWriteRetryStrategy = value;
+        }
+
+        /**
+         * @param value the new batch write retry strategy
+         * @return this builder
+         */
+        public Builder withBatchWriteRetryStrategy(BatchWriteRetryStrategy value) {
+            setBatchWriteRetryStrategy(value);
+            return this;
+        }
+
+        /**
+         * @return the current maximum number of concurrent batch writes
+         */
+        public Integer getMaxConcurrentBatchWrites() {
+            return maxConcurrentBatchWrites;
+        }
+
+        /**
+         * @param value the new maximum number of BatchWriteItem calls a batch
+         *            write may have in flight at the same time
+         */
+        public void setMaxConcurrentBatchWrites(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException(
+                        "maxConcurrentBatchWrites must be at least 1");
+            }
+            maxConcurrentBatchWrites = value;
+        }
+
+        /**
+         * @param value the new maximum number of BatchWriteItem calls a batch
+         *            write may have in flight at the same time
+         * @return this builder
+         */
+        public Builder withMaxConcurrentBatchWrites(Integer value) {
+            setMaxConcurrentBatchWrites(value);
+            return this;
+        }
+
+        /**
+         * @return the current batch write progress listener
+         */
+        public BatchWriteProgressListener getBatchWriteProgressListener() {
+            return batchWriteProgressListener;
+        }
+
+        /**
+         * @param value the new batch write progress listener
+         */
+        public void setBatchWriteProgressListener(BatchWriteProgressListener value) {
+            batchWriteProgressListener = value;
+        }
+
+        /**
+         * @param value the new batch write progress listener
+         * @return this builder
+         */
+        public Builder withBatchWriteProgressListener(BatchWriteProgressListener value) {
+            setBatchWriteProgressListener(value);
+            return this;
+        }
+
+        /**
+         * @return the current maximum number of concurrent batch loads
+         */
+        public Integer getMaxConcurrentBatchLoads() {
+            return maxConcurrentBatchLoads;
+        }
+
+        /**
+         * @param value the new maximum number of BatchGetItem calls a batch
+         *            load may have in flight at the same time
+         */
+        public void setMaxConcurrentBatchLoads(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException(
+                        "maxConcurrentBatchLoads must be at least 1");
+            }
+            maxConcurrentBatchLoads = value;
+        }
+
+        /**
+         * @param value the new maximum number of BatchGetItem calls a batch
+         *            load may have in flight at the same time
+         * @return this builder
+         */
+        public Builder withMaxConcurrentBatchLoads(Integer value) {
+            setMaxConcurrentBatchLoads(value);
+            return this;
+        }
+
+        /**
+         * @return the currently-configured parallel scan executor
+         */
+        public ExecutorService getParallelScanExecutor() {
+            return parallelScanExecutor;
+        }
+
+        /**
+         * @param value the new executor running the segment scans of parallel
+         *            scans, or null for each parallel scan to use its own
+         *            threads
+         */
+        public void setParallelScanExecutor(ExecutorService value) {
+            parallelScanExecutor = value;
+        }
+
+        /**
+         * @param value the new executor running the segment scans of parallel
+         *            scans, or null for each parallel scan to use its own
+         *            threads
+         * @return this builder
+         */
+        public Builder withParallelScanExecutor(ExecutorService value) {
+            setParallelScanExecutor(value);
+            return this;
+        }
+
+        /**
+         * @return the current number of pages prefetched in
+         *         ITERATION_ONLY_PREFETCH mode
+         */
+        public Integer getPaginationPrefetchDepth() {
+            return paginationPrefetchDepth;
+        }
+
+        /**
+         * @param value the new number of pages a paginated list fetches ahead
+         *            of the iteration in ITERATION_ONLY_PREFETCH mode
+         */
+        public void setPaginationPrefetchDepth(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException(
+                        "paginationPrefetchDepth must be at least 1");
+            }
+            paginationPrefetchDepth = value;
+        }
+
+        /**
+         * @param value the new number of pages a paginated list fetches ahead
+         *            of the iteration in ITERATION_ONLY_PREFETCH mode
+         * @return this builder
+         */
+        public Builder withPaginationPrefetchDepth(Integer value) {
+            setPaginationPrefetchDepth(value);
+            return this;
+        }
+
+        /**
+         * @return the currently-configured item cache
+         */
+        public ItemCache getItemCache() {
+            return itemCache;
+        }
+
+        /**
+         * @param value the new cache of loaded items, or null to always load
+         *            items from DynamoDB
+         */
+        public void setItemCache(ItemCache value) {
+            itemCache = value;
+        }
+
+        /**
+         * @param value the new cache of loaded items, or null to always load
+         *            items from DynamoDB
+         * @return this builder
+         */
+        public Builder withItemCache(ItemCache value) {
+            setItemCache(value);
+            return this;
+        }
+
+        /**
+         * @return the currently-configured capacity rate limiter
+         */
+        public CapacityRateLimiter getCapacityRateLimiter() {
+            return capacityRateLimiter;
+        }
+
+        /**
+         * @param value the new limiter of the capacity used per table, or
+         *            null to send requests as fast as they come
+         */
+        public void setCapacityRateLimiter(CapacityRateLimiter value) {
+            capacityRateLimiter = value;
+        }
+
+        /**
+         * @param value the new limiter of the capacity used per table, or
+         *            null to send requests as fast as they come
+         * @return this builder
+         */
+        public Builder withCapacityRateLimiter(CapacityRateLimiter value) {
+            setCapacityRateLimiter(value);
+            return this;
+        }
+
         /**
          * Builds a new {@code DynamoDBMapperConfig} object.
          *
@@ -269,7 +502,15 @@ public class DynamoDBMapperConfig {
                     objectTableNameResolver,
                     paginationLoadingStrategy,
                     requestMetricCollector,
-                    conversionSchema);
+                    conversionSchema,
+                    batchWriteRetryStrategy,
+                    maxConcurrentBatchWrites,
+                    batchWriteProgressListener,
+                    maxConcurrentBatchLoads,
+                    parallelScanExecutor,
+                    paginationPrefetchDepth,
+                    itemCache,
+                    capacityRateLimiter);
         }
     }
 
@@ -356,6 +597,19 @@ public class DynamoDBMapperConfig {
          */
         ITERATION_ONLY,
 
+        /**
+         * Like ITERATION_ONLY, except that while the current page is being
+         * iterated over, the next pages are fetched in the background, up to
+         * {@link DynamoDBMapperConfig#getPaginationPrefetchDepth()} pages
+         * ahead. The list keeps at most that many pages in memory besides the
+         * current one.
+         * <p>
+         * Use this configuration to overlap the requests for the next pages
+         * with the handling of the current one when iterating over large
+         * results.
+         */
+        ITERATION_ONLY_PREFETCH,
+
         /**
          * Paginated list will eagerly load all the paginated results from
          * DynamoDB as soon as the list is initialized.
@@ -473,6 +727,87 @@ public class DynamoDBMapperConfig {
 
     }
 
+    /**
+     * Strategy used by {@link DynamoDBMapper#batchWrite(List, List,
+     * DynamoDBMapperConfig)} to retry the items a BatchWriteItem call left
+     * unprocessed, and to back off from a table that is throttled.
+     */
+    public static interface BatchWriteRetryStrategy {
+
+        /**
+         * Returns the maximum number of times the unprocessed items of a batch
+         * are sent again before the batch is reported as failed.
+         *
+         * @param batchWriteItemInput The items of the batch.
+         * @return The maximum number of retries, or a negative value to retry
+         *         until every item is processed.
+         */
+        public int getMaxRetryOnUnprocessedItems(
+                Map<String, List<WriteRequest>> batchWriteItemInput);
+
+        /**
+         * Returns how long to wait before sending unprocessed items again, or
+         * before sending more items to a table that was throttled.
+         *
+         * @param unprocessedItems The items to send again.
+         * @param retriesAttempted The number of retries so far, starting at 0.
+         * @return The delay in milliseconds.
+         */
+        public long getDelayBeforeRetryUnprocessedItems(
+                Map<String, List<WriteRequest>> unprocessedItems, int retriesAttempted);
+    }
+
+    /**
+     * The default {@link BatchWriteRetryStrategy}. Retries unprocessed items
+     * until they are processed, with an exponential backoff starting at 100
+     * milliseconds and capped at 3 seconds. Half of each delay is random so
+     * that concurrent batches don't retry in lockstep.
+     */
+    public static class DefaultBatchWriteRetryStrategy implements BatchWriteRetryStrategy {
+
+        public static final DefaultBatchWriteRetryStrategy INSTANCE =
+                new DefaultBatchWriteRetryStrategy();
+
+        private static final long BASE_DELAY_IN_MILLISECONDS = 100;
+        private static final long MAX_DELAY_IN_MILLISECONDS = 1000 * 3;
+
+        private final Random random = new Random();
+
+        @Override
+        public int getMaxRetryOnUnprocessedItems(
+                Map<String, List<WriteRequest>> batchWriteItemInput) {
+            return -1;
+        }
+
+        @Override
+        public long getDelayBeforeRetryUnprocessedItems(
+                Map<String, List<WriteRequest>> unprocessedItems, int retriesAttempted) {
+            long ceiling = BASE_DELAY_IN_MILLISECONDS << Math.min(retriesAttempted, 16);
+            ceiling = Math.min(ceiling, MAX_DELAY_IN_MILLISECONDS);
+            long half = ceiling / 2;
+            synchronized (random) {
+                return half + (long) (random.nextDouble() * (ceiling - half));
+            }
+        }
+    }
+
+    /**
+     * Receives the progress of a batch write.
+     */
+    public static interface BatchWriteProgressListener {
+
+        /**
+         * Called each time a batch of a batch write completes. Calls may come
+         * from different threads when batches are written concurrently, but
+         * are never made concurrently.
+         *
+         * @param itemsWritten The number of items written or deleted so far.
+         * @param itemsFailed The number of items in failed batches so far.
+         * @param totalItems The number of items to write or delete.
+         */
+        public void progressChanged(int itemsWritten, int itemsFailed, int totalItems);
+    }
+
     /**
      * Default implementation of {@link TableNameResolver} that mimics the
      * behavior of DynamoDBMapper before the addition of
@@ -511,6 +846,14 @@ public class DynamoDBMapperConfig {
     private final PaginationLoadingStrategy paginationLoadingStrategy;
     private final RequestMetricCollector requestMetricCollector;
     private final ConversionSchema conversionSchema;
+    private final BatchWriteRetryStrategy batchWriteRetryStrategy;
+    private final Integer maxConcurrentBatchWrites;
+    private final BatchWriteProgressListener batchWriteProgressListener;
+    private final Integer maxConcurrentBatchLoads;
+    private final ExecutorService parallelScanExecutor;
+    private final Integer paginationPrefetchDepth;
+    private final ItemCache itemCache;
+    private final CapacityRateLimiter capacityRateLimiter;
 
     /**
      * Legacy constructor, using default PaginationLoadingStrategy
@@ -591,6 +934,42 @@ public class DynamoDBMapperConfig {
             RequestMetricCollector requestMetricCollector,
             ConversionSchema conversionSchema) {
 
+        this(saveBehavior,
+                consistentReads,
+                tableNameOverride,
+                tableNameResolver,
+                objectTableNameResolver,
+                paginationLoadingStrategy,
+                requestMetricCollector,
+                conversionSchema,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
+    }
+
+    private DynamoDBMapperConfig(
+            SaveBehavior saveBehavior,
+            ConsistentReads consistentReads,
+            TableNameOverride tableNameOverride,
+            TableNameResolver tableNameResolver,
+            ObjectTableNameResolver objectTableNameResolver,
+            PaginationLoadingStrategy paginationLoadingStrategy,
+            RequestMetricCollector requestMetricCollector,
+            ConversionSchema conversionSchema,
+            BatchWriteRetryStrategy batchWriteRetryStrategy,
+            Integer maxConcurrentBatchWrites,
+            BatchWriteProgressListener batchWriteProgressListener,
+            Integer maxConcurrentBatchLoads,
+            ExecutorService parallelScanExecutor,
+            Integer paginationPrefetchDepth,
+            ItemCache itemCache,
+            CapacityRateLimiter capacityRateLimiter) {
+
         this.saveBehavior = saveBehavior;
         this.consistentReads = consistentReads;
         this.tableNameOverride = tableNameOverride;
@@ -599,6 +978,14 @@ public class DynamoDBMapperConfig {
         this.paginationLoadingStrategy = paginationLoadingStrategy;
         this.requestMetricCollector = requestMetricCollector;
         this.conversionSchema = conversionSchema;
+        this.batchWriteRetryStrategy = batchWriteRetryStrategy;
+        this.maxConcurrentBatchWrites = maxConcurrentBatchWrites;
+        this.batchWriteProgressListener = batchWriteProgressListener;
+        this.maxConcurrentBatchLoads = maxConcurrentBatchLoads;
+        this.parallelScanExecutor = parallelScanExecutor;
+        this.paginationPrefetchDepth = paginationPrefetchDepth;
+        this.itemCache = itemCache;
+        this.capacityRateLimiter = capacityRateLimiter;
     }
 
     /**
@@ -699,6 +1086,14 @@ public class DynamoDBMapperConfig {
                     defaults.getPaginationLoadingStrategy();
             this.requestMetricCollector = defaults.getRequestMetricCollector();
             this.conversionSchema = defaults.getConversionSchema();
+            this.batchWriteRetryStrategy = defaults.getBatchWriteRetryStrategy();
+            this.maxConcurrentBatchWrites = defaults.getMaxConcurrentBatchWrites();
+            this.batchWriteProgressListener = defaults.getBatchWriteProgressListener();
+            this.maxConcurrentBatchLoads = defaults.getMaxConcurrentBatchLoads();
+            this.parallelScanExecutor = defaults.getParallelScanExecutor();
+            this.paginationPrefetchDepth = defaults.getPaginationPrefetchDepth();
+            this.itemCache = defaults.getItemCache();
+            this.capacityRateLimiter = defaults.getCapacityRateLimiter();
 
         } else {
 
@@ -736,6 +1131,39 @@ public class DynamoDBMapperConfig {
                     ? defaults.getConversionSchema()
                     : overrides.getConversionSchema();
 
+            this.batchWriteRetryStrategy = (overrides.getBatchWriteRetryStrategy() == null)
+                    ? defaults.getBatchWriteRetryStrategy()
+                    : overrides.getBatchWriteRetryStrategy();
+
+            this.maxConcurrentBatchWrites = (overrides.getMaxConcurrentBatchWrites() == null)
+                    ? defaults.getMaxConcurrentBatchWrites()
+                    : overrides.getMaxConcurrentBatchWrites();
+
+            this.batchWriteProgressListener =
+                    (overrides.getBatchWriteProgressListener() == null)
+                            ? defaults.getBatchWriteProgressListener()
+                            : overrides.getBatchWriteProgressListener();
+
+            this.maxConcurrentBatchLoads = (overrides.getMaxConcurrentBatchLoads() == null)
+                    ? defaults.getMaxConcurrentBatchLoads()
+                    : overrides.getMaxConcurrentBatchLoads();
+
+            this.parallelScanExecutor = (overrides.getParallelScanExecutor() == null)
+                    ? defaults.getParallelScanExecutor()
+                    : overrides.getParallelScanExecutor();
+
+            this.paginationPrefetchDepth = (overrides.getPaginationPrefetchDepth() == null)
+                    ? defaults.getPaginationPrefetchDepth()
+                    : overrides.getPaginationPrefetchDepth();
+
+            this.itemCache = (overrides.getItemCache() == null)
+                    ? defaults.getItemCache()
+                    : overrides.getItemCache();
+
+            this.capacityRateLimiter = (overrides.getCapacityRateLimiter() == null)
+                    ? defaults.getCapacityRateLimiter()
+                    : overrides.getCapacityRateLimiter();
+
         }
     }
 
@@ -812,9 +1240,75 @@ public class DynamoDBMapperConfig {
         return conversionSchema;
     }
 
+    /**
+     * Returns the strategy used to retry unprocessed items of a batch write.
+     */
+    public BatchWriteRetryStrategy getBatchWriteRetryStrategy() {
+        return batchWriteRetryStrategy;
+    }
+
+    /**
+     * Returns the maximum number of BatchWriteItem calls a batch write may
+     * have in flight at the same time.
+     */
+    public Integer getMaxConcurrentBatchWrites() {
+        return maxConcurrentBatchWrites;
+    }
+
+    /**
+     * Returns the listener notified of the progress of batch writes, or null
+     * if not specified.
+     */
+    public BatchWriteProgressListener getBatchWriteProgressListener() {
+        return batchWriteProgressListener;
+    }
+
+    /**
+     * Returns the maximum number of BatchGetItem calls a batch load may have
+     * in flight at the same time.
+     */
+    public Integer getMaxConcurrentBatchLoads() {
+        return maxConcurrentBatchLoads;
+    }
+
+    /**
+     * Returns the executor running the segment scans of parallel scans, or
+     * null if each parallel scan uses its own threads. The executor is shared
+     * by the scans and never shut down by the mapper.
+     */
+    public ExecutorService getParallelScanExecutor() {
+        return parallelScanExecutor;
+    }
+
+    /**
+     * Returns the number of pages a paginated list fetches ahead of the
+     * iteration in {@link PaginationLoadingStrategy#ITERATION_ONLY_PREFETCH}
+     * mode.
+     */
+    public Integer getPaginationPrefetchDepth() {
+        return paginationPrefetchDepth;
+    }
+
+    /**
+     * Returns the cache of loaded items, or null if items are always loaded
+     * from DynamoDB.
+     */
+    public ItemCache getItemCache() {
+        return itemCache;
+    }
+
+    /**
+     * Returns the limiter of the capacity used per table, or null if requests
+     * are sent as fast as they come.
+     */
+    public CapacityRateLimiter getCapacityRateLimiter() {
+        return capacityRateLimiter;
+    }
+
     /**
      * Default configuration uses UPDATE behavior for saves and EVENTUALly
      * consistent reads, with no table name override and lazy-loading strategy.
+     * Batch writes and batch loads send one batch at a time.
      */
     public static final DynamoDBMapperConfig DEFAULT = new DynamoDBMapperConfig(
             SaveBehavior.UPDATE,
@@ -824,5 +1318,13 @@ public class DynamoDBMapperConfig {
             null, // ObjectTableNameResolver
             PaginationLoadingStrategy.LAZY_LOADING,
             null, // RequestMetricCollector
-            ConversionSchemas.DEFAULT);
+            ConversionSchemas.DEFAULT,
+            DefaultBatchWriteRetryStrategy.INSTANCE,
+            1, // MaxConcurrentBatchWrites
+            null, // BatchWriteProgressListener
+            1, // MaxConcurrentBatchLoads
+            null, // ParallelScanExecutor
+            1, // PaginationPrefetchDepth
+            null, // ItemCache
+            null); // CapacityRateLimiter
 }
@@ -20,7 +20,9 @@ import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -54,6 +56,11 @@ public class DynamoDBQueryExpression<T> {
      */
     private java.util.Map<String, AttributeValue> expressionAttributeValues;
 
+    /**
+     * The names of the model properties to retrieve.
+     */
+    private List<String> projectedProperties;
+
     /**
      * Returns whether this query uses consistent reads.
      */
@@ -582,4 +589,43 @@ public class DynamoDBQueryExpression<T> {
         this.expressionAttributeValues = null;
         return this;
     }
+
+    /**
+     * Returns the names of the model properties to retrieve, or null to
+     * retrieve every attribute of the queried items.
+     */
+    public List<String> getProjectedProperties() {
+        return projectedProperties;
+    }
+
+    /**
+     * Sets the names of the model properties to retrieve. The mapper turns
+     * them into a projection expression that also includes the primary key
+     * attributes; the other properties of the returned objects are left as
+     * the model's constructor set them. Null retrieves every attribute.
+     * <p>
+     * <b>The returned objects are incomplete.</b> The mapper refuses to save
+     * them with {@code SaveBehavior.UPDATE} or {@code CLOBBER}, or to batch
+     * write them, since that would delete or overwrite the attributes that
+     * weren't retrieved. {@code UPDATE_SKIP_NULL_ATTRIBUTES} saves them, but
+     * writes every non-null property, including primitives and defaults set
+     * by the constructor.
+     *
+     * @param projectedProperties The model property names, e.g.
+     *            {@code "title"} for {@code getTitle()}.
+     */
+    public void setProjectedProperties(List<String> projectedProperties) {
+        this.projectedProperties = projectedProperties;
+    }
+
+    /**
+     * Sets the names of the model properties to retrieve and returns a
+     * reference to this object so that method calls can be chained together.
+     *
+     * @see DynamoDBQueryExpression#setProjectedProperties(List)
+     */
+    public DynamoDBQueryExpression<T> withProjectedProperties(String... projectedProperties) {
+        setProjectedProperties(Arrays.asList(projectedProperties));
+        return this;
+    }
 }
@@ -16,14 +16,13 @@
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Reflection assistant for {@link DynamoDBMapper}
@@ -32,39 +31,83 @@ class DynamoDBReflector {
 
     /*
      * Several caches for performance. Collectively, they can make this class
-     * over twice as fast.
+     * over twice as fast. They are read on every mapper call from every
+     * thread, so they are concurrent maps of values that never change once
+     * computed; two threads computing the same value is harmless.
      */
-    private final Map<Class<?>, Collection<Method>> getterCache = new HashMap<Class<?>, Collection<Method>>();
-    private final Map<Class<?>, Method> primaryHashKeyGetterCache = new HashMap<Class<?>, Method>();
-    private final Map<Class<?>, Method> primaryRangeKeyGetterCache = new HashMap<Class<?>, Method>();
+    private final ConcurrentMap<Class<?>, ClassMetadata> classCache =
+            new ConcurrentHashMap<Class<?>, ClassMetadata>();
 
     /*
      * All caches keyed by a Method use the getter for a particular mapped
      * property
      */
-    private final Map<Method, Method> setterCache = new HashMap<Method, Method>();
+    private final ConcurrentMap<Method, Method> setterCache =
+            new ConcurrentHashMap<Method, Method>();
 
-    private final Map<Method, String> attributeNameCache = new HashMap<Method, String>();
+    private final ConcurrentMap<Method, String> attributeNameCache =
+            new ConcurrentHashMap<Method, String>();
 
-    private final Map<Method, Boolean> versionAttributeGetterCache = new HashMap<Method, Boolean>();
-    private final Map<Method, Boolean> autoGeneratedKeyGetterCache = new HashMap<Method, Boolean>();
+    private final ConcurrentMap<Method, Boolean> versionAttributeGetterCache =
+            new ConcurrentHashMap<Method, Boolean>();
+    private final ConcurrentMap<Method, Boolean> autoGeneratedKeyGetterCache =
+            new ConcurrentHashMap<Method, Boolean>();
 
-    private final ReentrantReadWriteLock readWriteLockAttrName = new ReentrantReadWriteLock();
-    private final ReadLock readLockAttrName = readWriteLockAttrName.readLock();
-    private final WriteLock writeLockAttrName = readWriteLockAttrName.writeLock();
+    /**
+     * The getters of a class relevant to the mapper, computed once.
+     */
+    private static final class ClassMetadata {
+        final Collection<Method> relevantGetters;
+        final Collection<Method> primaryKeyGetters;
+        final Method primaryHashKeyGetter;
+        final Method primaryRangeKeyGetter;
+
+        ClassMetadata(Class<?> clazz) {
+            List<Method> getters = findRelevantGetters(clazz);
+            List<Method> keyGetters = new ArrayList<Method>(2);
+            Method hashKeyGetter = null;
+            Method rangeKeyGetter = null;
+            for (Method getter : getters) {
+                boolean hashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                        DynamoDBHashKey.class);
+                boolean rangeKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                        DynamoDBRangeKey.class);
+                if (hashKey || rangeKey) {
+                    keyGetters.add(getter);
+                }
+                if (hashKey && hashKeyGetter == null) {
+                    hashKeyGetter = getter;
+                }
+                if (rangeKey && rangeKeyGetter == null) {
+                    rangeKeyGetter = getter;
+                }
+            }
+            this.relevantGetters = Collections.unmodifiableList(
+                    new ArrayList<Method>(getters));
+            this.primaryKeyGetters = Collections.unmodifiableList(keyGetters);
+            this.primaryHashKeyGetter = hashKeyGetter;
+            this.primaryRangeKeyGetter = rangeKeyGetter;
+        }
+    }
+
+    private ClassMetadata getClassMetadata(Class<?> clazz) {
+        ClassMetadata metadata = classCache.get(clazz);
+        if (metadata == null) {
+            metadata = new ClassMetadata(clazz);
+            ClassMetadata existing = classCache.putIfAbsent(clazz, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        return metadata;
+    }
 
     /**
      * Returns the set of getter methods which are relevant when marshalling or
      * unmarshalling an object.
      */
     Collection<Method> getRelevantGetters(Class<?> clazz) {
-        synchronized (getterCache) {
-            if (!getterCache.containsKey(clazz)) {
-                List<Method> relevantGetters = findRelevantGetters(clazz);
-                getterCache.put(clazz, relevantGetters);
-            }
-            return getterCache.get(clazz);
-        }
+        return getClassMetadata(clazz).relevantGetters;
     }
 
     static List<Method> findRelevantGetters(Class<?> clazz) {
@@ -100,38 +143,16 @@ class DynamoDBReflector {
      * given, or null if the class doesn't have one.
      */
     <T> Method getPrimaryRangeKeyGetter(Class<T> clazz) {
-        synchronized (primaryRangeKeyGetterCache) {
-            if (!primaryRangeKeyGetterCache.containsKey(clazz)) {
-                Method rangeKeyMethod = null;
-                for (Method method : getRelevantGetters(clazz)) {
-                    if (method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method,
-                                    DynamoDBRangeKey.class)) {
-                        rangeKeyMethod = method;
-                        break;
-                    }
-                }
-                primaryRangeKeyGetterCache.put(clazz, rangeKeyMethod);
-            }
-            return primaryRangeKeyGetterCache.get(clazz);
-        }
+        return getClassMetadata(clazz).primaryRangeKeyGetter;
     }
 
     /**
      * Returns all annotated {@link DynamoDBHashKey} and
-     * {@link DynamoDBRangeKey} getters for the class given, throwing an
-     * exception if there isn't one. TODO: caching
+     * {@link DynamoDBRangeKey} getters for the class given. The returned
+     * collection can't be modified.
      */
     <T> Collection<Method> getPrimaryKeyGetters(Class<T> clazz) {
-        List<Method> keyGetters = new LinkedList<Method>();
-        for (Method getter : getRelevantGetters(clazz)) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class)
-                    || ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)) {
-                keyGetters.add(getter);
-            }
-        }
-
-        return keyGetters;
+        return getClassMetadata(clazz).primaryKeyGetters;
     }
 
     /**
@@ -139,21 +160,7 @@ class DynamoDBReflector {
      * throwing an exception if there isn't one.
      */
     <T> Method getPrimaryHashKeyGetter(Class<T> clazz) {
-        Method hashKeyMethod;
-        synchronized (primaryHashKeyGetterCache) {
-            if (!primaryHashKeyGetterCache.containsKey(clazz)) {
-                for (Method method : getRelevantGetters(clazz)) {
-                    if (method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method,
-                                    DynamoDBHashKey.class)) {
-                        primaryHashKeyGetterCache.put(clazz, method);
-                        break;
-                    }
-                }
-            }
-            hashKeyMethod = primaryHashKeyGetterCache.get(clazz);
-        }
-
+        Method hashKeyMethod = getClassMetadata(clazz).primaryHashKeyGetter;
         if (hashKeyMethod == null) {
             throw new DynamoDBMappingException(
                     "Public, zero-parameter hash key property must be annotated with "
@@ -178,13 +185,7 @@ class DynamoDBReflector {
      * Returns the attribute name corresponding to the given getter method.
      */
     String getAttributeName(Method getter) {
-        String attributeName;
-        readLockAttrName.lock();
-        try {
-            attributeName = attributeNameCache.get(getter);
-        } finally {
-            readLockAttrName.unlock();
-        }
+        String attributeName = attributeNameCache.get(getter);
         if (attributeName != null)
             return attributeName;
         DynamoDBHashKey hashKeyAnnotation = ReflectionUtils.getAnnotationFromGetterOrField(getter,
@@ -236,12 +237,7 @@ class DynamoDBReflector {
     }
 
     private String cacheAttributeName(Method getter, String attributeName) {
-        writeLockAttrName.lock();
-        try {
-            attributeNameCache.put(getter, attributeName);
-        } finally {
-            writeLockAttrName.unlock();
-        }
+        attributeNameCache.put(getter, attributeName);
         return attributeName;
     }
 
@@ -250,27 +246,25 @@ class DynamoDBReflector {
      * setter exists.
      */
     Method getSetter(Method getter) {
-        synchronized (setterCache) {
-            if (!setterCache.containsKey(getter)) {
-                String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
-                String setterName = "set" + fieldName;
-                Method setter = null;
-                try {
-                    setter = getter.getDeclaringClass().getMethod(setterName,
-                            getter.getReturnType());
-                } catch (NoSuchMethodException e) {
-                    throw new DynamoDBMappingException(
-                            "Expected a public, one-argument method called " + setterName
-                                    + " on class " + getter.getDeclaringClass(), e);
-                } catch (SecurityException e) {
-                    throw new DynamoDBMappingException(
-                            "No access to public, one-argument method called " + setterName
-                                    + " on class " + getter.getDeclaringClass(), e);
-                }
-                setterCache.put(getter, setter);
+        Method setter = setterCache.get(getter);
+        if (setter == null) {
+            String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
+            String setterName = "set" + fieldName;
+            try {
+                setter = getter.getDeclaringClass().getMethod(setterName,
+                        getter.getReturnType());
+            } catch (NoSuchMethodException e) {
+                throw new DynamoDBMappingException(
+                        "Expected a public, one-argument method called " + setterName
+                                + " on class " + getter.getDeclaringClass(), e);
+            } catch (SecurityException e) {
+                throw new DynamoDBMappingException(
+                        "No access to public, one-argument method called " + setterName
+                                + " on class " + getter.getDeclaringClass(), e);
             }
-            return setterCache.get(getter);
+            setterCache.put(getter, setter);
         }
+        return setter;
     }
 
     /**
@@ -278,36 +272,32 @@ class DynamoDBReflector {
      * version attribute.
      */
     boolean isVersionAttributeGetter(Method getter) {
-        synchronized (versionAttributeGetterCache) {
-            if (!versionAttributeGetterCache.containsKey(getter)) {
-                versionAttributeGetterCache.put(
-                        getter,
-                        getter.getName().startsWith("get")
-                                && getter.getParameterTypes().length == 0
-                                && ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBVersionAttribute.class));
-            }
-            return versionAttributeGetterCache.get(getter);
+        Boolean versionAttributeGetter = versionAttributeGetterCache.get(getter);
+        if (versionAttributeGetter == null) {
+            versionAttributeGetter = getter.getName().startsWith("get")
+                    && getter.getParameterTypes().length == 0
+                    && ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                            DynamoDBVersionAttribute.class);
+            versionAttributeGetterCache.put(getter, versionAttributeGetter);
         }
+        return versionAttributeGetter;
     }
 
     /**
      * Returns whether the method given is an assignable key getter.
      */
     boolean isAssignableKey(Method getter) {
-        synchronized (autoGeneratedKeyGetterCache) {
-            if (!autoGeneratedKeyGetterCache.containsKey(getter)) {
-                autoGeneratedKeyGetterCache.put(
-                        getter,
-                        ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                DynamoDBAutoGeneratedKey.class)
-                                && (ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBHashKey.class) ||
-                                ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBRangeKey.class)));
-            }
-            return autoGeneratedKeyGetterCache.get(getter);
+        Boolean assignableKey = autoGeneratedKeyGetterCache.get(getter);
+        if (assignableKey == null) {
+            assignableKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBAutoGeneratedKey.class)
+                    && (ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                            DynamoDBHashKey.class) ||
+                    ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                            DynamoDBRangeKey.class));
+            autoGeneratedKeyGetterCache.put(getter, assignableKey);
         }
+        return assignableKey;
     }
 
     /**
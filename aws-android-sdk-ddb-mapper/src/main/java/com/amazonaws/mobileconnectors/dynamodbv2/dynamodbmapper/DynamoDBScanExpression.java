@@ -21,7 +21,9 @@ import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -144,6 +146,11 @@ public class DynamoDBScanExpression {
      */
     private java.util.Map<String, AttributeValue> expressionAttributeValues;
 
+    /**
+     * The names of the model properties to retrieve.
+     */
+    private List<String> projectedProperties;
+
     /**
      * Returns the scan filter as a map of attribute names to conditions.
      *
@@ -567,4 +574,43 @@ public class DynamoDBScanExpression {
         this.expressionAttributeValues = null;
         return this;
     }
+
+    /**
+     * Returns the names of the model properties to retrieve, or null to
+     * retrieve every attribute of the scanned items.
+     */
+    public List<String> getProjectedProperties() {
+        return projectedProperties;
+    }
+
+    /**
+     * Sets the names of the model properties to retrieve. The mapper turns
+     * them into a projection expression that also includes the primary key
+     * attributes; the other properties of the returned objects are left as
+     * the model's constructor set them. Null retrieves every attribute.
+     * <p>
+     * <b>The returned objects are incomplete.</b> The mapper refuses to save
+     * them with {@code SaveBehavior.UPDATE} or {@code CLOBBER}, or to batch
+     * write them, since that would delete or overwrite the attributes that
+     * weren't retrieved. {@code UPDATE_SKIP_NULL_ATTRIBUTES} saves them, but
+     * writes every non-null property, including primitives and defaults set
+     * by the constructor.
+     *
+     * @param projectedProperties The model property names, e.g.
+     *            {@code "title"} for {@code getTitle()}.
+     */
+    public void setProjectedProperties(List<String> projectedProperties) {
+        this.projectedProperties = projectedProperties;
+    }
+
+    /**
+     * Sets the names of the model properties to retrieve and returns a
+     * reference to this object so that method calls can be chained together.
+     *
+     * @see DynamoDBScanExpression#setProjectedProperties(List)
+     */
+    public DynamoDBScanExpression withProjectedProperties(String... projectedProperties) {
+        setProjectedProperties(Arrays.asList(projectedProperties));
+        return this;
+    }
 }
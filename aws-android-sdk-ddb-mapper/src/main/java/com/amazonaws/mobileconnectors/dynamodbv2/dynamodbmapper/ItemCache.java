@@ -0,0 +1,288 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded cache of the items loaded by {@link DynamoDBMapper#load}, kept
+ * by table name and primary key. Set it on a mapper with
+ * {@link DynamoDBMapperConfig.Builder#setItemCache(ItemCache)}.
+ * <p>
+ * Eventually consistent loads are answered from the cache while the cached
+ * item is younger than the time to live of its table; consistent loads always
+ * go to DynamoDB and refresh the cached item. Saves, deletes and batch writes
+ * made with a configuration holding the cache evict the items they write, and
+ * a load that overlaps such a write does not cache what it read. Writes made
+ * by other mappers or other clients are only seen once the cached item
+ * expires.
+ * <p>
+ * When full, the cache evicts the least recently used item. Only found items
+ * are cached. The cache keeps its own copy of each item, binary values
+ * included, and hands out a fresh copy on every hit, so objects loaded from it
+ * share nothing with each other or with the cache.
+ */
+public class ItemCache {
+
+    private final int maxItems;
+    private final long defaultTimeToLiveNanos;
+    private final ConcurrentMap<String, Long> timeToLiveNanosByTable =
+            new ConcurrentHashMap<String, Long>();
+
+    /** Guarded by this. */
+    private final LinkedHashMap<CacheKey, CachedItem> items;
+
+    /** The number of evictions by writes so far. Guarded by this. */
+    private long invalidations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache of at most the given number of items, each of which is
+     * kept for the given time unless its table has a time to live of its own.
+     *
+     * @param maxItems The maximum number of items in the cache.
+     * @param timeToLive How long an item is served from the cache after it
+     *            was loaded.
+     * @param unit The unit of timeToLive.
+     */
+    public ItemCache(int maxItems, long timeToLive, TimeUnit unit) {
+        if (maxItems < 1) {
+            throw new IllegalArgumentException("maxItems must be at least 1");
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        this.maxItems = maxItems;
+        this.defaultTimeToLiveNanos = unit.toNanos(timeToLive);
+        this.items = new LinkedHashMap<CacheKey, CachedItem>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedItem> eldest) {
+                return size() > ItemCache.this.maxItems;
+            }
+        };
+    }
+
+    /**
+     * Sets how long the items of the given table are served from the cache
+     * after they were loaded. A time to live of zero keeps the items of the
+     * table out of the cache.
+     *
+     * @param tableName The name of the table, after any override.
+     * @param timeToLive How long an item of the table stays in the cache.
+     * @param unit The unit of timeToLive.
+     */
+    public void setTimeToLive(String tableName, long timeToLive, TimeUnit unit) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        timeToLiveNanosByTable.put(tableName, unit.toNanos(timeToLive));
+    }
+
+    /**
+     * Returns the number of loads answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of eventually consistent loads that had to go to
+     * DynamoDB.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of items in the cache, including expired ones not
+     * evicted yet.
+     */
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /**
+     * Evicts all the items.
+     */
+    public synchronized void clear() {
+        invalidations++;
+        items.clear();
+    }
+
+    /**
+     * Returns a copy of the cached, unexpired item of the given key, or null
+     * after counting a miss.
+     */
+    synchronized Map<String, AttributeValue> get(String tableName,
+            Map<String, AttributeValue> key) {
+        CacheKey cacheKey = new CacheKey(tableName, key);
+        CachedItem cached = items.get(cacheKey);
+        if (cached != null && cached.expiresAtNanos - System.nanoTime() > 0) {
+            hits.incrementAndGet();
+            return copyOf(cached.item);
+        }
+        if (cached != null) {
+            items.remove(cacheKey);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns a stamp to take before reading an item from DynamoDB, so that
+     * {@link #put} can tell whether a write may have overtaken the read.
+     */
+    synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches an item read from DynamoDB, unless an item was evicted by a
+     * write since the given stamp was taken.
+     */
+    synchronized void put(String tableName, Map<String, AttributeValue> key,
+            Map<String, AttributeValue> item, long stamp) {
+        long timeToLiveNanos = timeToLiveNanosOf(tableName);
+        if (stamp != invalidations || timeToLiveNanos == 0) {
+            return;
+        }
+        items.put(new CacheKey(tableName, copyOf(key)),
+                new CachedItem(copyOf(item), System.nanoTime() + timeToLiveNanos));
+    }
+
+    /**
+     * Evicts the item of the given key, which is being written.
+     */
+    synchronized void invalidate(String tableName, Map<String, AttributeValue> key) {
+        invalidations++;
+        items.remove(new CacheKey(tableName, key));
+    }
+
+    /**
+     * Copies the item down to its binary values, which the converters hand
+     * out as is.
+     */
+    private static Map<String, AttributeValue> copyOf(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> copy = new HashMap<String, AttributeValue>(item.size());
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            copy.put(entry.getKey(), copyOf(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static AttributeValue copyOf(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        AttributeValue copy = new AttributeValue();
+        copy.setS(value.getS());
+        copy.setN(value.getN());
+        copy.setSS(value.getSS());
+        copy.setNS(value.getNS());
+        copy.setNULL(value.getNULL());
+        copy.setBOOL(value.getBOOL());
+        if (value.getB() != null) {
+            copy.setB(copyOf(value.getB()));
+        }
+        if (value.getBS() != null) {
+            List<ByteBuffer> bs = new ArrayList<ByteBuffer>(value.getBS().size());
+            for (ByteBuffer b : value.getBS()) {
+                bs.add(copyOf(b));
+            }
+            copy.setBS(bs);
+        }
+        if (value.getM() != null) {
+            copy.setM(copyOf(value.getM()));
+        }
+        if (value.getL() != null) {
+            List<AttributeValue> l = new ArrayList<AttributeValue>(value.getL().size());
+            for (AttributeValue element : value.getL()) {
+                l.add(copyOf(element));
+            }
+            copy.setL(l);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the remaining bytes of the buffer, leaving its position alone.
+     */
+    private static ByteBuffer copyOf(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    private long timeToLiveNanosOf(String tableName) {
+        Long timeToLiveNanos = timeToLiveNanosByTable.get(tableName);
+        return timeToLiveNanos == null ? defaultTimeToLiveNanos : timeToLiveNanos;
+    }
+
+    private static final class CacheKey {
+        private final String tableName;
+        private final Map<String, AttributeValue> key;
+        private final int hashCode;
+
+        CacheKey(String tableName, Map<String, AttributeValue> key) {
+            this.tableName = tableName;
+            this.key = key;
+            this.hashCode = 31 * tableName.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return tableName.equals(other.tableName) && key.equals(other.key);
+        }
+    }
+
+    private static final class CachedItem {
+        private final Map<String, AttributeValue> item;
+        private final long expiresAtNanos;
+
+        CachedItem(Map<String, AttributeValue> item, long expiresAtNanos) {
+            this.item = item;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.ListUnmarshaller;
+import com.amazonaws.transform.MapUnmarshaller;
+import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.BooleanJsonUnmarshaller;
+import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.ByteBufferJsonUnmarshaller;
+import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.DoubleJsonUnmarshaller;
+import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller;
+import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.StringJsonUnmarshaller;
+import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.json.AwsJsonReader;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a Query or Scan response, handing each item to the given item
+ * unmarshaller instead of reading it into an attribute value map. The other
+ * fields of the response are read the way the client's own unmarshallers
+ * read them.
+ */
+final class ItemPageJsonUnmarshaller<T> implements
+        Unmarshaller<ItemPageJsonUnmarshaller.Page<T>, JsonUnmarshallerContext> {
+
+    /**
+     * Reads attribute values, each into a new instance.
+     */
+    static final Unmarshaller<AttributeValue, JsonUnmarshallerContext> ATTRIBUTE_VALUE =
+            new Unmarshaller<AttributeValue, JsonUnmarshallerContext>() {
+                @Override
+                public AttributeValue unmarshall(JsonUnmarshallerContext context)
+                        throws Exception {
+                    if (!context.getReader().isContainer()) {
+                        context.getReader().skipValue();
+                        return null;
+                    }
+                    AttributeValue value = new AttributeValue();
+                    readAttributeValue(context, value);
+                    return value;
+                }
+            };
+
+    private static final Unmarshaller<Capacity, JsonUnmarshallerContext> CAPACITY =
+            new Unmarshaller<Capacity, JsonUnmarshallerContext>() {
+                @Override
+                public Capacity unmarshall(JsonUnmarshallerContext context) throws Exception {
+                    AwsJsonReader reader = context.getReader();
+                    if (!reader.isContainer()) {
+                        reader.skipValue();
+                        return null;
+                    }
+                    Capacity capacity = new Capacity();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("CapacityUnits")) {
+                            capacity.setCapacityUnits(DoubleJsonUnmarshaller.getInstance()
+                                    .unmarshall(context));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    return capacity;
+                }
+            };
+
+    /**
+     * The fields of a Query or Scan response, with the items as objects.
+     */
+    static final class Page<T> {
+        List<T> items;
+        Integer count;
+        Integer scannedCount;
+        Map<String, AttributeValue> lastEvaluatedKey;
+        ConsumedCapacity consumedCapacity;
+    }
+
+    private final ListUnmarshaller<T> itemsUnmarshaller;
+
+    ItemPageJsonUnmarshaller(Unmarshaller<T, JsonUnmarshallerContext> itemUnmarshaller) {
+        this.itemsUnmarshaller = new ListUnmarshaller<T>(itemUnmarshaller);
+    }
+
+    @Override
+    public Page<T> unmarshall(JsonUnmarshallerContext context) throws Exception {
+        Page<T> page = new Page<T>();
+        AwsJsonReader reader = context.getReader();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("Items")) {
+                page.items = itemsUnmarshaller.unmarshall(context);
+            } else if (name.equals("Count")) {
+                page.count = IntegerJsonUnmarshaller.getInstance().unmarshall(context);
+            } else if (name.equals("ScannedCount")) {
+                page.scannedCount = IntegerJsonUnmarshaller.getInstance().unmarshall(context);
+            } else if (name.equals("LastEvaluatedKey")) {
+                page.lastEvaluatedKey = new MapUnmarshaller<AttributeValue>(ATTRIBUTE_VALUE)
+                        .unmarshall(context);
+            } else if (name.equals("ConsumedCapacity")) {
+                page.consumedCapacity = readConsumedCapacity(context);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return page;
+    }
+
+    /**
+     * Reads the attribute value object at the reader's position into the
+     * given attribute value, so that callers can reuse one instance for many
+     * values. Fields absent from the JSON are left as they are.
+     */
+    static void readAttributeValue(JsonUnmarshallerContext context, AttributeValue value)
+            throws Exception {
+        AwsJsonReader reader = context.getReader();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("S")) {
+                value.setS(StringJsonUnmarshaller.getInstance().unmarshall(context));
+            } else if (name.equals("N")) {
+                value.setN(StringJsonUnmarshaller.getInstance().unmarshall(context));
+            } else if (name.equals("B")) {
+                value.setB(ByteBufferJsonUnmarshaller.getInstance().unmarshall(context));
+            } else if (name.equals("SS")) {
+                value.setSS(new ListUnmarshaller<String>(StringJsonUnmarshaller.getInstance())
+                        .unmarshall(context));
+            } else if (name.equals("NS")) {
+                value.setNS(new ListUnmarshaller<String>(StringJsonUnmarshaller.getInstance())
+                        .unmarshall(context));
+            } else if (name.equals("BS")) {
+                value.setBS(new ListUnmarshaller<ByteBuffer>(
+                        ByteBufferJsonUnmarshaller.getInstance()).unmarshall(context));
+            } else if (name.equals("M")) {
+                value.setM(new MapUnmarshaller<AttributeValue>(ATTRIBUTE_VALUE)
+                        .unmarshall(context));
+            } else if (name.equals("L")) {
+                value.setL(new ListUnmarshaller<AttributeValue>(ATTRIBUTE_VALUE)
+                        .unmarshall(context));
+            } else if (name.equals("NULL")) {
+                value.setNULL(BooleanJsonUnmarshaller.getInstance().unmarshall(context));
+            } else if (name.equals("BOOL")) {
+                value.setBOOL(BooleanJsonUnmarshaller.getInstance().unmarshall(context));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static ConsumedCapacity readConsumedCapacity(JsonUnmarshallerContext context)
+            throws Exception {
+        AwsJsonReader reader = context.getReader();
+        if (!reader.isContainer()) {
+            reader.skipValue();
+            return null;
+        }
+        ConsumedCapacity consumedCapacity = new ConsumedCapacity();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("TableName")) {
+                consumedCapacity.setTableName(StringJsonUnmarshaller.getInstance()
+                        .unmarshall(context));
+            } else if (name.equals("CapacityUnits")) {
+                consumedCapacity.setCapacityUnits(DoubleJsonUnmarshaller.getInstance()
+                        .unmarshall(context));
+            } else if (name.equals("Table")) {
+                consumedCapacity.setTable(CAPACITY.unmarshall(context));
+            } else if (name.equals("LocalSecondaryIndexes")) {
+                consumedCapacity.setLocalSecondaryIndexes(new MapUnmarshaller<Capacity>(CAPACITY)
+                        .unmarshall(context));
+            } else if (name.equals("GlobalSecondaryIndexes")) {
+                consumedCapacity.setGlobalSecondaryIndexes(new MapUnmarshaller<Capacity>(CAPACITY)
+                        .unmarshall(context));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return consumedCapacity;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.JsonErrorResponseHandler;
+import com.amazonaws.http.JsonResponseHandler;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.ItemPageJsonUnmarshaller.Page;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.transform.QueryRequestMarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.ScanRequestMarshaller;
+import com.amazonaws.transform.JsonErrorUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Marshaller;
+import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.AWSRequestMetrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Runs queries and scans on a standard DynamoDB client with a response
+ * unmarshaller of the mapper's own, which reads each returned item straight
+ * into an object instead of into an attribute value map.
+ * <p>
+ * The client can't be handed another response unmarshaller, so this reaches
+ * its HTTP client, endpoint, credentials and error unmarshallers through
+ * reflection and sends the request the way the client's own operations do.
+ * A request is only sent this way while the client has no request handlers
+ * and collects no request metrics for it, as those would see a result
+ * without items. Otherwise, or if the client's fields can't be found, for
+ * example because they were renamed by ProGuard, the caller is told to go
+ * through the client.
+ */
+final class ItemStreamingClient {
+
+    private static final Log log = LogFactory.getLog(ItemStreamingClient.class);
+
+    private static final Field HTTP_CLIENT = field(AmazonWebServiceClient.class, "client");
+    private static final Field ENDPOINT = field(AmazonWebServiceClient.class, "endpoint");
+    private static final Field CREDENTIALS_PROVIDER =
+            field(AmazonDynamoDBClient.class, "awsCredentialsProvider");
+    private static final Field ERROR_UNMARSHALLERS =
+            field(AmazonDynamoDBClient.class, "jsonErrorUnmarshallers");
+    private static final Method CREATE_EXECUTION_CONTEXT = method(AmazonWebServiceClient.class,
+            "createExecutionContext", AmazonWebServiceRequest.class);
+
+    private final AmazonDynamoDBClient client;
+
+    private ItemStreamingClient(AmazonDynamoDBClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns a streaming client for the given client, or null if it isn't
+     * one of the standard client classes, whose operations can't have been
+     * overridden, or if its internals can't be reached.
+     */
+    static ItemStreamingClient forClient(AmazonDynamoDB dynamo) {
+        if (dynamo.getClass() != AmazonDynamoDBClient.class
+                && dynamo.getClass() != AmazonDynamoDBAsyncClient.class) {
+            return null;
+        }
+        if (HTTP_CLIENT == null || ENDPOINT == null || CREDENTIALS_PROVIDER == null
+                || ERROR_UNMARSHALLERS == null || CREATE_EXECUTION_CONTEXT == null) {
+            return null;
+        }
+        return new ItemStreamingClient((AmazonDynamoDBClient) dynamo);
+    }
+
+    /**
+     * Runs the query and adds the objects read from the items it returns to
+     * the given list. Returns the result of the query, whose items are null,
+     * or null without running the query if it has to go through the client.
+     */
+    <T> QueryResult query(QueryRequest queryRequest,
+            Unmarshaller<T, JsonUnmarshallerContext> itemUnmarshaller, List<? super T> items) {
+        Page<T> page = execute(queryRequest, new QueryRequestMarshaller(), itemUnmarshaller);
+        if (page == null) {
+            return null;
+        }
+        if (page.items != null) {
+            items.addAll(page.items);
+        }
+        return new QueryResult()
+                .withCount(page.count)
+                .withScannedCount(page.scannedCount)
+                .withLastEvaluatedKey(page.lastEvaluatedKey)
+                .withConsumedCapacity(page.consumedCapacity);
+    }
+
+    /**
+     * Runs the scan and adds the objects read from the items it returns to
+     * the given list. Returns the result of the scan, whose items are null,
+     * or null without running the scan if it has to go through the client.
+     */
+    <T> ScanResult scan(ScanRequest scanRequest,
+            Unmarshaller<T, JsonUnmarshallerContext> itemUnmarshaller, List<? super T> items) {
+        Page<T> page = execute(scanRequest, new ScanRequestMarshaller(), itemUnmarshaller);
+        if (page == null) {
+            return null;
+        }
+        if (page.items != null) {
+            items.addAll(page.items);
+        }
+        return new ScanResult()
+                .withCount(page.count)
+                .withScannedCount(page.scannedCount)
+                .withLastEvaluatedKey(page.lastEvaluatedKey)
+                .withConsumedCapacity(page.consumedCapacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, R extends AmazonWebServiceRequest> Page<T> execute(R originalRequest,
+            Marshaller<Request<R>, R> marshaller,
+            Unmarshaller<T, JsonUnmarshallerContext> itemUnmarshaller) {
+        ExecutionContext executionContext;
+        try {
+            executionContext = (ExecutionContext) CREATE_EXECUTION_CONTEXT.invoke(client,
+                    originalRequest);
+        } catch (Exception e) {
+            log.debug("Unable to create an execution context, going through the client", e);
+            return null;
+        }
+        List<RequestHandler2> requestHandler2s = executionContext.getRequestHandler2s();
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        if ((requestHandler2s != null && !requestHandler2s.isEmpty())
+                || awsRequestMetrics.isEnabled()) {
+            return null;
+        }
+
+        Request<R> request;
+        try {
+            request = marshaller.marshall(originalRequest);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to marshall request to JSON: "
+                    + e.getMessage(), e);
+        }
+        request.setAWSRequestMetrics(awsRequestMetrics);
+
+        AmazonHttpClient httpClient;
+        JsonErrorResponseHandler errorResponseHandler;
+        try {
+            request.setEndpoint((URI) ENDPOINT.get(client));
+            request.setTimeOffset(client.getTimeOffset());
+
+            AWSCredentials credentials = originalRequest.getRequestCredentials();
+            if (credentials == null) {
+                credentials = ((AWSCredentialsProvider) CREDENTIALS_PROVIDER.get(client))
+                        .getCredentials();
+            }
+            executionContext.setCredentials(credentials);
+
+            httpClient = (AmazonHttpClient) HTTP_CLIENT.get(client);
+            errorResponseHandler = new JsonErrorResponseHandler(
+                    (List<JsonErrorUnmarshaller>) ERROR_UNMARSHALLERS.get(client));
+        } catch (IllegalAccessException e) {
+            throw new AmazonClientException("Unable to read the DynamoDB client", e);
+        }
+
+        JsonResponseHandler<Page<T>> responseHandler = new JsonResponseHandler<Page<T>>(
+                new ItemPageJsonUnmarshaller<T>(itemUnmarshaller));
+        return httpClient.execute(request, responseHandler, errorResponseHandler,
+                executionContext).getAwsResponse();
+    }
+
+    private static Field field(Class<?> clazz, String name) {
+        try {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            log.debug("Unable to reach " + clazz.getName() + "." + name
+                    + ", query and scan items will go through attribute value maps", e);
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = clazz.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            log.debug("Unable to reach " + clazz.getName() + "." + name
+                    + ", query and scan items will go through attribute value maps", e);
+            return null;
+        }
+    }
+}
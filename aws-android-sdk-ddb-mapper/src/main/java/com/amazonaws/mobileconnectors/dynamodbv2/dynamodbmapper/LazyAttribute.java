@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.text.ParseException;
+
+/**
+ * A model property whose value is only converted from its DynamoDB attribute
+ * the first time {@link #get()} is called. Declare an expensive property, such
+ * as one with a {@link DynamoDBMarshalling} marshaller or a
+ * {@link DynamoDBDocument} type, as {@code LazyAttribute<T>} instead of
+ * {@code T} and the mapper keeps the attribute value as loaded; objects that
+ * are only listed never pay for converting it. Annotations on the property
+ * apply to the wrapped value.
+ * <p>
+ * Saving an object whose lazy attribute was never read writes the loaded
+ * attribute value back unchanged.
+ *
+ * @param <T> the type of the wrapped value
+ */
+public final class LazyAttribute<T> {
+
+    private ArgumentUnmarshaller unmarshaller;
+    private AttributeValue source;
+    private T value;
+
+    /**
+     * Constructs a lazy attribute that already holds the value given, for
+     * objects created by the application rather than loaded by the mapper.
+     */
+    public LazyAttribute(T value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns a lazy attribute that already holds the value given.
+     */
+    public static <T> LazyAttribute<T> of(T value) {
+        return new LazyAttribute<T>(value);
+    }
+
+    LazyAttribute(ArgumentUnmarshaller unmarshaller, AttributeValue source) {
+        this.unmarshaller = unmarshaller;
+        this.source = source;
+    }
+
+    /**
+     * Returns the value, converting it from the loaded attribute value on the
+     * first call.
+     *
+     * @throws DynamoDBMappingException if the attribute value can't be
+     *             converted
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get() {
+        if (unmarshaller != null) {
+            try {
+                value = (T) unmarshaller.unmarshall(source);
+            } catch (IllegalArgumentException e) {
+                throw new DynamoDBMappingException(
+                        "Couldn't unmarshall value " + source, e);
+            } catch (ParseException e) {
+                throw new DynamoDBMappingException(
+                        "Error attempting to parse date string " + source, e);
+            }
+            unmarshaller = null;
+            source = null;
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether the value has been converted, or was never loaded from
+     * DynamoDB in the first place.
+     */
+    public synchronized boolean isMaterialized() {
+        return unmarshaller == null;
+    }
+
+    /**
+     * Returns the attribute value as loaded, or null once the value has been
+     * converted.
+     */
+    synchronized AttributeValue getUnconvertedValue() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return isMaterialized() ? String.valueOf(get()) : "LazyAttribute(" + source + ")";
+    }
+}
@@ -15,6 +15,7 @@
 
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.PaginationLoadingStrategy;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 
@@ -26,6 +27,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unmodifiable list supporting paginated result sets from Amazon DynamoDB.
@@ -74,6 +82,18 @@ public abstract class PaginatedList<T> implements List<T> {
     /** The pagination loading strategy for this paginated list **/
     private final PaginationLoadingStrategy paginationLoadingStrategy;
 
+    /**
+     * The number of pages fetched ahead of the iteration in
+     * ITERATION_ONLY_PREFETCH mode.
+     */
+    private final int prefetchDepth;
+
+    /**
+     * Fetches the next pages in the background. Only created once the
+     * iteration starts in ITERATION_ONLY_PREFETCH mode.
+     */
+    private PagePrefetcher prefetcher;
+
     /**
      * Keeps track on whether an iterator of the list has been retrieved. Only
      * updated and checked when the list is in ITERATION_ONLY mode.
@@ -103,11 +123,32 @@ public abstract class PaginatedList<T> implements List<T> {
      */
     public PaginatedList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDB dynamo,
             PaginationLoadingStrategy paginationLoadingStrategy) {
+        this(mapper, clazz, dynamo, paginationLoadingStrategy, null);
+    }
+
+    /**
+     * Constructs a PaginatedList instance.
+     *
+     * @param mapper The mapper for marshalling DynamoDB attributes into
+     *            objects.
+     * @param clazz The class of the annotated model.
+     * @param dynamo The DynamoDB client for making low-level request calls.
+     * @param paginationLoadingStrategy The strategy used for loading paginated
+     *            results. If null value is provided, LAZY_LOADING will be set
+     *            by default.
+     * @param config The configuration the list was created with, used for
+     *            {@link DynamoDBMapperConfig#getPaginationPrefetchDepth()}; or
+     *            null to prefetch one page.
+     */
+    public PaginatedList(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDB dynamo,
+            PaginationLoadingStrategy paginationLoadingStrategy, DynamoDBMapperConfig config) {
         this.mapper = mapper;
         this.clazz = clazz;
         this.dynamo = dynamo;
         this.paginationLoadingStrategy = paginationLoadingStrategy == null ?
                 PaginationLoadingStrategy.LAZY_LOADING : paginationLoadingStrategy;
+        this.prefetchDepth = (config == null || config.getPaginationPrefetchDepth() == null)
+                ? 1 : config.getPaginationPrefetchDepth();
 
         this.allResults = new ArrayList<T>();
 
@@ -154,7 +195,14 @@ public abstract class PaginatedList<T> implements List<T> {
      * nextResults buffer. Returns whether there were any results to load. A
      * return value of true guarantees that nextResults had items added to it.
      */
-    private synchronized boolean loadNextResults() {
+    private boolean loadNextResults() {
+        if (prefetcher != null) {
+            return prefetcher.loadNextResults();
+        }
+        return fetchNextResults();
+    }
+
+    private synchronized boolean fetchNextResults() {
         if (atEndOfResults())
             return false;
 
@@ -202,8 +250,12 @@ public abstract class PaginatedList<T> implements List<T> {
      */
     @Override
     public Iterator<T> iterator() {
-        return new PaginatedListIterator(
-                paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY);
+        return new PaginatedListIterator(isIterationOnly());
+    }
+
+    private boolean isIterationOnly() {
+        return paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY
+                || paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY_PREFETCH;
     }
 
     private class PaginatedListIterator implements Iterator<T> {
@@ -236,6 +288,11 @@ public abstract class PaginatedList<T> implements List<T> {
                     iterationStarted = true;
                 }
 
+                if (paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY_PREFETCH) {
+                    prefetcher = new PagePrefetcher();
+                    prefetcher.prefetch();
+                }
+
                 allResultsCopy = null; // not needed for ITERATION_ONLY mode
                 innerIterator = allResults.iterator();
             }
@@ -505,9 +562,115 @@ public abstract class PaginatedList<T> implements List<T> {
     }
 
     void checkUnsupportedOperationForIterationOnlyMode(String methodSignature) {
-        if (this.paginationLoadingStrategy == PaginationLoadingStrategy.ITERATION_ONLY) {
+        if (isIterationOnly()) {
             throw new UnsupportedOperationException(methodSignature
                     + ITERATION_ONLY_UNSUPPORTED_OPERATION_MESSAGE);
         }
     };
+
+    /**
+     * A page fetched in the background, and whether it was the last one.
+     */
+    private final class Page {
+        private final List<T> results;
+        private final boolean last;
+
+        Page(List<T> results, boolean last) {
+            this.results = results;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Keeps up to prefetchDepth pages being fetched, one after the other, on
+     * a background thread. The thread goes away once idle, so a list that is
+     * not iterated to the end does not hold on to it, and is a daemon thread,
+     * so it does not keep the JVM alive until then.
+     */
+    private final class PagePrefetcher {
+        private final ThreadPoolExecutor executor;
+        private final LinkedList<Future<Page>> pages = new LinkedList<Future<Page>>();
+        private boolean lastPageLoaded;
+        private volatile RuntimeException failure;
+
+        PagePrefetcher() {
+            executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "dynamodb-mapper-page-prefetcher");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Requests pages until prefetchDepth of them are pending.
+         */
+        void prefetch() {
+            while (!lastPageLoaded && pages.size() < prefetchDepth) {
+                pages.addLast(executor.submit(new Callable<Page>() {
+                    @Override
+                    public Page call() {
+                        // Runs after the previous page has been fetched, so
+                        // atEndOfResults() already accounts for it.
+                        if (failure != null || atEndOfResults()) {
+                            return new Page(Collections.<T> emptyList(), true);
+                        }
+                        List<T> results;
+                        try {
+                            results = fetchNextPage();
+                        } catch (RuntimeException e) {
+                            // Keep the pages queued behind this one from
+                            // retrying the same request.
+                            failure = e;
+                            throw e;
+                        }
+                        return new Page(results, atEndOfResults());
+                    }
+                }));
+            }
+        }
+
+        /**
+         * Moves the next non-empty prefetched page into the nextResults
+         * buffer, waiting for it if necessary. Returns whether there was
+         * one.
+         */
+        boolean loadNextResults() {
+            if (failure != null) {
+                throw failure;
+            }
+            while (nextResults.isEmpty() && !lastPageLoaded) {
+                Page page = await(pages.removeFirst());
+                nextResults.addAll(page.results);
+                if (page.last) {
+                    lastPageLoaded = true;
+                    pages.clear();
+                    executor.shutdown();
+                } else {
+                    prefetch();
+                }
+            }
+            return !nextResults.isEmpty();
+        }
+
+        private Page await(Future<Page> page) {
+            try {
+                return page.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while fetching the next page", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failure = (cause instanceof RuntimeException) ? (RuntimeException) cause
+                        : new AmazonClientException(cause.getMessage(), cause);
+                pages.clear();
+                executor.shutdown();
+                throw failure;
+            }
+        }
+    }
 }
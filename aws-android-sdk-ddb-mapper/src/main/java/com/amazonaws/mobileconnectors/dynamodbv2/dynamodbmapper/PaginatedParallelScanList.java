@@ -53,7 +53,7 @@ public class PaginatedParallelScanList<T> extends PaginatedList<T> {
             ParallelScanTask parallelScanTask,
             PaginationLoadingStrategy paginationLoadingStrategy,
             DynamoDBMapperConfig config) {
-        super(mapper, clazz, dynamo, paginationLoadingStrategy);
+        super(mapper, clazz, dynamo, paginationLoadingStrategy, config);
 
         this.parallelScanTask = parallelScanTask;
         this.config = config;
@@ -83,11 +83,11 @@ public class PaginatedParallelScanList<T> extends PaginatedList<T> {
         for (ScanResult scanResult : scanResults) {
             if (null != scanResult) {
                 allItems.addAll(mapper.marshallIntoObjects(
-                        mapper.toParameters(
-                                scanResult.getItems(),
-                                clazz,
-                                parallelScanTask.getTableName(),
-                                config)));
+                        scanResult.getItems(),
+                        clazz,
+                        parallelScanTask.getTableName(),
+                        parallelScanTask.getProjectionExpression(),
+                        config));
             }
         }
         return allItems;
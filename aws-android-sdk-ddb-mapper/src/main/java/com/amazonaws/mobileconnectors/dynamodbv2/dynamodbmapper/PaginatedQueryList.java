@@ -20,6 +20,7 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -54,18 +55,36 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
             QueryResult queryResult,
             PaginationLoadingStrategy paginationLoadingStrategy,
             DynamoDBMapperConfig config) {
-        super(mapper, clazz, dynamo, paginationLoadingStrategy);
+        this(mapper, clazz, dynamo, queryRequest, queryResult,
+                mapper.marshallIntoObjects(
+                        queryResult.getItems(),
+                        clazz,
+                        queryRequest.getTableName(),
+                        queryRequest.getProjectionExpression(),
+                        config),
+                paginationLoadingStrategy, config);
+    }
+
+    /**
+     * Constructs a list whose first page of results has already been turned
+     * into objects.
+     */
+    PaginatedQueryList(
+            DynamoDBMapper mapper,
+            Class<T> clazz,
+            AmazonDynamoDB dynamo,
+            QueryRequest queryRequest,
+            QueryResult queryResult,
+            List<T> firstPageResults,
+            PaginationLoadingStrategy paginationLoadingStrategy,
+            DynamoDBMapperConfig config) {
+        super(mapper, clazz, dynamo, paginationLoadingStrategy, config);
 
         this.queryRequest = queryRequest;
         this.queryResult = queryResult;
         this.config = config;
 
-        allResults.addAll(mapper.marshallIntoObjects(
-                mapper.toParameters(
-                        queryResult.getItems(),
-                        clazz,
-                        queryRequest.getTableName(),
-                        config)));
+        allResults.addAll(firstPageResults);
 
         // If the results should be eagerly loaded at once
         if (paginationLoadingStrategy == PaginationLoadingStrategy.EAGER_LOADING) {
@@ -81,11 +100,8 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
     @Override
     protected synchronized List<T> fetchNextPage() {
         queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
-        queryResult = dynamo.query(DynamoDBMapper.applyUserAgent(queryRequest));
-        return mapper.marshallIntoObjects(mapper.toParameters(
-                queryResult.getItems(),
-                clazz,
-                queryRequest.getTableName(),
-                config));
+        List<T> results = new ArrayList<T>();
+        queryResult = mapper.queryItems(dynamo, queryRequest, clazz, config, results);
+        return results;
     }
 }
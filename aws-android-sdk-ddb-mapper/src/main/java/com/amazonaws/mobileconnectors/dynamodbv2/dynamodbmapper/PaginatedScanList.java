@@ -20,6 +20,7 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -54,18 +55,36 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
             ScanResult scanResult,
             PaginationLoadingStrategy paginationLoadingStrategy,
             DynamoDBMapperConfig config) {
-        super(mapper, clazz, dynamo, paginationLoadingStrategy);
+        this(mapper, clazz, dynamo, scanRequest, scanResult,
+                mapper.marshallIntoObjects(
+                        scanResult.getItems(),
+                        clazz,
+                        scanRequest.getTableName(),
+                        scanRequest.getProjectionExpression(),
+                        config),
+                paginationLoadingStrategy, config);
+    }
+
+    /**
+     * Constructs a list whose first page of results has already been turned
+     * into objects.
+     */
+    PaginatedScanList(
+            DynamoDBMapper mapper,
+            Class<T> clazz,
+            AmazonDynamoDB dynamo,
+            ScanRequest scanRequest,
+            ScanResult scanResult,
+            List<T> firstPageResults,
+            PaginationLoadingStrategy paginationLoadingStrategy,
+            DynamoDBMapperConfig config) {
+        super(mapper, clazz, dynamo, paginationLoadingStrategy, config);
 
         this.scanRequest = scanRequest;
         this.scanResult = scanResult;
         this.config = config;
 
-        allResults.addAll(mapper.marshallIntoObjects(
-                mapper.toParameters(
-                        scanResult.getItems(),
-                        clazz,
-                        scanRequest.getTableName(),
-                        config)));
+        allResults.addAll(firstPageResults);
 
         // If the results should be eagerly loaded at once
         if (paginationLoadingStrategy == PaginationLoadingStrategy.EAGER_LOADING) {
@@ -81,11 +100,8 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
     @Override
     protected synchronized List<T> fetchNextPage() {
         scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
-        scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(scanRequest));
-        return mapper.marshallIntoObjects(mapper.toParameters(
-                scanResult.getItems(),
-                clazz,
-                scanRequest.getTableName(),
-                config));
+        List<T> results = new ArrayList<T>();
+        scanResult = mapper.scanItems(dynamo, scanRequest, clazz, config, results);
+        return results;
     }
 }
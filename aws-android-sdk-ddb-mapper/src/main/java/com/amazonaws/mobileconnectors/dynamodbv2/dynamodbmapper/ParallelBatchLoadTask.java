@@ -0,0 +1,230 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.BatchLoadHandler;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.ConsistentReads;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the items of a batch load with up to a given number of BatchGetItem
+ * calls of at most 100 keys in flight at the same time, handing the loaded
+ * objects to a {@link BatchLoadHandler} as they arrive.
+ * <p>
+ * Key objects are read from the source only when a worker needs more keys,
+ * so neither the keys nor the loaded objects of the whole load are held in
+ * memory at once. The keys DynamoDB leaves unprocessed are sent again in the
+ * next call of the same worker, topped up with new keys; the worker backs off
+ * while it keeps getting unprocessed keys back.
+ */
+class ParallelBatchLoadTask {
+
+    private final DynamoDBMapper mapper;
+    private final DynamoDBMapperConfig config;
+    private final ItemConverter converter;
+    private final BatchLoadHandler handler;
+    private final boolean consistentReads;
+
+    private final Iterator<?> keyObjects;
+    private final int workers;
+    private final ConcurrentMap<String, Class<?>> classesByTableName =
+            new ConcurrentHashMap<String, Class<?>>();
+    private volatile boolean aborted;
+
+    ParallelBatchLoadTask(DynamoDBMapper mapper,
+            Iterable<?> keyObjects,
+            DynamoDBMapperConfig config,
+            ItemConverter converter,
+            int maxConcurrentBatches,
+            BatchLoadHandler handler) {
+        this.mapper = mapper;
+        this.config = config;
+        this.converter = converter;
+        this.handler = handler;
+        this.consistentReads = config.getConsistentReads() == ConsistentReads.CONSISTENT;
+        this.keyObjects = keyObjects.iterator();
+
+        int workers = maxConcurrentBatches;
+        if (keyObjects instanceof Collection) {
+            int keys = ((Collection<?>) keyObjects).size();
+            workers = Math.min(workers, (keys + DynamoDBMapper.MAX_KEYS_PER_BATCH_GET - 1)
+                    / DynamoDBMapper.MAX_KEYS_PER_BATCH_GET);
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Loads all the items, returning once every one of them has been handed
+     * to the handler.
+     */
+    void execute() {
+        if (workers <= 1) {
+            loadBatches();
+            return;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        loadBatches();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmazonClientException("Batch load interrupted", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new AmazonClientException(cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            aborted = true;
+            executorService.shutdownNow();
+        }
+    }
+
+    private void loadBatches() {
+        Map<String, KeysAndAttributes> unprocessed = null;
+        int retries = 0;
+
+        Map<String, KeysAndAttributes> batch;
+        while (!(batch = nextBatch(unprocessed)).isEmpty()) {
+            BatchGetItemResult result = mapper.loadOneBatch(batch, config);
+            int loaded = deliver(result.getResponses());
+
+            unprocessed = result.getUnprocessedKeys();
+            if (unprocessed == null || unprocessed.isEmpty()) {
+                retries = 0;
+                continue;
+            }
+
+            retries++;
+            if (loaded == 0 && retries > DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
+                throw new AmazonClientException(
+                        "Batch Get Item request to server hasn't received any data. "
+                                + "Please try again later.");
+            }
+            mapper.pauseExponentially(retries);
+        }
+    }
+
+    /**
+     * Returns the keys of the next BatchGetItem call: the given unprocessed
+     * keys plus as many new keys as fit, or an empty map when there is
+     * nothing left to load.
+     */
+    private Map<String, KeysAndAttributes> nextBatch(
+            Map<String, KeysAndAttributes> unprocessed) {
+        Map<String, KeysAndAttributes> batch = new HashMap<String, KeysAndAttributes>();
+        if (aborted) {
+            return batch;
+        }
+
+        int count = 0;
+        if (unprocessed != null) {
+            for (Map.Entry<String, KeysAndAttributes> entry : unprocessed.entrySet()) {
+                KeysAndAttributes keys = entry.getValue();
+                keys.setKeys(new ArrayList<Map<String, AttributeValue>>(keys.getKeys()));
+                count += keys.getKeys().size();
+                batch.put(entry.getKey(), keys);
+            }
+        }
+
+        synchronized (keyObjects) {
+            while (count < DynamoDBMapper.MAX_KEYS_PER_BATCH_GET && keyObjects.hasNext()) {
+                Object keyObject = keyObjects.next();
+                Class<?> clazz = keyObject.getClass();
+                String tableName = mapper.getTableName(clazz, keyObject, config);
+                classesByTableName.put(tableName, clazz);
+
+                KeysAndAttributes keys = batch.get(tableName);
+                if (keys == null) {
+                    keys = new KeysAndAttributes()
+                            .withConsistentRead(consistentReads)
+                            .withKeys(new ArrayList<Map<String, AttributeValue>>());
+                    batch.put(tableName, keys);
+                }
+                keys.getKeys().add(mapper.getKey(converter, keyObject));
+                count++;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Converts the loaded items and hands them to the handler, returning how
+     * many there were.
+     */
+    private int deliver(Map<String, List<Map<String, AttributeValue>>> responses) {
+        if (responses == null || responses.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<Object>> objectsByTableName = new HashMap<String, List<Object>>();
+        int loaded = 0;
+        for (Map.Entry<String, List<Map<String, AttributeValue>>> response
+                : responses.entrySet()) {
+            String tableName = response.getKey();
+            Class<?> clazz = classesByTableName.get(tableName);
+            List<Object> objects = new ArrayList<Object>(response.getValue().size());
+            for (Map<String, AttributeValue> item : response.getValue()) {
+                objects.add(mapper.unmarshallBatchItem(converter, item, clazz, tableName,
+                        config));
+            }
+            objectsByTableName.put(tableName, objects);
+            loaded += objects.size();
+        }
+
+        handOver(objectsByTableName);
+        return loaded;
+    }
+
+    private synchronized void handOver(Map<String, List<Object>> objectsByTableName) {
+        for (Map.Entry<String, List<Object>> entry : objectsByTableName.entrySet()) {
+            for (Object object : entry.getValue()) {
+                handler.itemLoaded(entry.getKey(), object);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.FailedBatch;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteProgressListener;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteRetryStrategy;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the items of a batch write in batches of at most 25 items, with up to
+ * a given number of BatchWriteItem calls in flight.
+ * <p>
+ * With a single call in flight, a batch takes the items of as many tables as
+ * fit, just as batchWrite always did. With more, each batch holds the items of
+ * one table, so that a throttled table holds back only its own batches.
+ * <p>
+ * Each batch is written by {@link DynamoDBMapper#writeOneBatch(Map,
+ * BatchWriteRetryStrategy, CapacityRateLimiter)}, which retries unprocessed items. When a batch
+ * fails because a table is throttled, no more batches are sent to that table
+ * until the retry strategy's delay has passed; batches of other tables go on
+ * meanwhile.
+ */
+class ParallelBatchWriteTask {
+
+    private final DynamoDBMapper mapper;
+    private final int maxConcurrentBatches;
+    private final BatchWriteRetryStrategy retryStrategy;
+    private final BatchWriteProgressListener progressListener;
+    private final CapacityRateLimiter capacityRateLimiter;
+
+    private final Queue<Map<String, List<WriteRequest>>> batches =
+            new ConcurrentLinkedQueue<Map<String, List<WriteRequest>>>();
+    private final List<FailedBatch> failedBatches =
+            Collections.synchronizedList(new LinkedList<FailedBatch>());
+    private final Map<String, TableBackoff> backoffs = new HashMap<String, TableBackoff>();
+    private final int totalItems;
+    private int itemsWritten;
+    private int itemsFailed;
+
+    ParallelBatchWriteTask(DynamoDBMapper mapper,
+            Map<String, List<WriteRequest>> requestItems,
+            int maxConcurrentBatches,
+            BatchWriteRetryStrategy retryStrategy,
+            BatchWriteProgressListener progressListener) {
+        this(mapper, requestItems, maxConcurrentBatches, retryStrategy, progressListener, null);
+    }
+
+    /**
+     * @param capacityRateLimiter the limiter every BatchWriteItem call waits
+     *            for, or null
+     */
+    ParallelBatchWriteTask(DynamoDBMapper mapper,
+            Map<String, List<WriteRequest>> requestItems,
+            int maxConcurrentBatches,
+            BatchWriteRetryStrategy retryStrategy,
+            BatchWriteProgressListener progressListener,
+            CapacityRateLimiter capacityRateLimiter) {
+        this.mapper = mapper;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.retryStrategy = retryStrategy;
+        this.progressListener = progressListener;
+        this.capacityRateLimiter = capacityRateLimiter;
+
+        boolean packTables = maxConcurrentBatches <= 1;
+        int items = 0;
+        Map<String, List<WriteRequest>> batch = new HashMap<String, List<WriteRequest>>();
+        int batchSize = 0;
+        for (Map.Entry<String, List<WriteRequest>> table : requestItems.entrySet()) {
+            List<WriteRequest> requests = new ArrayList<WriteRequest>(table.getValue());
+            items += requests.size();
+            backoffs.put(table.getKey(), new TableBackoff());
+            if (!packTables && batchSize > 0) {
+                batches.add(batch);
+                batch = new HashMap<String, List<WriteRequest>>();
+                batchSize = 0;
+            }
+            int from = 0;
+            while (from < requests.size()) {
+                int to = Math.min(requests.size(),
+                        from + DynamoDBMapper.MAX_ITEMS_PER_BATCH - batchSize);
+                batch.put(table.getKey(), requests.subList(from, to));
+                batchSize += to - from;
+                from = to;
+                if (batchSize == DynamoDBMapper.MAX_ITEMS_PER_BATCH) {
+                    batches.add(batch);
+                    batch = new HashMap<String, List<WriteRequest>>();
+                    batchSize = 0;
+                }
+            }
+        }
+        if (batchSize > 0) {
+            batches.add(batch);
+        }
+        this.totalItems = items;
+    }
+
+    /**
+     * Writes all the batches and returns the ones that failed.
+     */
+    List<FailedBatch> execute() {
+        int workers = Math.min(maxConcurrentBatches, batches.size());
+        if (workers <= 1) {
+            writeBatches();
+            return failedBatches;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        writeBatches();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmazonClientException("Batch write interrupted", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new AmazonClientException(cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return failedBatches;
+    }
+
+    private void writeBatches() {
+        Map<String, List<WriteRequest>> batch;
+        while ((batch = batches.poll()) != null) {
+            for (String tableName : batch.keySet()) {
+                backoffs.get(tableName).await();
+            }
+
+            List<FailedBatch> failed = mapper.writeOneBatch(batch, retryStrategy,
+                    capacityRateLimiter);
+            int failedItems = 0;
+            Set<String> throttledTables = new HashSet<String>();
+            for (FailedBatch failedBatch : failed) {
+                failedItems += sizeOf(failedBatch.getUnprocessedItems());
+                if (isThrottling(failedBatch.getException())) {
+                    throttledTables.addAll(failedBatch.getUnprocessedItems().keySet());
+                }
+            }
+            failedBatches.addAll(failed);
+            for (String tableName : batch.keySet()) {
+                if (throttledTables.contains(tableName)) {
+                    backoffs.get(tableName).throttled(batch);
+                } else {
+                    backoffs.get(tableName).succeeded();
+                }
+            }
+            reportProgress(sizeOf(batch) - failedItems, failedItems);
+        }
+    }
+
+    private synchronized void reportProgress(int written, int failed) {
+        itemsWritten += written;
+        itemsFailed += failed;
+        if (progressListener != null) {
+            progressListener.progressChanged(itemsWritten, itemsFailed, totalItems);
+        }
+    }
+
+    private static boolean isThrottling(Exception e) {
+        return e instanceof AmazonServiceException
+                && RetryUtils.isThrottlingException((AmazonServiceException) e);
+    }
+
+    private static int sizeOf(Map<String, List<WriteRequest>> items) {
+        int size = 0;
+        if (items != null) {
+            for (List<WriteRequest> requests : items.values()) {
+                size += requests.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * When the next batch of a table may be sent.
+     */
+    private final class TableBackoff {
+        private int throttledCount;
+        private long resumeTimeMillis;
+
+        void await() {
+            long delay;
+            synchronized (this) {
+                delay = resumeTimeMillis - System.currentTimeMillis();
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmazonClientException(e.getMessage(), e);
+                }
+            }
+        }
+
+        synchronized void throttled(Map<String, List<WriteRequest>> batch) {
+            long delay = retryStrategy.getDelayBeforeRetryUnprocessedItems(batch,
+                    throttledCount++);
+            resumeTimeMillis = Math.max(resumeTimeMillis, System.currentTimeMillis() + delay);
+        }
+
+        synchronized void succeeded() {
+            throttledCount = 0;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates over the results of a parallel scan as the segments deliver them,
+ * holding only a bounded number of pages in memory.
+ * <p>
+ * Each segment scans one page at a time. A segment starts on its next page
+ * only when there is room for that page in the buffer of pages not yet
+ * iterated over, so a slow consumer stops the scan instead of letting the
+ * pages pile up. Segments whose next page has to wait are resumed in turn as
+ * the consumer frees room. The order of the objects across segments is
+ * unspecified.
+ * <p>
+ * The segments are scanned on the executor of
+ * {@link DynamoDBMapperConfig#getParallelScanExecutor()}, or else on threads
+ * of this iterator that go away once idle. Callers that stop iterating
+ * before the end should {@link #close()} the iterator so that no more pages
+ * are scanned.
+ * <p>
+ * With a {@link CapacityRateLimiter}, a segment whose table or index has no
+ * read capacity left is put back on the executor once the capacity has been
+ * refilled, rather than holding on to a thread while it waits.
+ *
+ * @param <T> The type of objects returned.
+ * @see DynamoDBMapper#parallelScanIterator(Class, DynamoDBScanExpression, int,
+ *      int, DynamoDBMapperConfig)
+ */
+public class ParallelScanIterator<T> implements Iterator<T>, Closeable {
+
+    /**
+     * The number of pages buffered by default.
+     */
+    static final int DEFAULT_MAX_BUFFERED_PAGES = 4;
+
+    private final DynamoDBMapper mapper;
+    private final Class<T> clazz;
+    private final AmazonDynamoDB dynamo;
+    private final DynamoDBMapperConfig config;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
+    private final int maxBufferedPages;
+
+    /** Pages scanned but not yet iterated over. Guarded by this. */
+    private final LinkedList<List<T>> pages = new LinkedList<List<T>>();
+
+    /** Segments ready to scan their next page. Guarded by this. */
+    private final LinkedList<ScanRequest> waitingSegments = new LinkedList<ScanRequest>();
+
+    /**
+     * Segments scanning a page right now, or waiting for read capacity to do
+     * so. Guarded by this.
+     */
+    private int scanningSegments;
+
+    /** Segments not scanned to their end yet. Guarded by this. */
+    private int unfinishedSegments;
+
+    /** The first failure of a segment scan. Guarded by this. */
+    private RuntimeException failure;
+
+    /** Guarded by this. */
+    private boolean closed;
+
+    /** The page being iterated over; only used by the consumer. */
+    private Iterator<T> page = Collections.<T> emptyList().iterator();
+
+    ParallelScanIterator(DynamoDBMapper mapper,
+            Class<T> clazz,
+            AmazonDynamoDB dynamo,
+            List<ScanRequest> parallelScanRequests,
+            int maxBufferedPages,
+            DynamoDBMapperConfig config) {
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("maxBufferedPages must be at least 1");
+        }
+        this.mapper = mapper;
+        this.clazz = clazz;
+        this.dynamo = dynamo;
+        this.config = config;
+        this.maxBufferedPages = maxBufferedPages;
+
+        ExecutorService executorService = config.getParallelScanExecutor();
+        this.ownsExecutorService = executorService == null;
+        if (ownsExecutorService) {
+            int threads = Math.min(maxBufferedPages, parallelScanRequests.size());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            pool.allowCoreThreadTimeOut(true);
+            executorService = pool;
+        }
+        this.executorService = executorService;
+
+        synchronized (this) {
+            for (ScanRequest request : parallelScanRequests) {
+                request.setExclusiveStartKey(null);
+                waitingSegments.add(request);
+            }
+            unfinishedSegments = waitingSegments.size();
+            scanWaitingSegments();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page.hasNext()) {
+            return true;
+        }
+
+        synchronized (this) {
+            while (!page.hasNext()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (closed) {
+                    return false;
+                }
+                if (!pages.isEmpty()) {
+                    page = pages.removeFirst().iterator();
+                    scanWaitingSegments();
+                } else if (unfinishedSegments == 0) {
+                    shutdown();
+                    return false;
+                } else {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AmazonClientException(
+                                "Parallel scan interrupted by other thread.", e);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException(
+                "Parallel scan results cannot be removed.");
+    }
+
+    /**
+     * Stops the scan. Pages being scanned are dropped when they arrive, and
+     * {@link #hasNext()} returns false from now on.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pages.clear();
+        waitingSegments.clear();
+        page = Collections.<T> emptyList().iterator();
+        shutdown();
+        notifyAll();
+    }
+
+    /**
+     * Starts scanning the next page of as many waiting segments as there is
+     * room for in the buffer.
+     */
+    private void scanWaitingSegments() {
+        while (!closed && failure == null && !waitingSegments.isEmpty()
+                && pages.size() + scanningSegments < maxBufferedPages) {
+            final ScanRequest request = waitingSegments.removeFirst();
+            scanningSegments++;
+            try {
+                execute(request);
+            } catch (RuntimeException e) {
+                scanningSegments--;
+                failed(request, e);
+            }
+        }
+    }
+
+    private void execute(final ScanRequest request) {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                scanNextPage(request);
+            }
+        });
+    }
+
+    private void scanNextPage(ScanRequest request) {
+        List<T> items = null;
+        Map<String, AttributeValue> lastEvaluatedKey = null;
+        RuntimeException error = null;
+        try {
+            CapacityRateLimiter limiter = config.getCapacityRateLimiter();
+            if (limiter != null) {
+                long waitNanos = limiter.getReadWaitNanos(request.getTableName(),
+                        request.getIndexName());
+                if (waitNanos > 0) {
+                    scanLater(request, waitNanos);
+                    return;
+                }
+            }
+            items = new ArrayList<T>();
+            ScanResult scanResult = mapper.scanItems(dynamo, request, clazz, config, items,
+                    false);
+            lastEvaluatedKey = scanResult.getLastEvaluatedKey();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            scanningSegments--;
+            if (error != null) {
+                failed(request, error);
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            if (!items.isEmpty()) {
+                pages.addLast(items);
+            }
+            if (lastEvaluatedKey == null) {
+                unfinishedSegments--;
+            } else {
+                request.setExclusiveStartKey(lastEvaluatedKey);
+                waitingSegments.addLast(request);
+            }
+            scanWaitingSegments();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Puts the segment back on the executor once the given time has passed,
+     * still counting it as scanning so that its page keeps its room in the
+     * buffer.
+     */
+    private void scanLater(final ScanRequest request, long delayNanos) {
+        Timer.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ParallelScanIterator.this) {
+                    if (closed || failure != null) {
+                        scanningSegments--;
+                        return;
+                    }
+                    try {
+                        execute(request);
+                    } catch (RuntimeException e) {
+                        scanningSegments--;
+                        failed(request, e);
+                    }
+                }
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void failed(ScanRequest request, RuntimeException e) {
+        if (failure == null && !closed) {
+            failure = (e instanceof AmazonClientException) ? e
+                    : new AmazonClientException("Error during the scan on segment #"
+                            + request.getSegment() + ".", e);
+            waitingSegments.clear();
+            shutdown();
+        }
+        notifyAll();
+    }
+
+    private void shutdown() {
+        if (ownsExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * The daemon thread that puts segments waiting for read capacity back on
+     * their executors.
+     */
+    private static final class Timer {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "dynamodb-mapper-parallel-scan-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+}
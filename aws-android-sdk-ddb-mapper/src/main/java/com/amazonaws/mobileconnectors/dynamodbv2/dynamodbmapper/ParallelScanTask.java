@@ -17,6 +17,7 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
@@ -56,10 +57,23 @@ public class ParallelScanTask {
      */
     private final List<SegmentScanState> segmentScanStates;
 
-    private ExecutorService executorService;
+    private final ExecutorService executorService;
+
+    /**
+     * Whether the executor was created by this task, and so is shut down by
+     * it once all the segments have been scanned.
+     */
+    private final boolean ownsExecutorService;
 
     private final AmazonDynamoDB dynamo;
 
+    /**
+     * The limiter every segment scan waits for, or null. The thread starting
+     * the scans of a batch waits, as it waits for the batch anyway, so that
+     * no executor thread is held by a segment waiting for capacity.
+     */
+    private final CapacityRateLimiter capacityRateLimiter;
+
     @Deprecated
     public ParallelScanTask(DynamoDBMapper mapper, AmazonDynamoDB dynamo,
             List<ScanRequest> parallelScanRequests) {
@@ -67,10 +81,33 @@ public class ParallelScanTask {
     }
 
     ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+        this(dynamo, parallelScanRequests, null);
+    }
+
+    /**
+     * @param executorService the executor to scan the segments on, which is
+     *            left running; or null to create one for this task
+     */
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            ExecutorService executorService) {
+        this(dynamo, parallelScanRequests, executorService, null);
+    }
+
+    /**
+     * @param executorService the executor to scan the segments on, which is
+     *            left running; or null to create one for this task
+     * @param capacityRateLimiter the limiter every segment scan waits for, or
+     *            null
+     */
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            ExecutorService executorService, CapacityRateLimiter capacityRateLimiter) {
         this.dynamo = dynamo;
+        this.capacityRateLimiter = capacityRateLimiter;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
-        executorService = Executors.newCachedThreadPool();
+        this.ownsExecutorService = executorService == null;
+        this.executorService = ownsExecutorService
+                ? Executors.newCachedThreadPool() : executorService;
 
         // Create synchronized views of the list to guarantee any changes are
         // visible across all threads.
@@ -87,6 +124,10 @@ public class ParallelScanTask {
         return parallelScanRequests.get(0).getTableName();
     }
 
+    String getProjectionExpression() {
+        return parallelScanRequests.get(0).getProjectionExpression();
+    }
+
     public boolean isAllSegmentScanFinished() {
         synchronized (segmentScanStates) {
             for (int segment = 0; segment < totalSegments; segment++) {
@@ -94,7 +135,9 @@ public class ParallelScanTask {
                     return false;
             }
             // Shut down if all data have been scanned and loaded.
-            executorService.shutdown();
+            if (ownsExecutorService) {
+                executorService.shutdown();
+            }
             return true;
         }
     }
@@ -152,6 +195,11 @@ public class ParallelScanTask {
              * segmentScanFutureTasks.
              */
             else {
+                if (capacityRateLimiter != null) {
+                    ScanRequest request = parallelScanRequests.get(currentSegment);
+                    capacityRateLimiter.acquireRead(request.getTableName(),
+                            request.getIndexName());
+                }
                 // Update the state to "Scanning" and notify any waiting thread.
                 synchronized (segmentScanStates) {
                     segmentScanStates.set(currentSegment, SegmentScanState.Scanning);
@@ -236,7 +284,14 @@ public class ParallelScanTask {
         } else {
             segmentScanRequest.setExclusiveStartKey(null);
         }
+        if (capacityRateLimiter != null) {
+            segmentScanRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
         ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
+        if (capacityRateLimiter != null) {
+            capacityRateLimiter.consumedRead(segmentScanRequest.getTableName(),
+                    segmentScanRequest.getIndexName(), scanResult.getConsumedCapacity());
+        }
 
         /**
          * Cache the scan result in segmentScanResults. We should never try to
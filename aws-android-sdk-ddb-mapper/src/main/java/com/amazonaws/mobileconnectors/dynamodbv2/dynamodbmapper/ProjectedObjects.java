@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The objects a mapper created from projected items, which lack the
+ * attributes that weren't projected. Objects are compared by identity, since
+ * model classes may define equals on their keys, and held weakly, so that
+ * they are forgotten once the application drops them.
+ */
+final class ProjectedObjects {
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    /** Guarded by this. */
+    private final Set<IdentityReference> objects = new HashSet<IdentityReference>();
+
+    synchronized void add(Object object) {
+        expungeCollected();
+        objects.add(new IdentityReference(object, queue));
+    }
+
+    synchronized boolean contains(Object object) {
+        expungeCollected();
+        return !objects.isEmpty() && objects.contains(new IdentityReference(object, null));
+    }
+
+    private void expungeCollected() {
+        Reference<?> collected;
+        while ((collected = queue.poll()) != null) {
+            objects.remove(collected);
+        }
+    }
+
+    /**
+     * A weak reference equal to the references to the same object; a cleared
+     * reference is only equal to itself.
+     */
+    private static final class IdentityReference extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityReference(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdentityReference)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityReference) other).get();
+        }
+    }
+}
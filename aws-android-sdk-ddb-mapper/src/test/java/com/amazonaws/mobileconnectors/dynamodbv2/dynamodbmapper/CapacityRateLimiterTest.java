@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.SaveBehavior;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CapacityRateLimiterTest {
+
+    private static final String TABLE = "rate-limiter-test";
+
+    private FakeTable table;
+    private CapacityRateLimiter limiter;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setUp() {
+        table = new FakeTable();
+        limiter = new CapacityRateLimiter(100, 100);
+        mapper = new DynamoDBMapper(table.client(), new DynamoDBMapperConfig.Builder()
+                .withCapacityRateLimiter(limiter)
+                .withSaveBehavior(SaveBehavior.CLOBBER)
+                .build());
+    }
+
+    @Test
+    public void testLoadIsChargedConsumedCapacity() {
+        table.unitsPerRequest = 40;
+        mapper.load(Item.class, "a");
+
+        assertEquals("TOTAL", table.returnConsumedCapacity);
+        assertEquals(60, limiter.getAvailableReadUnits(TABLE), 5);
+        assertEquals(100, limiter.getAvailableWriteUnits(TABLE), 0.001);
+    }
+
+    @Test
+    public void testScanIsChargedConsumedCapacity() {
+        table.unitsPerRequest = 30;
+        mapper.scanPage(Item.class, new DynamoDBScanExpression());
+
+        assertEquals("INDEXES", table.returnConsumedCapacity);
+        assertEquals(70, limiter.getAvailableReadUnits(TABLE), 5);
+    }
+
+    @Test
+    public void testBatchWriteIsChargedPerTable() {
+        table.unitsPerRequest = 25;
+        mapper.batchSave(Arrays.asList(new Item("a"), new Item("b")));
+
+        assertEquals("TOTAL", table.returnConsumedCapacity);
+        assertEquals(75, limiter.getAvailableWriteUnits(TABLE), 5);
+        assertEquals(100, limiter.getAvailableWriteUnits("other-table"), 0.001);
+    }
+
+    @Test
+    public void testWritesWaitForDebtToBePaid() {
+        limiter.setCapacity(TABLE, 100, 20);
+        table.unitsPerRequest = 10;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            mapper.save(new Item("a"));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        // Two puts use up the bucket and the third runs it 10 units into
+        // debt, which takes half a second to pay off
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 400);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 5000);
+        assertEquals(4, table.puts);
+    }
+
+    @Test
+    public void testGlobalIndexReadsAreChargedToIndex() {
+        Map<String, Capacity> indexes = new HashMap<String, Capacity>();
+        indexes.put("gsi", new Capacity().withCapacityUnits(130.0));
+        limiter.consumedRead(TABLE, "gsi", new ConsumedCapacity().withTableName(TABLE)
+                .withCapacityUnits(130.0).withGlobalSecondaryIndexes(indexes));
+
+        assertEquals(100, limiter.getAvailableReadUnits(TABLE), 0.001);
+        assertEquals(0, limiter.getReadWaitNanos(TABLE, null));
+        assertTrue(limiter.getReadWaitNanos(TABLE, "gsi") > 0);
+    }
+
+    @Test
+    public void testOtherIndexReadsAreChargedToTable() {
+        limiter.consumedRead(TABLE, "lsi", new ConsumedCapacity().withTableName(TABLE)
+                .withCapacityUnits(30.0));
+
+        assertEquals(70, limiter.getAvailableReadUnits(TABLE), 5);
+    }
+
+    @Test
+    public void testGlobalIndexCapacityIsSetApart() {
+        limiter.setCapacity(TABLE, "gsi", 10, 10);
+        limiter.consumedRead(TABLE, "gsi", new ConsumedCapacity().withTableName(TABLE)
+                .withCapacityUnits(20.0));
+
+        assertEquals(100, limiter.getAvailableReadUnits(TABLE), 0.001);
+        assertTrue(limiter.getReadWaitNanos(TABLE, "gsi") > 0);
+    }
+
+    @Test
+    public void testMissingConsumedCapacityIsChargedOneUnit() {
+        limiter.consumedWrite(TABLE, null);
+        limiter.consumedWrite(TABLE, new ConsumedCapacity().withTableName(TABLE));
+
+        assertEquals(98, limiter.getAvailableWriteUnits(TABLE), 0.5);
+    }
+
+    @Test
+    public void testRequestsDoNotAskForCapacityWithoutLimiter() {
+        table.mapper().load(Item.class, "a");
+
+        assertNull(table.returnConsumedCapacity);
+    }
+
+    @Test
+    public void testRejectsNonPositiveRates() {
+        try {
+            new CapacityRateLimiter(0, 10);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            limiter.setCapacity(TABLE, 10, Double.NaN);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @DynamoDBTable(tableName = TABLE)
+    public static class Item {
+        private String id;
+
+        public Item() {
+        }
+
+        Item(String id) {
+            this.id = id;
+        }
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Answers every request as if it had consumed the same number of capacity
+     * units, and remembers what capacity the last request asked for.
+     */
+    private static class FakeTable extends FakeDynamoDB {
+        volatile double unitsPerRequest = 1;
+        volatile String returnConsumedCapacity;
+        volatile int puts;
+
+        @Override
+        GetItemResult getItem(GetItemRequest request) {
+            returnConsumedCapacity = request.getReturnConsumedCapacity();
+            Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", request.getKey().get("id"));
+            return new GetItemResult().withItem(item).withConsumedCapacity(consumed());
+        }
+
+        @Override
+        PutItemResult putItem(PutItemRequest request) {
+            returnConsumedCapacity = request.getReturnConsumedCapacity();
+            puts++;
+            return new PutItemResult().withConsumedCapacity(consumed());
+        }
+
+        @Override
+        ScanResult scan(ScanRequest request) {
+            returnConsumedCapacity = request.getReturnConsumedCapacity();
+            return new ScanResult()
+                    .withItems(new ArrayList<Map<String, AttributeValue>>())
+                    .withConsumedCapacity(consumed());
+        }
+
+        @Override
+        BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            returnConsumedCapacity = request.getReturnConsumedCapacity();
+            return new BatchWriteItemResult()
+                    .withUnprocessedItems(new HashMap<String, List<WriteRequest>>())
+                    .withConsumedCapacity(consumed());
+        }
+
+        private ConsumedCapacity consumed() {
+            return new ConsumedCapacity().withTableName(TABLE).withCapacityUnits(unitsPerRequest);
+        }
+    }
+}
@@ -18,10 +18,13 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.Request;
 import com.amazonaws.Response;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteProgressListener;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteRetryStrategy;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.ConsistentReads;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.ObjectTableNameResolver;
 import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.PaginationLoadingStrategy;
@@ -31,6 +34,10 @@ import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperCo
 
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 public class DynamoDBMapperConfigTest {
 
     @Test
@@ -135,6 +142,15 @@ public class DynamoDBMapperConfigTest {
         assertEquals(conf.getSaveBehavior(), conf.getSaveBehavior());
         assertEquals(conf.getTableNameOverride(), copy.getTableNameOverride());
         assertEquals(conf.getTableNameResolver(), copy.getTableNameResolver());
+        assertEquals(conf.getBatchWriteRetryStrategy(), copy.getBatchWriteRetryStrategy());
+        assertEquals(conf.getMaxConcurrentBatchWrites(), copy.getMaxConcurrentBatchWrites());
+        assertEquals(conf.getBatchWriteProgressListener(),
+                copy.getBatchWriteProgressListener());
+        assertEquals(conf.getMaxConcurrentBatchLoads(), copy.getMaxConcurrentBatchLoads());
+        assertEquals(conf.getParallelScanExecutor(), copy.getParallelScanExecutor());
+        assertEquals(conf.getPaginationPrefetchDepth(), copy.getPaginationPrefetchDepth());
+        assertEquals(conf.getItemCache(), copy.getItemCache());
+        assertEquals(conf.getCapacityRateLimiter(), copy.getCapacityRateLimiter());
     }
 
     @Test
@@ -171,12 +187,50 @@ public class DynamoDBMapperConfigTest {
         b.setTableNameResolver(tnr);
         assertSame(b.getTableNameResolver(), tnr);
 
+        BatchWriteRetryStrategy bwrs = new DynamoDBMapperConfig.DefaultBatchWriteRetryStrategy();
+        b.setBatchWriteRetryStrategy(bwrs);
+        assertSame(b.getBatchWriteRetryStrategy(), bwrs);
+
+        b.setMaxConcurrentBatchWrites(4);
+        assertEquals(b.getMaxConcurrentBatchWrites().intValue(), 4);
+
+        BatchWriteProgressListener bwpl = new BatchWriteProgressListener() {
+            @Override
+            public void progressChanged(int itemsWritten, int itemsFailed, int totalItems) {
+            }
+        };
+        b.setBatchWriteProgressListener(bwpl);
+        assertSame(b.getBatchWriteProgressListener(), bwpl);
+
+        b.setMaxConcurrentBatchLoads(8);
+        assertEquals(b.getMaxConcurrentBatchLoads().intValue(), 8);
+
+        ExecutorService pse = Executors.newSingleThreadExecutor();
+        b.setParallelScanExecutor(pse);
+        assertSame(b.getParallelScanExecutor(), pse);
+        pse.shutdown();
+
+        b.setPaginationPrefetchDepth(3);
+        assertEquals(b.getPaginationPrefetchDepth().intValue(), 3);
+
+        ItemCache ic = new ItemCache(10, 1, TimeUnit.MINUTES);
+        b.setItemCache(ic);
+        assertSame(b.getItemCache(), ic);
+
+        CapacityRateLimiter crl = new CapacityRateLimiter(10, 5);
+        b.setCapacityRateLimiter(crl);
+        assertSame(b.getCapacityRateLimiter(), crl);
+
         DynamoDBMapperConfig conf = b.build();
         DynamoDBMapperConfig nullConfig = new DynamoDBMapperConfig.Builder()
                 .withConsistentReads(null)
                 .withConversionSchema(null).withObjectTableNameResolver(null)
                 .withPaginationLoadingStrategy(null).withRequestMetricCollector(null)
                 .withSaveBehavior(null).withTableNameOverride(null).withTableNameResolver(null)
+                .withBatchWriteRetryStrategy(null).withMaxConcurrentBatchWrites(null)
+                .withBatchWriteProgressListener(null).withMaxConcurrentBatchLoads(null)
+                .withParallelScanExecutor(null).withPaginationPrefetchDepth(null)
+                .withItemCache(null).withCapacityRateLimiter(null)
                 .build();
 
         DynamoDBMapperConfig copy = new DynamoDBMapperConfig(nullConfig, conf);
@@ -188,6 +242,41 @@ public class DynamoDBMapperConfigTest {
         assertEquals(copy.getSaveBehavior(), conf.getSaveBehavior());
         assertEquals(copy.getTableNameOverride(), conf.getTableNameOverride());
         assertEquals(copy.getTableNameResolver(), conf.getTableNameResolver());
+        assertSame(copy.getBatchWriteRetryStrategy(), conf.getBatchWriteRetryStrategy());
+        assertEquals(copy.getMaxConcurrentBatchWrites(), conf.getMaxConcurrentBatchWrites());
+        assertSame(copy.getBatchWriteProgressListener(), conf.getBatchWriteProgressListener());
+        assertEquals(copy.getMaxConcurrentBatchLoads(), conf.getMaxConcurrentBatchLoads());
+        assertSame(copy.getParallelScanExecutor(), conf.getParallelScanExecutor());
+        assertEquals(copy.getPaginationPrefetchDepth(), conf.getPaginationPrefetchDepth());
+        assertSame(copy.getItemCache(), conf.getItemCache());
+        assertSame(copy.getCapacityRateLimiter(), conf.getCapacityRateLimiter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxConcurrentBatchWritesMustBePositive() {
+        new DynamoDBMapperConfig.Builder().withMaxConcurrentBatchWrites(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxConcurrentBatchLoadsMustBePositive() {
+        new DynamoDBMapperConfig.Builder().withMaxConcurrentBatchLoads(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPaginationPrefetchDepthMustBePositive() {
+        new DynamoDBMapperConfig.Builder().withPaginationPrefetchDepth(0);
+    }
+
+    @Test
+    public void testDefaultBatchWriteRetryStrategy() {
+        BatchWriteRetryStrategy strategy =
+                DynamoDBMapperConfig.DefaultBatchWriteRetryStrategy.INSTANCE;
+        assertEquals(-1, strategy.getMaxRetryOnUnprocessedItems(null));
+        for (int retries = 0; retries < 40; retries++) {
+            long delay = strategy.getDelayBeforeRetryUnprocessedItems(null, retries);
+            long ceiling = Math.min(3000, 100L << Math.min(retries, 16));
+            assertTrue(delay + " at " + retries, delay >= ceiling / 2 && delay <= ceiling);
+        }
     }
 
     private static class TestObjectTableNameResolver implements ObjectTableNameResolver {
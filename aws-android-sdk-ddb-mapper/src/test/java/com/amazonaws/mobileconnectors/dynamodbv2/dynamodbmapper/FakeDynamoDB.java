@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DynamoDB client for the mapper tests. Tests override the operations they
+ * expect to be called; the others fail. Every call is counted, the most calls
+ * in flight at once are tracked, and each call can be delayed to let calls
+ * overlap.
+ */
+class FakeDynamoDB {
+    final AtomicInteger calls = new AtomicInteger();
+    volatile int maxInFlight;
+    volatile long delayMillis;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AmazonDynamoDB client = (AmazonDynamoDB) Proxy.newProxyInstance(
+            AmazonDynamoDB.class.getClassLoader(),
+            new Class<?>[] {
+                AmazonDynamoDB.class
+            }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                        throws Throwable {
+                    return dispatch(method, args);
+                }
+            });
+
+    /**
+     * Returns the client whose calls this fake answers.
+     */
+    AmazonDynamoDB client() {
+        return client;
+    }
+
+    /**
+     * Returns a mapper with the default configuration on this fake.
+     */
+    DynamoDBMapper mapper() {
+        return new DynamoDBMapper(client);
+    }
+
+    GetItemResult getItem(GetItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("getItem");
+    }
+
+    PutItemResult putItem(PutItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("putItem");
+    }
+
+    UpdateItemResult updateItem(UpdateItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("updateItem");
+    }
+
+    DeleteItemResult deleteItem(DeleteItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("deleteItem");
+    }
+
+    QueryResult query(QueryRequest request) throws Exception {
+        throw new UnsupportedOperationException("query");
+    }
+
+    ScanResult scan(ScanRequest request) throws Exception {
+        throw new UnsupportedOperationException("scan");
+    }
+
+    BatchGetItemResult batchGetItem(BatchGetItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("batchGetItem");
+    }
+
+    BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) throws Exception {
+        throw new UnsupportedOperationException("batchWriteItem");
+    }
+
+    private Object dispatch(Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+        Method answer;
+        try {
+            answer = FakeDynamoDB.class.getDeclaredMethod(method.getName(),
+                    method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException(method.getName());
+        }
+        calls.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        synchronized (this) {
+            maxInFlight = Math.max(maxInFlight, current);
+        }
+        try {
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            return answer.invoke(this, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
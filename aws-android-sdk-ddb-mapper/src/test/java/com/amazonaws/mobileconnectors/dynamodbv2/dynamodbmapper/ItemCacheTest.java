@@ -0,0 +1,282 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.ConsistentReads;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.SaveBehavior;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ItemCacheTest {
+
+    private FakeTable table;
+    private ItemCache cache;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setUp() {
+        table = new FakeTable();
+        cache = new ItemCache(100, 1, TimeUnit.MINUTES);
+        mapper = new DynamoDBMapper(table.client(), new DynamoDBMapperConfig.Builder()
+                .withItemCache(cache)
+                .withSaveBehavior(SaveBehavior.CLOBBER)
+                .build());
+    }
+
+    @Test
+    public void testRepeatedLoadIsServedFromCache() {
+        assertEquals("value-a", mapper.load(Item.class, "a").getValue());
+        assertEquals("value-a", mapper.load(Item.class, "a").getValue());
+
+        assertEquals(1, table.gets.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testCachedObjectsAreNotShared() {
+        mapper.load(Item.class, "a").setValue("changed");
+        assertEquals("value-a", mapper.load(Item.class, "a").getValue());
+    }
+
+    @Test
+    public void testCachedBinaryValuesAreNotShared() {
+        Item first = mapper.load(Item.class, "a");
+        first.getData()[0] = 9;
+        first.getBuffer().get();
+        Item second = mapper.load(Item.class, "a");
+
+        assertEquals(1, table.gets.get());
+        assertEquals(1, second.getData()[0]);
+        assertEquals(3, second.getBuffer().remaining());
+        assertEquals(1, second.getBuffer().get());
+    }
+
+    @Test
+    public void testMissingItemIsNotCached() {
+        assertNull(mapper.load(Item.class, "missing"));
+        assertNull(mapper.load(Item.class, "missing"));
+        assertEquals(2, table.gets.get());
+    }
+
+    @Test
+    public void testConsistentReadBypassesCache() {
+        DynamoDBMapperConfig consistent = new DynamoDBMapperConfig(ConsistentReads.CONSISTENT);
+        mapper.load(Item.class, "a");
+        mapper.load(Item.class, "a", consistent);
+        mapper.load(Item.class, "a", consistent);
+
+        assertEquals(3, table.gets.get());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testItemsExpireAfterTableTimeToLive() throws InterruptedException {
+        cache.setTimeToLive("item-cache-test", 50, TimeUnit.MILLISECONDS);
+        mapper.load(Item.class, "a");
+        mapper.load(Item.class, "a");
+        Thread.sleep(100);
+        mapper.load(Item.class, "a");
+
+        assertEquals(2, table.gets.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testZeroTimeToLiveKeepsTableOutOfCache() {
+        cache.setTimeToLive("item-cache-test", 0, TimeUnit.MILLISECONDS);
+        mapper.load(Item.class, "a");
+        mapper.load(Item.class, "a");
+
+        assertEquals(2, table.gets.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSaveEvictsItem() {
+        Item item = mapper.load(Item.class, "a");
+        mapper.save(item);
+        mapper.load(Item.class, "a");
+
+        assertEquals(1, table.puts.get());
+        assertEquals(2, table.gets.get());
+    }
+
+    @Test
+    public void testDeleteEvictsItem() {
+        Item item = mapper.load(Item.class, "a");
+        mapper.delete(item);
+        mapper.load(Item.class, "a");
+
+        assertEquals(1, table.deletes.get());
+        assertEquals(2, table.gets.get());
+    }
+
+    @Test
+    public void testBatchWriteEvictsItems() {
+        Item a = mapper.load(Item.class, "a");
+        Item b = mapper.load(Item.class, "b");
+        mapper.load(Item.class, "c");
+        mapper.batchWrite(Arrays.asList(a), Arrays.asList(b));
+        mapper.load(Item.class, "a");
+        mapper.load(Item.class, "b");
+        mapper.load(Item.class, "c");
+
+        assertEquals(5, table.gets.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedItem() {
+        cache = new ItemCache(2, 1, TimeUnit.MINUTES);
+        Map<String, AttributeValue> a = key("a");
+        Map<String, AttributeValue> b = key("b");
+        cache.put("table", a, a, cache.stamp());
+        cache.put("table", b, b, cache.stamp());
+        cache.get("table", a);
+        cache.put("table", key("c"), key("c"), cache.stamp());
+
+        assertEquals(2, cache.size());
+        assertEquals(a, cache.get("table", a));
+        assertNull(cache.get("table", b));
+    }
+
+    @Test
+    public void testReadOvertakenByWriteIsNotCached() {
+        Map<String, AttributeValue> a = key("a");
+        long stamp = cache.stamp();
+        cache.invalidate("table", a);
+        cache.put("table", a, a, stamp);
+
+        assertNull(cache.get("table", a));
+    }
+
+    private static Map<String, AttributeValue> key(String id) {
+        return Collections.singletonMap("id", new AttributeValue(id));
+    }
+
+    @DynamoDBTable(tableName = "item-cache-test")
+    public static class Item {
+        private String id;
+        private String value;
+        private byte[] data;
+        private ByteBuffer buffer;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public void setData(byte[] data) {
+            this.data = data;
+        }
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public void setBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Answers GetItem calls with an item for every key but "missing", and
+     * counts the writes.
+     */
+    private static class FakeTable extends FakeDynamoDB {
+        final AtomicInteger gets = new AtomicInteger();
+        final AtomicInteger puts = new AtomicInteger();
+        final AtomicInteger deletes = new AtomicInteger();
+
+        @Override
+        GetItemResult getItem(GetItemRequest request) {
+            gets.incrementAndGet();
+            String id = request.getKey().get("id").getS();
+            if (id.equals("missing")) {
+                return new GetItemResult();
+            }
+            Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", new AttributeValue(id));
+            item.put("value", new AttributeValue("value-" + id));
+            item.put("data", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {
+                    1, 2, 3
+            })));
+            item.put("buffer", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {
+                    1, 2, 3
+            })));
+            return new GetItemResult().withItem(item);
+        }
+
+        @Override
+        PutItemResult putItem(PutItemRequest request) {
+            puts.incrementAndGet();
+            return new PutItemResult();
+        }
+
+        @Override
+        DeleteItemResult deleteItem(DeleteItemRequest request) {
+            deletes.incrementAndGet();
+            return new DeleteItemResult();
+        }
+
+        @Override
+        BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            return new BatchWriteItemResult()
+                    .withUnprocessedItems(new HashMap<String, List<WriteRequest>>());
+        }
+    }
+}
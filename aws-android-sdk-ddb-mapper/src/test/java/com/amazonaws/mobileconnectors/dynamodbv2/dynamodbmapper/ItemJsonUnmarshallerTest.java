@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.ConversionSchemas.StandardItemConverter;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.transform.QueryResultJsonUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.util.json.JsonUtils;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ItemJsonUnmarshallerTest {
+
+    private static final String RESPONSE = "{\"Count\":2,\"Items\":["
+            + "{\"id\":{\"S\":\"a\"},\"count\":{\"N\":\"3\"},\"flag\":{\"BOOL\":true},"
+            + "\"tags\":{\"SS\":[\"x\",\"y\"]},\"names\":{\"L\":[{\"S\":\"n1\"},{\"S\":\"n2\"}]},"
+            + "\"document\":{\"M\":{\"name\":{\"S\":\"doc\"}}},\"unmapped\":{\"S\":\"skip\"},"
+            + "\"lazy\":{\"S\":\"lazy-a\"}},"
+            + "{\"id\":{\"S\":\"b\"},\"count\":{\"N\":\"4\"},\"flag\":{\"NULL\":true},"
+            + "\"lazy\":{\"S\":\"lazy-b\"}}"
+            + "],\"LastEvaluatedKey\":{\"id\":{\"S\":\"b\"}},\"ScannedCount\":2}";
+
+    private final StandardItemConverter converter = (StandardItemConverter) ConversionSchemas.V2
+            .getConverter(new ConversionSchema.Dependencies());
+
+    @Test
+    public void testItemsAreReadIntoObjects() throws Exception {
+        ItemPageJsonUnmarshaller.Page<Item> page = unmarshall(RESPONSE);
+
+        assertEquals(2, page.count.intValue());
+        assertEquals(2, page.scannedCount.intValue());
+        assertEquals("b", page.lastEvaluatedKey.get("id").getS());
+
+        List<Item> objects = page.items;
+        assertEquals(2, objects.size());
+
+        Item a = objects.get(0);
+        assertEquals("a", a.getId());
+        assertEquals(3, a.getCount());
+        assertTrue(a.getFlag());
+        assertEquals(new HashSet<String>(Arrays.asList("x", "y")), a.getTags());
+        assertEquals(Arrays.asList("n1", "n2"), a.getNames());
+        assertEquals("doc", a.getDocument().getName());
+
+        Item b = objects.get(1);
+        assertEquals("b", b.getId());
+        assertEquals(4, b.getCount());
+        assertNull(b.getFlag());
+        assertNull(b.getTags());
+        assertNull(b.getDocument());
+    }
+
+    @Test
+    public void testMatchesAttributeValuePath() throws Exception {
+        QueryResult mapped = new QueryResultJsonUnmarshaller().unmarshall(context(RESPONSE));
+        ItemPageJsonUnmarshaller.Page<Item> page = unmarshall(RESPONSE);
+
+        for (int i = 0; i < 2; i++) {
+            Item expected = converter.unconvert(Item.class, mapped.getItems().get(i));
+            Item actual = page.items.get(i);
+            Map<String, AttributeValue> expectedValues = converter.convert(expected);
+            Map<String, AttributeValue> actualValues = converter.convert(actual);
+            assertEquals(expectedValues, actualValues);
+        }
+    }
+
+    @Test
+    public void testLazyAttributesKeepTheirOwnValues() throws Exception {
+        ItemPageJsonUnmarshaller.Page<Item> page = unmarshall(RESPONSE);
+
+        Item a = page.items.get(0);
+        Item b = page.items.get(1);
+        assertFalse(a.getLazy().isMaterialized());
+        assertFalse(a.getLazy().getUnconvertedValue() == b.getLazy().getUnconvertedValue());
+        assertEquals("lazy-a", a.getLazy().get());
+        assertEquals("lazy-b", b.getLazy().get());
+    }
+
+    @Test(expected = DynamoDBMappingException.class)
+    public void testTypeMismatch() throws Exception {
+        String response = "{\"Items\":[{\"id\":{\"N\":\"1\"},\"count\":{\"S\":\"x\"}}]}";
+        unmarshall(response);
+    }
+
+    private ItemPageJsonUnmarshaller.Page<Item> unmarshall(String json) throws Exception {
+        return new ItemPageJsonUnmarshaller<Item>(converter.getJsonUnmarshaller(Item.class))
+                .unmarshall(context(json));
+    }
+
+    private static JsonUnmarshallerContext context(String json) {
+        return new JsonUnmarshallerContext(JsonUtils.getJsonReader(new StringReader(json)));
+    }
+
+    @DynamoDBTable(tableName = "item-json-test")
+    public static class Item {
+        private String id;
+        private int count;
+        private Boolean flag;
+        private Set<String> tags;
+        private List<String> names;
+        private Document document;
+        private LazyAttribute<String> lazy;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Boolean getFlag() {
+            return flag;
+        }
+
+        public void setFlag(Boolean flag) {
+            this.flag = flag;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags) {
+            this.tags = tags;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+
+        public Document getDocument() {
+            return document;
+        }
+
+        public void setDocument(Document document) {
+            this.document = document;
+        }
+
+        public LazyAttribute<String> getLazy() {
+            return lazy;
+        }
+
+        public void setLazy(LazyAttribute<String> lazy) {
+            this.lazy = lazy;
+        }
+    }
+
+    @DynamoDBDocument
+    public static class Document {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
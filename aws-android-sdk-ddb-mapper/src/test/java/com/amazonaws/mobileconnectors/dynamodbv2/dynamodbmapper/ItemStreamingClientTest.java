@@ -0,0 +1,229 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItemStreamingClientTest {
+
+    private static final String RESPONSE = "{\"Count\":2,\"ScannedCount\":3,\"Items\":["
+            + "{\"id\":{\"S\":\"a\"},\"value\":{\"S\":\"value-a\"}},"
+            + "{\"id\":{\"S\":\"b\"},\"unmapped\":{\"N\":\"1\"}}],"
+            + "\"LastEvaluatedKey\":{\"id\":{\"S\":\"b\"}},"
+            + "\"ConsumedCapacity\":{\"TableName\":\"item-streaming-test\","
+            + "\"CapacityUnits\":1.5,\"Table\":{\"CapacityUnits\":1.0}}}";
+
+    private CannedHttpClient httpClient;
+    private AmazonDynamoDBClient client;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setUp() {
+        httpClient = new CannedHttpClient();
+        client = new AmazonDynamoDBClient(new AWSCredentialsProvider() {
+            @Override
+            public AWSCredentials getCredentials() {
+                return new BasicAWSCredentials("access", "secret");
+            }
+
+            @Override
+            public void refresh() {
+            }
+        }, new ClientConfiguration(), httpClient);
+        mapper = new DynamoDBMapper(client);
+    }
+
+    @Test
+    public void testQueryItemsAreReadIntoObjects() {
+        ItemStreamingClient streamingClient = ItemStreamingClient.forClient(client);
+        assertNotNull(streamingClient);
+
+        List<Item> items = new ArrayList<Item>();
+        QueryResult result = streamingClient.query(
+                new QueryRequest().withTableName("item-streaming-test"),
+                jsonUnmarshaller(), items);
+
+        assertEquals("DynamoDB_20120810.Query", httpClient.target);
+        assertNull(result.getItems());
+        assertEquals(2, result.getCount().intValue());
+        assertEquals(3, result.getScannedCount().intValue());
+        assertEquals("b", result.getLastEvaluatedKey().get("id").getS());
+        assertEquals(1.5, result.getConsumedCapacity().getCapacityUnits(), 0.001);
+        assertEquals(1.0, result.getConsumedCapacity().getTable().getCapacityUnits(), 0.001);
+        assertEquals(2, items.size());
+        assertEquals("value-a", items.get(0).getValue());
+        assertEquals("b", items.get(1).getId());
+    }
+
+    @Test
+    public void testMapperScansThroughStreamingClient() {
+        ScanResultPage<Item> page = mapper.scanPage(Item.class, new DynamoDBScanExpression());
+
+        assertEquals("DynamoDB_20120810.Scan", httpClient.target);
+        assertEquals(2, page.getResults().size());
+        assertEquals("value-a", page.getResults().get(0).getValue());
+        assertEquals("b", page.getLastEvaluatedKey().get("id").getS());
+    }
+
+    @Test
+    public void testRequestHandlerSeesItems() {
+        RecordingHandler handler = new RecordingHandler();
+        client.addRequestHandler(handler);
+
+        List<Item> items = new ArrayList<Item>();
+        assertNull(ItemStreamingClient.forClient(client).query(
+                new QueryRequest().withTableName("item-streaming-test"),
+                jsonUnmarshaller(), items));
+        assertEquals(0, httpClient.requests);
+
+        Item key = new Item();
+        key.setId("a");
+        QueryResultPage<Item> page = mapper.queryPage(Item.class,
+                new DynamoDBQueryExpression<Item>().withHashKeyValues(key));
+
+        assertEquals(2, page.getResults().size());
+        assertEquals("value-a", page.getResults().get(0).getValue());
+        QueryResult result = (QueryResult) handler.response.getAwsResponse();
+        assertEquals(2, result.getItems().size());
+        assertEquals("value-a", result.getItems().get(0).get("value").getS());
+        assertEquals("1", result.getItems().get(1).get("unmapped").getN());
+    }
+
+    @Test
+    public void testServiceErrorIsUnmarshalled() {
+        httpClient.statusCode = 400;
+        httpClient.body = "{\"__type\":\"com.amazonaws.dynamodb.v20120810"
+                + "#ResourceNotFoundException\",\"message\":\"No such table\"}";
+        try {
+            mapper.scanPage(Item.class, new DynamoDBScanExpression());
+            throw new AssertionError("Expected a ResourceNotFoundException");
+        } catch (ResourceNotFoundException e) {
+            assertEquals("No such table", e.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testMappingErrorIsNotWrapped() {
+        httpClient.body = "{\"Items\":[{\"id\":{\"N\":\"1\"}}]}";
+        try {
+            mapper.scanPage(Item.class, new DynamoDBScanExpression());
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        } catch (AmazonClientException e) {
+            throw new AssertionError("Mapping error came back wrapped: " + e);
+        }
+    }
+
+    private Unmarshaller<Item, JsonUnmarshallerContext> jsonUnmarshaller() {
+        return ((ConversionSchemas.StandardItemConverter) mapper.getConverter(
+                DynamoDBMapperConfig.DEFAULT)).getJsonUnmarshaller(Item.class);
+    }
+
+    @DynamoDBTable(tableName = "item-streaming-test")
+    public static class Item {
+        private String id;
+        private String value;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Answers every request with the same status and body, and remembers the
+     * operation of the last request.
+     */
+    private static class CannedHttpClient implements HttpClient {
+        volatile int statusCode = 200;
+        volatile String body = RESPONSE;
+        volatile int requests;
+        volatile String target;
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            requests++;
+            target = request.getHeaders().get("X-Amz-Target");
+            return HttpResponse.builder()
+                    .statusCode(statusCode)
+                    .statusText(statusCode == 200 ? "OK" : "Bad Request")
+                    .content(new ByteArrayInputStream(body.getBytes(StringUtils.UTF8)))
+                    .build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    private static class RecordingHandler extends RequestHandler2 {
+        volatile Response<?> response;
+
+        @Override
+        public void beforeRequest(Request<?> request) {
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+            this.response = response;
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response, Exception e) {
+        }
+    }
+}
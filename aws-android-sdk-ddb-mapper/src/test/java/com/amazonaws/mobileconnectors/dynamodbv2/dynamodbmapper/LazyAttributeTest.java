@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LazyAttributeTest {
+
+    private final ItemConverter converter = ConversionSchemas.V2
+            .getConverter(new ConversionSchema.Dependencies());
+
+    @Before
+    public void setUp() {
+        CountingMarshaller.unmarshalls = 0;
+    }
+
+    @Test
+    public void testValueIsConvertedOnFirstAccess() {
+        Item item = converter.unconvert(Item.class, attributes());
+        assertEquals("id", item.getId());
+        assertFalse(item.getBlob().isMaterialized());
+        assertEquals(0, CountingMarshaller.unmarshalls);
+
+        assertEquals("payload", item.getBlob().get().value);
+        assertEquals("payload", item.getBlob().get().value);
+        assertTrue(item.getBlob().isMaterialized());
+        assertEquals(1, CountingMarshaller.unmarshalls);
+    }
+
+    @Test
+    public void testDocumentValueIsConvertedOnFirstAccess() {
+        Item item = converter.unconvert(Item.class, attributes());
+        assertFalse(item.getDocument().isMaterialized());
+        assertEquals("nested", item.getDocument().get().getName());
+    }
+
+    @Test
+    public void testUnreadValueIsWrittenBackUnchanged() {
+        Map<String, AttributeValue> attributes = attributes();
+        Item item = converter.unconvert(Item.class, attributes);
+
+        Map<String, AttributeValue> converted = converter.convert(item);
+        assertSame(attributes.get("blob"), converted.get("blob"));
+        assertSame(attributes.get("document"), converted.get("document"));
+        assertEquals(0, CountingMarshaller.unmarshalls);
+    }
+
+    @Test
+    public void testConvertedValueIsMarshalled() {
+        Item item = new Item();
+        item.setId("id");
+        item.setBlob(LazyAttribute.of(new Blob("other")));
+        Document document = new Document();
+        document.setName("created");
+        item.setDocument(LazyAttribute.of(document));
+
+        Map<String, AttributeValue> converted = converter.convert(item);
+        assertEquals("other", converted.get("blob").getS());
+        assertEquals("created", converted.get("document").getM().get("name").getS());
+    }
+
+    @Test
+    public void testNullAttributeValue() {
+        Map<String, AttributeValue> attributes = attributes();
+        attributes.put("blob", new AttributeValue().withNULL(true));
+        Item item = converter.unconvert(Item.class, attributes);
+        assertNull(item.getBlob());
+    }
+
+    @Test
+    public void testTypeMismatchFailsOnLoad() {
+        Map<String, AttributeValue> attributes = attributes();
+        attributes.put("document", new AttributeValue("not a map"));
+        try {
+            converter.unconvert(Item.class, attributes);
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    private static Map<String, AttributeValue> attributes() {
+        Map<String, AttributeValue> attributes = new HashMap<String, AttributeValue>();
+        attributes.put("id", new AttributeValue("id"));
+        attributes.put("blob", new AttributeValue("payload"));
+        attributes.put("document", new AttributeValue().withM(
+                Collections.singletonMap("name", new AttributeValue("nested"))));
+        return attributes;
+    }
+
+    @DynamoDBTable(tableName = "lazy-attribute-test")
+    public static class Item {
+        private String id;
+        private LazyAttribute<Blob> blob;
+        private LazyAttribute<Document> document;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        @DynamoDBMarshalling(marshallerClass = CountingMarshaller.class)
+        public LazyAttribute<Blob> getBlob() {
+            return blob;
+        }
+
+        public void setBlob(LazyAttribute<Blob> blob) {
+            this.blob = blob;
+        }
+
+        public LazyAttribute<Document> getDocument() {
+            return document;
+        }
+
+        public void setDocument(LazyAttribute<Document> document) {
+            this.document = document;
+        }
+    }
+
+    @DynamoDBDocument
+    public static class Document {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Blob {
+        final String value;
+
+        Blob(String value) {
+            this.value = value;
+        }
+    }
+
+    public static class CountingMarshaller implements DynamoDBMarshaller<Blob> {
+        static int unmarshalls;
+
+        @Override
+        public String marshall(Blob getterReturnResult) {
+            return getterReturnResult.value;
+        }
+
+        @Override
+        public Blob unmarshall(Class<Blob> clazz, String obj) {
+            unmarshalls++;
+            return new Blob(obj);
+        }
+    }
+}
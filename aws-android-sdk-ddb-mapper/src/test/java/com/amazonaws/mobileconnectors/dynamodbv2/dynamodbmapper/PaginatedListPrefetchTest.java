@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.PaginationLoadingStrategy;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class PaginatedListPrefetchTest {
+
+    @Test
+    public void testIteratesOverAllPagesInOrder() {
+        FakeQuerier querier = new FakeQuerier(5, 3);
+        PaginatedQueryList<Item> list = list(querier, 2);
+
+        List<String> ids = new ArrayList<String>();
+        for (Item item : list) {
+            ids.add(item.getId());
+        }
+
+        assertEquals(15, ids.size());
+        for (int i = 0; i < 15; i++) {
+            assertEquals((i / 3) + "-" + (i % 3), ids.get(i));
+        }
+        assertEquals(4, querier.calls.get());
+    }
+
+    @Test
+    public void testFetchesUpToDepthPagesAhead() throws InterruptedException {
+        FakeQuerier querier = new FakeQuerier(10, 3);
+        PaginatedQueryList<Item> list = list(querier, 2);
+
+        Iterator<Item> iterator = list.iterator();
+        Thread.sleep(100);
+        assertEquals(2, querier.calls.get());
+
+        for (int i = 0; i < 4; i++) {
+            iterator.next();
+        }
+        Thread.sleep(100);
+        assertEquals(3, querier.calls.get());
+    }
+
+    @Test
+    public void testSkipsEmptyPages() {
+        FakeQuerier querier = new FakeQuerier(4, 2);
+        querier.emptyPage = 2;
+        PaginatedQueryList<Item> list = list(querier, 1);
+
+        int count = 0;
+        Iterator<Item> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(6, count);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testRethrowsFetchFailure() {
+        FakeQuerier querier = new FakeQuerier(4, 2);
+        querier.failingPage = 2;
+        PaginatedQueryList<Item> list = list(querier, 2);
+
+        Iterator<Item> iterator = list.iterator();
+        int count = 0;
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            throw new AssertionError("Expected the query failure");
+        } catch (AmazonServiceException e) {
+            assertEquals("Query failed", e.getErrorMessage());
+        }
+        assertEquals(4, count);
+        assertEquals(2, querier.calls.get());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListOperationsAreUnsupported() {
+        list(new FakeQuerier(2, 1), 1).size();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratesOnlyOnce() {
+        PaginatedQueryList<Item> list = list(new FakeQuerier(2, 1), 1);
+        list.iterator();
+        list.iterator();
+    }
+
+    private static PaginatedQueryList<Item> list(FakeQuerier querier, int depth) {
+        DynamoDBMapper mapper = querier.mapper();
+        DynamoDBMapperConfig config = new DynamoDBMapperConfig(DynamoDBMapperConfig.DEFAULT,
+                new DynamoDBMapperConfig.Builder()
+                        .withPaginationLoadingStrategy(
+                                PaginationLoadingStrategy.ITERATION_ONLY_PREFETCH)
+                        .withPaginationPrefetchDepth(depth)
+                        .build());
+        QueryRequest request = new QueryRequest().withTableName("prefetch-test");
+        return new PaginatedQueryList<Item>(mapper, Item.class, querier.client(), request,
+                querier.page(0), config.getPaginationLoadingStrategy(), config);
+    }
+
+    @DynamoDBTable(tableName = "prefetch-test")
+    public static class Item {
+        private String id;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Answers Query calls with the given number of pages of items, leaving
+     * one page empty or failing the call for one page if asked to.
+     */
+    private static class FakeQuerier extends FakeDynamoDB {
+        final int pages;
+        final int itemsPerPage;
+        volatile int emptyPage = -1;
+        volatile int failingPage = -1;
+
+        FakeQuerier(int pages, int itemsPerPage) {
+            this.pages = pages;
+            this.itemsPerPage = itemsPerPage;
+        }
+
+        @Override
+        QueryResult query(QueryRequest request) {
+            int page = Integer.parseInt(request.getExclusiveStartKey().get("page").getN());
+            if (page == failingPage) {
+                throw new AmazonServiceException("Query failed");
+            }
+            return page(page);
+        }
+
+        QueryResult page(int page) {
+            List<Map<String, AttributeValue>> items =
+                    new ArrayList<Map<String, AttributeValue>>();
+            for (int i = 0; page != emptyPage && i < itemsPerPage; i++) {
+                items.add(Collections.singletonMap("id",
+                        new AttributeValue(page + "-" + i)));
+            }
+            QueryResult result = new QueryResult().withItems(items);
+            if (page + 1 < pages) {
+                result.setLastEvaluatedKey(Collections.singletonMap("page",
+                        new AttributeValue().withN(String.valueOf(page + 1))));
+            }
+            return result;
+        }
+    }
+}
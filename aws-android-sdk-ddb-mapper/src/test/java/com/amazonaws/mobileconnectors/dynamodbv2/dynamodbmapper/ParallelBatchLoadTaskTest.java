@@ -0,0 +1,237 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.BatchLoadHandler;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelBatchLoadTaskTest {
+
+    @Test
+    public void testLoadsChunksConcurrently() {
+        FakeBatchGetter getter = new FakeBatchGetter();
+        getter.delayMillis = 20;
+        Collector collector = new Collector();
+
+        load(getter, keys(250), 4, collector);
+
+        assertEquals(3, getter.calls.get());
+        assertEquals(250, collector.ids.size());
+        assertTrue("max in flight " + getter.maxInFlight,
+                getter.maxInFlight > 1 && getter.maxInFlight <= 3);
+    }
+
+    @Test
+    public void testUnprocessedKeysGoIntoNextCall() {
+        FakeBatchGetter getter = new FakeBatchGetter();
+        getter.unprocessedResponses = 1;
+        Collector collector = new Collector();
+
+        load(getter, keys(150), 1, collector);
+
+        assertEquals(2, getter.calls.get());
+        assertEquals(100, getter.keysPerCall.get(0).intValue());
+        assertEquals(51, getter.keysPerCall.get(1).intValue());
+        assertEquals(150, collector.ids.size());
+    }
+
+    @Test
+    public void testReadsKeysLazily() {
+        FakeBatchGetter getter = new FakeBatchGetter();
+        final List<Object> keys = keys(300);
+        final AtomicInteger read = new AtomicInteger();
+        Iterable<Object> source = new Iterable<Object>() {
+            @Override
+            public Iterator<Object> iterator() {
+                final Iterator<Object> iterator = keys.iterator();
+                return new Iterator<Object>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        read.incrementAndGet();
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+        BatchLoadHandler handler = new BatchLoadHandler() {
+            @Override
+            public void itemLoaded(String tableName, Object item) {
+                int id = Integer.parseInt(((Item) item).getId());
+                assertTrue("read " + read.get() + " keys before item " + id,
+                        read.get() <= (id / 100 + 1) * 100);
+            }
+        };
+
+        load(getter, source, 1, handler);
+
+        assertEquals(300, read.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHandlerExceptionStopsLoad() {
+        FakeBatchGetter getter = new FakeBatchGetter();
+        BatchLoadHandler handler = new BatchLoadHandler() {
+            @Override
+            public void itemLoaded(String tableName, Object item) {
+                throw new IllegalStateException();
+            }
+        };
+
+        load(getter, keys(500), 2, handler);
+    }
+
+    @Test
+    public void testMapperBatchLoad() {
+        FakeBatchGetter getter = new FakeBatchGetter();
+
+        Map<String, List<Object>> result = getter.mapper().batchLoad(keys(230), config(3));
+
+        assertEquals(3, getter.calls.get());
+        assertEquals(1, result.size());
+        assertEquals(230, result.get("batch-load-test").size());
+        assertEquals(Item.class, result.get("batch-load-test").get(0).getClass());
+    }
+
+    private static DynamoDBMapperConfig config(int maxConcurrentBatchLoads) {
+        return new DynamoDBMapperConfig(DynamoDBMapperConfig.DEFAULT,
+                new DynamoDBMapperConfig.Builder()
+                        .withMaxConcurrentBatchLoads(maxConcurrentBatchLoads)
+                        .build());
+    }
+
+    private static void load(FakeBatchGetter getter, Iterable<?> keys,
+            int maxConcurrentBatchLoads, BatchLoadHandler handler) {
+        DynamoDBMapper mapper = getter.mapper();
+        DynamoDBMapperConfig config = config(maxConcurrentBatchLoads);
+        new ParallelBatchLoadTask(mapper, keys, config, mapper.getConverter(config),
+                maxConcurrentBatchLoads, handler).execute();
+    }
+
+    private static List<Object> keys(int count) {
+        List<Object> keys = new ArrayList<Object>();
+        for (int i = 0; i < count; i++) {
+            Item key = new Item();
+            key.setId(String.valueOf(i));
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    @DynamoDBTable(tableName = "batch-load-test")
+    public static class Item {
+        private String id;
+        private String value;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Answers BatchGetItem calls with one item per key, leaving the last key
+     * of a call unprocessed for the first calls if asked to.
+     */
+    private static class FakeBatchGetter extends FakeDynamoDB {
+        final AtomicInteger answered = new AtomicInteger();
+        final List<Integer> keysPerCall = new ArrayList<Integer>();
+        volatile int unprocessedResponses;
+
+        @Override
+        BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+            int call = answered.incrementAndGet();
+            Map<String, KeysAndAttributes> requestItems = request.getRequestItems();
+            Map<String, List<Map<String, AttributeValue>>> responses =
+                    new HashMap<String, List<Map<String, AttributeValue>>>();
+            Map<String, KeysAndAttributes> unprocessed =
+                    new HashMap<String, KeysAndAttributes>();
+            int keyCount = 0;
+            for (Map.Entry<String, KeysAndAttributes> table : requestItems.entrySet()) {
+                List<Map<String, AttributeValue>> keys = table.getValue().getKeys();
+                keyCount += keys.size();
+                int processed = keys.size();
+                if (call <= unprocessedResponses) {
+                    processed--;
+                    unprocessed.put(table.getKey(), new KeysAndAttributes()
+                            .withKeys(keys.subList(processed, keys.size())));
+                }
+                List<Map<String, AttributeValue>> items =
+                        new ArrayList<Map<String, AttributeValue>>();
+                for (Map<String, AttributeValue> key : keys.subList(0, processed)) {
+                    Map<String, AttributeValue> item =
+                            new HashMap<String, AttributeValue>(key);
+                    item.put("value", new AttributeValue("value"));
+                    items.add(item);
+                }
+                responses.put(table.getKey(), items);
+            }
+            synchronized (this) {
+                keysPerCall.add(keyCount);
+            }
+            return new BatchGetItemResult().withResponses(responses)
+                    .withUnprocessedKeys(unprocessed);
+        }
+    }
+
+    private static class Collector implements BatchLoadHandler {
+        final Set<String> ids = new HashSet<String>();
+
+        @Override
+        public void itemLoaded(String tableName, Object item) {
+            assertEquals("batch-load-test", tableName);
+            assertTrue(ids.add(((Item) item).getId()));
+        }
+    }
+}
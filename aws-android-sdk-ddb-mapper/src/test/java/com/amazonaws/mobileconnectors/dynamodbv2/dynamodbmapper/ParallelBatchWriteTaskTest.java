@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.FailedBatch;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteProgressListener;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.BatchWriteRetryStrategy;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelBatchWriteTaskTest {
+
+    private static final BatchWriteRetryStrategy NO_DELAY = new BatchWriteRetryStrategy() {
+        @Override
+        public int getMaxRetryOnUnprocessedItems(
+                Map<String, List<WriteRequest>> batchWriteItemInput) {
+            return 2;
+        }
+
+        @Override
+        public long getDelayBeforeRetryUnprocessedItems(
+                Map<String, List<WriteRequest>> unprocessedItems, int retriesAttempted) {
+            return 0;
+        }
+    };
+
+    @Test
+    public void testWritesBatchesConcurrently() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        writer.delayMillis = 20;
+        Progress progress = new Progress();
+
+        List<FailedBatch> failed = new ParallelBatchWriteTask(writer.mapper(),
+                items(60, 40), 4, NO_DELAY, progress).execute();
+
+        assertEquals(0, failed.size());
+        assertEquals(5, writer.calls.get());
+        assertEquals(100, writer.itemsWritten.get());
+        assertTrue("max in flight " + writer.maxInFlight,
+                writer.maxInFlight > 1 && writer.maxInFlight <= 4);
+        assertEquals(5, progress.calls);
+        assertEquals(100, progress.itemsWritten);
+        assertEquals(0, progress.itemsFailed);
+        assertEquals(100, progress.totalItems);
+    }
+
+    @Test
+    public void testSingleWriterPacksTables() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        new ParallelBatchWriteTask(writer.mapper(), items(20, 20), 1, NO_DELAY, null).execute();
+        assertEquals(2, writer.calls.get());
+        assertEquals(1, writer.maxInFlight);
+        assertEquals(2, writer.maxTablesPerCall);
+        assertEquals(40, writer.itemsWritten.get());
+    }
+
+    @Test
+    public void testEachConcurrentBatchTargetsOneTable() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        new ParallelBatchWriteTask(writer.mapper(), items(3, 3), 2, NO_DELAY, null).execute();
+        assertEquals(2, writer.calls.get());
+        assertEquals(1, writer.maxTablesPerCall);
+    }
+
+    @Test
+    public void testRetriesUnprocessedItems() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        writer.unprocessedResponses = 1;
+
+        List<FailedBatch> failed = new ParallelBatchWriteTask(writer.mapper(),
+                items(10, 0), 2, NO_DELAY, null).execute();
+
+        assertEquals(0, failed.size());
+        assertEquals(2, writer.calls.get());
+        assertEquals(10, writer.itemsWritten.get());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        writer.unprocessedResponses = Integer.MAX_VALUE;
+        Progress progress = new Progress();
+
+        List<FailedBatch> failed = new ParallelBatchWriteTask(writer.mapper(),
+                items(10, 0), 1, NO_DELAY, progress).execute();
+
+        assertEquals(1, failed.size());
+        assertTrue(failed.get(0).getException() instanceof AmazonClientException);
+        assertEquals(3, writer.calls.get());
+        assertEquals(9, progress.itemsWritten);
+        assertEquals(1, progress.itemsFailed);
+    }
+
+    @Test
+    public void testThrottledBatchIsReported() {
+        FakeBatchWriter writer = new FakeBatchWriter();
+        writer.throttledResponses = 1;
+        Progress progress = new Progress();
+
+        List<FailedBatch> failed = new ParallelBatchWriteTask(writer.mapper(),
+                items(30, 0), 1, NO_DELAY, progress).execute();
+
+        assertEquals(1, failed.size());
+        assertEquals("ThrottlingException",
+                ((AmazonServiceException) failed.get(0).getException()).getErrorCode());
+        assertEquals(25, progress.itemsFailed);
+        assertEquals(5, progress.itemsWritten);
+    }
+
+    private static Map<String, List<WriteRequest>> items(int first, int second) {
+        Map<String, List<WriteRequest>> items = new HashMap<String, List<WriteRequest>>();
+        items.put("first", writeRequests(first));
+        if (second > 0) {
+            items.put("second", writeRequests(second));
+        }
+        return items;
+    }
+
+    private static List<WriteRequest> writeRequests(int count) {
+        List<WriteRequest> requests = new ArrayList<WriteRequest>();
+        for (int i = 0; i < count; i++) {
+            Map<String, AttributeValue> item = Collections.singletonMap("id",
+                    new AttributeValue(String.valueOf(i)));
+            requests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+        }
+        return requests;
+    }
+
+    /**
+     * Answers BatchWriteItem calls, leaving the last item of a batch
+     * unprocessed or throttling the call for the first calls if asked to.
+     */
+    private static class FakeBatchWriter extends FakeDynamoDB {
+        final AtomicInteger itemsWritten = new AtomicInteger();
+        final AtomicInteger answered = new AtomicInteger();
+        volatile int maxTablesPerCall;
+        volatile int unprocessedResponses;
+        volatile int throttledResponses;
+
+        @Override
+        BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            int call = answered.incrementAndGet();
+            if (call <= throttledResponses) {
+                AmazonServiceException ase = new AmazonServiceException("Throttled");
+                ase.setErrorCode("ThrottlingException");
+                throw ase;
+            }
+            Map<String, List<WriteRequest>> batch = request.getRequestItems();
+            synchronized (this) {
+                maxTablesPerCall = Math.max(maxTablesPerCall, batch.size());
+            }
+            Map<String, List<WriteRequest>> unprocessed =
+                    new HashMap<String, List<WriteRequest>>();
+            for (Map.Entry<String, List<WriteRequest>> table : batch.entrySet()) {
+                List<WriteRequest> requests = table.getValue();
+                if (call <= unprocessedResponses) {
+                    itemsWritten.addAndGet(requests.size() - 1);
+                    unprocessed.put(table.getKey(),
+                            requests.subList(requests.size() - 1, requests.size()));
+                } else {
+                    itemsWritten.addAndGet(requests.size());
+                }
+            }
+            return new BatchWriteItemResult().withUnprocessedItems(unprocessed);
+        }
+    }
+
+    private static class Progress implements BatchWriteProgressListener {
+        int calls;
+        int itemsWritten;
+        int itemsFailed;
+        int totalItems;
+
+        @Override
+        public void progressChanged(int itemsWritten, int itemsFailed, int totalItems) {
+            assertTrue(itemsWritten >= this.itemsWritten);
+            this.calls++;
+            this.itemsWritten = itemsWritten;
+            this.itemsFailed = itemsFailed;
+            this.totalItems = totalItems;
+        }
+    }
+}
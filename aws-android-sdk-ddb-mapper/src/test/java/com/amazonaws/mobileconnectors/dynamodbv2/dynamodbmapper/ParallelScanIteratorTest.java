@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelScanIteratorTest {
+
+    @Test
+    public void testIteratesOverAllSegments() {
+        FakeScanner scanner = new FakeScanner(3, 10);
+
+        ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                Item.class, new DynamoDBScanExpression(), 5);
+
+        Set<String> ids = new HashSet<String>();
+        while (iterator.hasNext()) {
+            assertTrue(ids.add(iterator.next().getId()));
+        }
+        assertEquals(150, ids.size());
+        assertEquals(15, scanner.calls.get());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testStopsScanningWhenBufferIsFull() throws InterruptedException {
+        FakeScanner scanner = new FakeScanner(10, 1);
+
+        ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                Item.class, new DynamoDBScanExpression(), 4, 2, null);
+        Thread.sleep(100);
+        assertEquals(2, scanner.calls.get());
+
+        iterator.next();
+        Thread.sleep(100);
+        assertEquals(3, scanner.calls.get());
+
+        int count = 1;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(40, count);
+        assertEquals(40, scanner.calls.get());
+    }
+
+    @Test
+    public void testUsesSharedExecutor() {
+        FakeScanner scanner = new FakeScanner(4, 5);
+        scanner.delayMillis = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DynamoDBMapperConfig config = new DynamoDBMapperConfig.Builder()
+                    .withParallelScanExecutor(executor).build();
+
+            ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                    Item.class, new DynamoDBScanExpression(), 8, 8, config);
+            int count = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+
+            assertEquals(160, count);
+            assertTrue("max in flight " + scanner.maxInFlight, scanner.maxInFlight <= 2);
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSegmentsWaitingForCapacityDoNotHoldThreads() throws Exception {
+        FakeScanner scanner = new FakeScanner(2, 5);
+        CapacityRateLimiter limiter = new CapacityRateLimiter(10, 10);
+        // Half a second of debt
+        limiter.consumedRead("parallel-scan-test",
+                new ConsumedCapacity().withCapacityUnits(15.0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DynamoDBMapperConfig config = new DynamoDBMapperConfig.Builder()
+                    .withParallelScanExecutor(executor)
+                    .withCapacityRateLimiter(limiter).build();
+
+            long start = System.nanoTime();
+            ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                    Item.class, new DynamoDBScanExpression(), 2, 2, config);
+            Future<?> other = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            other.get(200, TimeUnit.MILLISECONDS);
+            assertEquals(0, scanner.calls.get());
+
+            int count = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+            assertEquals(20, count);
+            assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 400);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRethrowsSegmentFailure() {
+        FakeScanner scanner = new FakeScanner(3, 10);
+        scanner.failingSegment = 1;
+
+        ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                Item.class, new DynamoDBScanExpression(), 3);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            throw new AssertionError("Expected the segment failure");
+        } catch (AmazonServiceException e) {
+            assertEquals("Scan failed", e.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsScan() throws InterruptedException {
+        FakeScanner scanner = new FakeScanner(10, 1);
+
+        ParallelScanIterator<Item> iterator = scanner.mapper().parallelScanIterator(
+                Item.class, new DynamoDBScanExpression(), 2, 1, null);
+        iterator.next();
+        iterator.close();
+        Thread.sleep(100);
+
+        assertFalse(iterator.hasNext());
+        assertTrue(scanner.calls.get() <= 2);
+    }
+
+    @DynamoDBTable(tableName = "parallel-scan-test")
+    public static class Item {
+        private String id;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Answers Scan calls with the given number of pages of items per
+     * segment, or fails the calls of one segment if asked to.
+     */
+    private static class FakeScanner extends FakeDynamoDB {
+        final int pages;
+        final int itemsPerPage;
+        volatile int failingSegment = -1;
+
+        FakeScanner(int pages, int itemsPerPage) {
+            this.pages = pages;
+            this.itemsPerPage = itemsPerPage;
+        }
+
+        @Override
+        ScanResult scan(ScanRequest request) {
+            int segment = request.getSegment();
+            if (segment == failingSegment) {
+                throw new AmazonServiceException("Scan failed");
+            }
+            int page = request.getExclusiveStartKey() == null ? 0
+                    : Integer.parseInt(request.getExclusiveStartKey().get("page").getN());
+
+            List<Map<String, AttributeValue>> items =
+                    new ArrayList<Map<String, AttributeValue>>();
+            for (int i = 0; i < itemsPerPage; i++) {
+                items.add(Collections.singletonMap("id",
+                        new AttributeValue(segment + "-" + page + "-" + i)));
+            }
+            ScanResult result = new ScanResult().withItems(items);
+            if (page + 1 < pages) {
+                result.setLastEvaluatedKey(Collections.singletonMap("page",
+                        new AttributeValue().withN(String.valueOf(page + 1))));
+            }
+            return result;
+        }
+    }
+}
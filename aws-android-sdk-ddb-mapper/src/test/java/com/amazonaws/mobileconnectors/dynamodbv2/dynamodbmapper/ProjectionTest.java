@@ -0,0 +1,302 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig.SaveBehavior;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class ProjectionTest {
+
+    private RecordingDynamoDB recorder;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setUp() {
+        recorder = new RecordingDynamoDB();
+        mapper = recorder.mapper();
+    }
+
+    @Test
+    public void testLoadProjectsKeysAndProperties() {
+        Item item = mapper.load(key(), Arrays.asList("title"));
+
+        GetItemRequest request = (GetItemRequest) recorder.requests.get(0);
+        assertEquals("#projection0, #projection1, #projection2",
+                request.getProjectionExpression());
+        assertEquals("id", request.getExpressionAttributeNames().get("#projection0"));
+        assertEquals("range", request.getExpressionAttributeNames().get("#projection1"));
+        assertEquals("item_title", request.getExpressionAttributeNames().get("#projection2"));
+
+        assertEquals("title", item.getTitle());
+        assertEquals("unset", item.getBody());
+    }
+
+    @Test
+    public void testLoadWithoutProjection() {
+        mapper.load(key());
+
+        GetItemRequest request = (GetItemRequest) recorder.requests.get(0);
+        assertNull(request.getProjectionExpression());
+        assertNull(request.getExpressionAttributeNames());
+    }
+
+    @Test
+    public void testProjectedLoadBypassesCache() {
+        DynamoDBMapperConfig config = new DynamoDBMapperConfig.Builder()
+                .withItemCache(new ItemCache(10, 1, TimeUnit.MINUTES))
+                .build();
+        mapper.load(key(), Arrays.asList("title"), config);
+        mapper.load(key(), Arrays.asList("title"), config);
+
+        assertEquals(2, recorder.requests.size());
+        assertEquals(0, config.getItemCache().size());
+    }
+
+    @Test
+    public void testUnknownPropertyIsRejected() {
+        try {
+            mapper.load(key(), Arrays.asList("missing"));
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    @Test
+    public void testQueryKeepsExpressionAttributeNames() {
+        Map<String, String> names = new HashMap<String, String>();
+        names.put("#projection0", "body");
+        DynamoDBQueryExpression<Item> expression = new DynamoDBQueryExpression<Item>()
+                .withHashKeyValues(key())
+                .withFilterExpression("attribute_exists(#projection0)")
+                .withExpressionAttributeNames(names)
+                .withProjectedProperties("title");
+        mapper.queryPage(Item.class, expression);
+
+        QueryRequest request = (QueryRequest) recorder.requests.get(0);
+        assertEquals("#projection1, #projection2, #projection3",
+                request.getProjectionExpression());
+        assertEquals("body", request.getExpressionAttributeNames().get("#projection0"));
+        assertEquals("item_title", request.getExpressionAttributeNames().get("#projection3"));
+        assertEquals(1, names.size());
+    }
+
+    @Test
+    public void testScanProjection() {
+        mapper.scanPage(Item.class, new DynamoDBScanExpression()
+                .withProjectedProperties("body"));
+
+        ScanRequest request = (ScanRequest) recorder.requests.get(0);
+        assertEquals("#projection0, #projection1, #projection2",
+                request.getProjectionExpression());
+        assertEquals("body", request.getExpressionAttributeNames().get("#projection2"));
+    }
+
+    @Test
+    public void testCountDropsProjection() {
+        mapper.count(Item.class, new DynamoDBScanExpression()
+                .withProjectedProperties("body"));
+
+        ScanRequest request = (ScanRequest) recorder.requests.get(0);
+        assertNull(request.getProjectionExpression());
+        assertNull(request.getExpressionAttributeNames());
+    }
+
+    @Test
+    public void testSaveAfterProjectedLoadIsRefused() {
+        Item item = mapper.load(key(), Arrays.asList("title"));
+        item.setTitle("new title");
+
+        // body was not loaded, so UPDATE would overwrite it with "unset"
+        try {
+            mapper.save(item);
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+        try {
+            mapper.batchSave(item);
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+        assertEquals(1, recorder.requests.size());
+    }
+
+    @Test
+    public void testSaveAfterProjectedQueryIsRefused() {
+        List<Item> items = mapper.queryPage(Item.class, new DynamoDBQueryExpression<Item>()
+                .withHashKeyValues(key())
+                .withProjectedProperties("title")).getResults();
+        try {
+            mapper.save(items.get(0), new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+        assertEquals(1, recorder.requests.size());
+    }
+
+    @Test
+    public void testSaveAfterProjectedParallelScanIsRefused() {
+        List<Item> items = mapper.parallelScan(Item.class, new DynamoDBScanExpression()
+                .withProjectedProperties("title"), 2);
+        assertEquals(2, items.size());
+        try {
+            mapper.save(items.get(1));
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+        assertEquals(2, recorder.requests.size());
+    }
+
+    @Test
+    public void testSaveAfterProjectedLoadSkippingNulls() {
+        Item item = mapper.load(key(), Arrays.asList("title"));
+        item.setTitle("new title");
+        item.setBody(null);
+        mapper.save(item, new DynamoDBMapperConfig(SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES));
+
+        UpdateItemRequest request = (UpdateItemRequest) recorder.requests.get(1);
+        assertEquals(1, request.getAttributeUpdates().size());
+        assertEquals("new title",
+                request.getAttributeUpdates().get("item_title").getValue().getS());
+    }
+
+    @Test
+    public void testSaveAfterFullLoad() {
+        Item item = mapper.load(key());
+        item.setBody(null);
+        mapper.save(item);
+
+        UpdateItemRequest request = (UpdateItemRequest) recorder.requests.get(1);
+        assertEquals("DELETE", request.getAttributeUpdates().get("body").getAction());
+    }
+
+    private static Item key() {
+        Item key = new Item();
+        key.setId("id");
+        key.setRange("range");
+        return key;
+    }
+
+    @DynamoDBTable(tableName = "projection-test")
+    public static class Item {
+        private String id;
+        private String range;
+        private String title = "unset";
+        private String body = "unset";
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        @DynamoDBRangeKey
+        public String getRange() {
+            return range;
+        }
+
+        public void setRange(String range) {
+            this.range = range;
+        }
+
+        @DynamoDBAttribute(attributeName = "item_title")
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public void setBody(String body) {
+            this.body = body;
+        }
+    }
+
+    /**
+     * Records the requests it receives and answers them with the attributes
+     * named in their projection expression.
+     */
+    private static class RecordingDynamoDB extends FakeDynamoDB {
+        final List<Object> requests = Collections.synchronizedList(new ArrayList<Object>());
+
+        @Override
+        GetItemResult getItem(GetItemRequest request) {
+            requests.add(request);
+            return new GetItemResult().withItem(project(request.getExpressionAttributeNames()));
+        }
+
+        @Override
+        QueryResult query(QueryRequest request) {
+            requests.add(request);
+            return new QueryResult().withCount(1)
+                    .withItems(Arrays.asList(project(request.getExpressionAttributeNames())));
+        }
+
+        @Override
+        ScanResult scan(ScanRequest request) {
+            requests.add(request);
+            return new ScanResult().withCount(1)
+                    .withItems(Arrays.asList(project(request.getExpressionAttributeNames())));
+        }
+
+        @Override
+        UpdateItemResult updateItem(UpdateItemRequest request) {
+            requests.add(request);
+            return new UpdateItemResult().withAttributes(project(null));
+        }
+
+        private static Map<String, AttributeValue> project(Map<String, String> names) {
+            Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", new AttributeValue("id"));
+            item.put("range", new AttributeValue("range"));
+            item.put("item_title", new AttributeValue("title"));
+            item.put("body", new AttributeValue("body"));
+            if (names != null) {
+                item.keySet().retainAll(names.values());
+            }
+            return item;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class StandardItemConverterTest {
+
+    private final ItemConverter converter = ConversionSchemas.V2
+            .getConverter(new ConversionSchema.Dependencies());
+
+    @Test
+    public void testRoundTrip() {
+        Item item = new Item();
+        item.setId("id");
+        item.setCount(3);
+        item.setTags(new HashSet<String>(Arrays.asList("a", "b")));
+        item.setNames(Arrays.asList("x", "y"));
+
+        for (int i = 0; i < 2; i++) {
+            Map<String, AttributeValue> converted = converter.convert(item);
+            assertEquals(4, converted.size());
+            assertEquals("id", converted.get("id").getS());
+            assertEquals("3", converted.get("count").getN());
+            assertEquals(2, converted.get("tags").getSS().size());
+            assertEquals("y", converted.get("names").getL().get(1).getS());
+
+            Item unconverted = converter.unconvert(Item.class, converted);
+            assertEquals("id", unconverted.getId());
+            assertEquals(3, unconverted.getCount());
+            assertEquals(item.getTags(), unconverted.getTags());
+            assertEquals(item.getNames(), unconverted.getNames());
+        }
+    }
+
+    @Test
+    public void testNullAttributesAreSkipped() {
+        Map<String, AttributeValue> converted = converter.convert(new Item());
+        assertEquals(1, converted.size());
+        assertEquals("0", converted.get("count").getN());
+
+        Map<String, AttributeValue> value = new HashMap<String, AttributeValue>();
+        value.put("id", new AttributeValue("id"));
+        Item unconverted = converter.unconvert(Item.class, value);
+        assertEquals("id", unconverted.getId());
+        assertNull(unconverted.getTags());
+    }
+
+    @Test
+    public void testUnsupportedAttributeOnlyFailsWithValue() {
+        UnsupportedItem item = new UnsupportedItem();
+        assertFalse(converter.convert(item).containsKey("value"));
+
+        item.setValue(new Object());
+        try {
+            converter.convert(item);
+            throw new AssertionError("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    @Test
+    public void testMapperReusesConverter() {
+        DynamoDBMapper mapper = new DynamoDBMapper(null);
+        DynamoDBMapperConfig config = DynamoDBMapperConfig.DEFAULT;
+        assertSame(mapper.getConverter(config), mapper.getConverter(config));
+    }
+
+    @DynamoDBTable(tableName = "items")
+    public static class Item {
+        private String id;
+        private int count;
+        private Set<String> tags;
+        private List<String> names;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags) {
+            this.tags = tags;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+    }
+
+    @DynamoDBTable(tableName = "unsupported")
+    public static class UnsupportedItem {
+        private Object value;
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+    }
+}
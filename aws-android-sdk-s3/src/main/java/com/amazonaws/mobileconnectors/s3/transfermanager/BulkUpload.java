@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+/**
+ * Bulk upload of an entire directory. Unlike a regular
+ * {@link MultipleFileUpload}, a bulk upload does not create an individual
+ * {@link Upload} per file, so {@link #getSubTransfers()} is always empty;
+ * instead, progress is reported in aggregate through {@link #getProgress()}
+ * and the file counters of this interface.
+ *
+ * @see TransferManager#uploadDirectoryInBulk(String, String, java.io.File,
+ *      boolean, ObjectMetadataProvider)
+ * @deprecated The Transfer Manager is now deprecated in favor of the
+ *             {@link com.amazonaws.mobileconnectors.s3.transferutility.TransferUtility}
+ */
+@Deprecated
+public interface BulkUpload extends MultipleFileUpload {
+
+    /**
+     * Returns the number of files that have been found so far in the
+     * directory being uploaded.
+     */
+    public long getFilesQueued();
+
+    /**
+     * Returns the number of files that have been successfully uploaded so far.
+     */
+    public long getFilesUploaded();
+
+    /**
+     * Returns the number of files that have failed to upload so far.
+     */
+    public long getFilesFailed();
+
+    /**
+     * Aborts the bulk upload: the directory walk stops and the files not yet
+     * being uploaded are skipped. Files already being uploaded are not
+     * interrupted; the transfer ends in the
+     * {@link Transfer.TransferState#Canceled} state once they are done.
+     */
+    public void abort();
+}
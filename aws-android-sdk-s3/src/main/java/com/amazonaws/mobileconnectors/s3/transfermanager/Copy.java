@@ -17,6 +17,7 @@ package com.amazonaws.mobileconnectors.s3.transfermanager;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.exception.PauseException;
 import com.amazonaws.mobileconnectors.s3.transfermanager.model.CopyResult;
 
 /**
@@ -49,4 +50,42 @@ public interface Copy extends Transfer {
      */
     public CopyResult waitForCopyResult() throws AmazonClientException,
             AmazonServiceException, InterruptedException;
+
+    /**
+     * Pause the current copy operation and returns the information that can
+     * be used to resume the copy. Copy cannot be paused in the following
+     * cases.
+     * <ul>
+     * <li>Server Side Encryption with customer provided key is used.</li>
+     * <li>Size of the object being copied is less than the
+     * {@link TransferManagerConfiguration#getMultipartCopyThreshold()}.</li>
+     * <li>The multi-part copy has not been initiated yet.</li>
+     * </ul>
+     * In such cases, aborts the copy and a <code>PauseException</code> is
+     * thrown.
+     *
+     * @return An opaque token that holds some private state and can be used to
+     *         resume a paused copy operation.
+     * @throws PauseException If failed to pause the operation.
+     */
+    public PersistableCopy pause() throws PauseException;
+
+    /**
+     * Tries to pause the current copy operation and returns the information
+     * that can be used to resume the copy. Copy cannot be paused in the
+     * following cases.
+     * <ul>
+     * <li>Server Side Encryption with customer provided key is used.</li>
+     * <li>Size of the object being copied is less than the
+     * {@link TransferManagerConfiguration#getMultipartCopyThreshold()}.</li>
+     * <li>The multi-part copy has not been initiated yet.</li>
+     * </ul>
+     * In such cases, aborts the copy if forceCancelTransfers is set else no
+     * action is taken.
+     *
+     * @param forceCancelTransfers a boolean to forcefully abort the existing
+     *            copy if pause cannot be done.
+     * @return a result of pause operation.
+     */
+    public PauseResult<PersistableCopy> tryPause(boolean forceCancelTransfers);
 }
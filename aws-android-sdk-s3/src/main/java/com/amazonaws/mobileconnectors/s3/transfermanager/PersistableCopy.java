@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import com.amazonaws.util.json.AwsJsonWriter;
+import com.amazonaws.util.json.JsonUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * An opaque token that holds some private state and can be used to resume a
+ * paused multi-part copy operation.
+ *
+ * @deprecated The Transfer Manager is now deprecated in favor of the
+ *             {@link com.amazonaws.mobileconnectors.s3.transferutility.TransferUtility}
+ */
+@Deprecated
+public final class PersistableCopy extends PersistableTransfer {
+    static final String TYPE = "copy";
+
+    private final String pauseType = TYPE;
+
+    /** The name of the bucket the object is copied from. */
+    private final String sourceBucketName;
+
+    /** The name of the object being copied. */
+    private final String sourceKey;
+
+    /** The version of the object being copied, if any. */
+    private final String sourceVersionId;
+
+    /** The name of the bucket the object is copied to. */
+    private final String destinationBucketName;
+
+    /** The name of the copy in the destination bucket. */
+    private final String destinationKey;
+
+    /** The multi-part upload id associated with this copy. */
+    private final String multipartUploadId;
+
+    /** The part size used for the multi-part copy. */
+    private final long partSize;
+
+    /**
+     * The ETag of the object being copied when the copy was paused, or null
+     * if unknown.
+     */
+    private final String sourceETag;
+
+    public PersistableCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String sourceVersionId,
+            String destinationBucketName,
+            String destinationKey,
+            String multipartUploadId,
+            long partSize) {
+        this(sourceBucketName, sourceKey, sourceVersionId, destinationBucketName,
+                destinationKey, multipartUploadId, partSize, null);
+    }
+
+    /**
+     * @param sourceETag The ETag of the object being copied, which a resumed
+     *            copy requires the object to still have; or null if unknown.
+     */
+    public PersistableCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String sourceVersionId,
+            String destinationBucketName,
+            String destinationKey,
+            String multipartUploadId,
+            long partSize,
+            String sourceETag) {
+        this.sourceBucketName = sourceBucketName;
+        this.sourceKey = sourceKey;
+        this.sourceVersionId = sourceVersionId;
+        this.destinationBucketName = destinationBucketName;
+        this.destinationKey = destinationKey;
+        this.multipartUploadId = multipartUploadId;
+        this.partSize = partSize;
+        this.sourceETag = sourceETag;
+    }
+
+    /**
+     * Returns the name of the source bucket.
+     */
+    String getSourceBucketName() {
+        return sourceBucketName;
+    }
+
+    /**
+     * Returns the name of the source object.
+     */
+    String getSourceKey() {
+        return sourceKey;
+    }
+
+    /**
+     * Returns the version of the source object, or null if unversioned.
+     */
+    String getSourceVersionId() {
+        return sourceVersionId;
+    }
+
+    /**
+     * Returns the name of the destination bucket.
+     */
+    String getDestinationBucketName() {
+        return destinationBucketName;
+    }
+
+    /**
+     * Returns the name of the destination object.
+     */
+    String getDestinationKey() {
+        return destinationKey;
+    }
+
+    /**
+     * Returns the multi part upload id.
+     */
+    String getMultipartUploadId() {
+        return multipartUploadId;
+    }
+
+    /**
+     * Returns the part size used in the multi part copy.
+     */
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the ETag of the source object when the copy was paused, or null
+     * if unknown.
+     */
+    String getSourceETag() {
+        return sourceETag;
+    }
+
+    String getPauseType() {
+        return pauseType;
+    }
+
+    @Override
+    public String serialize() {
+        StringWriter out = new StringWriter();
+        AwsJsonWriter writer = JsonUtils.getJsonWriter(out);
+        try {
+            writer.beginObject()
+                    .name("pauseType").value(TYPE)
+                    .name("sourceBucketName").value(sourceBucketName)
+                    .name("sourceKey").value(sourceKey);
+            if (sourceVersionId != null) {
+                writer.name("sourceVersionId").value(sourceVersionId);
+            }
+            writer.name("destinationBucketName").value(destinationBucketName)
+                    .name("destinationKey").value(destinationKey)
+                    .name("multipartUploadId").value(multipartUploadId)
+                    .name("partSize").value(partSize);
+            if (sourceETag != null) {
+                writer.name("sourceETag").value(sourceETag);
+            }
+            writer.endObject().close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+}
@@ -30,8 +30,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 
 /**
- * Abstract base class for the information of a pausible upload or download;
- * such information can be used to resume the upload or download later on, and
+ * Abstract base class for the information of a pausible upload, download or
+ * copy; such information can be used to resume the transfer later on, and
  * can be serialized/deserialized for persistence purposes.
  *
  * @deprecated The Transfer Manager is now deprecated in favor of the
@@ -80,6 +80,13 @@ public abstract class PersistableTransfer {
         ResponseHeaderOverrides responseHeaders = null;
         boolean isRequesterPays = false;
 
+        String sourceBucketName = null;
+        String sourceKey = null;
+        String sourceVersionId = null;
+        String sourceETag = null;
+        String destinationBucketName = null;
+        String destinationKey = null;
+
         AwsJsonReader reader = JsonUtils
                 .getJsonReader(new BufferedReader(new InputStreamReader(in, StringUtils.UTF8)));
         try {
@@ -137,6 +144,20 @@ public abstract class PersistableTransfer {
                     reader.endObject();
                 } else if (name.equals("isRequesterPays")) {
                     isRequesterPays = Boolean.parseBoolean(reader.nextString());
+                }
+                // copy properties
+                else if (name.equals("sourceBucketName")) {
+                    sourceBucketName = reader.nextString();
+                } else if (name.equals("sourceKey")) {
+                    sourceKey = reader.nextString();
+                } else if (name.equals("sourceVersionId")) {
+                    sourceVersionId = reader.nextString();
+                } else if (name.equals("sourceETag")) {
+                    sourceETag = reader.nextString();
+                } else if (name.equals("destinationBucketName")) {
+                    destinationBucketName = reader.nextString();
+                } else if (name.equals("destinationKey")) {
+                    destinationKey = reader.nextString();
                 } else {
                     reader.skipValue();
                 }
@@ -152,6 +173,10 @@ public abstract class PersistableTransfer {
         } else if (PersistableUpload.TYPE.equals(type)) {
             return (T) new PersistableUpload(bucketName, key, file, multipartUploadId, partSize,
                     mutlipartUploadThreshold);
+        } else if (PersistableCopy.TYPE.equals(type)) {
+            return (T) new PersistableCopy(sourceBucketName, sourceKey, sourceVersionId,
+                    destinationBucketName, destinationKey, multipartUploadId, partSize,
+                    sourceETag);
         } else {
             throw new UnsupportedOperationException(
                     "Unsupported paused transfer type: " + type);
@@ -30,9 +30,12 @@ import com.amazonaws.event.ProgressListener;
 import com.amazonaws.event.ProgressListenerChain;
 import com.amazonaws.event.ProgressListenerChain.ProgressEventFilter;
 import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.BulkUploadEngine;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.BulkUploadImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyCallable;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyMonitor;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DirectorySync;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadImpl;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadMonitor;
 import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileDownloadImpl;
@@ -79,10 +82,14 @@ import java.util.Stack;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -163,6 +170,23 @@ public class TransferManager {
     private final ScheduledExecutorService timedThreadPool = new ScheduledThreadPoolExecutor(1,
             daemonThreadFactory);
 
+    /**
+     * Engine shared by all bulk directory uploads; created on first use since
+     * most transfer managers never need it.
+     */
+    private BulkUploadEngine bulkUploadEngine;
+
+    /**
+     * Thread pool on which the parts of multi-part copies are copied. Copy
+     * parts are processed server side and may take much longer than other
+     * requests, so they are kept off the shared thread pool; the number of
+     * parts of each copy in flight is bounded by
+     * {@link TransferManagerConfiguration#getMultipartCopyPartsInFlight()},
+     * and the number of parts of all copies in flight by
+     * {@link TransferManagerConfiguration#getMultipartCopyMaxThreads()}.
+     */
+    private ExecutorService copyThreadPool;
+
     private static final Log log = LogFactory.getLog(TransferManager.class);
 
     /**
@@ -915,6 +939,60 @@ public class TransferManager {
                 metadataProvider);
     }
 
+    /**
+     * Uploads the files in the directory given that differ from the objects
+     * already in the bucket named, optionally recursing for all
+     * subdirectories.
+     * <p>
+     * A file is uploaded unless an object with the same key and size exists
+     * whose ETag is the MD5 of the file. The MD5 of each file is recorded in
+     * the sync index given, together with the file's size and last modified
+     * time, so that files unchanged since the previous sync are not read
+     * again. Objects uploaded in parts have an ETag that is not an MD5; such
+     * an object is kept if the file is unchanged since the previous sync and
+     * the object is newer than the file. The objects under the key prefix are
+     * listed, and the files to upload selected, before this method returns.
+     * Objects without a corresponding file are left in place.
+     *
+     * @param bucketName The name of the bucket to upload objects to.
+     * @param virtualDirectoryKeyPrefix The key prefix of the virtual directory
+     *            to upload to. Use the null or empty string to upload files to
+     *            the root of the bucket.
+     * @param directory The directory to upload.
+     * @param includeSubdirectories Whether to include subdirectories in the
+     *            upload. If true, files found in subdirectories will be
+     *            included with an appropriate concatenation to the key prefix.
+     * @param metadataProvider A callback of type
+     *            <code>ObjectMetadataProvider</code> which is used to provide
+     *            metadata for each file being uploaded.
+     * @param syncIndex The file in which the sync index of the directory is
+     *            kept; created by the first sync. Use a separate index for
+     *            each directory and destination.
+     */
+    public MultipleFileUpload uploadDirectory(String bucketName, String virtualDirectoryKeyPrefix,
+            File directory, boolean includeSubdirectories, ObjectMetadataProvider metadataProvider,
+            File syncIndex) {
+        if (directory == null || !directory.exists() || !directory.isDirectory()) {
+            throw new IllegalArgumentException("Must provide a directory to upload");
+        }
+        assertParameterNotNull(syncIndex, "A sync index file must be provided");
+
+        List<File> files = new LinkedList<File>();
+        listFiles(directory, files, includeSubdirectories);
+
+        String keyPrefix = virtualDirectoryKeyPrefix;
+        if (keyPrefix == null || keyPrefix.length() == 0) {
+            keyPrefix = "";
+        } else if (!keyPrefix.endsWith("/")) {
+            keyPrefix = keyPrefix + "/";
+        }
+        files = new DirectorySync(s3, bucketName, keyPrefix, syncIndex)
+                .selectFilesToUpload(directory, files);
+
+        return uploadFileList(bucketName, virtualDirectoryKeyPrefix, directory, files,
+                metadataProvider);
+    }
+
     /**
      * Uploads all specified files to the bucket named, constructing relative
      * keys depending on the commonParentDirectory given.
@@ -1049,6 +1127,119 @@ public class TransferManager {
         return multipleFileUpload;
     }
 
+    /**
+     * Uploads all files in the directory given to the bucket named, optionally
+     * recursing for all subdirectories, using the bulk upload engine.
+     * <p>
+     * Unlike {@link #uploadDirectory(String, String, File, boolean)}, the
+     * directory is walked incrementally rather than listed in full up front,
+     * no individual {@link Upload} is created per file, and progress is only
+     * tracked in aggregate. The number of concurrent requests of all bulk
+     * uploads is capped by
+     * {@link TransferManagerConfiguration#getBulkUploadMaxConcurrentRequests()}
+     * . This makes it better suited to directories with a very large number of
+     * small files.
+     * <p>
+     * S3 will overwrite any existing objects that happen to have the same key,
+     * just as when uploading individual files, so use with caution.
+     *
+     * @param bucketName The name of the bucket to upload objects to.
+     * @param virtualDirectoryKeyPrefix The key prefix of the virtual directory
+     *            to upload to. Use the null or empty string to upload files to
+     *            the root of the bucket.
+     * @param directory The directory to upload.
+     * @param includeSubdirectories Whether to include subdirectories in the
+     *            upload. If true, files found in subdirectories will be
+     *            included with an appropriate concatenation to the key prefix.
+     */
+    public BulkUpload uploadDirectoryInBulk(String bucketName, String virtualDirectoryKeyPrefix,
+            File directory, boolean includeSubdirectories) {
+        return uploadDirectoryInBulk(bucketName, virtualDirectoryKeyPrefix, directory,
+                includeSubdirectories, null);
+    }
+
+    /**
+     * Uploads all files in the directory given to the bucket named, optionally
+     * recursing for all subdirectories, using the bulk upload engine.
+     * <p>
+     * Unlike
+     * {@link #uploadDirectory(String, String, File, boolean, ObjectMetadataProvider)}
+     * , the directory is walked incrementally rather than listed in full up
+     * front, no individual {@link Upload} is created per file, and progress is
+     * only tracked in aggregate. The number of concurrent requests of all bulk
+     * uploads is capped by
+     * {@link TransferManagerConfiguration#getBulkUploadMaxConcurrentRequests()}
+     * . This makes it better suited to directories with a very large number of
+     * small files.
+     * <p>
+     * S3 will overwrite any existing objects that happen to have the same key,
+     * just as when uploading individual files, so use with caution.
+     *
+     * @param bucketName The name of the bucket to upload objects to.
+     * @param virtualDirectoryKeyPrefix The key prefix of the virtual directory
+     *            to upload to. Use the null or empty string to upload files to
+     *            the root of the bucket.
+     * @param directory The directory to upload.
+     * @param includeSubdirectories Whether to include subdirectories in the
+     *            upload. If true, files found in subdirectories will be
+     *            included with an appropriate concatenation to the key prefix.
+     * @param metadataProvider A callback of type
+     *            <code>ObjectMetadataProvider</code> which is used to provide
+     *            metadata for each file being uploaded.
+     */
+    public BulkUpload uploadDirectoryInBulk(String bucketName, String virtualDirectoryKeyPrefix,
+            File directory, boolean includeSubdirectories, ObjectMetadataProvider metadataProvider) {
+        if (directory == null || !directory.exists() || !directory.isDirectory()) {
+            throw new IllegalArgumentException("Must provide a directory to upload");
+        }
+
+        if (virtualDirectoryKeyPrefix == null || virtualDirectoryKeyPrefix.length() == 0) {
+            virtualDirectoryKeyPrefix = "";
+        } else if (!virtualDirectoryKeyPrefix.endsWith("/")) {
+            virtualDirectoryKeyPrefix = virtualDirectoryKeyPrefix + "/";
+        }
+
+        /* This is the hook for adding additional progress listeners */
+        ProgressListenerChain additionalListeners = new ProgressListenerChain();
+        TransferProgress progress = new TransferProgress();
+        progress.setTotalBytesToTransfer(0);
+        /*
+         * A single listener shared by all the files of the bulk upload updates
+         * the aggregate progress and forwards ByteTransferred events to the
+         * additional listeners.
+         */
+        ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                progress, additionalListeners);
+
+        BulkUploadImpl bulkUpload = new BulkUploadImpl("Uploading " + directory
+                + " in bulk", progress, additionalListeners, virtualDirectoryKeyPrefix,
+                bucketName);
+        getBulkUploadEngine().submit(bulkUpload, directory, includeSubdirectories,
+                metadataProvider, listener);
+        return bulkUpload;
+    }
+
+    private synchronized ExecutorService getCopyThreadPool() {
+        if (copyThreadPool == null) {
+            int maxThreads = Math.max(1, configuration.getMultipartCopyMaxThreads());
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    copyThreadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            copyThreadPool = executor;
+        }
+        return copyThreadPool;
+    }
+
+    private synchronized BulkUploadEngine getBulkUploadEngine() {
+        if (bulkUploadEngine == null) {
+            bulkUploadEngine = new BulkUploadEngine(this,
+                    configuration.getBulkUploadMaxConcurrentRequests(),
+                    configuration.getBulkUploadQueueCapacity());
+        }
+        return bulkUploadEngine;
+    }
+
     /**
      * Lists files in the directory given and adds them to the result list
      * passed in, optionally adding subdirectories recursively.
@@ -1137,6 +1328,14 @@ public class TransferManager {
     public void shutdownNow(boolean shutDownS3Client) {
         threadPool.shutdownNow();
         timedThreadPool.shutdownNow();
+        synchronized (this) {
+            if (bulkUploadEngine != null) {
+                bulkUploadEngine.shutdownNow();
+            }
+            if (copyThreadPool != null) {
+                copyThreadPool.shutdownNow();
+            }
+        }
 
         if (shutDownS3Client) {
             if (s3 instanceof AmazonS3Client) {
@@ -1153,6 +1352,14 @@ public class TransferManager {
     private void shutdown() {
         threadPool.shutdown();
         timedThreadPool.shutdown();
+        synchronized (this) {
+            if (bulkUploadEngine != null) {
+                bulkUploadEngine.shutdown();
+            }
+            if (copyThreadPool != null) {
+                copyThreadPool.shutdown();
+            }
+        }
     }
 
     public static <X extends AmazonWebServiceRequest> X appendSingleObjectUserAgent(X request) {
@@ -1190,6 +1397,23 @@ public class TransferManager {
         }
     };
 
+    /**
+     * Thread factory for the copy thread pool. The copy threads are daemons
+     * too, so idle copy threads never keep the process alive.
+     */
+    private static final ThreadFactory copyThreadFactory = new ThreadFactory() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            int threadNumber = threadCount.incrementAndGet();
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("S3TransferManagerCopyThread-" + threadNumber);
+            return thread;
+        }
+    };
+
     /**
      * <p>
      * Schedules a new transfer to copy data from one Amazon S3 location to
@@ -1299,6 +1523,45 @@ public class TransferManager {
     public Copy copy(final CopyObjectRequest copyObjectRequest,
             final TransferStateChangeListener stateChangeListener)
             throws AmazonServiceException, AmazonClientException {
+        return doCopy(copyObjectRequest, stateChangeListener, null);
+    }
+
+    /**
+     * Resumes a copy operation. The multi-part upload of the paused copy is
+     * reused; parts already copied are skipped, and only the remaining parts
+     * are copied. The source object must still have the ETag it had when the
+     * copy was paused, so that the parts of the copy all come from the same
+     * object.
+     *
+     * @param persistableCopy the copy to resume.
+     * @return A new <code>Copy</code> object to use to check the state of the
+     *         copy request being processed.
+     * @throws AmazonClientException If any errors are encountered in the client
+     *             while making the request or handling the response, or if
+     *             the source object has changed since the copy was paused.
+     * @throws AmazonServiceException If any errors occurred in Amazon S3 while
+     *             processing the request.
+     */
+    public Copy resumeCopy(PersistableCopy persistableCopy) {
+        assertParameterNotNull(persistableCopy,
+                "PersistableCopy is mandatory to resume a copy.");
+        CopyObjectRequest copyObjectRequest = new CopyObjectRequest(
+                persistableCopy.getSourceBucketName(),
+                persistableCopy.getSourceKey(),
+                persistableCopy.getSourceVersionId(),
+                persistableCopy.getDestinationBucketName(),
+                persistableCopy.getDestinationKey());
+        if (persistableCopy.getSourceETag() != null) {
+            // Every part copied from now on must come from the same object
+            copyObjectRequest.withMatchingETagConstraint(persistableCopy.getSourceETag());
+        }
+        return doCopy(copyObjectRequest, null, persistableCopy);
+    }
+
+    private Copy doCopy(final CopyObjectRequest copyObjectRequest,
+            final TransferStateChangeListener stateChangeListener,
+            final PersistableCopy persistableCopy)
+            throws AmazonServiceException, AmazonClientException {
 
         appendSingleObjectUserAgent(copyObjectRequest);
 
@@ -1322,10 +1585,20 @@ public class TransferManager {
         GetObjectMetadataRequest getObjectMetadataRequest =
                 new GetObjectMetadataRequest(
                         copyObjectRequest.getSourceBucketName(),
-                        copyObjectRequest.getSourceKey())
+                        copyObjectRequest.getSourceKey(),
+                        copyObjectRequest.getSourceVersionId())
                         .withSSECustomerKey(copyObjectRequest.getSourceSSECustomerKey());
 
         ObjectMetadata metadata = s3.getObjectMetadata(getObjectMetadataRequest);
+        if (persistableCopy != null && persistableCopy.getSourceETag() != null
+                && !persistableCopy.getSourceETag().equals(metadata.getETag())) {
+            throw new AmazonClientException("Unable to resume the copy of "
+                    + copyObjectRequest.getSourceBucketName() + "/"
+                    + copyObjectRequest.getSourceKey()
+                    + " as the object has changed since the copy was paused."
+                    + " The parts copied so far belong to multi-part upload "
+                    + persistableCopy.getMultipartUploadId() + ".");
+        }
 
         TransferProgress transferProgress = new TransferProgress();
         transferProgress.setTotalBytesToTransfer(metadata.getContentLength());
@@ -1334,8 +1607,12 @@ public class TransferManager {
                 new TransferProgressUpdatingListener(transferProgress));
         CopyImpl copy = new CopyImpl(description, transferProgress,
                 listenerChain, stateChangeListener);
-        CopyCallable copyCallable = new CopyCallable(this, threadPool, copy,
-                copyObjectRequest, metadata, listenerChain);
+        String multipartUploadId = persistableCopy != null ? persistableCopy
+                .getMultipartUploadId() : null;
+        long partSize = persistableCopy != null ? persistableCopy.getPartSize() : -1;
+        CopyCallable copyCallable = new CopyCallable(this, getCopyThreadPool(),
+                copy, copyObjectRequest, metadata, listenerChain, multipartUploadId,
+                partSize);
         CopyMonitor watcher = new CopyMonitor(this, copy, threadPool,
                 copyCallable, copyObjectRequest, listenerChain);
         watcher.setTimedThreadPool(timedThreadPool);
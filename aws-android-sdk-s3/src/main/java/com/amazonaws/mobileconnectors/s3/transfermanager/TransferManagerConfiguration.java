@@ -18,6 +18,8 @@ package com.amazonaws.mobileconnectors.s3.transfermanager;
 import static com.amazonaws.services.s3.internal.Constants.GB;
 import static com.amazonaws.services.s3.internal.Constants.MB;
 
+import java.io.File;
+
 /**
  * Configuration options for how {@link TransferManager} processes requests.
  * <p>
@@ -47,6 +49,18 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /** Default maximum number of parts of one multi-part copy in flight. */
+    private static final int DEFAULT_MULTIPART_COPY_PARTS_IN_FLIGHT = 10;
+
+    /** Default maximum number of copy part requests of all copies in flight. */
+    private static final int DEFAULT_MULTIPART_COPY_MAX_THREADS = 20;
+
+    /** Default maximum number of concurrent requests of bulk uploads. */
+    private static final int DEFAULT_BULK_UPLOAD_MAX_CONCURRENT_REQUESTS = 10;
+
+    /** Default maximum number of files waiting to be bulk uploaded. */
+    private static final int DEFAULT_BULK_UPLOAD_QUEUE_CAPACITY = 1000;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -85,6 +99,37 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The maximum number of copy part requests of a single multi-part copy
+     * that may be in flight at any one time.
+     */
+    private int multipartCopyPartsInFlight = DEFAULT_MULTIPART_COPY_PARTS_IN_FLIGHT;
+
+    /**
+     * The maximum number of copy part requests that all the multi-part copies
+     * of a transfer manager may have in flight at any one time.
+     */
+    private int multipartCopyMaxThreads = DEFAULT_MULTIPART_COPY_MAX_THREADS;
+
+    /**
+     * The maximum number of requests that bulk directory uploads may have in
+     * flight at any one time, shared by all bulk uploads of a transfer manager.
+     */
+    private int bulkUploadMaxConcurrentRequests = DEFAULT_BULK_UPLOAD_MAX_CONCURRENT_REQUESTS;
+
+    /**
+     * The maximum number of files found by bulk directory uploads that may be
+     * waiting to be uploaded. The directory walk pauses while the queue is
+     * full.
+     */
+    private int bulkUploadQueueCapacity = DEFAULT_BULK_UPLOAD_QUEUE_CAPACITY;
+
+    /**
+     * The directory in which multi-part uploads journal their uploaded parts,
+     * or null if uploads are not journaled.
+     */
+    private File uploadCheckpointDirectory;
+
     /**
      * Returns the minimum part size for upload parts. Decreasing the minimum
      * part size causes multipart uploads to be split into a larger number of
@@ -169,6 +214,52 @@ public class TransferManagerConfiguration {
         this.multipartCopyPartSize = multipartCopyPartSize;
     }
 
+    /**
+     * Returns the maximum number of copy part requests of a single multi-part
+     * copy that may be in flight at any one time.
+     *
+     * @return The maximum number of parts of one copy copied concurrently.
+     */
+    public int getMultipartCopyPartsInFlight() {
+        return multipartCopyPartsInFlight;
+    }
+
+    /**
+     * Sets the maximum number of copy part requests of a single multi-part
+     * copy that may be in flight at any one time. Copy parts are processed
+     * server side, so a copy can usually keep more parts in flight than an
+     * upload without saturating the client's connection.
+     *
+     * @param multipartCopyPartsInFlight The maximum number of parts of one
+     *            copy copied concurrently.
+     */
+    public void setMultipartCopyPartsInFlight(int multipartCopyPartsInFlight) {
+        this.multipartCopyPartsInFlight = multipartCopyPartsInFlight;
+    }
+
+    /**
+     * Returns the maximum number of copy part requests that all the multi-part
+     * copies of a transfer manager may have in flight at any one time.
+     *
+     * @return The number of threads multi-part copies are copied on.
+     */
+    public int getMultipartCopyMaxThreads() {
+        return multipartCopyMaxThreads;
+    }
+
+    /**
+     * Sets the maximum number of copy part requests that all the multi-part
+     * copies of a transfer manager may have in flight at any one time. The
+     * parts of copies started while the threads are busy wait for a thread to
+     * become free. Only read when the first multi-part copy is started.
+     *
+     * @param multipartCopyMaxThreads The number of threads multi-part copies
+     *            are copied on.
+     */
+    public void setMultipartCopyMaxThreads(int multipartCopyMaxThreads) {
+        this.multipartCopyMaxThreads = multipartCopyMaxThreads;
+    }
+
     /**
      * Returns the maximum threshold size of an Amazon S3 object after which the
      * copy operation is carried out using multi-part request.
@@ -192,4 +283,76 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
+
+    /**
+     * Returns the maximum number of requests that bulk directory uploads may
+     * have in flight at any one time. The limit is shared by all bulk uploads
+     * of a transfer manager.
+     *
+     * @return The maximum number of concurrent bulk upload requests.
+     */
+    public int getBulkUploadMaxConcurrentRequests() {
+        return bulkUploadMaxConcurrentRequests;
+    }
+
+    /**
+     * Sets the maximum number of requests that bulk directory uploads may have
+     * in flight at any one time. The limit is shared by all bulk uploads of a
+     * transfer manager, and takes effect when the first bulk upload is
+     * started.
+     *
+     * @param bulkUploadMaxConcurrentRequests The maximum number of concurrent
+     *            bulk upload requests.
+     */
+    public void setBulkUploadMaxConcurrentRequests(int bulkUploadMaxConcurrentRequests) {
+        this.bulkUploadMaxConcurrentRequests = bulkUploadMaxConcurrentRequests;
+    }
+
+    /**
+     * Returns the maximum number of files found by bulk directory uploads that
+     * may be waiting to be uploaded.
+     *
+     * @return The capacity of the bulk upload queue.
+     */
+    public int getBulkUploadQueueCapacity() {
+        return bulkUploadQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of files found by bulk directory uploads that
+     * may be waiting to be uploaded. The directory walk pauses while the queue
+     * is full, which bounds the memory used regardless of the number of files.
+     * Takes effect when the first bulk upload is started.
+     *
+     * @param bulkUploadQueueCapacity The capacity of the bulk upload queue.
+     */
+    public void setBulkUploadQueueCapacity(int bulkUploadQueueCapacity) {
+        this.bulkUploadQueueCapacity = bulkUploadQueueCapacity;
+    }
+
+    /**
+     * Returns the directory in which multi-part uploads journal their
+     * uploaded parts, or null if uploads are not journaled.
+     *
+     * @return The upload checkpoint directory.
+     */
+    public File getUploadCheckpointDirectory() {
+        return uploadCheckpointDirectory;
+    }
+
+    /**
+     * Sets the directory in which multi-part uploads of files journal their
+     * uploaded parts. When set, each part is recorded as soon as it has been
+     * uploaded, and an upload resumed with
+     * {@link TransferManager#resumeUpload(PersistableUpload)} skips the parts
+     * found in its journal instead of listing the parts of the upload in
+     * Amazon S3. The journal survives restarts of the process, and is deleted
+     * when the upload is completed or aborted. Set to null, the default, to
+     * disable journaling.
+     *
+     * @param uploadCheckpointDirectory The upload checkpoint directory.
+     */
+    public void setUploadCheckpointDirectory(File uploadCheckpointDirectory) {
+        this.uploadCheckpointDirectory = uploadCheckpointDirectory;
+    }
 }
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.mobileconnectors.s3.transfermanager.ObjectMetadataProvider;
+import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManager;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads the files of whole directories through a fixed set of worker
+ * threads shared by all bulk uploads of a {@link TransferManager}.
+ * <p>
+ * Each bulk upload walks its directory on a separate walker thread, and feeds
+ * the files it finds into a bounded queue; the walker blocks whenever the queue
+ * is full, so the number of files in memory stays bounded regardless of the
+ * size of the directory. The number of workers caps the number of concurrent
+ * requests, which is the connection budget shared by all bulk uploads. Files
+ * below the multipart threshold are sent with a single
+ * <code>PutObject</code> call directly from the worker, without the per-file
+ * {@link UploadImpl}, monitor and progress listener chain of a regular upload;
+ * larger files are delegated to {@link TransferManager#upload(PutObjectRequest)}
+ * and occupy their worker until they complete.
+ * <p>
+ * Once the engine is shut down, the walks stop and every file still queued is
+ * reported to its bulk upload as failed, so that the bulk upload completes.
+ */
+public class BulkUploadEngine {
+    private static final Log log = LogFactory.getLog(BulkUploadEngine.class);
+
+    private final TransferManager transferManager;
+    private final BlockingQueue<FileUpload> queue;
+    private final ExecutorService workers;
+    private final ExecutorService walkers;
+
+    /** The workers waiting for a file to upload. Guarded by itself. */
+    private final Set<Thread> idleWorkers = new HashSet<Thread>();
+    private volatile boolean shutDown;
+
+    /**
+     * @param transferManager The transfer manager owning this engine.
+     * @param maxConcurrentRequests The number of worker threads, and hence the
+     *            maximum number of concurrent requests.
+     * @param queueCapacity The maximum number of files waiting to be uploaded.
+     */
+    public BulkUploadEngine(TransferManager transferManager, int maxConcurrentRequests,
+            int queueCapacity) {
+        if (maxConcurrentRequests <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                    "The concurrency and queue capacity must be positive");
+        }
+        this.transferManager = transferManager;
+        this.queue = new ArrayBlockingQueue<FileUpload>(queueCapacity);
+        this.workers = Executors.newFixedThreadPool(maxConcurrentRequests,
+                new NamedThreadFactory("s3-transfer-manager-bulk-worker-"));
+        this.walkers = Executors.newCachedThreadPool(
+                new NamedThreadFactory("s3-transfer-manager-bulk-walker-"));
+        for (int i = 0; i < maxConcurrentRequests; i++) {
+            workers.execute(new Worker());
+        }
+    }
+
+    /**
+     * Starts walking the given directory, queuing every file found for upload
+     * on behalf of the given bulk upload.
+     */
+    public void submit(final BulkUploadImpl bulkUpload, final File directory,
+            final boolean includeSubdirectories, final ObjectMetadataProvider metadataProvider,
+            final ProgressListener progressListener) {
+        /*
+         * If the absolute path for the common/base directory does NOT end in a
+         * separator (which is the case for anything but root directories), then
+         * we know there's still a separator between the base directory and the
+         * rest of the file's path, so we increment the starting position by
+         * one.
+         */
+        String basePath = directory.getAbsolutePath();
+        final int startingPosition = basePath.endsWith(File.separator)
+                ? basePath.length()
+                : basePath.length() + 1;
+
+        walkers.execute(new Runnable() {
+            @Override
+            public void run() {
+                AmazonClientException error = null;
+                try {
+                    DirectoryWalker walker = new DirectoryWalker(directory, includeSubdirectories);
+                    while (walker.hasNext() && !bulkUpload.isCanceled()) {
+                        if (shutDown) {
+                            throw new AmazonClientException(
+                                    "TransferManager was shut down during the directory upload");
+                        }
+                        File f = walker.next();
+                        String key = f.getAbsolutePath().substring(startingPosition)
+                                .replaceAll("\\\\", "/");
+
+                        ObjectMetadata metadata = new ObjectMetadata();
+                        if (metadataProvider != null) {
+                            metadataProvider.provideObjectMetadata(f, metadata);
+                        }
+                        PutObjectRequest request = new PutObjectRequest(
+                                bulkUpload.getBucketName(), bulkUpload.getKeyPrefix() + key, f)
+                                .withMetadata(metadata)
+                                .withGeneralProgressListener(progressListener);
+
+                        bulkUpload.fileQueued(f.length());
+                        try {
+                            queue.put(new FileUpload(bulkUpload, request));
+                        } catch (InterruptedException e) {
+                            bulkUpload.fileFailed(new AmazonClientException(
+                                    "Upload of " + f + " interrupted", e));
+                            throw e;
+                        }
+                        if (shutDown) {
+                            // The file may have been queued after the queue
+                            // was drained by the shutdown.
+                            abandonQueuedFiles();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = new AmazonClientException("Directory upload interrupted", e);
+                } catch (AmazonClientException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new AmazonClientException("Unable to walk directory "
+                            + directory + ": " + e.getMessage(), e);
+                } finally {
+                    bulkUpload.walkCompleted(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forcefully shuts down the engine, interrupting uploads in progress;
+     * files still queued are not uploaded and are reported as failed.
+     */
+    public void shutdownNow() {
+        shutDown = true;
+        walkers.shutdownNow();
+        workers.shutdownNow();
+        abandonQueuedFiles();
+    }
+
+    /**
+     * Shuts down the engine without interrupting uploads in progress; files
+     * still queued are not uploaded and are reported as failed.
+     */
+    public void shutdown() {
+        synchronized (idleWorkers) {
+            shutDown = true;
+            for (Thread worker : idleWorkers) {
+                worker.interrupt();
+            }
+        }
+        walkers.shutdown();
+        workers.shutdown();
+        abandonQueuedFiles();
+    }
+
+    private void abandonQueuedFiles() {
+        FileUpload fileUpload;
+        while ((fileUpload = queue.poll()) != null) {
+            abandon(fileUpload);
+        }
+    }
+
+    private static void abandon(FileUpload fileUpload) {
+        fileUpload.bulkUpload.fileFailed(new AmazonClientException(
+                "TransferManager was shut down before " + fileUpload.request.getFile()
+                        + " was uploaded"));
+    }
+
+    private void upload(FileUpload fileUpload) throws InterruptedException {
+        if (fileUpload.bulkUpload.isCanceled()) {
+            fileUpload.bulkUpload.fileCanceled();
+            return;
+        }
+        PutObjectRequest request = fileUpload.request;
+        try {
+            if (TransferManagerUtils.shouldUseMultipartUpload(request,
+                    transferManager.getConfiguration())) {
+                transferManager.upload(request).waitForUploadResult();
+            } else {
+                transferManager.getAmazonS3Client().putObject(
+                        TransferManager.appendSingleObjectUserAgent(request));
+            }
+            fileUpload.bulkUpload.fileUploaded();
+        } catch (InterruptedException e) {
+            fileUpload.bulkUpload.fileFailed(new AmazonClientException(
+                    "Upload of " + request.getFile() + " interrupted", e));
+            throw e;
+        } catch (AmazonClientException e) {
+            log.debug("Unable to upload " + request.getFile(), e);
+            fileUpload.bulkUpload.fileFailed(e);
+        } catch (RuntimeException e) {
+            log.debug("Unable to upload " + request.getFile(), e);
+            fileUpload.bulkUpload.fileFailed(new AmazonClientException(
+                    "Unable to upload " + request.getFile() + ": " + e.getMessage(), e));
+        }
+    }
+
+    private class Worker implements Runnable {
+        @Override
+        public void run() {
+            Thread current = Thread.currentThread();
+            try {
+                while (!shutDown) {
+                    FileUpload next;
+                    synchronized (idleWorkers) {
+                        if (shutDown) {
+                            break;
+                        }
+                        idleWorkers.add(current);
+                    }
+                    try {
+                        next = queue.take();
+                    } finally {
+                        synchronized (idleWorkers) {
+                            idleWorkers.remove(current);
+                        }
+                    }
+                    if (shutDown) {
+                        abandon(next);
+                        break;
+                    }
+                    upload(next);
+                }
+            } catch (InterruptedException e) {
+                // shutting down
+                current.interrupt();
+            }
+        }
+    }
+
+    /** A file waiting in the queue, and the bulk upload it belongs to. */
+    private static final class FileUpload {
+        private final BulkUploadImpl bulkUpload;
+        private final PutObjectRequest request;
+
+        private FileUpload(BulkUploadImpl bulkUpload, PutObjectRequest request) {
+            this.bulkUpload = bulkUpload;
+            this.request = request;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName(prefix + threadCount.incrementAndGet());
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.mobileconnectors.s3.transfermanager.BulkUpload;
+import com.amazonaws.mobileconnectors.s3.transfermanager.TransferProgress;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Upload;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk upload of a directory, tracked through aggregate counters rather than
+ * per-file sub-transfers. The transfer is done once the directory walk has
+ * finished and every file queued by the walk has been processed.
+ * <p>
+ * Aborting the transfer, or cancelling its future, stops the walk and skips
+ * the files still queued; files already being uploaded are not interrupted,
+ * and the transfer ends in the Canceled state once they are done.
+ */
+public class BulkUploadImpl extends MultipleFileTransfer<Upload> implements BulkUpload {
+
+    private final String keyPrefix;
+    private final String bucketName;
+
+    /**
+     * Number of outstanding units of work; starts at one for the directory
+     * walk itself, and is incremented for every file queued.
+     */
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final AtomicLong filesQueued = new AtomicLong();
+    private final AtomicLong filesUploaded = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicReference<AmazonClientException> firstFailure = new AtomicReference<AmazonClientException>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean canceled;
+
+    /** Total size of the files queued so far; only updated by the walker. */
+    private long totalBytesQueued;
+
+    public BulkUploadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, String keyPrefix, String bucketName) {
+        super(description, transferProgress, progressListenerChain,
+                Collections.<Upload> emptyList());
+        this.keyPrefix = keyPrefix;
+        this.bucketName = bucketName;
+        setMonitor(new BulkUploadMonitor());
+    }
+
+    @Override
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    @Override
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Always returns an empty collection, since a bulk upload does not track
+     * individual uploads.
+     */
+    @Override
+    public Collection<? extends Upload> getSubTransfers() {
+        return Collections.unmodifiableCollection(subTransfers);
+    }
+
+    @Override
+    public long getFilesQueued() {
+        return filesQueued.get();
+    }
+
+    @Override
+    public long getFilesUploaded() {
+        return filesUploaded.get();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return filesFailed.get();
+    }
+
+    @Override
+    public void abort() {
+        getMonitor().getFuture().cancel(false);
+    }
+
+    /**
+     * Returns the first error encountered by this bulk upload, or null if none.
+     */
+    public AmazonClientException getFirstFailure() {
+        return firstFailure.get();
+    }
+
+    /**
+     * Records that a file of the given length has been queued for upload.
+     * Called by the directory walk only.
+     */
+    void fileQueued(long length) {
+        pending.incrementAndGet();
+        if (filesQueued.getAndIncrement() == 0) {
+            setState(TransferState.InProgress);
+        }
+        totalBytesQueued += length;
+        getProgress().setTotalBytesToTransfer(totalBytesQueued);
+    }
+
+    void fileUploaded() {
+        filesUploaded.incrementAndGet();
+        finishOne();
+    }
+
+    void fileFailed(AmazonClientException e) {
+        filesFailed.incrementAndGet();
+        firstFailure.compareAndSet(null, e);
+        finishOne();
+    }
+
+    /**
+     * Records that a queued file was skipped because the bulk upload was
+     * cancelled.
+     */
+    void fileCanceled() {
+        finishOne();
+    }
+
+    /**
+     * Returns whether the bulk upload has been cancelled.
+     */
+    boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Records that the directory walk has finished, either normally or with the
+     * given error.
+     */
+    void walkCompleted(AmazonClientException e) {
+        if (e != null) {
+            firstFailure.compareAndSet(null, e);
+        }
+        finishOne();
+    }
+
+    private void finishOne() {
+        if (pending.decrementAndGet() == 0) {
+            if (canceled) {
+                setState(TransferState.Canceled);
+            } else {
+                setState(firstFailure.get() == null
+                        ? TransferState.Completed : TransferState.Failed);
+            }
+            done.countDown();
+        }
+    }
+
+    private class BulkUploadMonitor implements TransferMonitor {
+        private final Future<Object> future = new Future<Object>() {
+
+            /**
+             * Stops the bulk upload; files already being uploaded are not
+             * interrupted, whatever the value of mayInterruptIfRunning.
+             */
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (done.getCount() == 0) {
+                    return false;
+                }
+                canceled = true;
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return canceled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return done.getCount() == 0;
+            }
+
+            @Override
+            public Object get() throws InterruptedException, ExecutionException {
+                done.await();
+                return result();
+            }
+
+            @Override
+            public Object get(long timeout, TimeUnit unit) throws InterruptedException,
+                    ExecutionException, TimeoutException {
+                if (!done.await(timeout, unit)) {
+                    throw new TimeoutException();
+                }
+                return result();
+            }
+
+            private Object result() throws ExecutionException {
+                if (canceled) {
+                    throw new CancellationException();
+                }
+                AmazonClientException e = firstFailure.get();
+                if (e != null) {
+                    throw new ExecutionException(e);
+                }
+                return BulkUploadImpl.this;
+            }
+        };
+
+        @Override
+        public Future<?> getFuture() {
+            return future;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+    }
+}
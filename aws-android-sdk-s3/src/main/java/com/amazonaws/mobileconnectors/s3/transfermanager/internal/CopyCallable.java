@@ -18,6 +18,7 @@ package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListenerCallbackExecutor;
 import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PersistableCopy;
 import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
 import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManager;
 import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManagerConfiguration;
@@ -27,23 +28,21 @@ import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CopyObjectResult;
-import com.amazonaws.services.s3.model.CopyPartRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
 import com.amazonaws.services.s3.model.StorageClass;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 /**
  * An implementation of the Callable interface that helps
@@ -60,6 +59,13 @@ import java.util.concurrent.Future;
  * operation is carried out in a single request where the Amazon S3 object is
  * transferred as one chunk from the source bucket to the destination bucket.
  * </p>
+ * <p>
+ * The parts of a multi-part copy are copied by a {@link CopyPartScheduler},
+ * which keeps at most
+ * {@link TransferManagerConfiguration#getMultipartCopyPartsInFlight()} parts
+ * of this copy in flight. A copy resumed from a {@link PersistableCopy} reuses
+ * the original multi-part upload and skips the parts already copied.
+ * </p>
  */
 public class CopyCallable implements Callable<CopyResult> {
 
@@ -68,12 +74,14 @@ public class CopyCallable implements Callable<CopyResult> {
      * requests are initiated.
      */
     private final AmazonS3 s3;
-    /** Thread pool used during multi-part copy is performed. */
+    /** Thread pool the parts of a multi-part copy are copied on. */
     private final ExecutorService threadPool;
     /** A reference to the original copy request received. */
     private final CopyObjectRequest copyObjectRequest;
     /** Upload id to be used when sending copy part requests. */
-    private String multipartUploadId;
+    private volatile String multipartUploadId;
+    /** Size of each part of the multi-part copy. */
+    private long partSize;
     /** Metadata of the object in the source bucket to be copied. */
     private final ObjectMetadata metadata;
     private final CopyImpl copy;
@@ -84,11 +92,10 @@ public class CopyCallable implements Callable<CopyResult> {
      * to use multi-part copy, part size etc.,
      */
     private final TransferManagerConfiguration configuration;
-    /**
-     * A list of future objects to be returned when multi-part copy is
-     * initiated.
-     */
-    private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
+    /** Copies the parts once the multi-part copy has been initiated. */
+    private volatile CopyPartScheduler scheduler;
+    /** Whether this copy resumes the multi-part upload of a paused copy. */
+    private final boolean isResume;
 
     private final ProgressListenerCallbackExecutor progressListenerChainCallbackExecutor;
 
@@ -96,6 +103,15 @@ public class CopyCallable implements Callable<CopyResult> {
             ExecutorService threadPool, CopyImpl copy,
             CopyObjectRequest copyObjectRequest, ObjectMetadata metadata,
             ProgressListenerChain progressListenerChain) {
+        this(transferManager, threadPool, copy, copyObjectRequest, metadata,
+                progressListenerChain, null, -1);
+    }
+
+    public CopyCallable(TransferManager transferManager,
+            ExecutorService threadPool, CopyImpl copy,
+            CopyObjectRequest copyObjectRequest, ObjectMetadata metadata,
+            ProgressListenerChain progressListenerChain, String uploadId,
+            long partSize) {
         this.s3 = transferManager.getAmazonS3Client();
         this.configuration = transferManager.getConfiguration();
         this.threadPool = threadPool;
@@ -104,24 +120,48 @@ public class CopyCallable implements Callable<CopyResult> {
         this.progressListenerChainCallbackExecutor = ProgressListenerCallbackExecutor
                 .wrapListener(progressListenerChain);
         this.copy = copy;
+        this.multipartUploadId = uploadId;
+        this.partSize = partSize;
+        this.isResume = uploadId != null;
     }
 
-    List<Future<PartETag>> getFutures() {
-        return futures;
+    CopyPartScheduler getScheduler() {
+        return scheduler;
     }
 
     String getMultipartUploadId() {
         return multipartUploadId;
     }
 
+    /**
+     * Returns the information needed to resume this copy, or null if the copy
+     * cannot be paused. Only multi-part copies whose upload has been initiated
+     * can be paused, and only if no customer provided encryption keys are
+     * used, since those are never persisted.
+     */
+    PersistableCopy getPersistableCopy() {
+        if (multipartUploadId == null
+                || copyObjectRequest.getSourceSSECustomerKey() != null
+                || copyObjectRequest.getDestinationSSECustomerKey() != null) {
+            return null;
+        }
+        return new PersistableCopy(copyObjectRequest.getSourceBucketName(),
+                copyObjectRequest.getSourceKey(),
+                copyObjectRequest.getSourceVersionId(),
+                copyObjectRequest.getDestinationBucketName(),
+                copyObjectRequest.getDestinationKey(), multipartUploadId,
+                partSize, metadata.getETag());
+    }
+
     /**
      * Returns true if this CopyCallable is processing a multi-part copy.
      *
      * @return True if this CopyCallable is processing a multi-part copy.
      */
     public boolean isMultipartCopy() {
-        return (metadata.getContentLength() > configuration
-                .getMultipartCopyThreshold());
+        return isResume
+                || (metadata.getContentLength() > configuration
+                        .getMultipartCopyThreshold());
     }
 
     @Override
@@ -170,26 +210,66 @@ public class CopyCallable implements Callable<CopyResult> {
         final String bucketName = copyObjectRequest.getDestinationBucketName();
         final String key = copyObjectRequest.getDestinationKey();
 
-        multipartUploadId = initiateMultipartUpload(copyObjectRequest);
-
-        long optimalPartSize = getOptimalPartSize(metadata.getContentLength());
+        Map<Integer, PartETag> partsToSkip;
+        if (isResume) {
+            // the part size of the paused copy is kept so that the part
+            // boundaries match those of the parts already copied
+            partsToSkip = identifyExistingPartsForResume(bucketName, key,
+                    multipartUploadId);
+        } else {
+            partSize = getOptimalPartSize(metadata.getContentLength());
+            multipartUploadId = initiateMultipartUpload(copyObjectRequest);
+            partsToSkip = new HashMap<Integer, PartETag>();
+        }
 
         try {
             CopyPartRequestFactory requestFactory = new CopyPartRequestFactory(
-                    copyObjectRequest, multipartUploadId, optimalPartSize,
+                    copyObjectRequest, multipartUploadId, partSize,
                     metadata.getContentLength());
-            copyPartsInParallel(requestFactory);
+            copyPartsInParallel(requestFactory, partsToSkip);
         } catch (Exception e) {
             fireProgressEvent(ProgressEvent.FAILED_EVENT_CODE);
-            try {
+            performAbortMultipartUpload();
+            throw e;
+        }
+    }
+
+    /**
+     * Aborts the multi-part upload of this copy, if one was initiated.
+     */
+    void performAbortMultipartUpload() {
+        try {
+            if (multipartUploadId != null)
                 s3.abortMultipartUpload(new AbortMultipartUploadRequest(
-                        bucketName, key, multipartUploadId));
-            } catch (Exception e2) {
-                log.info(
-                        "Unable to abort multipart upload, you may need to manually remove uploaded parts: "
-                                + e2.getMessage(), e2);
+                        copyObjectRequest.getDestinationBucketName(),
+                        copyObjectRequest.getDestinationKey(), multipartUploadId));
+        } catch (Exception e2) {
+            log.info(
+                    "Unable to abort multipart upload, you may need to manually remove uploaded parts: "
+                            + e2.getMessage(), e2);
+        }
+    }
+
+    /**
+     * Lists the parts already copied to the given multi-part upload by a
+     * previous attempt.
+     */
+    private Map<Integer, PartETag> identifyExistingPartsForResume(
+            String bucketName, String key, String uploadId) {
+        Map<Integer, PartETag> partNumbers = new HashMap<Integer, PartETag>();
+        int partNumber = 0;
+
+        while (true) {
+            PartListing parts = s3.listParts(new ListPartsRequest(bucketName,
+                    key, uploadId).withPartNumberMarker(partNumber));
+            for (PartSummary partSummary : parts.getParts()) {
+                partNumbers.put(partSummary.getPartNumber(), new PartETag(
+                        partSummary.getPartNumber(), partSummary.getETag()));
             }
-            throw e;
+            if (!parts.isTruncated()) {
+                return partNumbers;
+            }
+            partNumber = parts.getNextPartNumberMarker();
         }
     }
 
@@ -206,17 +286,14 @@ public class CopyCallable implements Callable<CopyResult> {
     }
 
     /**
-     * Submits a callable for each part to be copied to our thread pool and
-     * records its corresponding Future.
+     * Starts copying the parts on our thread pool, with at most the configured
+     * number of parts in flight.
      */
-    private void copyPartsInParallel(CopyPartRequestFactory requestFactory) {
-        while (requestFactory.hasMoreRequests()) {
-            if (threadPool.isShutdown())
-                throw new CancellationException(
-                        "TransferManager has been shutdown");
-            CopyPartRequest request = requestFactory.getNextCopyPartRequest();
-            futures.add(threadPool.submit(new CopyPartCallable(s3, request)));
-        }
+    private void copyPartsInParallel(CopyPartRequestFactory requestFactory,
+            Map<Integer, PartETag> partsToSkip) {
+        scheduler = new CopyPartScheduler(s3, threadPool, requestFactory,
+                partsToSkip, progressListenerChainCallbackExecutor);
+        scheduler.start(configuration.getMultipartCopyPartsInFlight());
     }
 
     /**
@@ -18,7 +18,11 @@ package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.mobileconnectors.s3.transfermanager.Copy;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PauseResult;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PauseStatus;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PersistableCopy;
 import com.amazonaws.mobileconnectors.s3.transfermanager.TransferProgress;
+import com.amazonaws.mobileconnectors.s3.transfermanager.exception.PauseException;
 import com.amazonaws.mobileconnectors.s3.transfermanager.model.CopyResult;
 
 import java.util.concurrent.ExecutionException;
@@ -66,4 +70,37 @@ public class CopyImpl extends AbstractTransfer implements Copy {
             return null;
         }
     }
+
+    /*
+     * (non-Javadoc)
+     * @see com.amazonaws.mobileconnectors.s3.transfermanager.Copy#pause()
+     */
+    @Override
+    public PersistableCopy pause() throws PauseException {
+        PauseResult<PersistableCopy> pauseResult = pause(true);
+        if (pauseResult.getPauseStatus() != PauseStatus.SUCCESS) {
+            throw new PauseException(pauseResult.getPauseStatus());
+        }
+        return pauseResult.getInfoToResume();
+    }
+
+    /**
+     * Tries to pause and return the information required to resume the copy
+     * operation.
+     */
+    private PauseResult<PersistableCopy> pause(
+            final boolean forceCancelTransfers) throws AmazonClientException {
+        CopyMonitor copyMonitor = (CopyMonitor) monitor;
+        return copyMonitor.pause(forceCancelTransfers);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.amazonaws.mobileconnectors.s3.transfermanager.Copy#tryPause(boolean)
+     */
+    @Override
+    public PauseResult<PersistableCopy> tryPause(boolean forceCancelTransfers) {
+        return pause(forceCancelTransfers);
+    }
 }
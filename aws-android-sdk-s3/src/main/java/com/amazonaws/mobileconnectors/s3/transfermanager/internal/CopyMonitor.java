@@ -19,6 +19,9 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListenerCallbackExecutor;
 import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PauseResult;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PauseStatus;
+import com.amazonaws.mobileconnectors.s3.transfermanager.PersistableCopy;
 import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
 import com.amazonaws.mobileconnectors.s3.transfermanager.TransferManager;
 import com.amazonaws.mobileconnectors.s3.transfermanager.model.CopyResult;
@@ -28,7 +31,6 @@ import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.PartETag;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -69,7 +71,7 @@ public class CopyMonitor implements Callable<CopyResult>, TransferMonitor {
      * State for tracking the upload's progress
      */
     private String uploadId;
-    private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
+    private CopyPartScheduler scheduler;
 
     /*
      * State for clients wishing to poll for completion
@@ -154,14 +156,19 @@ public class CopyMonitor implements Callable<CopyResult>, TransferMonitor {
      * if complete, or reschedules to poll again later if not.
      */
     private CopyResult poll() throws InterruptedException {
-        for (Future<PartETag> f : futures) {
-            if (!f.isDone()) {
-                reschedule();
-                return null;
-            }
+        if (!scheduler.isDone()) {
+            reschedule();
+            return null;
+        }
+
+        // A failed part cancels the other lanes, so look for it first
+        Exception failure = scheduler.getFailure();
+        if (failure != null) {
+            throw new AmazonClientException("Unable to copy part: "
+                    + failure.getMessage(), failure);
         }
 
-        for (Future<PartETag> f : futures) {
+        for (Future<Void> f : scheduler.getLanes()) {
             if (f.isCancelled()) {
                 throw new CancellationException();
             }
@@ -191,7 +198,7 @@ public class CopyMonitor implements Callable<CopyResult>, TransferMonitor {
             copyComplete();
         } else {
             uploadId = multipartCopyCallable.getMultipartUploadId();
-            futures.addAll(multipartCopyCallable.getFutures());
+            scheduler = multipartCopyCallable.getScheduler();
             reschedule();
         }
 
@@ -244,15 +251,46 @@ public class CopyMonitor implements Callable<CopyResult>, TransferMonitor {
     }
 
     private List<PartETag> collectPartETags() {
-        final List<PartETag> partETags = new ArrayList<PartETag>(futures.size());
-        for (Future<PartETag> future : futures) {
+        for (Future<Void> lane : scheduler.getLanes()) {
             try {
-                partETags.add(future.get());
+                lane.get();
             } catch (Exception e) {
                 throw new AmazonClientException("Unable to copy part: "
                         + e.getCause().getMessage(), e.getCause());
             }
         }
-        return partETags;
+        return scheduler.getPartETags();
+    }
+
+    /**
+     * Cancels the copy and returns the information needed to resume it, if
+     * the copy can be paused.
+     *
+     * @param forceCancel Whether to cancel and abort the copy even if it
+     *            cannot be paused.
+     */
+    PauseResult<PersistableCopy> pause(boolean forceCancel) {
+        PersistableCopy persistableCopy = multipartCopyCallable
+                .getPersistableCopy();
+        if (persistableCopy == null) {
+            PauseStatus pauseStatus = TransferManagerUtils
+                    .determinePauseStatus(transfer.getState(), forceCancel);
+            if (forceCancel) {
+                cancelFutures();
+                multipartCopyCallable.performAbortMultipartUpload();
+            }
+            return new PauseResult<PersistableCopy>(pauseStatus);
+        }
+        cancelFutures();
+        return new PauseResult<PersistableCopy>(PauseStatus.SUCCESS,
+                persistableCopy);
+    }
+
+    private void cancelFutures() {
+        getFuture().cancel(true);
+        CopyPartScheduler partScheduler = multipartCopyCallable.getScheduler();
+        if (partScheduler != null) {
+            partScheduler.cancel();
+        }
     }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressListenerCallbackExecutor;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.PartETag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Copies the parts of a single multi-part copy with a bounded number of copy
+ * part requests in flight.
+ * <p>
+ * Rather than submitting one task per part up front, the scheduler starts a
+ * fixed number of lanes, each of which repeatedly takes the next request from
+ * the {@link CopyPartRequestFactory} until none are left. This keeps a large
+ * copy from flooding the executor with thousands of queued tasks, and lets
+ * several copies share the executor fairly. Parts already copied by an
+ * earlier, paused attempt are skipped. When a part fails, the other lanes
+ * stop taking parts and the parts they have in flight are cancelled.
+ */
+public class CopyPartScheduler {
+
+    /** The client used to send the copy part requests. */
+    private final AmazonS3 s3;
+    /** The executor the lanes are run on. */
+    private final ExecutorService executor;
+    /** Source of the copy part requests, shared by all lanes. */
+    private final CopyPartRequestFactory requestFactory;
+    /** Parts copied by a previous attempt, keyed by part number. */
+    private final Map<Integer, PartETag> partsToSkip;
+    private final ProgressListenerCallbackExecutor progressListenerChainCallbackExecutor;
+
+    /** The ETags of the parts copied so far, including skipped parts. */
+    private final List<PartETag> partETags = new ArrayList<PartETag>();
+    private final List<Future<Void>> lanes = new ArrayList<Future<Void>>();
+
+    /** Set when the copy is cancelled or a part fails; lanes stop taking parts. */
+    private volatile boolean stopped = false;
+
+    /** The first failure of a lane, or null. */
+    private volatile Exception failure;
+
+    public CopyPartScheduler(AmazonS3 s3, ExecutorService executor,
+            CopyPartRequestFactory requestFactory, Map<Integer, PartETag> partsToSkip,
+            ProgressListenerCallbackExecutor progressListenerChainCallbackExecutor) {
+        this.s3 = s3;
+        this.executor = executor;
+        this.requestFactory = requestFactory;
+        this.partsToSkip = partsToSkip;
+        this.progressListenerChainCallbackExecutor = progressListenerChainCallbackExecutor;
+    }
+
+    /**
+     * Starts the given number of lanes on the executor.
+     *
+     * @param partsInFlight The maximum number of parts copied concurrently.
+     */
+    public synchronized void start(int partsInFlight) {
+        int laneCount = Math.max(1, partsInFlight);
+        for (int i = 0; i < laneCount; i++) {
+            if (executor.isShutdown())
+                throw new CancellationException("TransferManager has been shutdown");
+            lanes.add(executor.submit(new Lane(i)));
+        }
+    }
+
+    /**
+     * Returns the futures of the lanes; a lane's future completes once there
+     * are no more parts for it to copy.
+     */
+    public synchronized List<Future<Void>> getLanes() {
+        return new ArrayList<Future<Void>>(lanes);
+    }
+
+    /**
+     * Returns true once every lane has finished.
+     */
+    public synchronized boolean isDone() {
+        for (Future<Void> lane : lanes) {
+            if (!lane.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the exception that made a lane fail, or null if none has
+     * failed. The other lanes are cancelled once one fails, so this is the
+     * cause of the copy failing.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops the lanes from starting new parts and cancels the parts in
+     * flight.
+     */
+    public synchronized void cancel() {
+        stopped = true;
+        for (Future<Void> lane : lanes) {
+            lane.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the ETags of all copied parts, sorted by part number as required
+     * to complete the multi-part upload.
+     */
+    public List<PartETag> getPartETags() {
+        List<PartETag> sorted;
+        synchronized (partETags) {
+            sorted = new ArrayList<PartETag>(partETags);
+        }
+        Collections.sort(sorted, new Comparator<PartETag>() {
+            @Override
+            public int compare(PartETag left, PartETag right) {
+                return left.getPartNumber() - right.getPartNumber();
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Returns the next part to copy, or null if there are none left. Parts
+     * copied by an earlier attempt are recorded and skipped.
+     */
+    private CopyPartRequest nextRequest() {
+        while (!stopped) {
+            CopyPartRequest request;
+            synchronized (requestFactory) {
+                if (!requestFactory.hasMoreRequests()) {
+                    return null;
+                }
+                request = requestFactory.getNextCopyPartRequest();
+            }
+            PartETag existing = partsToSkip.get(request.getPartNumber());
+            if (existing == null) {
+                return request;
+            }
+            partCopied(existing, request);
+        }
+        return null;
+    }
+
+    private void partCopied(PartETag partETag, CopyPartRequest request) {
+        synchronized (partETags) {
+            partETags.add(partETag);
+        }
+        if (progressListenerChainCallbackExecutor != null) {
+            progressListenerChainCallbackExecutor.progressChanged(new ProgressEvent(
+                    request.getLastByte() - request.getFirstByte() + 1));
+        }
+    }
+
+    /**
+     * Copies parts one after another until none are left.
+     */
+    private class Lane implements Callable<Void> {
+        private final int index;
+
+        Lane(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                CopyPartRequest request;
+                while ((request = nextRequest()) != null) {
+                    PartETag partETag = s3.copyPart(request).getPartETag();
+                    partCopied(partETag, request);
+                }
+                return null;
+            } catch (Exception e) {
+                // no point in the other lanes copying parts that will
+                // never be completed
+                if (!stopped) {
+                    failure = e;
+                    stopped = true;
+                    cancelOtherLanes();
+                }
+                throw e;
+            }
+        }
+
+        private void cancelOtherLanes() {
+            synchronized (CopyPartScheduler.this) {
+                for (int i = 0; i < lanes.size(); i++) {
+                    if (i != index) {
+                        lanes.get(i).cancel(true);
+                    }
+                }
+            }
+        }
+    }
+}
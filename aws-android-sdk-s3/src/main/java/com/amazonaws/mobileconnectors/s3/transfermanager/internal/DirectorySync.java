@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.iterable.S3Objects;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selects the files of a directory upload that differ from the objects
+ * already in Amazon S3, so that a directory can be kept in sync without
+ * uploading unchanged files again.
+ * <p>
+ * The local files, sorted by key, are merged in a single pass with the
+ * object listing, which Amazon S3 returns page by page in key order, and
+ * with the {@link DirectorySyncIndex} of the previous sync. A file is
+ * skipped if an object with the same key and size exists and either
+ * <ul>
+ * <li>the object's ETag is the MD5 of the file, where the MD5 is taken from
+ * the index if the file's size and last modified time are unchanged, and
+ * computed otherwise; or</li>
+ * <li>the object was uploaded in parts, so its ETag is not an MD5, the file
+ * is unchanged since its MD5 was recorded, and the object is newer than the
+ * file.</li>
+ * </ul>
+ * Every other file is uploaded. The index is rewritten with the MD5 of every
+ * file hashed or found unchanged.
+ */
+public class DirectorySync {
+
+    private static final Log log = LogFactory.getLog(DirectorySync.class);
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final String keyPrefix;
+    private final File indexFile;
+
+    /**
+     * @param s3 The client used to list the objects.
+     * @param bucketName The bucket the directory is uploaded to.
+     * @param keyPrefix The key prefix of the virtual directory, which is
+     *            either empty or ends with a slash.
+     * @param indexFile The index of the directory; created if missing.
+     */
+    public DirectorySync(AmazonS3 s3, String bucketName, String keyPrefix, File indexFile) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Returns the files that need to be uploaded.
+     *
+     * @param directory The common parent directory of the files; keys are
+     *            relative to it.
+     * @param files The files to sync.
+     */
+    public List<File> selectFilesToUpload(File directory, List<File> files) {
+        List<LocalFile> localFiles = sortedLocalFiles(directory, files);
+        List<File> toUpload = new ArrayList<File>();
+
+        Iterator<S3ObjectSummary> objects = S3Objects
+                .withPrefix(s3, bucketName, keyPrefix).iterator();
+        S3ObjectSummary object = objects.hasNext() ? objects.next() : null;
+        DirectorySyncIndex.Reader index = new DirectorySyncIndex.Reader(indexFile);
+        DirectorySyncIndex.Writer nextIndex = openNextIndex();
+        try {
+            for (LocalFile localFile : localFiles) {
+                String objectKey = keyPrefix + localFile.key;
+                while (object != null
+                        && DirectorySyncIndex.compareKeys(object.getKey(), objectKey) < 0) {
+                    object = objects.hasNext() ? objects.next() : null;
+                }
+                S3ObjectSummary existing = object != null
+                        && object.getKey().equals(objectKey) ? object : null;
+
+                DirectorySyncIndex.Entry entry = index.find(localFile.key);
+                byte[] md5 = entry != null && entry.matches(localFile.file)
+                        ? entry.getMd5() : null;
+                boolean unchanged = md5 != null;
+
+                boolean upload;
+                if (existing == null || existing.getSize() != localFile.file.length()) {
+                    upload = true;
+                } else if (isMultipartETag(existing.getETag())) {
+                    upload = !unchanged || existing.getLastModified() == null
+                            || existing.getLastModified().getTime() < localFile.file
+                                    .lastModified();
+                    if (md5 == null) {
+                        // recorded so that the next sync can keep the object
+                        // once it has been replaced by this file
+                        md5 = computeMd5(localFile.file);
+                    }
+                } else {
+                    if (md5 == null) {
+                        md5 = computeMd5(localFile.file);
+                    }
+                    upload = md5 == null || !BinaryUtils.toHex(md5).equalsIgnoreCase(
+                            ServiceUtils.removeQuotes(existing.getETag()));
+                }
+
+                if (upload) {
+                    toUpload.add(localFile.file);
+                }
+                if (md5 != null && nextIndex != null) {
+                    nextIndex = append(nextIndex, new DirectorySyncIndex.Entry(localFile.key,
+                            localFile.file.length(), localFile.file.lastModified(), md5));
+                }
+            }
+            if (nextIndex != null) {
+                nextIndex.commit();
+                nextIndex = null;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to update sync index " + indexFile + ": " + e.getMessage(), e);
+        } finally {
+            index.close();
+            if (nextIndex != null) {
+                nextIndex.discard();
+            }
+        }
+        log.debug("Sync of " + localFiles.size() + " files will upload " + toUpload.size());
+        return toUpload;
+    }
+
+    private DirectorySyncIndex.Writer openNextIndex() {
+        try {
+            return new DirectorySyncIndex.Writer(indexFile);
+        } catch (IOException e) {
+            log.warn("Unable to write sync index " + indexFile + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Appends an entry to the next index, discarding the index if it cannot
+     * be written so that the sync itself still proceeds.
+     */
+    private DirectorySyncIndex.Writer append(DirectorySyncIndex.Writer writer,
+            DirectorySyncIndex.Entry entry) {
+        try {
+            writer.append(entry);
+            return writer;
+        } catch (IOException e) {
+            log.warn("Unable to write sync index " + indexFile + ": " + e.getMessage(), e);
+            writer.discard();
+            return null;
+        }
+    }
+
+    private static byte[] computeMd5(File file) {
+        try {
+            return Md5Utils.computeMD5Hash(file);
+        } catch (IOException e) {
+            log.warn("Unable to compute MD5 of " + file + ", uploading it: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the ETag is that of a multi-part upload, which is not
+     * the MD5 of the object but carries a part count suffix.
+     */
+    private static boolean isMultipartETag(String eTag) {
+        return eTag != null && eTag.indexOf('-') >= 0;
+    }
+
+    /**
+     * Returns the regular files among the given files, with their keys
+     * relative to the directory, sorted by key.
+     */
+    private static List<LocalFile> sortedLocalFiles(File directory, List<File> files) {
+        /*
+         * Keys are computed as in TransferManager#uploadFileList: relative to
+         * the base directory, with a separator between the two unless the
+         * base directory is a root directory.
+         */
+        int startingPosition = directory.getAbsolutePath().length();
+        if (!(directory.getAbsolutePath().endsWith(File.separator)))
+            startingPosition++;
+
+        List<LocalFile> localFiles = new ArrayList<LocalFile>(files.size());
+        for (File f : files) {
+            if (f.isFile()) {
+                localFiles.add(new LocalFile(f.getAbsolutePath().substring(startingPosition)
+                        .replaceAll("\\\\", "/"), f));
+            }
+        }
+        Collections.sort(localFiles, new Comparator<LocalFile>() {
+            @Override
+            public int compare(LocalFile left, LocalFile right) {
+                return DirectorySyncIndex.compareKeys(left.key, right.key);
+            }
+        });
+        return localFiles;
+    }
+
+    private static final class LocalFile {
+        private final String key;
+        private final File file;
+
+        private LocalFile(String key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The on-disk index of a directory sync: one entry of (key, size, last
+ * modified time, MD5) for each file whose content hash is known from a
+ * previous sync, so that unchanged files need not be hashed again.
+ * <p>
+ * Entries are stored in a compact binary file sorted by key, in the same
+ * order in which Amazon S3 lists objects. The index is never loaded into
+ * memory as a whole: a {@link Reader} streams it alongside the sorted local
+ * files and the object listing, and a {@link Writer} writes the next version
+ * to a temporary file that replaces the index once complete.
+ */
+public final class DirectorySyncIndex {
+
+    private static final Log log = LogFactory.getLog(DirectorySyncIndex.class);
+
+    /** Identifies the file format; written at the start of every index. */
+    private static final int MAGIC = 0x53334458;
+    private static final int VERSION = 1;
+    private static final int MD5_LENGTH = 16;
+
+    private DirectorySyncIndex() {
+    }
+
+    /**
+     * Compares two keys in the order in which Amazon S3 lists them, which is
+     * the order of their UTF-8 encoding, and therefore of their code points.
+     * This differs from {@link String#compareTo(String)} for characters
+     * outside the Basic Multilingual Plane.
+     */
+    public static int compareKeys(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int l = left.codePointAt(i);
+            int r = right.codePointAt(j);
+            if (l != r) {
+                return l < r ? -1 : 1;
+            }
+            i += Character.charCount(l);
+            j += Character.charCount(r);
+        }
+        return (left.length() - i) - (right.length() - j);
+    }
+
+    /**
+     * An entry of the index.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long size;
+        private final long lastModified;
+        private final byte[] md5;
+
+        public Entry(String key, long size, long lastModified, byte[] md5) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.md5 = md5;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getMd5() {
+            return md5;
+        }
+
+        /**
+         * Returns true if the entry was recorded for the given file as it is
+         * now, i.e. the file's size and last modified time are unchanged.
+         */
+        public boolean matches(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+    }
+
+    /**
+     * Streams the entries of an index in key order. A missing, unreadable or
+     * corrupt index reads as empty, so that the sync falls back to hashing
+     * the files.
+     */
+    public static final class Reader {
+        private final File file;
+        private DataInputStream in;
+        private Entry next;
+
+        public Reader(File file) {
+            this.file = file;
+            if (!file.isFile()) {
+                return;
+            }
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    log.warn("Ignoring sync index " + file + " in an unknown format");
+                    close();
+                    return;
+                }
+                advance();
+            } catch (IOException e) {
+                log.warn("Unable to read sync index " + file + ": " + e.getMessage(), e);
+                close();
+            }
+        }
+
+        /**
+         * Returns the entry for the given key, or null if there is none.
+         * Entries before the key are skipped, so keys must be looked up in
+         * ascending order.
+         */
+        public Entry find(String key) {
+            while (next != null && compareKeys(next.getKey(), key) < 0) {
+                advance();
+            }
+            if (next != null && next.getKey().equals(key)) {
+                return next;
+            }
+            return null;
+        }
+
+        private void advance() {
+            if (in == null) {
+                next = null;
+                return;
+            }
+            try {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                byte[] md5 = new byte[MD5_LENGTH];
+                in.readFully(md5);
+                next = new Entry(key, size, lastModified, md5);
+            } catch (EOFException e) {
+                close();
+            } catch (IOException e) {
+                log.warn("Unable to read sync index " + file + ": " + e.getMessage(), e);
+                close();
+            }
+        }
+
+        public void close() {
+            next = null;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close sync index " + file, e);
+                }
+                in = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the next version of an index. Entries must be appended in
+     * ascending key order.
+     */
+    public static final class Writer {
+        private final File file;
+        private final File temporaryFile;
+        private final DataOutputStream out;
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            this.temporaryFile = new File(file.getPath() + ".tmp");
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.exists()) {
+                directory.mkdirs();
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                    temporaryFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void append(Entry entry) throws IOException {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getSize());
+            out.writeLong(entry.getLastModified());
+            out.write(entry.getMd5(), 0, MD5_LENGTH);
+        }
+
+        /**
+         * Replaces the index with the entries written.
+         */
+        public void commit() throws IOException {
+            out.close();
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to replace sync index " + file);
+            }
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Unable to replace sync index " + file);
+            }
+        }
+
+        /**
+         * Discards the entries written, leaving the index unchanged.
+         */
+        public void discard() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Unable to close sync index " + temporaryFile, e);
+            }
+            temporaryFile.delete();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Stack;
+
+/**
+ * Iterates over the files of a directory tree without materializing the
+ * complete list of files up front. Only the entries of the directory currently
+ * being visited and the stack of directories still to visit are kept in
+ * memory.
+ */
+public class DirectoryWalker implements Iterator<File> {
+
+    private final boolean includeSubdirectories;
+    private final Stack<File> pendingDirectories = new Stack<File>();
+    private File[] currentEntries;
+    private int currentIndex;
+    private File next;
+
+    /**
+     * @param directory The directory to walk.
+     * @param includeSubdirectories Whether to descend into subdirectories.
+     */
+    public DirectoryWalker(File directory, boolean includeSubdirectories) {
+        this.includeSubdirectories = includeSubdirectories;
+        pendingDirectories.push(directory);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public File next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        File file = next;
+        next = null;
+        return file;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the next regular file of the tree, or null if there are no more.
+     */
+    private File advance() {
+        while (true) {
+            while (currentEntries != null && currentIndex < currentEntries.length) {
+                File f = currentEntries[currentIndex];
+                // Release the reference as soon as the entry is consumed
+                currentEntries[currentIndex++] = null;
+                if (f.isDirectory()) {
+                    if (includeSubdirectories) {
+                        pendingDirectories.push(f);
+                    }
+                } else {
+                    return f;
+                }
+            }
+            if (pendingDirectories.isEmpty()) {
+                currentEntries = null;
+                return null;
+            }
+            currentEntries = pendingDirectories.pop().listFiles();
+            currentIndex = 0;
+        }
+    }
+}
@@ -75,6 +75,11 @@ public class UploadCallable implements Callable<UploadResult> {
 
     private PersistableUpload persistableUpload;
 
+    /**
+     * Journal of the uploaded parts, or null if the upload is not journaled.
+     */
+    private volatile UploadCheckpointJournal journal;
+
     public UploadCallable(TransferManager transferManager,
             ExecutorService threadPool, UploadImpl upload,
             PutObjectRequest putObjectRequest,
@@ -186,6 +191,12 @@ public class UploadCallable implements Callable<UploadResult> {
                     putObjectRequest, multipartUploadId, optimalPartSize);
 
             if (TransferManagerUtils.isUploadParallelizable(putObjectRequest, isUsingEncryption)) {
+                if (configuration.getUploadCheckpointDirectory() != null) {
+                    journal = new UploadCheckpointJournal(
+                            configuration.getUploadCheckpointDirectory(),
+                            putObjectRequest.getBucketName(), putObjectRequest.getKey(),
+                            multipartUploadId);
+                }
                 captureUploadStateIfPossible();
                 uploadPartsInParallel(requestFactory, multipartUploadId);
                 return null;
@@ -223,6 +234,18 @@ public class UploadCallable implements Callable<UploadResult> {
                     "Unable to abort multipart upload, you may need to manually remove uploaded parts: "
                             + e2.getMessage(), e2);
         }
+        deleteCheckpointJournal();
+    }
+
+    /**
+     * Deletes the journal of the uploaded parts, if any, once the multi-part
+     * upload has been completed or aborted.
+     */
+    void deleteCheckpointJournal() {
+        UploadCheckpointJournal uploadJournal = journal;
+        if (uploadJournal != null) {
+            uploadJournal.delete();
+        }
     }
 
     /**
@@ -284,6 +307,11 @@ public class UploadCallable implements Callable<UploadResult> {
     private void uploadPartsInParallel(UploadPartRequestFactory requestFactory,
             String uploadId) {
 
+        if (journal != null && journal.exists()) {
+            skipJournaledParts(requestFactory);
+            return;
+        }
+
         Map<Integer, PartSummary> partNumbers = identifyExistingPartsForResume(uploadId);
 
         while (requestFactory.hasMoreRequests()) {
@@ -297,7 +325,32 @@ public class UploadCallable implements Callable<UploadResult> {
                 transferProgress.updateProgress(summary.getSize());
                 continue;
             }
-            futures.add(threadPool.submit(new UploadPartCallable(s3, request)));
+            futures.add(threadPool.submit(new UploadPartCallable(s3, request, journal)));
+        }
+    }
+
+    /**
+     * Submits a callable for each part not recorded in the journal of a
+     * resumed upload. A journaled part is only skipped if its byte range
+     * matches the part to upload, so a change in part size never skips data.
+     */
+    private void skipJournaledParts(UploadPartRequestFactory requestFactory) {
+        Map<Integer, UploadCheckpointJournal.CompletedPart> completedParts = journal
+                .readCompletedParts();
+
+        while (requestFactory.hasMoreRequests()) {
+            if (threadPool.isShutdown())
+                throw new CancellationException("TransferManager has been shutdown");
+            UploadPartRequest request = requestFactory.getNextUploadPartRequest();
+            UploadCheckpointJournal.CompletedPart part = completedParts.get(request
+                    .getPartNumber());
+            if (part != null && part.getFirstByte() == request.getFileOffset()
+                    && part.getSize() == request.getPartSize()) {
+                eTagsToSkip.add(new PartETag(part.getPartNumber(), part.getETag()));
+                transferProgress.updateProgress(part.getSize());
+                continue;
+            }
+            futures.add(threadPool.submit(new UploadPartCallable(s3, request, journal)));
         }
     }
 
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.mobileconnectors.s3.transfermanager.internal;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An append-only local journal of the parts of a multi-part upload that have
+ * been uploaded, so that a resumed upload can skip them without listing the
+ * parts in Amazon S3, even after the process has been restarted.
+ * <p>
+ * The journal is a text file in the configured checkpoint directory, named
+ * after a hash of the bucket, key and upload id. The first line holds the
+ * upload id; each following line records one uploaded part as its part
+ * number, first and last byte of the file, and ETag, separated by tabs. Each
+ * record is appended in a single write as soon as its part completes, and a
+ * record cut short by a crash, which lacks its terminating line break, is
+ * ignored when the journal is read.
+ */
+public class UploadCheckpointJournal {
+
+    private static final Log log = LogFactory.getLog(UploadCheckpointJournal.class);
+
+    private static final String SUFFIX = ".journal";
+    private static final char SEPARATOR = '\t';
+
+    /** The journal file. */
+    private final File file;
+    /** The multi-part upload id the journal belongs to. */
+    private final String uploadId;
+
+    public UploadCheckpointJournal(File directory, String bucketName,
+            String key, String uploadId) {
+        String name = bucketName + "/" + key + "/" + uploadId;
+        this.file = new File(directory, BinaryUtils.toHex(Md5Utils
+                .computeMD5Hash(name.getBytes(UTF8))) + SUFFIX);
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * Returns the journal file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns true if a journal has been written for this upload.
+     */
+    public boolean exists() {
+        return file.isFile();
+    }
+
+    /**
+     * Records that a part has been uploaded. A failure to write the journal
+     * is logged but not propagated, since the part itself was uploaded
+     * successfully; at worst the part is uploaded again on resume.
+     *
+     * @param partNumber The part number of the uploaded part.
+     * @param firstByte The offset in the file of the first byte of the part.
+     * @param lastByte The offset in the file of the last byte of the part.
+     * @param eTag The ETag returned for the part.
+     */
+    public synchronized void partCompleted(int partNumber, long firstByte,
+            long lastByte, String eTag) {
+        StringBuilder record = new StringBuilder();
+        if (!file.exists()) {
+            record.append(uploadId).append('\n');
+        }
+        record.append(partNumber).append(SEPARATOR)
+                .append(firstByte).append(SEPARATOR)
+                .append(lastByte).append(SEPARATOR)
+                .append(eTag).append('\n');
+
+        OutputStream out = null;
+        try {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.exists()) {
+                directory.mkdirs();
+            }
+            out = new FileOutputStream(file, true);
+            out.write(record.toString().getBytes(UTF8));
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Unable to record part " + partNumber + " in checkpoint journal "
+                    + file + ": " + e.getMessage(), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close checkpoint journal " + file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the parts recorded in the journal, keyed by part number. Returns
+     * an empty map if there is no journal, or if it belongs to a different
+     * upload.
+     */
+    public synchronized Map<Integer, CompletedPart> readCompletedParts() {
+        Map<Integer, CompletedPart> parts = new HashMap<Integer, CompletedPart>();
+        if (!exists()) {
+            return parts;
+        }
+
+        String journal;
+        try {
+            journal = readFully();
+        } catch (IOException e) {
+            log.warn("Unable to read checkpoint journal " + file + ": " + e.getMessage(), e);
+            return parts;
+        }
+
+        // only complete lines count; anything after the last line break is
+        // a record whose write was cut short
+        String[] lines = journal.substring(0, journal.lastIndexOf('\n') + 1).split("\n");
+        if (!uploadId.equals(lines[0])) {
+            log.warn("Ignoring checkpoint journal " + file + " recorded for a different upload");
+            return parts;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            CompletedPart part = parse(lines[i]);
+            if (part != null) {
+                parts.put(part.getPartNumber(), part);
+            }
+        }
+        return parts;
+    }
+
+    private String readFully() throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), UTF8);
+        try {
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+            return content.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Deletes the journal once the upload has been completed or aborted.
+     */
+    public synchronized void delete() {
+        if (file.exists() && !file.delete()) {
+            log.info("Unable to delete checkpoint journal " + file);
+        }
+    }
+
+    /**
+     * Parses a part record, returning null if it is malformed.
+     */
+    private static CompletedPart parse(String line) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length != 4 || fields[3].length() == 0) {
+            return null;
+        }
+        try {
+            return new CompletedPart(Integer.parseInt(fields[0]),
+                    Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A part recorded in the journal.
+     */
+    public static final class CompletedPart {
+        private final int partNumber;
+        private final long firstByte;
+        private final long lastByte;
+        private final String eTag;
+
+        CompletedPart(int partNumber, long firstByte, long lastByte, String eTag) {
+            this.partNumber = partNumber;
+            this.firstByte = firstByte;
+            this.lastByte = lastByte;
+            this.eTag = eTag;
+        }
+
+        public int getPartNumber() {
+            return partNumber;
+        }
+
+        public long getFirstByte() {
+            return firstByte;
+        }
+
+        public long getLastByte() {
+            return lastByte;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Returns the number of bytes in the part.
+         */
+        public long getSize() {
+            return lastByte - firstByte + 1;
+        }
+    }
+}
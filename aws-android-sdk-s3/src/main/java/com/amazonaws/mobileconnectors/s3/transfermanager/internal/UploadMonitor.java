@@ -230,6 +230,7 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
                         .getBucketName(),
                         putObjectRequest.getKey(), uploadId, collectPartETags()));
 
+        multipartUploadCallable.deleteCheckpointJournal();
         uploadComplete();
 
         UploadResult uploadResult = new UploadResult();
@@ -24,14 +24,27 @@ import java.util.concurrent.Callable;
 public class UploadPartCallable implements Callable<PartETag> {
     private final AmazonS3 s3;
     private final UploadPartRequest request;
+    /** Journal the uploaded part is recorded in, or null. */
+    private final UploadCheckpointJournal journal;
 
     public UploadPartCallable(AmazonS3 s3, UploadPartRequest request) {
+        this(s3, request, null);
+    }
+
+    public UploadPartCallable(AmazonS3 s3, UploadPartRequest request,
+            UploadCheckpointJournal journal) {
         this.s3 = s3;
         this.request = request;
+        this.journal = journal;
     }
 
     @Override
     public PartETag call() throws Exception {
-        return s3.uploadPart(request).getPartETag();
+        PartETag partETag = s3.uploadPart(request).getPartETag();
+        if (journal != null) {
+            journal.partCompleted(request.getPartNumber(), request.getFileOffset(),
+                    request.getFileOffset() + request.getPartSize() - 1, partETag.getETag());
+        }
+        return partETag;
     }
 }
@@ -90,12 +90,14 @@ public class ByteRangeCapturingInputStream extends SdkFilterInputStream {
         if (bytesRead == -1)
             return -1;
 
-        if (streamPosition + bytesRead >= startingPosition && streamPosition <= endingPosition) {
-            for (int i = 0; i < bytesRead; i++) {
-                if (streamPosition + i >= startingPosition && streamPosition + i < endingPosition) {
-                    block[blockPosition++] = b[off + i];
-                }
-            }
+        // Copy the overlap between the bytes just read and the capture range
+        // in one go
+        long from = Math.max(streamPosition, startingPosition);
+        long to = Math.min(streamPosition + bytesRead, endingPosition);
+        if (from < to) {
+            int count = (int) (to - from);
+            System.arraycopy(b, off + (int) (from - streamPosition), block, blockPosition, count);
+            blockPosition += count;
         }
 
         streamPosition += bytesRead;
@@ -15,6 +15,7 @@
 
 package com.amazonaws.services.s3.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -27,6 +28,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * Functions like a {@link Cipher} but provides only a subset of all the
@@ -251,6 +253,34 @@ class CipherLite {
         return cipher.update(input, inputOffset, inputLen);
     }
 
+    /**
+     * Continues a multiple-part encryption or decryption operation (depending
+     * on how the underlying cipher was initialized), processing another data
+     * part.
+     * <p>
+     * All <code>input.remaining()</code> bytes starting at
+     * <code>input.position()</code> are processed, and the result is stored in
+     * the output buffer starting at <code>output.position()</code>. Unlike
+     * {@link #update(byte[], int, int)}, no new buffer is allocated, so the
+     * same input and output buffers can be reused across calls.
+     * <p>
+     * If <code>output.remaining()</code> bytes are insufficient to hold the
+     * result, a <code>ShortBufferException</code> is thrown and neither buffer
+     * is modified; the call can then be repeated with a larger output buffer.
+     *
+     * @param input the input ByteBuffer
+     * @param output the output ByteBuffer
+     * @return the number of bytes stored in <code>output</code>
+     * @exception IllegalStateException if the underlying cipher is in a wrong
+     *                state (e.g., has not been initialized)
+     * @exception ShortBufferException if there is insufficient space in the
+     *                output buffer
+     */
+    int update(ByteBuffer input, ByteBuffer output)
+            throws ShortBufferException {
+        return cipher.update(input, output);
+    }
+
     /**
      * Returns the algorithm name of the underlying cipher.
      */
@@ -19,9 +19,11 @@ import com.amazonaws.internal.SdkFilterInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
 /**
  * @author Hanson Char
@@ -52,6 +54,23 @@ public final class CipherLiteInputStream extends SdkFilterInputStream {
     private byte[] bufout;
     private int curr_pos = 0;
     private int max_pos = 0;
+    /**
+     * Input buffer wrapping {@link #bufin} for use with the buffer-based
+     * {@link CipherLite#update(ByteBuffer, ByteBuffer)}.
+     */
+    private final ByteBuffer inBuffer;
+    /**
+     * Output buffer that is reused across chunks to avoid allocating a new
+     * array per read; lazily allocated on first use.
+     */
+    private ByteBuffer outBuffer;
+    /**
+     * False if the underlying cipher has been found to require an output
+     * buffer larger than the reusable one (e.g. a provider that defers all
+     * AES/GCM decryption output until doFinal), in which case this stream
+     * falls back to allocating a new output buffer per chunk.
+     */
+    private boolean reuseOutBuffer = true;
 
     public CipherLiteInputStream(InputStream is, CipherLite cipherLite) {
         this(is, cipherLite, DEFAULT_IN_BUFFER_SIZE, false, false);
@@ -76,6 +95,7 @@ public final class CipherLiteInputStream extends SdkFilterInputStream {
                     + DEFAULT_IN_BUFFER_SIZE);
         }
         this.bufin = new byte[buffsize];
+        this.inBuffer = ByteBuffer.wrap(bufin);
     }
 
     protected CipherLiteInputStream(InputStream is) {
@@ -237,9 +257,38 @@ public final class CipherLiteInputStream extends SdkFilterInputStream {
             }
             return -1;
         }
-        bufout = cipherLite.update(bufin, 0, len);
         curr_pos = 0;
-        return max_pos = (bufout == null ? 0 : bufout.length);
+        return max_pos = update(len);
+    }
+
+    /**
+     * Processes the first <code>len</code> bytes of {@link #bufin} into
+     * {@link #bufout}, reusing the same output buffer whenever the underlying
+     * cipher permits.
+     *
+     * @return the number of processed bytes available in {@link #bufout}
+     */
+    private int update(int len) {
+        if (reuseOutBuffer) {
+            if (outBuffer == null) {
+                outBuffer = ByteBuffer.allocate(bufin.length + 2
+                        * JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE);
+            }
+            inBuffer.clear();
+            inBuffer.limit(len);
+            outBuffer.clear();
+            try {
+                int outLen = cipherLite.update(inBuffer, outBuffer);
+                bufout = outBuffer.array();
+                return outLen;
+            } catch (ShortBufferException e) {
+                // Neither buffer has been touched; fall back to allocation
+                reuseOutBuffer = false;
+                outBuffer = null;
+            }
+        }
+        bufout = cipherLite.update(bufin, 0, len);
+        return bufout == null ? 0 : bufout.length;
     }
 
 }
@@ -15,12 +15,14 @@
 
 package com.amazonaws.services.s3.internal.crypto;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * A AES/GCM specific {@link CipherLite} that support re-processing of input
@@ -187,6 +189,51 @@ final class GCMCipherLite extends CipherLite {
         return out;
     }
 
+    /**
+     * Same as {@link #update(byte[], int, int)} but writes the result directly
+     * into the given output buffer instead of allocating a new one.
+     *
+     * @param input for {@link #mark()} and {@link #reset()} to work correctly,
+     *            the number of remaining bytes should always be in multiple of
+     *            16 bytes except for the very last part of the plaintext.
+     */
+    @Override
+    int update(ByteBuffer input, ByteBuffer output)
+            throws ShortBufferException {
+        int inputLen = input.remaining();
+        int outLen;
+        if (aux == null) {
+            outLen = super.update(input, output);
+            if (outLen > 0)
+                outputByteCount += checkMax(outLen);
+            // There is no need to update "currentCount" here given "aux" is
+            // null, as currentCount is irrelevant when reencryption is NOT in
+            // progress.
+            invisiblyProcessed = outLen == 0 && inputLen > 0;
+        } else {
+            outLen = aux.update(input, output);
+            currentCount += outLen;
+            if (currentCount == outputByteCount) {
+                aux = null; // flip back to the original GCM cipher
+            } else if (currentCount > outputByteCount) {
+                if (Cipher.ENCRYPT_MODE == getCipherMode()) {
+                    throw new IllegalStateException("currentCount=" + currentCount
+                            + " > outputByteCount=" + outputByteCount);
+                }
+                // For decryption, this is possible since AES/CTR doesn't know
+                // about the tag at the end; so drop the excess bytes from the
+                // output buffer
+                int finalBytesLen = (finalBytes == null ? 0 : finalBytes.length);
+                long diff = outputByteCount - (currentCount - outLen) - finalBytesLen;
+                currentCount = outputByteCount - finalBytesLen;
+                aux = null; // flip back to the original GCM cipher
+                output.position(output.position() - outLen + (int) diff);
+                return (int) diff;
+            }
+        }
+        return outLen;
+    }
+
     /**
      * Returns the input delta but only if it will not result in exceeding the
      * limit of the maximum number of bytes that can be processed by AES/GCM.
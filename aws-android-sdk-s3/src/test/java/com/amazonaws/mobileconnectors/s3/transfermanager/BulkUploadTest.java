@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.AbstractTransfer;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.PutObjectResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class BulkUploadTest {
+
+    private static final int FILES = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BlockingS3 s3;
+    private TransferManager transferManager;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < FILES; i++) {
+            folder.newFile("file" + i);
+        }
+        s3 = new BlockingS3();
+        transferManager = new TransferManager((AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(), new Class<?>[] {
+                    AmazonS3.class
+                }, s3));
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setBulkUploadMaxConcurrentRequests(1);
+        configuration.setBulkUploadQueueCapacity(2);
+        transferManager.setConfiguration(configuration);
+    }
+
+    @After
+    public void tearDown() {
+        transferManager.shutdownNow(false);
+    }
+
+    @Test
+    public void testUploadsAllFiles() throws Exception {
+        s3.permits.release(FILES);
+        BulkUpload upload = upload();
+        upload.waitForCompletion();
+
+        assertEquals(TransferState.Completed, upload.getState());
+        assertEquals(FILES, upload.getFilesUploaded());
+    }
+
+    @Test
+    public void testShutdownNowFailsQueuedFiles() throws Exception {
+        BulkUpload upload = upload();
+        assertTrue(s3.started.await(5, TimeUnit.SECONDS));
+
+        transferManager.shutdownNow(false);
+
+        try {
+            future(upload).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        assertEquals(TransferState.Failed, upload.getState());
+        assertEquals(0, upload.getFilesUploaded());
+        assertEquals(upload.getFilesQueued(), upload.getFilesFailed());
+    }
+
+    @Test
+    public void testAbortSkipsQueuedFiles() throws Exception {
+        BulkUpload upload = upload();
+        assertTrue(s3.started.await(5, TimeUnit.SECONDS));
+
+        upload.abort();
+        s3.permits.release(FILES);
+
+        try {
+            future(upload).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException expected) {
+        }
+        assertTrue(future(upload).isCancelled());
+        assertEquals(TransferState.Canceled, upload.getState());
+        // Only the file being uploaded when the upload was aborted is sent
+        assertEquals(1, upload.getFilesUploaded());
+        assertFalse(future(upload).cancel(false));
+    }
+
+    private static Future<?> future(BulkUpload upload) {
+        return ((AbstractTransfer) upload).getMonitor().getFuture();
+    }
+
+    private BulkUpload upload() {
+        return transferManager.uploadDirectoryInBulk("bucket", "prefix", folder.getRoot(),
+                true, null);
+    }
+
+    /**
+     * Lets one PutObject call through per permit, and fails the calls
+     * interrupted while waiting for one.
+     */
+    private static class BlockingS3 implements InvocationHandler {
+        final Semaphore permits = new Semaphore(0);
+        final CountDownLatch started = new CountDownLatch(1);
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("putObject")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            started.countDown();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                throw new AmazonClientException("Upload aborted", e);
+            }
+            return new PutObjectResult();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyPartRequestFactory;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.CopyPartScheduler;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.PartETag;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CopyPartSchedulerTest {
+
+    private static final int PARTS = 20;
+
+    private FakeS3 fake;
+    private AmazonS3 s3;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        fake = new FakeS3();
+        s3 = (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(),
+                new Class<?>[] {
+                    AmazonS3.class
+                }, fake);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLanesBoundPartsInFlight() throws Exception {
+        CopyPartScheduler scheduler = scheduler(Collections.<Integer, PartETag> emptyMap());
+        scheduler.start(3);
+        awaitLanes(scheduler);
+
+        assertEquals(PARTS, fake.calls.get());
+        assertTrue("max in flight " + fake.maxInFlight.get(), fake.maxInFlight.get() <= 3);
+        List<PartETag> partETags = scheduler.getPartETags();
+        assertEquals(PARTS, partETags.size());
+        for (int i = 0; i < PARTS; i++) {
+            assertEquals(i + 1, partETags.get(i).getPartNumber());
+        }
+    }
+
+    @Test
+    public void testSkipsPartsCopiedBefore() throws Exception {
+        Map<Integer, PartETag> copied = new HashMap<Integer, PartETag>();
+        for (int partNumber = 1; partNumber <= 5; partNumber++) {
+            copied.put(partNumber, new PartETag(partNumber, "previous-" + partNumber));
+        }
+        CopyPartScheduler scheduler = scheduler(copied);
+        scheduler.start(2);
+        awaitLanes(scheduler);
+
+        assertEquals(PARTS - 5, fake.calls.get());
+        List<PartETag> partETags = scheduler.getPartETags();
+        assertEquals(PARTS, partETags.size());
+        assertEquals("previous-1", partETags.get(0).getETag());
+        assertEquals("etag-6", partETags.get(5).getETag());
+    }
+
+    @Test
+    public void testFailedPartCancelsOtherLanes() throws Exception {
+        fake.failingPart = 2;
+        fake.slowParts = true;
+        CopyPartScheduler scheduler = scheduler(Collections.<Integer, PartETag> emptyMap());
+        scheduler.start(4);
+        awaitLanes(scheduler);
+
+        assertSame(fake.failure, scheduler.getFailure());
+        int cancelled = 0;
+        for (Future<Void> lane : scheduler.getLanes()) {
+            if (lane.isCancelled()) {
+                cancelled++;
+            }
+        }
+        assertEquals(3, cancelled);
+        assertTrue("copied " + fake.calls.get() + " parts", fake.calls.get() < PARTS);
+    }
+
+    private CopyPartScheduler scheduler(Map<Integer, PartETag> partsToSkip) {
+        CopyPartRequestFactory requestFactory = new CopyPartRequestFactory(
+                new CopyObjectRequest("source-bucket", "source-key", "bucket", "key"),
+                "upload-id", 1, PARTS);
+        return new CopyPartScheduler(s3, executor, requestFactory, partsToSkip, null);
+    }
+
+    private static void awaitLanes(CopyPartScheduler scheduler) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!scheduler.isDone()) {
+            assertTrue("lanes did not finish", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Copies parts after a short pause, tracking how many are in flight. When
+     * slowParts is set, parts other than the failing one take until they are
+     * interrupted.
+     */
+    private static class FakeS3 implements InvocationHandler {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AmazonServiceException failure = new AmazonServiceException("InternalError");
+        volatile int failingPart = -1;
+        volatile boolean slowParts;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("copyPart")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            CopyPartRequest request = (CopyPartRequest) args[0];
+            calls.incrementAndGet();
+            int now = inFlight.incrementAndGet();
+            int max = maxInFlight.get();
+            while (now > max && !maxInFlight.compareAndSet(max, now)) {
+                max = maxInFlight.get();
+            }
+            try {
+                if (request.getPartNumber() == failingPart) {
+                    Thread.sleep(50);
+                    throw failure;
+                }
+                Thread.sleep(slowParts ? TimeUnit.SECONDS.toMillis(30) : 5);
+                CopyPartResult result = new CopyPartResult();
+                result.setPartNumber(request.getPartNumber());
+                result.setETag("etag-" + request.getPartNumber());
+                return result;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DirectorySync;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DirectorySyncIndex;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class DirectorySyncTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AmazonS3 s3;
+    private ObjectListing listing;
+    private File directory;
+    private File index;
+
+    @Before
+    public void setUp() throws Exception {
+        s3 = mock(AmazonS3.class);
+        listing = new ObjectListing();
+        when(s3.listObjects(any(ListObjectsRequest.class))).thenReturn(listing);
+        directory = folder.newFolder("dir");
+        index = new File(folder.getRoot(), "sync.index");
+    }
+
+    @Test
+    public void testUploadsOnlyChangedFiles() throws Exception {
+        File same = write("same.txt", "unchanged");
+        File changed = write("changed.txt", "changed!!");
+        File added = write("sub/added.txt", "added");
+        addObject("prefix/changed.txt", "unchanged", "unchanged");
+        addObject("prefix/same.txt", "unchanged", "unchanged");
+
+        List<File> toUpload = sync(same, changed, added);
+        assertEquals(Arrays.asList(changed, added), toUpload);
+
+        DirectorySyncIndex.Reader reader = new DirectorySyncIndex.Reader(index);
+        assertNotNull(reader.find("changed.txt"));
+        assertNotNull(reader.find("same.txt"));
+        assertNull(reader.find("sub/added.txt"));
+        reader.close();
+    }
+
+    @Test
+    public void testMultipartObjectIsKeptOnceIndexed() throws Exception {
+        File big = write("big.bin", "content");
+        big.setLastModified(1000000L);
+        S3ObjectSummary summary = addObject("prefix/big.bin", "content", null);
+        summary.setETag("0123456789abcdef-2");
+        summary.setLastModified(new Date(2000000L));
+
+        // without an index entry the object cannot be verified
+        assertEquals(Arrays.asList(big), sync(big));
+        // the file is now indexed, and unchanged since
+        assertTrue(sync(big).isEmpty());
+
+        big.setLastModified(3000000L);
+        assertEquals(Arrays.asList(big), sync(big));
+    }
+
+    @Test
+    public void testCompareKeysUsesCodePointOrder() {
+        assertTrue(DirectorySyncIndex.compareKeys("a", "b") < 0);
+        assertTrue(DirectorySyncIndex.compareKeys("a", "ab") < 0);
+        assertEquals(0, DirectorySyncIndex.compareKeys("ab", "ab"));
+        // U+1F600 sorts after U+FFFD in UTF-8, unlike in UTF-16
+        String emoji = new String(Character.toChars(0x1F600));
+        assertTrue(DirectorySyncIndex.compareKeys("\ufffd", emoji) < 0);
+    }
+
+    private List<File> sync(File... files) {
+        return new DirectorySync(s3, "bucket", "prefix/", index).selectFilesToUpload(directory,
+                Arrays.asList(files));
+    }
+
+    private File write(String path, String content) throws Exception {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes(UTF8));
+        out.close();
+        return file;
+    }
+
+    private S3ObjectSummary addObject(String key, String content, String eTagContent) {
+        S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setKey(key);
+        summary.setSize(content.getBytes(UTF8).length);
+        if (eTagContent != null) {
+            summary.setETag(BinaryUtils.toHex(Md5Utils.computeMD5Hash(eTagContent
+                    .getBytes(UTF8))));
+        }
+        listing.getObjectSummaries().add(summary);
+        return summary;
+    }
+}
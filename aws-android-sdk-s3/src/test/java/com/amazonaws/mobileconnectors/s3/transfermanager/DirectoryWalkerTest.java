@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DirectoryWalker;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class DirectoryWalkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        folder.newFile("a");
+        folder.newFile("b");
+        folder.newFolder("empty");
+        folder.newFolder("sub", "nested");
+        folder.newFile("sub/c");
+        folder.newFile("sub/nested/d");
+    }
+
+    @Test
+    public void testWalkIncludingSubdirectories() {
+        Set<String> names = walk(new DirectoryWalker(folder.getRoot(), true));
+        assertEquals(4, names.size());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d")), names);
+    }
+
+    @Test
+    public void testWalkExcludingSubdirectories() {
+        Set<String> names = walk(new DirectoryWalker(folder.getRoot(), false));
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), names);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextPastEnd() {
+        DirectoryWalker walker = new DirectoryWalker(new File(folder.getRoot(), "empty"), true);
+        assertFalse(walker.hasNext());
+        walker.next();
+    }
+
+    private static Set<String> walk(DirectoryWalker walker) {
+        Set<String> names = new HashSet<String>();
+        while (walker.hasNext()) {
+            names.add(walker.next().getName());
+        }
+        return names;
+    }
+}
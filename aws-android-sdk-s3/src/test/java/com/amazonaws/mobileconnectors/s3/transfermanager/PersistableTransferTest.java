@@ -16,6 +16,7 @@
 package com.amazonaws.mobileconnectors.s3.transfermanager;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
@@ -86,4 +87,38 @@ public class PersistableTransferTest {
                 download.getResponseHeaders().getExpires());
     }
 
+    @Test
+    public void testCopy() {
+        PersistableCopy target = new PersistableCopy("sourceBucketName", "sourceKey",
+                "sourceVersionId", "destinationBucketName", "destinationKey",
+                "multipartUploadId", 100, "sourceETag");
+        assertEquals("type", PersistableCopy.TYPE, target.getPauseType());
+
+        String json = target.serialize();
+        PersistableCopy copy = PersistableTransfer.deserializeFrom(json);
+        assertEquals("type", target.getPauseType(), copy.getPauseType());
+        assertEquals("sourceBucketName", target.getSourceBucketName(),
+                copy.getSourceBucketName());
+        assertEquals("sourceKey", target.getSourceKey(), copy.getSourceKey());
+        assertEquals("sourceVersionId", target.getSourceVersionId(),
+                copy.getSourceVersionId());
+        assertEquals("destinationBucketName", target.getDestinationBucketName(),
+                copy.getDestinationBucketName());
+        assertEquals("destinationKey", target.getDestinationKey(), copy.getDestinationKey());
+        assertEquals("multipartUploadId", target.getMultipartUploadId(),
+                copy.getMultipartUploadId());
+        assertTrue("partSize", target.getPartSize() == copy.getPartSize());
+        assertEquals("sourceETag", target.getSourceETag(), copy.getSourceETag());
+    }
+
+    @Test
+    public void testCopyWithoutVersionId() {
+        PersistableCopy target = new PersistableCopy("sourceBucketName", "sourceKey", null,
+                "destinationBucketName", "destinationKey", "multipartUploadId", 100);
+
+        PersistableCopy copy = PersistableTransfer.deserializeFrom(target.serialize());
+        assertNull("sourceVersionId", copy.getSourceVersionId());
+        assertNull("sourceETag", copy.getSourceETag());
+        assertEquals("sourceKey", target.getSourceKey(), copy.getSourceKey());
+    }
 }
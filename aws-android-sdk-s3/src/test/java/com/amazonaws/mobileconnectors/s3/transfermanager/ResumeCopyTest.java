@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResumeCopyTest {
+
+    private AmazonS3 s3;
+    private ObjectMetadata metadata;
+    private List<CopyPartRequest> copyPartRequests;
+    private TransferManager transferManager;
+
+    @Before
+    public void setUp() {
+        s3 = mock(AmazonS3.class);
+        metadata = new ObjectMetadata();
+        metadata.setContentLength(30);
+        when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+
+        PartSummary copied = new PartSummary();
+        copied.setPartNumber(1);
+        copied.setETag("part-1");
+        PartListing listing = new PartListing();
+        listing.setParts(Arrays.asList(copied));
+        when(s3.listParts(any(ListPartsRequest.class))).thenReturn(listing);
+
+        copyPartRequests = Collections.synchronizedList(new ArrayList<CopyPartRequest>());
+        when(s3.copyPart(any(CopyPartRequest.class))).thenAnswer(new Answer<CopyPartResult>() {
+            @Override
+            public CopyPartResult answer(InvocationOnMock invocation) {
+                CopyPartRequest request = (CopyPartRequest) invocation.getArguments()[0];
+                copyPartRequests.add(request);
+                CopyPartResult result = new CopyPartResult();
+                result.setPartNumber(request.getPartNumber());
+                result.setETag("part-" + request.getPartNumber());
+                return result;
+            }
+        });
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(new CompleteMultipartUploadResult());
+
+        transferManager = new TransferManager(s3);
+    }
+
+    @After
+    public void tearDown() {
+        transferManager.shutdownNow(false);
+    }
+
+    @Test
+    public void testResumedPartsRequireSourceETag() throws Exception {
+        metadata.setHeader("ETag", "source-etag");
+
+        transferManager.resumeCopy(paused("source-etag")).waitForCompletion();
+
+        assertEquals(2, copyPartRequests.size());
+        for (CopyPartRequest request : copyPartRequests) {
+            assertEquals(Arrays.asList("source-etag"), request.getMatchingETagConstraints());
+        }
+    }
+
+    @Test
+    public void testResumeFailsIfSourceChanged() {
+        metadata.setHeader("ETag", "new-etag");
+
+        try {
+            transferManager.resumeCopy(paused("source-etag"));
+            fail("Expected the resume to fail");
+        } catch (AmazonClientException expected) {
+        }
+        verify(s3, never()).listParts(any(ListPartsRequest.class));
+        verify(s3, never()).copyPart(any(CopyPartRequest.class));
+    }
+
+    private static PersistableCopy paused(String sourceETag) {
+        return new PersistableCopy("source-bucket", "source-key", null,
+                "destination-bucket", "destination-key", "upload-id", 10, sourceETag);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.UploadCheckpointJournal;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.UploadCheckpointJournal.CompletedPart;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+public class UploadCheckpointJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordedPartsAreReadBack() {
+        UploadCheckpointJournal journal = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "uploadId");
+        assertFalse(journal.exists());
+        assertTrue(journal.readCompletedParts().isEmpty());
+
+        journal.partCompleted(1, 0, 99, "\"etag1\"");
+        journal.partCompleted(3, 200, 249, "\"etag3\"");
+        assertTrue(journal.exists());
+
+        Map<Integer, CompletedPart> parts = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "uploadId").readCompletedParts();
+        assertEquals(2, parts.size());
+        assertEquals("\"etag1\"", parts.get(1).getETag());
+        assertEquals(0, parts.get(1).getFirstByte());
+        assertEquals(100, parts.get(1).getSize());
+        assertEquals(200, parts.get(3).getFirstByte());
+        assertEquals(249, parts.get(3).getLastByte());
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored() throws Exception {
+        UploadCheckpointJournal journal = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "uploadId");
+        journal.partCompleted(1, 0, 99, "\"etag1\"");
+
+        OutputStream out = new FileOutputStream(journal.getFile(), true);
+        out.write("2\t100\t199\t\"eta".getBytes(UTF8));
+        out.close();
+
+        Map<Integer, CompletedPart> parts = journal.readCompletedParts();
+        assertEquals(1, parts.size());
+        assertTrue(parts.containsKey(1));
+    }
+
+    @Test
+    public void testJournalsAreSeparatedByUpload() {
+        UploadCheckpointJournal journal = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "uploadId");
+        journal.partCompleted(1, 0, 99, "\"etag1\"");
+
+        UploadCheckpointJournal other = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "otherUploadId");
+        assertFalse(other.exists());
+        assertTrue(other.readCompletedParts().isEmpty());
+    }
+
+    @Test
+    public void testDelete() {
+        UploadCheckpointJournal journal = new UploadCheckpointJournal(folder.getRoot(),
+                "bucket", "key", "uploadId");
+        journal.partCompleted(1, 0, 99, "\"etag1\"");
+        journal.delete();
+        assertFalse(journal.exists());
+        assertTrue(journal.readCompletedParts().isEmpty());
+    }
+}
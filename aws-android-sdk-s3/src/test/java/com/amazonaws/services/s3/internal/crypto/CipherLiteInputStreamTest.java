@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+public class CipherLiteInputStreamTest {
+    private static final int[] SIZES = {
+            0, 1, 15, 16, 17, 511, 512, 513, 4096, 100000, 1 << 20
+    };
+
+    private static SecretKey cek;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        cek = generator.generateKey();
+    }
+
+    @Test
+    public void testAesCbcRoundTrip() throws Exception {
+        for (int size : SIZES) {
+            roundTrip(ContentCryptoScheme.AES_CBC, size);
+        }
+    }
+
+    @Test
+    public void testAesGcmRoundTrip() throws Exception {
+        for (int size : SIZES) {
+            roundTrip(ContentCryptoScheme.AES_GCM, size);
+        }
+    }
+
+    @Test
+    public void testAesGcmMarkAndReset() throws Exception {
+        byte[] data = randomBytes(8192);
+        byte[] iv = randomIV(ContentCryptoScheme.AES_GCM);
+        CipherLiteInputStream is = new CipherLiteInputStream(
+                new ByteArrayInputStream(data),
+                ContentCryptoScheme.AES_GCM.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE),
+                512);
+        byte[] skipped = new byte[512];
+        IOUtils.readFully(is, skipped);
+        is.mark(-1);
+        byte[] first = new byte[2048];
+        IOUtils.readFully(is, first);
+        is.reset();
+        byte[] second = new byte[2048];
+        IOUtils.readFully(is, second);
+        assertArrayEquals(first, second);
+    }
+
+    private void roundTrip(ContentCryptoScheme scheme, int size) throws Exception {
+        byte[] data = randomBytes(size);
+        byte[] iv = randomIV(scheme);
+
+        CipherLite encrypter = scheme.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE);
+        byte[] expected = scheme.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE)
+                .doFinal(data);
+        byte[] ciphertext = IOUtils.toByteArray(new CipherLiteInputStream(
+                new ByteArrayInputStream(data), encrypter, 4096));
+        assertArrayEquals(expected, ciphertext);
+
+        CipherLite decrypter = scheme.createCipherLite(cek, iv, Cipher.DECRYPT_MODE);
+        byte[] plaintext = IOUtils.toByteArray(new CipherLiteInputStream(
+                new ByteArrayInputStream(ciphertext), decrypter, 512));
+        assertArrayEquals(data, plaintext);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] randomIV(ContentCryptoScheme scheme) {
+        byte[] iv = new byte[scheme.getIVLengthInBytes()];
+        new SecureRandom().nextBytes(iv);
+        return iv;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the open window of the outbound batches of one type on one queue from
+ * the observed arrival rate of requests and latency of batches.
+ * <p>
+ * A new batch is held open for the time it is expected to take to fill up at
+ * the current arrival rate, capped by {@code maxBatchOpenMs}, and, if a
+ * latency target is set, by what is left of the target once the expected
+ * batch latency is taken off. After each request is added, the batch is
+ * closed early if the next request is not expected to arrive before the
+ * batch's deadline, since holding the batch open would only add latency.
+ * Low-rate producers thus send right away, while high-rate producers keep
+ * filling batches.
+ * <p>
+ * Arrival intervals and batch latencies are tracked as exponentially
+ * weighted moving averages. Instances of this class are thread-safe.
+ */
+class AdaptiveBatchWindow {
+
+    /** Weight of a new sample in the moving averages. */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * Headroom over the expected fill time, since arrivals are bursty and the
+     * deadline may fire up to one timer tick early.
+     */
+    private static final double FILL_TIME_HEADROOM = 2.0;
+
+    /** Shortest window worth scheduling, one tick of the batch timer. */
+    private static final long MIN_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final QueueBufferConfig config;
+
+    /** Time of the last arrival, or -1 before the first. */
+    private long lastArrivalNanos = -1;
+
+    /** Average interval between arrivals, or -1 without an estimate yet. */
+    private double meanInterArrivalNanos = -1;
+
+    /** Average time taken to process a batch, or 0 without an estimate yet. */
+    private double meanBatchLatencyNanos = 0;
+
+    AdaptiveBatchWindow(QueueBufferConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Records the arrival of a request.
+     */
+    synchronized void onArrival(long nowNanos) {
+        if (lastArrivalNanos >= 0) {
+            // any gap longer than the maximum window has the same effect, and
+            // clamping it lets the estimate recover quickly after idle periods
+            long interval = Math.min(nowNanos - lastArrivalNanos,
+                    2 * TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs()));
+            meanInterArrivalNanos = meanInterArrivalNanos < 0 ? interval
+                    : meanInterArrivalNanos + ALPHA * (interval - meanInterArrivalNanos);
+        }
+        lastArrivalNanos = nowNanos;
+    }
+
+    /**
+     * Records that the producer was held up by the buffer, so that the time
+     * since the last arrival is not taken as an arrival interval.
+     */
+    synchronized void onStall() {
+        lastArrivalNanos = -1;
+    }
+
+    /**
+     * Records the time taken to process a batch.
+     */
+    synchronized void onBatchCompleted(long latencyNanos) {
+        meanBatchLatencyNanos = meanBatchLatencyNanos == 0 ? latencyNanos
+                : meanBatchLatencyNanos + ALPHA * (latencyNanos - meanBatchLatencyNanos);
+    }
+
+    /**
+     * Returns how long a new batch should be held open, in nanoseconds. A
+     * spent latency budget shortens the window to one timer tick rather than
+     * to nothing, so that requests arriving together still share a batch.
+     */
+    synchronized long openWindowNanos() {
+        double window = TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs());
+        if (meanInterArrivalNanos >= 0) {
+            double fillTime = meanInterArrivalNanos * (config.getMaxBatchSize() - 1)
+                    * FILL_TIME_HEADROOM;
+            window = Math.min(window, Math.max(MIN_WINDOW_NANOS, fillTime));
+        }
+        if (config.getTargetOutboundLatencyMs() > 0) {
+            double budget = TimeUnit.MILLISECONDS.toNanos(config.getTargetOutboundLatencyMs())
+                    - meanBatchLatencyNanos;
+            window = Math.min(window, Math.max(MIN_WINDOW_NANOS, budget));
+        }
+        return (long) window;
+    }
+
+    /**
+     * Returns true if the next request is not expected to arrive before the
+     * given deadline, so that a batch closing then may as well close now.
+     */
+    synchronized boolean isNextArrivalExpectedAfter(long deadlineNanos) {
+        if (meanInterArrivalNanos < 0) {
+            return false;
+        }
+        return lastArrivalNanos + meanInterArrivalNanos > deadlineNanos;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the outbound batches of all send queue buffers. Rather than
+ * parking a thread per open batch until the batch fills up or its
+ * {@code maxBatchOpenMs} elapses, batches register their deadline with a
+ * single hashed timer wheel, and closed batches are run on a small bounded
+ * pool of dispatch threads. A batch that fills up is dispatched right away by
+ * the thread that filled it; the timer only closes the batches that reach
+ * their deadline first.
+ * <p>
+ * The timer wheel is an array of buckets, one per tick. A deadline goes into
+ * the bucket of its tick modulo the number of buckets, and the timer thread
+ * expires the deadlines of each bucket as it advances, one tick at a time.
+ * Scheduling a deadline is constant time, regardless of how many batches are
+ * open. While no deadline is pending the timer thread waits without ticking.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+class OutboundBatchScheduler {
+    private static Log log = LogFactory.getLog(OutboundBatchScheduler.class);
+
+    /** Resolution of the deadlines, in nanoseconds. */
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Number of buckets; a power of two, covering 512 ticks per revolution. */
+    private static final int WHEEL_SIZE = 512;
+
+    private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+
+    /** Reference point of the tick count. */
+    private final long startNanos = System.nanoTime();
+
+    /** The last tick whose deadlines have been expired. Guarded by this. */
+    private long currentTick = 0;
+
+    /** Number of deadlines in the wheel. Guarded by this. */
+    private int pending = 0;
+
+    /** Runs closed batches. */
+    private final ThreadPoolExecutor dispatcher;
+
+    /**
+     * @param dispatchThreads the number of threads that run closed batches
+     */
+    OutboundBatchScheduler(int dispatchThreads) {
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("SQSQueueBufferDispatchThread-"));
+        // let the pool shrink to nothing when the buffers are idle
+        dispatcher.allowCoreThreadTimeOut(true);
+
+        Thread timer = new DaemonThreadFactory("SQSQueueBufferTimerThread-")
+                .newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        runTimer();
+                    }
+                });
+        timer.start();
+    }
+
+    /**
+     * Runs a closed batch on the dispatch pool.
+     */
+    void dispatch(Runnable batch) {
+        dispatcher.execute(batch);
+    }
+
+    /**
+     * Runs the given task on the timer thread once the delay has elapsed. The
+     * task must be quick, and must not block; closing a batch and handing it
+     * to {@link #dispatch(Runnable)} is the intended use. There is no way to
+     * cancel a deadline, so the task must be harmless once its batch has
+     * already been closed.
+     */
+    synchronized void schedule(Runnable task, long delay, TimeUnit unit) {
+        long now = System.nanoTime() - startNanos;
+        if (pending == 0) {
+            // nothing to expire in between, so skip the ticks we idled over
+            currentTick = now / TICK_NANOS;
+        }
+        long deadlineTick = (now + unit.toNanos(delay) + TICK_NANOS - 1) / TICK_NANOS;
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+
+        int bucket = (int) (deadlineTick & (WHEEL_SIZE - 1));
+        wheel[bucket] = new Timeout(task, deadlineTick, wheel[bucket]);
+        if (pending++ == 0) {
+            notifyAll();
+        }
+    }
+
+    private void runTimer() {
+        while (true) {
+            Timeout expired;
+            try {
+                expired = awaitExpired();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Timeout t = expired; t != null; t = t.next) {
+                try {
+                    t.task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Batch deadline task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the next tick with pending deadlines, and removes and returns
+     * the deadlines expired by then, as a linked list.
+     */
+    private synchronized Timeout awaitExpired() throws InterruptedException {
+        while (true) {
+            while (pending == 0) {
+                wait();
+            }
+
+            long nowTick = (System.nanoTime() - startNanos) / TICK_NANOS;
+            if (nowTick <= currentTick) {
+                long waitNanos = (currentTick + 1) * TICK_NANOS
+                        - (System.nanoTime() - startNanos);
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                }
+                continue;
+            }
+
+            // visit each bucket between the last tick and now, but never the
+            // same bucket twice when catching up after a long pause
+            Timeout expired = null;
+            long ticks = Math.min(nowTick - currentTick, WHEEL_SIZE);
+            for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+                int bucket = (int) (tick & (WHEEL_SIZE - 1));
+                Timeout remaining = null;
+                Timeout t = wheel[bucket];
+                while (t != null) {
+                    Timeout next = t.next;
+                    if (t.deadlineTick <= nowTick) {
+                        t.next = expired;
+                        expired = t;
+                        pending--;
+                    } else {
+                        t.next = remaining;
+                        remaining = t;
+                    }
+                    t = next;
+                }
+                wheel[bucket] = remaining;
+            }
+            currentTick = nowTick;
+            if (expired != null) {
+                return expired;
+            }
+        }
+    }
+
+    /**
+     * A pending deadline; the deadlines of a bucket form a linked list.
+     */
+    private static final class Timeout {
+        final Runnable task;
+        final long deadlineTick;
+        Timeout next;
+
+        Timeout(Runnable task, long deadlineTick, Timeout next) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Daemon threads, so that neither the timer nor idle dispatch threads keep
+     * the process running.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        final String prefix;
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            int threadNumber = threadCount.addAndGet(1);
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName(prefix + threadNumber);
+            return thread;
+        }
+    }
+}
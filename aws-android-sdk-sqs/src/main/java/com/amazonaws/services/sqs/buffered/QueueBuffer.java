@@ -16,6 +16,7 @@
 package com.amazonaws.services.sqs.buffered;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
@@ -65,11 +66,24 @@ class QueueBuffer {
      */
     static ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());;
 
+    /**
+     * The scheduler of the outbound batches of all queue buffers. Open batches
+     * wait on its single timer thread rather than on a thread of their own,
+     * and closed batches run on its bounded pool, so the number of threads
+     * does not grow with the number of queues. Batches spend most of their
+     * time waiting on a connection, so the pool is sized to keep twice the
+     * default number of connections busy. Its timer also paces the visibility
+     * checks of receive buffers that prefetch adaptively.
+     */
+    static OutboundBatchScheduler outboundBatchScheduler = new OutboundBatchScheduler(
+            2 * ClientConfiguration.DEFAULT_MAX_CONNECTIONS);
+
     QueueBuffer(QueueBufferConfig paramConfig, String url, AmazonSQSAsync sqs) {
         realSqs = sqs;
         config = paramConfig;
-        sendBuffer = new SendQueueBuffer(sqs, executor, paramConfig, url);
-        receiveBuffer = new ReceiveQueueBuffer(sqs, executor, paramConfig, url);
+        sendBuffer = new SendQueueBuffer(sqs, outboundBatchScheduler, paramConfig, url);
+        receiveBuffer = new ReceiveQueueBuffer(sqs, executor, outboundBatchScheduler,
+                paramConfig, url);
     }
 
     /**
@@ -117,6 +117,44 @@ public class QueueBufferConfig {
 
     public static final int LONGPOLL_WAIT_TIMEOUT_SECONDS_DEFAULT = 20;
 
+    /**
+     * Whether the time a send batch is held open adapts to the rate at which
+     * outbound requests arrive. In adaptive mode, {@code maxBatchOpenMs} is
+     * the upper bound of the window; a batch is held open only as long as it
+     * is expected to take to fill up, and is sent right away when the next
+     * request is not expected before the batch's deadline.
+     */
+    private boolean adaptiveBatchOpen;
+
+    /** false */
+    public static final boolean ADAPTIVE_BATCH_OPEN_DEFAULT = false;
+
+    /**
+     * The target time (milliseconds) from the arrival of an outbound request
+     * to the completion of its batch, used in adaptive mode. The window of a
+     * batch is shortened by the observed time taken to process batches, so
+     * that the two together stay within the target. Set it to -1 to bound the
+     * window by {@code maxBatchOpenMs} only.
+     */
+    private long targetOutboundLatencyMs;
+
+    /** -1, which means no target */
+    public static final long TARGET_OUTBOUND_LATENCY_MS_DEFAULT = -1;
+
+    /**
+     * Whether receive prefetching adapts to the rate at which consumers take
+     * messages. In adaptive mode, no more batches are prefetched than
+     * consumers are expected to take within half a visibility timeout, up to
+     * {@code maxDoneReceiveBatches}. Shortly before buffered messages would
+     * become visible again, their visibility is extended if consumers are
+     * expected to take them in time, or else they are returned to the queue
+     * right away for other consumers to receive.
+     */
+    private boolean adaptivePrefetching;
+
+    /** false */
+    public static final boolean ADAPTIVE_PREFETCHING_DEFAULT = false;
+
     public QueueBufferConfig(long maxBatchOpenMs,
             int maxInflightOutboundBatches,
             int maxInflightReceiveBatches,
@@ -136,6 +174,9 @@ public class QueueBufferConfig {
         this.visibilityTimeoutSeconds = visibilityTimeout;
         this.longPollWaitTimeoutSeconds = longPollTimeout;
         this.maxBatchSize = maxBatch;
+        this.adaptiveBatchOpen = ADAPTIVE_BATCH_OPEN_DEFAULT;
+        this.targetOutboundLatencyMs = TARGET_OUTBOUND_LATENCY_MS_DEFAULT;
+        this.adaptivePrefetching = ADAPTIVE_PREFETCHING_DEFAULT;
     }
 
     public QueueBufferConfig() {
@@ -161,6 +202,9 @@ public class QueueBufferConfig {
         maxInflightOutboundBatches = other.maxInflightOutboundBatches;
         maxInflightReceiveBatches = other.maxInflightReceiveBatches;
         visibilityTimeoutSeconds = other.visibilityTimeoutSeconds;
+        adaptiveBatchOpen = other.adaptiveBatchOpen;
+        targetOutboundLatencyMs = other.targetOutboundLatencyMs;
+        adaptivePrefetching = other.adaptivePrefetching;
     }
 
     @Override
@@ -173,7 +217,10 @@ public class QueueBufferConfig {
                 + maxDoneReceiveBatches + ", maxBatchSizeBytes="
                 + maxBatchSizeBytes + ", visibilityTimeoutSeconds="
                 + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds="
-                + longPollWaitTimeoutSeconds + "]";
+                + longPollWaitTimeoutSeconds + ", adaptiveBatchOpen="
+                + adaptiveBatchOpen + ", targetOutboundLatencyMs="
+                + targetOutboundLatencyMs + ", adaptivePrefetching="
+                + adaptivePrefetching + "]";
     }
 
     /**
@@ -427,6 +474,91 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * Whether the time a send batch is held open adapts to the rate at which
+     * outbound requests arrive. In adaptive mode, {@code maxBatchOpenMs} is
+     * the upper bound of the window; a batch is held open only as long as it
+     * is expected to take to fill up, and is sent right away when the next
+     * request is not expected before the batch's deadline.
+     */
+    public boolean isAdaptiveBatchOpen() {
+        return adaptiveBatchOpen;
+    }
+
+    /**
+     * Whether the time a send batch is held open adapts to the rate at which
+     * outbound requests arrive. In adaptive mode, {@code maxBatchOpenMs} is
+     * the upper bound of the window; a batch is held open only as long as it
+     * is expected to take to fill up, and is sent right away when the next
+     * request is not expected before the batch's deadline.
+     */
+    public void setAdaptiveBatchOpen(boolean adaptiveBatchOpen) {
+        this.adaptiveBatchOpen = adaptiveBatchOpen;
+    }
+
+    public QueueBufferConfig withAdaptiveBatchOpen(boolean adaptiveBatchOpen) {
+        this.adaptiveBatchOpen = adaptiveBatchOpen;
+        return this;
+    }
+
+    /**
+     * The target time (milliseconds) from the arrival of an outbound request
+     * to the completion of its batch, used in adaptive mode. The window of a
+     * batch is shortened by the observed time taken to process batches, so
+     * that the two together stay within the target. -1 means the window is
+     * bounded by {@code maxBatchOpenMs} only.
+     */
+    public long getTargetOutboundLatencyMs() {
+        return targetOutboundLatencyMs;
+    }
+
+    /**
+     * The target time (milliseconds) from the arrival of an outbound request
+     * to the completion of its batch, used in adaptive mode. The window of a
+     * batch is shortened by the observed time taken to process batches, so
+     * that the two together stay within the target. Set it to -1 to bound the
+     * window by {@code maxBatchOpenMs} only.
+     */
+    public void setTargetOutboundLatencyMs(long targetOutboundLatencyMs) {
+        this.targetOutboundLatencyMs = targetOutboundLatencyMs;
+    }
+
+    public QueueBufferConfig withTargetOutboundLatencyMs(long targetOutboundLatencyMs) {
+        this.targetOutboundLatencyMs = targetOutboundLatencyMs;
+        return this;
+    }
+
+    /**
+     * Whether receive prefetching adapts to the rate at which consumers take
+     * messages. In adaptive mode, no more batches are prefetched than
+     * consumers are expected to take within half a visibility timeout, up to
+     * {@code maxDoneReceiveBatches}. Shortly before buffered messages would
+     * become visible again, their visibility is extended if consumers are
+     * expected to take them in time, or else they are returned to the queue
+     * right away for other consumers to receive.
+     */
+    public boolean isAdaptivePrefetching() {
+        return adaptivePrefetching;
+    }
+
+    /**
+     * Whether receive prefetching adapts to the rate at which consumers take
+     * messages. In adaptive mode, no more batches are prefetched than
+     * consumers are expected to take within half a visibility timeout, up to
+     * {@code maxDoneReceiveBatches}. Shortly before buffered messages would
+     * become visible again, their visibility is extended if consumers are
+     * expected to take them in time, or else they are returned to the queue
+     * right away for other consumers to receive.
+     */
+    public void setAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+    }
+
+    public QueueBufferConfig withAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+        return this;
+    }
+
     /**
      * this method checks the config for validity. If the config is deemed to be
      * invalid, an informative exception is thrown.
@@ -18,7 +18,9 @@ package com.amazonaws.services.sqs.buffered;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -29,8 +31,10 @@ import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -48,17 +52,41 @@ import java.util.concurrent.TimeUnit;
  * hold the monitor of the "finishedTasks" list to modify the list - If you need
  * to lock both futures and finishedTasks, lock futures first and finishedTasks
  * second
+ * <p>
+ * In adaptive prefetching mode, the buffer also tracks the rate at which
+ * consumers take messages. It prefetches no more than consumers are expected
+ * to take within half a visibility timeout, and checks each buffered batch
+ * shortly before its messages become visible again: the visibility of the
+ * batch is extended if consumers are expected to get to it in time, and the
+ * batch is returned to the queue otherwise. The checks are timed by the
+ * scheduler of the outbound batches and run on the executor.
  */
 public class ReceiveQueueBuffer {
 
     private static Log log = LogFactory.getLog(ReceiveQueueBuffer.class);
 
+    /**
+     * How long before the visibility deadline of a buffered batch it is
+     * checked, at most; a quarter of the visibility timeout for short
+     * timeouts.
+     */
+    private static final long VISIBILITY_CHECK_MARGIN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /** Period over which the drain rate is sampled. */
+    private static final long DRAIN_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Weight of a new sample in the moving average of the drain rate. */
+    private static final double DRAIN_RATE_ALPHA = 0.3;
+
     private final QueueBufferConfig config;
 
     private final String qUrl;
 
     private final Executor executor;
 
+    /** Times the visibility checks of buffered batches. */
+    private final OutboundBatchScheduler scheduler;
+
     private final AmazonSQS sqsClient;
 
     private long bufferCounter = 0;
@@ -92,10 +120,26 @@ public class ReceiveQueueBuffer {
     /** finished batches are stored in this list. */
     private LinkedList<ReceiveMessageBatchTask> finishedTasks = new LinkedList<ReceiveMessageBatchTask>();
 
-    ReceiveQueueBuffer(AmazonSQS paramSQS, Executor paramExecutor, QueueBufferConfig paramConfig,
-            String url) {
+    /**
+     * Messages handed to consumers since {@code drainSampleStartNanos}.
+     * Synchronized by {@code finishedTasks}.
+     */
+    private int drainedInSample = 0;
+
+    /** Synchronized by {@code finishedTasks}. */
+    private long drainSampleStartNanos = System.nanoTime();
+
+    /**
+     * Moving average of the messages handed to consumers per second, or -1
+     * until the first sample. Synchronized by {@code finishedTasks}.
+     */
+    private double drainRate = -1;
+
+    ReceiveQueueBuffer(AmazonSQS paramSQS, Executor paramExecutor,
+            OutboundBatchScheduler paramScheduler, QueueBufferConfig paramConfig, String url) {
         config = paramConfig;
         executor = paramExecutor;
+        scheduler = paramScheduler;
         sqsClient = paramSQS;
         qUrl = url;
 
@@ -221,6 +265,7 @@ public class ReceiveQueueBuffer {
                 finishedTasks.removeFirst();
             }
             r.setMessages(messages);
+            drainedInSample += retrieved;
         }
 
         // if after the above runs the exception is not null,
@@ -260,6 +305,10 @@ public class ReceiveQueueBuffer {
         desiredBatches = desiredBatches < 1 ? 1 : desiredBatches;
 
         synchronized (finishedTasks) {
+            if (config.isAdaptivePrefetching()) {
+                desiredBatches = Math.min(desiredBatches, batchesDrainedInHalfVisibility());
+            }
+
             if (finishedTasks.size() >= desiredBatches)
                 return;
 
@@ -303,6 +352,108 @@ public class ReceiveQueueBuffer {
         }
     }
 
+    /**
+     * Folds the messages handed to consumers into the drain rate once a
+     * sample period has elapsed. Must be called holding the
+     * {@code finishedTasks} lock.
+     */
+    private void updateDrainRate(long now) {
+        long elapsed = now - drainSampleStartNanos;
+        if (elapsed < DRAIN_SAMPLE_NANOS) {
+            return;
+        }
+        double sample = drainedInSample * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        drainRate = drainRate < 0 ? sample : drainRate + DRAIN_RATE_ALPHA * (sample - drainRate);
+        drainedInSample = 0;
+        drainSampleStartNanos = now;
+    }
+
+    /**
+     * @return the number of batches consumers are expected to take within
+     *         half a visibility timeout, at least one, or
+     *         {@code Integer.MAX_VALUE} while there is no estimate yet. Must
+     *         be called holding the {@code finishedTasks} lock.
+     */
+    private int batchesDrainedInHalfVisibility() {
+        updateDrainRate(System.nanoTime());
+        if (drainRate < 0 || visibilityTimeoutNanos == -1) {
+            return Integer.MAX_VALUE;
+        }
+        double seconds = getVisibilityTimeoutNanos() / (double) TimeUnit.SECONDS.toNanos(2);
+        double batches = Math.ceil(drainRate * seconds / config.getMaxBatchSize());
+        return (int) Math.max(1, Math.min(batches, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return the visibility timeout of the messages this buffer receives
+     */
+    private long getVisibilityTimeoutNanos() {
+        if (config.getVisibilityTimeoutSeconds() > 0) {
+            return TimeUnit.SECONDS.toNanos(config.getVisibilityTimeoutSeconds());
+        }
+        return visibilityTimeoutNanos;
+    }
+
+    /**
+     * Arranges for the batch to be checked shortly before its messages become
+     * visible again.
+     */
+    private void scheduleVisibilityCheck(final ReceiveMessageBatchTask batch) {
+        long margin = Math.min(VISIBILITY_CHECK_MARGIN_NANOS, getVisibilityTimeoutNanos() / 4);
+        long delay = batch.getVisibilityDeadlineNano() - margin - System.nanoTime();
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // the timer thread must not block on the call to SQS
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        checkVisibility(batch);
+                    }
+                });
+            }
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Extends the visibility of a buffered batch nearing its visibility
+     * deadline if consumers are expected to take its messages within another
+     * visibility timeout, and returns the messages to the queue otherwise, so
+     * that they can go to other consumers without waiting for the deadline.
+     */
+    private void checkVisibility(ReceiveMessageBatchTask batch) {
+        boolean extend;
+        synchronized (finishedTasks) {
+            int index = finishedTasks.indexOf(batch);
+            if (index < 0 || batch.isEmpty()) {
+                // consumed or cleared in the meantime
+                return;
+            }
+            updateDrainRate(System.nanoTime());
+            int pending = 0;
+            for (ReceiveMessageBatchTask t : finishedTasks.subList(0, index + 1)) {
+                pending += t.getSize();
+            }
+            double drainSeconds = drainRate > 0 ? pending / drainRate : Double.MAX_VALUE;
+            extend = drainSeconds * TimeUnit.SECONDS.toNanos(1) < getVisibilityTimeoutNanos();
+            if (!extend) {
+                finishedTasks.remove(index);
+            }
+        }
+
+        if (extend) {
+            if (batch.extendVisibility()) {
+                scheduleVisibilityCheck(batch);
+            }
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("Queue " + qUrl + " returning " + batch.getSize()
+                        + " buffered messages nearing their visibility timeout");
+            }
+            batch.clear();
+        }
+    }
+
     /**
      * This method is called by the batches after they have finished retrieving
      * the messages.
@@ -316,6 +467,9 @@ public class ReceiveQueueBuffer {
                         + " receive results cached ");
             }
         }
+        if (config.isAdaptivePrefetching() && batch.getException() == null && !batch.isEmpty()) {
+            scheduleVisibilityCheck(batch);
+        }
         synchronized (taskSpawnSyncPoint) {
             --inflightReceiveMessageBatches;
         }
@@ -376,6 +530,7 @@ public class ReceiveQueueBuffer {
         private Exception exception = null;
         private List<Message> messages;
         private long visibilityDeadlineNano;
+        private long visibilityTimeoutNano;
         private boolean open = false;
         private ReceiveQueueBuffer parentBuffer;
 
@@ -416,6 +571,79 @@ public class ReceiveQueueBuffer {
             return exception;
         }
 
+        synchronized long getVisibilityDeadlineNano() {
+            return visibilityDeadlineNano;
+        }
+
+        /**
+         * Resets the visibility timeout of the messages remaining in the
+         * batch. The call to SQS is made without holding the batch lock, so
+         * that consumers are not held up; messages taken meanwhile are
+         * extended too, which does no harm.
+         *
+         * @return whether there are messages left whose visibility was
+         *         extended
+         */
+        boolean extendVisibility() {
+            List<String> receiptHandles;
+            synchronized (this) {
+                if (System.nanoTime() > visibilityDeadlineNano) {
+                    messages.clear();
+                }
+                if (messages.isEmpty()) {
+                    return false;
+                }
+                receiptHandles = new ArrayList<String>(messages.size());
+                for (Message m : messages) {
+                    receiptHandles.add(m.getReceiptHandle());
+                }
+            }
+
+            ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
+                    .withQueueUrl(qUrl);
+            ResultConverter.appendUserAgent(batchRequest, AmazonSQSBufferedAsyncClient.USER_AGENT);
+            int timeoutSeconds = (int) TimeUnit.NANOSECONDS.toSeconds(visibilityTimeoutNano);
+            List<ChangeMessageVisibilityBatchRequestEntry> entries =
+                    new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(receiptHandles.size());
+            for (int i = 0; i < receiptHandles.size(); i++) {
+                entries.add(new ChangeMessageVisibilityBatchRequestEntry()
+                        .withId(Integer.toString(i))
+                        .withReceiptHandle(receiptHandles.get(i))
+                        .withVisibilityTimeout(timeoutSeconds));
+            }
+            batchRequest.setEntries(entries);
+
+            long extendedDeadline = System.nanoTime() + visibilityTimeoutNano;
+            ChangeMessageVisibilityBatchResult result;
+            try {
+                result = sqsClient.changeMessageVisibilityBatch(batchRequest);
+            } catch (AmazonClientException e) {
+                // Log and ignore; the messages will expire as they would have.
+                log.warn("ReceiveMessageBatchTask: changeMessageVisibility failed " + e);
+                return false;
+            }
+
+            synchronized (this) {
+                if (result.getFailed() != null && !result.getFailed().isEmpty()) {
+                    // messages that could not be extended will expire, so
+                    // they must not be handed out any more
+                    Set<String> failed = new HashSet<String>();
+                    for (BatchResultErrorEntry entry : result.getFailed()) {
+                        failed.add(receiptHandles.get(Integer.parseInt(entry.getId())));
+                    }
+                    List<Message> extended = new ArrayList<Message>(messages.size());
+                    for (Message m : messages) {
+                        if (!failed.contains(m.getReceiptHandle())) {
+                            extended.add(m);
+                        }
+                    }
+                    messages = extended;
+                }
+                visibilityDeadlineNano = extendedDeadline;
+                return !messages.isEmpty();
+            }
+        }
+
         /**
          * Returns a message if one is available.
          * <p>
@@ -484,6 +712,7 @@ public class ReceiveQueueBuffer {
         public void run() {
 
             try {
+                visibilityTimeoutNano = visibilityTimeoutNanos;
                 visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNanos;
                 ReceiveMessageRequest request = new ReceiveMessageRequest(qUrl)
                         .withMaxNumberOfMessages(config.getMaxBatchSize());
@@ -491,9 +720,9 @@ public class ReceiveQueueBuffer {
 
                 if (config.getVisibilityTimeoutSeconds() > 0) {
                     request.setVisibilityTimeout(config.getVisibilityTimeoutSeconds());
-                    visibilityDeadlineNano = System.nanoTime()
-                            + TimeUnit.NANOSECONDS.convert(config.getVisibilityTimeoutSeconds(),
-                                    TimeUnit.SECONDS);
+                    visibilityTimeoutNano = TimeUnit.NANOSECONDS.convert(
+                            config.getVisibilityTimeoutSeconds(), TimeUnit.SECONDS);
+                    visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNano;
                 }
 
                 if (config.isLongPoll()) {
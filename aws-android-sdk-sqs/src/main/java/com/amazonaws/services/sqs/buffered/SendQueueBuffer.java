@@ -41,7 +41,6 @@ import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -52,7 +51,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * When a request arrives, the buffer adds the message to a message batch of an
  * appropriate type (creating such a batch if there currently isn't one
  * outstanding). When the outstanding batch becomes full, or when a configurable
- * timeout expires, the buffer makes a call to SQS to execute the current batch. <br>
+ * timeout expires, the buffer makes a call to SQS to execute the current batch.
+ * Open batches do not occupy a thread: the timeout is tracked by a shared
+ * {@link OutboundBatchScheduler}, which also runs the closed batches. <br>
  * Internally, the batch objects maintain a list of futures corresponding to the
  * requests added to them. When a batch completes, it loads the results into the
  * futures and marks the futures as complete.
@@ -77,9 +78,9 @@ public class SendQueueBuffer {
     private final AmazonSQS sqsClient;
 
     /**
-     * The executor service for the batching tasks.
+     * Closes batches on their deadline and runs the closed batches.
      */
-    private final Executor executor;
+    private final OutboundBatchScheduler scheduler;
 
     /**
      * Object used to serialize sendMessage calls.
@@ -131,10 +132,19 @@ public class SendQueueBuffer {
      */
     private final Semaphore inflightChangeMessageVisibilityBatches;
 
-    SendQueueBuffer(AmazonSQS sqsClient, Executor executor, QueueBufferConfig paramConfig,
-            String url) {
+    /**
+     * Open windows of the SendMessage, DeleteMessage and
+     * ChangeMessageVisibility batches, or null unless the config asks for
+     * adaptive batching.
+     */
+    private final AdaptiveBatchWindow sendMessageWindow;
+    private final AdaptiveBatchWindow deleteMessageWindow;
+    private final AdaptiveBatchWindow changeMessageVisibilityWindow;
+
+    SendQueueBuffer(AmazonSQS sqsClient, OutboundBatchScheduler scheduler,
+            QueueBufferConfig paramConfig, String url) {
         this.sqsClient = sqsClient;
-        this.executor = executor;
+        this.scheduler = scheduler;
         this.config = paramConfig;
         qUrl = url;
         int maxBatch = config.getMaxInflightOutboundBatches();
@@ -144,6 +154,11 @@ public class SendQueueBuffer {
         this.inflightSendMessageBatches = new Semaphore(maxBatch);
         this.inflightDeleteMessageBatches = new Semaphore(maxBatch);
         this.inflightChangeMessageVisibilityBatches = new Semaphore(maxBatch);
+
+        boolean adaptive = config.isAdaptiveBatchOpen();
+        this.sendMessageWindow = adaptive ? new AdaptiveBatchWindow(config) : null;
+        this.deleteMessageWindow = adaptive ? new AdaptiveBatchWindow(config) : null;
+        this.changeMessageVisibilityWindow = adaptive ? new AdaptiveBatchWindow(config) : null;
     }
 
     public QueueBufferConfig getConfig() {
@@ -159,7 +174,7 @@ public class SendQueueBuffer {
     {
         QueueBufferFuture<SendMessageRequest, SendMessageResult> result =
                 submitOutboundRequest(sendMessageLock, openSendMessageBatchTask, request,
-                        inflightSendMessageBatches, callback);
+                        inflightSendMessageBatches, sendMessageWindow, callback);
         return result;
     }
 
@@ -172,6 +187,7 @@ public class SendQueueBuffer {
                 openDeleteMessageBatchTask,
                 request,
                 inflightDeleteMessageBatches,
+                deleteMessageWindow,
                 callback);
     }
 
@@ -186,6 +202,7 @@ public class SendQueueBuffer {
                 openChangeMessageVisibilityBatchTask,
                 request,
                 inflightChangeMessageVisibilityBatches,
+                changeMessageVisibilityWindow,
                 callback);
     }
 
@@ -252,6 +269,8 @@ public class SendQueueBuffer {
      * @param request the request to submit
      * @param inflightOperationBatches the permits controlling the batches for
      *            this type of request
+     * @param window the adaptive open window for this type of request, or
+     *            null to hold batches open for {@code maxBatchOpenMs}
      * @return never null
      * @throws AmazonClientException (see the various outbound calls for
      *             details)
@@ -262,12 +281,14 @@ public class SendQueueBuffer {
             OBT[] openOutboundBatchTask,
             R request,
             final Semaphore inflightOperationBatches,
+            final AdaptiveBatchWindow window,
             QueueBufferCallback<R, Result> callback) {
         /*
          * Callers add requests to a single batch task (openOutboundBatchTask)
          * until it is full or maxBatchOpenMs elapses. The total number of batch
          * task in flight is controlled by the inflightOperationBatch semaphore
-         * capped at maxInflightOutboundBatches.
+         * capped at maxInflightOutboundBatches. With an adaptive window, the
+         * time a batch is held open follows the arrival rate instead.
          */
         QueueBufferFuture<R, Result> theFuture = null;
         try {
@@ -275,13 +296,23 @@ public class SendQueueBuffer {
                 if (openOutboundBatchTask[0] == null
                         || ((theFuture = openOutboundBatchTask[0].addRequest(request, callback))) == null) {
                     OBT obt = (OBT) newOutboundBatchTask(request);
-                    inflightOperationBatches.acquire();
+                    if (!inflightOperationBatches.tryAcquire()) {
+                        inflightOperationBatches.acquire();
+                        // the time spent waiting for a batch slot says
+                        // nothing about the rate at which requests arrive
+                        if (window != null) {
+                            window.onStall();
+                        }
+                    }
                     openOutboundBatchTask[0] = obt;
                     // Register a listener for the event signaling that the
                     // batch task has completed (successfully or not).
                     openOutboundBatchTask[0].onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
                         @Override
                         public void invoke(OutboundBatchTask<R, Result> task) {
+                            if (window != null) {
+                                window.onBatchCompleted(System.nanoTime() - task.runStartNanos);
+                            }
                             inflightOperationBatches.release();
                         }
                     };
@@ -293,8 +324,13 @@ public class SendQueueBuffer {
                                 + " free slots remain");
                     }
 
-                    theFuture = openOutboundBatchTask[0].addRequest(request, callback);
-                    executor.execute(openOutboundBatchTask[0]);
+                    final OBT task = openOutboundBatchTask[0];
+                    long windowNanos = window != null ? window.openWindowNanos()
+                            : TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs());
+                    task.deadlineNanos = System.nanoTime() + windowNanos;
+                    // the request goes in before the deadline is scheduled, so
+                    // that the timer can't close the batch while it is empty
+                    theFuture = task.addRequest(request, callback);
                     if (null == theFuture) {
                         // this can happen only if the request itself is flawed,
                         // so that it can't be added to any batch, even a brand
@@ -302,6 +338,26 @@ public class SendQueueBuffer {
                         throw new AmazonClientException("Failed to schedule request " + request
                                 + " for execution");
                     }
+                    if (windowNanos <= 0) {
+                        task.closeAndDispatch();
+                    } else {
+                        scheduler.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                task.closeAndDispatch();
+                            }
+                        }, windowNanos, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                if (window != null) {
+                    window.onArrival(System.nanoTime());
+                    // nothing more is expected to join the batch before it
+                    // closes, so waiting for the deadline would only add
+                    // latency
+                    if (window.isNextArrivalExpectedAfter(openOutboundBatchTask[0].deadlineNanos)) {
+                        openOutboundBatchTask[0].closeAndDispatch();
+                    }
                 }
             }
 
@@ -320,9 +376,10 @@ public class SendQueueBuffer {
      * Task to send a batch of outbound requests to SQS.
      * <p>
      * The batch task is constructed open and accepts requests until full, or
-     * until {@code maxBatchOpenMs} elapses. At that point, the batch closes and
-     * the collected requests are assembled into a single batch request to SQS.
-     * Specialized for each type of outbound request.
+     * until its open window elapses ({@code maxBatchOpenMs}, or less when
+     * batching is adaptive). At that point, the batch closes and
+     * is dispatched, and the collected requests are assembled into a single
+     * batch request to SQS. Specialized for each type of outbound request.
      * <p>
      * Instances of this class (and subclasses) are thread-safe.
      *
@@ -337,6 +394,12 @@ public class SendQueueBuffer {
         AtomicBoolean open = new AtomicBoolean(true);
         volatile Listener<OutboundBatchTask<R, Result>> onCompleted = null;
 
+        /** When the batch closes at the latest, set by the creator. */
+        volatile long deadlineNanos;
+
+        /** When the batch started running. */
+        volatile long runStartNanos;
+
         OutboundBatchTask() {
             requests = new ArrayList<R>(config.getMaxBatchSize());
             futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
@@ -356,19 +419,26 @@ public class SendQueueBuffer {
             QueueBufferFuture<R, Result> theFuture = addIfAllowed(request, callback);
 
             // if the addition did not work, or this addition made us full,
-            // we can close the request
-            if ((null == theFuture) || isFull()) {
-                open.set(false);
-            }
-
             // the batch request is as full as it will ever be. no need to wait
             // for the timeout, we can run it now.
-            if (!open.get())
-                notify();
+            if ((null == theFuture) || isFull()) {
+                closeAndDispatch();
+            }
 
             return theFuture;
         }
 
+        /**
+         * Closes the batch and hands it to the scheduler to be run, unless it
+         * has been closed already. Called when the batch fills up, and when
+         * its deadline expires, whichever happens first.
+         */
+        void closeAndDispatch() {
+            if (open.compareAndSet(true, false)) {
+                scheduler.dispatch(this);
+            }
+        }
+
         /**
          * Adds the request to the batch if capacity allows it.
          *
@@ -411,25 +481,14 @@ public class SendQueueBuffer {
          */
         abstract void process();
 
+        /**
+         * Runs the batch once it has been closed.
+         */
         @Override
         public synchronized void run() {
+            runStartNanos = System.nanoTime();
             try {
-                long deadlineMs = TimeUnit.MILLISECONDS.convert(System.nanoTime(),
-                        TimeUnit.NANOSECONDS) +
-                        config.getMaxBatchOpenMs() + 1;
-                long t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
-                while (open.get() && (t < deadlineMs)) {
-                    t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
-
-                    // zero means "wait forever", can't have that.
-                    long toWait = Math.max(1, deadlineMs - t);
-                    wait(toWait);
-                }
-
-                open.set(false);
                 process();
-            } catch (InterruptedException e) {
-                failAll(e);
             } catch (AmazonClientException e) {
                 failAll(e);
             } catch (RuntimeException e) {
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReceiveQueueBufferTest {
+
+    private final FakeQueue queue = new FakeQueue();
+    private final AmazonSQS sqs = (AmazonSQS) Proxy.newProxyInstance(
+            AmazonSQS.class.getClassLoader(), new Class<?>[] {
+                AmazonSQS.class
+            }, queue);
+    private final OutboundBatchScheduler scheduler = new OutboundBatchScheduler(1);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private ReceiveQueueBuffer buffer;
+
+    @After
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.shutdown();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testExtendsVisibilityOfBatchConsumersWillReach() throws Exception {
+        queue.messagesPerBatch = 4;
+        buffer = buffer(2);
+
+        // two messages taken in the first second, so the other two are
+        // expected to be taken well within another visibility timeout
+        assertEquals(2, receive(2).size());
+        ChangeMessageVisibilityBatchRequest change = queue.awaitVisibilityChange();
+
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = change.getEntries();
+        assertEquals(2, entries.size());
+        for (ChangeMessageVisibilityBatchRequestEntry entry : entries) {
+            assertEquals(Integer.valueOf(2), entry.getVisibilityTimeout());
+        }
+        Thread.sleep(1000);
+        // past the original deadline, the extended messages are still handed out
+        List<Message> rest = receive(10);
+        assertEquals(2, rest.size());
+        for (Message message : rest) {
+            assertTrue(message.getReceiptHandle().startsWith("batch-1-"));
+        }
+    }
+
+    @Test
+    public void testReturnsExpiringBatchToQueue() throws Exception {
+        queue.messagesPerBatch = 4;
+        buffer = buffer(1);
+
+        // no drain rate yet when the batch nears its deadline
+        assertEquals(1, receive(1).size());
+        ChangeMessageVisibilityBatchRequest change = queue.awaitVisibilityChange();
+
+        assertEquals(3, change.getEntries().size());
+        for (ChangeMessageVisibilityBatchRequestEntry entry : change.getEntries()) {
+            assertEquals(Integer.valueOf(0), entry.getVisibilityTimeout());
+        }
+        List<Message> next = receive(10);
+        assertEquals(2, queue.receives.get());
+        assertTrue(next.get(0).getReceiptHandle().startsWith("batch-2-"));
+    }
+
+    @Test
+    public void testDropsMessagesWhoseExtensionFailed() throws Exception {
+        queue.messagesPerBatch = 4;
+        // the first entry is the first message left in the batch
+        queue.failedEntryId = "0";
+        buffer = buffer(2);
+
+        assertEquals(2, receive(2).size());
+        queue.awaitVisibilityChange();
+        // let the buffer process the result
+        Thread.sleep(100);
+
+        List<Message> rest = receive(10);
+        assertEquals(1, rest.size());
+        assertEquals("batch-1-1", rest.get(0).getReceiptHandle());
+    }
+
+    @Test
+    public void testPrefetchIsCappedByDrainRate() throws Exception {
+        queue.messagesPerBatch = 10;
+        buffer = new ReceiveQueueBuffer(sqs, executor, scheduler, new QueueBufferConfig()
+                .withAdaptivePrefetching(true)
+                .withMaxDoneReceiveBatches(10)
+                .withMaxInflightReceiveBatches(1)
+                .withVisibilityTimeoutSeconds(4), "queue-url");
+
+        // without a drain rate, the buffer prefetches as many batches as
+        // configured
+        assertEquals(1, receive(1).size());
+        queue.awaitReceives(10);
+
+        // about ten messages a second are taken, which half a visibility
+        // timeout only needs two batches for
+        Thread.sleep(1100);
+        assertEquals(9, receive(10).size());
+        for (int i = 0; i < 9; i++) {
+            assertEquals(10, receive(10).size());
+        }
+        queue.awaitReceives(12);
+        Thread.sleep(200);
+        assertEquals(12, queue.receives.get());
+    }
+
+    @Test
+    public void testEmptyBufferStillSpawnsReceive() throws Exception {
+        queue.messagesPerBatch = 1;
+        buffer = new ReceiveQueueBuffer(sqs, executor, scheduler, new QueueBufferConfig()
+                .withAdaptivePrefetching(true)
+                .withMaxDoneReceiveBatches(0)
+                .withVisibilityTimeoutSeconds(10), "queue-url");
+
+        assertEquals(1, receive(1).size());
+        // a drain rate of under a message a second would prefetch nothing
+        Thread.sleep(1100);
+        assertEquals(1, receive(1).size());
+        assertEquals(1, receive(1).size());
+        assertTrue(queue.receives.get() >= 3);
+    }
+
+    private ReceiveQueueBuffer buffer(int visibilityTimeoutSeconds) {
+        return new ReceiveQueueBuffer(sqs, executor, scheduler, new QueueBufferConfig()
+                .withAdaptivePrefetching(true)
+                .withMaxDoneReceiveBatches(1)
+                .withMaxInflightReceiveBatches(1)
+                .withVisibilityTimeoutSeconds(visibilityTimeoutSeconds), "queue-url");
+    }
+
+    private List<Message> receive(int messages) throws Exception {
+        return buffer.receiveMessageAsync(new ReceiveMessageRequest("queue-url")
+                .withMaxNumberOfMessages(messages), null)
+                .get(5, TimeUnit.SECONDS).getMessages();
+    }
+
+    /**
+     * Answers every ReceiveMessage call with a new batch of messages, and
+     * records the visibility changes, failing the entry of the given id.
+     */
+    private static class FakeQueue implements InvocationHandler {
+        final AtomicInteger receives = new AtomicInteger();
+        final List<ChangeMessageVisibilityBatchRequest> visibilityChanges =
+                new ArrayList<ChangeMessageVisibilityBatchRequest>();
+        volatile int messagesPerBatch;
+        volatile String failedEntryId;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getQueueAttributes")) {
+                return new GetQueueAttributesResult().withAttributes(
+                        Collections.singletonMap("VisibilityTimeout", "30"));
+            } else if (name.equals("receiveMessage")) {
+                int batch = receives.incrementAndGet();
+                List<Message> messages = new ArrayList<Message>();
+                for (int i = 0; i < messagesPerBatch; i++) {
+                    messages.add(new Message().withMessageId(batch + "-" + i)
+                            .withReceiptHandle("batch-" + batch + "-" + i));
+                }
+                synchronized (this) {
+                    notifyAll();
+                }
+                return new ReceiveMessageResult().withMessages(messages);
+            } else if (name.equals("changeMessageVisibilityBatch")) {
+                ChangeMessageVisibilityBatchRequest request =
+                        (ChangeMessageVisibilityBatchRequest) args[0];
+                List<BatchResultErrorEntry> failed = new ArrayList<BatchResultErrorEntry>();
+                Set<String> ids = new HashSet<String>();
+                for (ChangeMessageVisibilityBatchRequestEntry entry : request.getEntries()) {
+                    ids.add(entry.getId());
+                }
+                if (failedEntryId != null && ids.contains(failedEntryId)) {
+                    failed.add(new BatchResultErrorEntry().withId(failedEntryId)
+                            .withCode("ReceiptHandleIsInvalid").withSenderFault(true));
+                }
+                synchronized (this) {
+                    visibilityChanges.add(request);
+                    notifyAll();
+                }
+                return new ChangeMessageVisibilityBatchResult().withFailed(failed);
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        synchronized ChangeMessageVisibilityBatchRequest awaitVisibilityChange()
+                throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (visibilityChanges.isEmpty()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    throw new AssertionError("No visibility change");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return visibilityChanges.get(0);
+        }
+
+        synchronized void awaitReceives(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (receives.get() < count) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    throw new AssertionError(receives.get() + " receives");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SendQueueBufferTest {
+
+    private static final int MESSAGES = 200;
+
+    private final FakeQueue queue = new FakeQueue();
+    private final AmazonSQS sqs = (AmazonSQS) Proxy.newProxyInstance(
+            AmazonSQS.class.getClassLoader(), new Class<?>[] {
+                AmazonSQS.class
+            }, queue);
+    private final OutboundBatchScheduler scheduler = new OutboundBatchScheduler(2);
+
+    @Test
+    public void testZeroWindowSendsEveryMessage() throws Exception {
+        sendAll(new QueueBufferConfig().withMaxBatchOpenMs(0));
+    }
+
+    @Test
+    public void testSpentLatencyBudgetSendsEveryMessage() throws Exception {
+        // every batch takes longer than the latency target, so the window
+        // shrinks to its floor
+        queue.latencyMillis = 5;
+        sendAll(new QueueBufferConfig().withAdaptiveBatchOpen(true)
+                .withTargetOutboundLatencyMs(1));
+    }
+
+    private void sendAll(QueueBufferConfig config) throws Exception {
+        SendQueueBuffer buffer = new SendQueueBuffer(sqs, scheduler, config, "queue-url");
+        List<QueueBufferFuture<SendMessageRequest, SendMessageResult>> futures =
+                new ArrayList<QueueBufferFuture<SendMessageRequest, SendMessageResult>>();
+        for (int i = 0; i < MESSAGES; i++) {
+            futures.add(buffer.sendMessage(new SendMessageRequest("queue-url", "body-" + i),
+                    null));
+        }
+        for (QueueBufferFuture<SendMessageRequest, SendMessageResult> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(MESSAGES, queue.sent.get());
+    }
+
+    /**
+     * Accepts every message of every batch, after an optional delay.
+     */
+    private static class FakeQueue implements InvocationHandler {
+        final AtomicInteger sent = new AtomicInteger();
+        volatile long latencyMillis;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("sendMessageBatch")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            SendMessageBatchResult result = new SendMessageBatchResult()
+                    .withFailed(new ArrayList<BatchResultErrorEntry>());
+            List<SendMessageBatchResultEntry> successful =
+                    new ArrayList<SendMessageBatchResultEntry>();
+            for (SendMessageBatchRequestEntry entry : ((SendMessageBatchRequest) args[0])
+                    .getEntries()) {
+                sent.incrementAndGet();
+                successful.add(new SendMessageBatchResultEntry().withId(entry.getId())
+                        .withMessageId("message-" + entry.getId()));
+            }
+            return result.withSuccessful(successful);
+        }
+    }
+}